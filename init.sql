@@ -45,9 +45,9 @@ CREATE TABLE IF NOT EXISTS cart_items (
     UNIQUE(user_id, product_id)
 );
 
--- Create orders table
+-- Create orders table; ids come from orders_seq below
 CREATE TABLE IF NOT EXISTS orders (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id VARCHAR(255) NOT NULL,
     total_amount DECIMAL(10,2) NOT NULL CHECK (total_amount > 0),
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED')),
@@ -56,9 +56,9 @@ CREATE TABLE IF NOT EXISTS orders (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Create order_items table
+-- Create order_items table; ids come from order_items_seq below
 CREATE TABLE IF NOT EXISTS order_items (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     order_id BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
     product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
     quantity INTEGER NOT NULL CHECK (quantity > 0),
@@ -67,6 +67,53 @@ CREATE TABLE IF NOT EXISTS order_items (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Create stock_reservations table: the stock each cart holds until it expires; ids come from
+-- stock_reservations_seq below
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGINT PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    expires_at TIMESTAMP NOT NULL,
+    UNIQUE(user_id, product_id)
+);
+
+-- Create catalog_imports table: each import and its checkpoint, the number of input records
+-- whose effects are committed
+CREATE TABLE IF NOT EXISTS catalog_imports (
+    id VARCHAR(64) PRIMARY KEY,
+    format VARCHAR(20) NOT NULL CHECK (format IN ('CSV', 'NDJSON')),
+    state VARCHAR(20) NOT NULL CHECK (state IN ('RUNNING', 'COMPLETED', 'FAILED')),
+    records_done BIGINT NOT NULL DEFAULT 0,
+    inserted BIGINT NOT NULL DEFAULT 0,
+    updated BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0,
+    message VARCHAR(1000),
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Create the id sequences for orders, order items and stock reservations. The entities allocate ids 50 at a
+-- time (allocationSize = 50), so the sequences must step by 50: each value v hands out the
+-- ids v-49..v. Starting the next value at max(id) + 50 keeps the first block past any rows
+-- already in a database created with BIGSERIAL ids, and a sequence already in use is never
+-- moved back.
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS stock_reservations_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE orders_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_seq INCREMENT BY 50;
+ALTER SEQUENCE stock_reservations_seq INCREMENT BY 50;
+SELECT setval('orders_seq', GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM orders),
+    (SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM orders_seq)), false);
+SELECT setval('order_items_seq', GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM order_items),
+    (SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM order_items_seq)), false);
+SELECT setval('stock_reservations_seq', GREATEST(
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM stock_reservations),
+    (SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM stock_reservations_seq)), false);
+
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_products_category_id ON products(category_id);
 CREATE INDEX IF NOT EXISTS idx_products_name ON products(name);
@@ -77,6 +124,7 @@ CREATE INDEX IF NOT EXISTS idx_orders_user_id ON orders(user_id);
 CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
 CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders(created_at);
 CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id);
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_expires_at ON stock_reservations(expires_at);
 
 -- Insert sample categories
 INSERT INTO categories (name, description, image_url) VALUES
@@ -0,0 +1,81 @@
+package com.ecommerce.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON results, usually the recorded baseline and a fresh run, benchmark by
+ * benchmark and parameter by parameter. Prints the change of each score and exits with 1 if
+ * any got slower by more than the threshold; a change within the score's error is not counted.
+ * <p>
+ * Arguments: baseline file, current file, threshold in percent (default 10).
+ */
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        System.out.printf("%-70s %16s %16s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            double score = now.path("primaryMetric").path("score").asDouble();
+            if (before == null) {
+                System.out.printf("%-70s %16s %16s %9s%n", entry.getKey(), "-", format(score, unit), "new");
+                continue;
+            }
+            double previous = before.path("primaryMetric").path("score").asDouble();
+            double error = Math.max(now.path("primaryMetric").path("scoreError").asDouble(0),
+                    before.path("primaryMetric").path("scoreError").asDouble(0));
+            double change = (score - previous) / previous * 100;
+            // Throughput is better higher; the time modes are better lower
+            double slowdown = "thrpt".equals(now.path("mode").asText()) ? -change : change;
+            boolean regressed = slowdown > threshold && Math.abs(score - previous) > error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %16s %16s %+8.1f%%%s%n", entry.getKey(), format(previous, unit), format(score, unit),
+                    change, regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d benchmark(s) compared, %d slower than the baseline by more than %.0f%%%n",
+                current.size(), regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Results keyed by benchmark name and parameters
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText().replace("com.ecommerce.", ""));
+            for (Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields(); params.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String format(double score, String unit) {
+        return String.format("%.3f %s", score, unit);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.dto.ProductCard;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.service.InMemoryProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog read paths behind the product endpoints, on the in-memory catalog: lookup by
+ * id, full-text search and a category page, at 10k, 100k and 1M products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CatalogBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private InMemoryProductService productService;
+    private int[] lookups;
+
+    /**
+     * Where each benchmark thread is in its sequence of ids, terms and categories.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int bound) {
+            return (next++ & Integer.MAX_VALUE) % bound;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        List<Category> categories = SyntheticCatalog.categories();
+        for (int i = 0; i < categories.size(); i++) {
+            categories.get(i).setId(i + 1L);
+        }
+        List<Product> products = SyntheticCatalog.products(catalogSize, categories);
+        for (int i = 0; i < products.size(); i++) {
+            products.get(i).setId(i + 1L);
+        }
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.load(categories, products);
+        productService = new InMemoryProductService(catalog);
+        lookups = SyntheticCatalog.shuffledIndexes(1 << 16, catalogSize);
+    }
+
+    @Benchmark
+    public Optional<Product> lookup(Cursor cursor) {
+        return productService.getProductById(lookups[cursor.next(lookups.length)] + 1L);
+    }
+
+    @Benchmark
+    public Page<Product> search(Cursor cursor) {
+        return productService.searchProducts(SyntheticCatalog.SEARCH_TERMS[cursor.next(SyntheticCatalog.SEARCH_TERMS.length)],
+                0, 20);
+    }
+
+    @Benchmark
+    public Page<ProductCard> categoryFilter(Cursor cursor) {
+        return productService.getProductCards(cursor.next(SyntheticCatalog.CATEGORIES) + 1L, 0, 20);
+    }
+}
@@ -0,0 +1,146 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.EcommercePlatformApplication;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cart total and checkout through the services, against the application context on H2 with
+ * 10k, 100k and 1M products. Checkout is the whole purchase: three products added to a fresh
+ * cart, each reserving stock, then the order placed. Stock is plentiful, so no checkout fails.
+ * Iterations are longer than the catalog benchmarks' to ride out the background cart flushes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class StoreBenchmark {
+
+    private static final int CART_LINES = 5;
+    private static final int CHECKOUT_LINES = 3;
+    private static final int INSERT_CHUNK = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private OrderService orderService;
+    private long[] productIds;
+    private int[] picks;
+    private final AtomicLong shoppers = new AtomicLong();
+
+    /**
+     * A shopper with a cart of {@value #CART_LINES} lines, and where it is in the product picks.
+     */
+    @State(Scope.Thread)
+    public static class Shopper {
+
+        private String cartUser;
+        private int next;
+
+        @Setup
+        public void setUp(StoreBenchmark store) {
+            cartUser = store.newUser();
+            for (int i = 0; i < CART_LINES; i++) {
+                store.cartService.addToCart(cartUser, store.pick(this), 1 + i);
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(EcommercePlatformApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.com.ecommerce=WARN",
+                        "--logging.level.org.springframework.cache=WARN");
+        cartService = context.getBean(CartService.class);
+        orderService = context.getBean(OrderService.class);
+        seed();
+        picks = SyntheticCatalog.shuffledIndexes(1 << 16, catalogSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BigDecimal cartTotal(Shopper shopper) {
+        return cartService.calculateCartTotal(shopper.cartUser);
+    }
+
+    @Benchmark
+    public Order checkout(Shopper shopper) {
+        String userId = newUser();
+        for (int i = 0; i < CHECKOUT_LINES; i++) {
+            cartService.addToCart(userId, pick(shopper), 1);
+        }
+        return orderService.createOrder(userId, "1 Benchmark Way");
+    }
+
+    private String newUser() {
+        return "benchmark-" + shoppers.incrementAndGet();
+    }
+
+    private Long pick(Shopper shopper) {
+        return productIds[picks[(shopper.next++ & Integer.MAX_VALUE) % picks.length]];
+    }
+
+    // Bulk-inserts the products over JDBC, then loads the same objects into the catalog
+    private void seed() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Category> categories = context.getBean(CategoryRepository.class).saveAll(SyntheticCatalog.categories());
+        List<Product> products = SyntheticCatalog.products(catalogSize, categories);
+        long before = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+        for (int from = 0; from < products.size(); from += INSERT_CHUNK) {
+            List<Object[]> rows = new ArrayList<>();
+            for (Product product : products.subList(from, Math.min(products.size(), from + INSERT_CHUNK))) {
+                rows.add(new Object[] {product.getName(), product.getDescription(), product.getPrice(),
+                        product.getImageUrl(), product.getStockQuantity(), product.getCategory().getId(),
+                        Timestamp.valueOf(product.getCreatedAt()), Timestamp.valueOf(product.getUpdatedAt())});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO products (name, description, price, image_url, stock_quantity, "
+                    + "category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products WHERE id > ? ORDER BY id", Long.class, before);
+        productIds = new long[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            products.get(i).setId(ids.get(i));
+            productIds[i] = ids.get(i);
+        }
+        context.getBean(ProductCatalog.class).load(categories, products);
+    }
+}
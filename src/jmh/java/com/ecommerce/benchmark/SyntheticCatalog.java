@@ -0,0 +1,81 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A deterministic catalog of realistic shape for the benchmarks: 50 categories, and product
+ * names built from brand, adjective and noun vocabularies, so every search term matches a
+ * share of the catalog that stays the same as it grows. The same size always yields the same
+ * products, which keeps results comparable between runs.
+ */
+final class SyntheticCatalog {
+
+    static final int CATEGORIES = 50;
+    static final int STOCK = 1_000_000_000;
+
+    private static final String[] BRANDS = {"Acme", "Globex", "Initech", "Umbrella", "Stark", "Wayne", "Wonka",
+            "Hooli", "Vandelay", "Soylent", "Tyrell", "Cyberdyne", "Aperture", "Oscorp", "Gringotts", "Monarch"};
+    private static final String[] ADJECTIVES = {"Classic", "Compact", "Deluxe", "Ergonomic", "Portable", "Premium",
+            "Rugged", "Smart", "Sleek", "Wireless", "Vintage", "Organic", "Heavy-Duty", "Lightweight", "Modern"};
+    private static final String[] NOUNS = {"Headphones", "Backpack", "Blender", "Camera", "Chair", "Desk Lamp",
+            "Jacket", "Kettle", "Keyboard", "Monitor", "Notebook", "Running Shoes", "Speaker", "Tent", "Watch",
+            "Water Bottle", "Yoga Mat", "Sunglasses", "Drill", "Skillet"};
+
+    /** Terms shoppers search for: brands, product types and brand-type pairs */
+    static final String[] SEARCH_TERMS = {"acme", "headphones", "wireless speaker", "stark watch", "yoga",
+            "premium", "tent", "globex keyboard", "running shoes", "vintage camera"};
+
+    private SyntheticCatalog() {
+    }
+
+    /**
+     * @return categories without ids
+     */
+    static List<Category> categories() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Category("Benchmark category " + i, "Synthetic category " + i, null));
+        }
+        return categories;
+    }
+
+    /**
+     * @return products without ids, spread over the given categories
+     */
+    static List<Product> products(int count, List<Category> categories) {
+        Random random = new Random(42);
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = BRANDS[random.nextInt(BRANDS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+                    + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + (i + 1);
+            BigDecimal price = BigDecimal.valueOf(99 + random.nextInt(200_000), 2);
+            Product product = new Product(name, "A synthetic product for benchmarks, number " + (i + 1), price,
+                    "https://images.example.com/p" + (i + 1) + ".jpg", STOCK,
+                    categories.get(random.nextInt(categories.size())));
+            product.setCreatedAt(created.plusSeconds(i));
+            product.setUpdatedAt(created.plusSeconds(i));
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * @return indexes drawn from {@code 0..bound-1}, in a fixed random order
+     */
+    static int[] shuffledIndexes(int count, int bound) {
+        Random random = new Random(7);
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = random.nextInt(bound);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cache codec with Java serialization and Jackson on a typical "products" cache
+ * entry: a page of 20 products from 4 categories. The encoded size of each format is printed
+ * once per fork. Jackson encodes the page content only, since {@code PageImpl} cannot be read
+ * back from JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private final CacheValueCodec codec = new CacheValueCodec();
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final TypeReference<List<Product>> productList = new TypeReference<>() {
+    };
+
+    private Page<Product> page;
+    private byte[] codecBytes;
+    private byte[] javaBytes;
+    private byte[] jacksonBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        page = samplePage();
+        codecBytes = codecEncode();
+        javaBytes = javaEncode();
+        jacksonBytes = jacksonEncode();
+        System.out.printf("%nbytes/page: cache codec %d, java serialization %d, jackson (content) %d%n",
+                codecBytes.length, javaBytes.length, jacksonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return codec.encode(page);
+    }
+
+    @Benchmark
+    public Object codecDecode() {
+        return codec.decode(codecBytes);
+    }
+
+    @Benchmark
+    public byte[] javaEncode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(page);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaDecode() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaBytes))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode() throws IOException {
+        return mapper.writeValueAsBytes(page.getContent());
+    }
+
+    @Benchmark
+    public Object jacksonDecode() throws IOException {
+        return mapper.readValue(jacksonBytes, productList);
+    }
+
+    private static Page<Product> samplePage() {
+        List<Category> categories = new ArrayList<>();
+        String[] names = {"Electronics", "Fashion", "Home & Garden", "Sports"};
+        for (int i = 0; i < names.length; i++) {
+            Category category = new Category(names[i], names[i] + " for every day", names[i].toLowerCase() + ".jpg");
+            category.setId(i + 1L);
+            categories.add(category);
+        }
+        List<Product> products = new ArrayList<>();
+        LocalDateTime created = LocalDateTime.of(2024, 1, 15, 10, 30, 12, 345_000_000);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Product product = new Product("Product " + (1000 + i), "A dependable product with a short description, number " + i,
+                    new BigDecimal("19.99").add(BigDecimal.valueOf(i * 5L)), "https://images.example.com/p" + i + ".jpg",
+                    10 + i, categories.get(i % categories.size()));
+            product.setId(1000L + i);
+            product.setCreatedAt(created.plusMinutes(i * 7L));
+            product.setUpdatedAt(created.plusHours(i));
+            products.add(product);
+        }
+        return new PageImpl<>(products, PageRequest.of(3, PAGE_SIZE, Sort.by("name")), 500);
+    }
+}
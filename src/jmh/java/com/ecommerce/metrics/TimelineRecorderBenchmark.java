@@ -0,0 +1,88 @@
+package com.ecommerce.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the {@link TimelineRecorder} adds to a primary-key look-up on pooled H2: taking a
+ * connection, preparing the statement, binding the id, executing it and reading the row.
+ * {@code direct} uses the pool itself; {@code unsampled} goes through the recorder outside a
+ * profiled request, where connections are handed out unwrapped; {@code sampled} records the
+ * statement on a timeline, through the connection and statement proxies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineRecorderBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    @Param({"direct", "unsampled", "sampled"})
+    public String recording;
+
+    private HikariDataSource pool;
+    private DataSource dataSource;
+    private long next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:timeline;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(1);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS items (id BIGINT PRIMARY KEY, name VARCHAR(64))");
+            statement.execute("MERGE INTO items SELECT x, 'item ' || x FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        dataSource = recording.equals("direct") ? pool
+                : (DataSource) new TimelineRecorder().postProcessAfterInitialization(pool, "dataSource");
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public String lookup() throws SQLException {
+        RequestTimeline timeline = recording.equals("sampled") ? RequestTimeline.begin(256) : null;
+        try {
+            return find(next++ % ROWS + 1);
+        } finally {
+            if (timeline != null) {
+                timeline.finish();
+            }
+        }
+    }
+
+    private String find(long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT name FROM items WHERE id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? rows.getString(1) : null;
+            }
+        }
+    }
+}
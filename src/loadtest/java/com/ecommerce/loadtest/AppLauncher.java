@@ -0,0 +1,84 @@
+package com.ecommerce.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the packaged application on a fresh in-memory database for a run, and stops it
+ * afterwards. Its output goes to {@code app.log} next to the report, or
+ * {@code app-<mode>.log} for a run in one thread mode.
+ */
+final class AppLauncher implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    /** H2 emulating PostgreSQL closely enough to catch most dialect-specific surprises */
+    static final String POSTGRES_MODE_URL =
+            "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    static final String H2_URL = "jdbc:h2:mem:loadtest";
+
+    private final Process process;
+
+    private AppLauncher(Process process) {
+        this.process = process;
+    }
+
+    static AppLauncher start(LoadTestOptions options, StoreClient client) throws IOException, InterruptedException {
+        URI baseUrl = URI.create(options.baseUrl);
+        int port = baseUrl.getPort() == -1 ? 80 : baseUrl.getPort();
+        List<String> command = new ArrayList<>();
+        command.add(options.java != null ? options.java.toString()
+                : Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-jar");
+        command.add(options.launch.toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=" + (options.database.equals("h2") ? H2_URL : POSTGRES_MODE_URL));
+        command.addAll(options.appArgs);
+
+        Path log = options.report.toAbsolutePath().resolveSibling(
+                options.threads == null ? "app.log" : "app-" + options.threads + ".log");
+        Files.createDirectories(log.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        AppLauncher launcher = new AppLauncher(process);
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        System.out.printf("Starting %s on port %d, log in %s%n", options.launch, port, log);
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Application exited during startup with code " + process.exitValue()
+                        + "; see " + log);
+            }
+            try {
+                HttpResponse<String> health = client.send("GET", "/actuator/health", null);
+                if (health.statusCode() == 200) {
+                    return launcher;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        launcher.close();
+        throw new IOException("Application did not become healthy within " + STARTUP_TIMEOUT + "; see " + log);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the catalog, carts and order histories of a run from the seed alone, and loads
+ * them through the public API: the catalog through the bulk import, carts and orders as the
+ * shoppers themselves would create them.
+ */
+final class DataGenerator {
+
+    static final String CATEGORY_PREFIX = "LT ";
+    static final String FLASH_SALE_CATEGORY = CATEGORY_PREFIX + "Flash Sale";
+    static final int CATEGORIES = 50;
+    static final int FLASH_DEALS = 5;
+    static final int FLASH_DEAL_STOCK = 1000;
+
+    static final List<String> ADJECTIVES = List.of("Wireless", "Compact", "Premium", "Classic", "Smart",
+            "Portable", "Organic", "Vintage", "Ultra", "Ergonomic", "Waterproof", "Deluxe", "Slim", "Rugged");
+    static final List<String> NOUNS = List.of("Headphones", "Keyboard", "Backpack", "Lamp", "Blender", "Jacket",
+            "Speaker", "Camera", "Kettle", "Notebook", "Sneakers", "Monitor", "Charger", "Tent", "Watch", "Mug");
+
+    private static final String SHIPPING_ADDRESS = URLEncoder.encode("1 Load Test Way", StandardCharsets.UTF_8);
+
+    private final StoreClient client;
+    private final ObjectMapper objectMapper;
+    private final LoadTestOptions options;
+
+    DataGenerator(StoreClient client, ObjectMapper objectMapper, LoadTestOptions options) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.options = options;
+    }
+
+    Dataset prepare() throws IOException, InterruptedException {
+        if (!options.skipSeed) {
+            Path file = Files.createTempFile("loadtest-catalog", ".ndjson");
+            try {
+                writeCatalog(file);
+                importCatalog(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        Dataset dataset = readDataset();
+        if (!options.skipSeed) {
+            seedShoppers(dataset);
+        }
+        return dataset;
+    }
+
+    private void writeCatalog(Path file) throws IOException {
+        Random random = new Random(options.seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < options.products; i++) {
+                String adjective = ADJECTIVES.get(random.nextInt(ADJECTIVES.size()));
+                String noun = NOUNS.get(random.nextInt(NOUNS.size()));
+                ObjectNode product = objectMapper.createObjectNode();
+                product.put("name", adjective + " " + noun + " " + (1000 + i));
+                product.put("description", adjective + " " + noun.toLowerCase() + ", model " + (1000 + i));
+                product.put("price", BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+                product.put("stockQuantity", 50 + random.nextInt(5000));
+                product.put("categoryName", String.format("%sAisle %02d", CATEGORY_PREFIX, random.nextInt(CATEGORIES)));
+                out.write(objectMapper.writeValueAsString(product));
+                out.newLine();
+            }
+            for (int i = 0; i < FLASH_DEALS; i++) {
+                ObjectNode deal = objectMapper.createObjectNode();
+                deal.put("name", "Flash Deal " + (i + 1) + " " + NOUNS.get(i));
+                deal.put("description", "Limited stock");
+                deal.put("price", new BigDecimal("9.99"));
+                deal.put("stockQuantity", FLASH_DEAL_STOCK);
+                deal.put("categoryName", FLASH_SALE_CATEGORY);
+                out.write(objectMapper.writeValueAsString(deal));
+                out.newLine();
+            }
+        }
+    }
+
+    private void importCatalog(Path file) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> submitted = client.upload("/admin/imports?format=NDJSON", file);
+        if (submitted.statusCode() != 202) {
+            throw new IOException("Catalog import rejected: HTTP " + submitted.statusCode());
+        }
+        String importId = objectMapper.readTree(submitted.body()).get("importId").asText();
+        JsonNode status;
+        do {
+            Thread.sleep(500);
+            status = objectMapper.readTree(client.send("GET", "/admin/imports/" + importId, null).body());
+        } while (status.get("state").asText().equals("QUEUED") || status.get("state").asText().equals("RUNNING"));
+        if (!status.get("state").asText().equals("COMPLETED") || status.get("rejected").asLong() > 0) {
+            throw new IOException("Catalog import did not complete: " + status);
+        }
+        System.out.printf("Imported %d products in %d s%n", status.get("inserted").asLong(),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    /**
+     * Reads the generated products back from the catalog export; other products are ignored.
+     */
+    private Dataset readDataset() throws IOException, InterruptedException {
+        List<Long> products = new ArrayList<>();
+        List<Long> flashDeals = new ArrayList<>();
+        TreeSet<Long> categories = new TreeSet<>();
+        HttpResponse<InputStream> export = client.stream("/products/export");
+        if (export.statusCode() != 200) {
+            throw new IOException("Catalog export failed: HTTP " + export.statusCode());
+        }
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(export.body(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                JsonNode product = objectMapper.readTree(line);
+                String category = product.path("categoryName").asText();
+                if (category.equals(FLASH_SALE_CATEGORY)) {
+                    flashDeals.add(product.get("id").asLong());
+                } else if (category.startsWith(CATEGORY_PREFIX)) {
+                    products.add(product.get("id").asLong());
+                    categories.add(product.get("categoryId").asLong());
+                }
+            }
+        }
+        if (products.isEmpty() || flashDeals.isEmpty()) {
+            throw new IOException("No generated catalog found at " + client.baseUrl() + "; run without --skip-seed");
+        }
+        List<String> terms = new ArrayList<>(ADJECTIVES);
+        terms.addAll(NOUNS);
+        return new Dataset(products.stream().mapToLong(Long::longValue).toArray(),
+                flashDeals.stream().mapToLong(Long::longValue).toArray(),
+                categories.stream().mapToLong(Long::longValue).toArray(), terms, options.users);
+    }
+
+    /**
+     * Fills the carts of one shopper in five and gives one in twenty an order history.
+     */
+    private void seedShoppers(Dataset dataset) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, options.concurrency));
+        try {
+            List<Future<Void>> seeded = new ArrayList<>();
+            for (int index = 0; index < options.users; index++) {
+                int user = index;
+                if (user % 5 == 0 || user % 20 == 1) {
+                    seeded.add(executor.submit(() -> {
+                        seedShopper(dataset, user);
+                        return null;
+                    }));
+                }
+            }
+            for (Future<Void> shopper : seeded) {
+                try {
+                    shopper.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Seeding shoppers failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.printf("Seeded carts and order histories for %d shoppers in %d s%n", options.users,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private void seedShopper(Dataset dataset, int index) throws IOException, InterruptedException {
+        Random random = new Random(options.seed ^ (index * 0x9E3779B97F4A7C15L));
+        String user = Dataset.user(index);
+        if (index % 20 == 1) {
+            int orders = 1 + random.nextInt(3);
+            for (int i = 0; i < orders; i++) {
+                fillCart(dataset, user, random);
+                checkout(user);
+            }
+        }
+        if (index % 5 == 0) {
+            fillCart(dataset, user, random);
+        }
+    }
+
+    private void fillCart(Dataset dataset, String user, Random random) throws IOException, InterruptedException {
+        ArrayNode mutations = objectMapper.createArrayNode();
+        int lines = 1 + random.nextInt(4);
+        for (int i = 0; i < lines; i++) {
+            ObjectNode mutation = mutations.addObject();
+            mutation.put("productId", dataset.products()[random.nextInt(dataset.products().length)]);
+            mutation.put("operation", "ADD");
+            mutation.put("quantity", 1 + random.nextInt(2));
+        }
+        expect(200, client.send("POST", "/cart/" + user + "/bulk", objectMapper.writeValueAsString(mutations)));
+    }
+
+    private void checkout(String user) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send("POST", "/orders/" + user + "?shippingAddress=" + SHIPPING_ADDRESS, null);
+        if (response.statusCode() == 202) {
+            // Asynchronous checkout: wait for the order so the next one starts from an empty cart
+            String token = objectMapper.readTree(response.body()).get("token").asText();
+            JsonNode status;
+            do {
+                status = objectMapper.readTree(expect(200,
+                        client.send("GET", "/orders/checkout/" + token + "?waitSeconds=10", null)).body());
+            } while (status.get("state").asText().equals("QUEUED") || status.get("state").asText().equals("PROCESSING"));
+            if (!status.get("state").asText().equals("COMPLETED")) {
+                throw new IOException("Checkout failed for " + user + ": " + status);
+            }
+        } else {
+            expect(200, response);
+        }
+    }
+
+    private static HttpResponse<String> expect(int status, HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != status) {
+            throw new IOException(response.request().method() + " " + response.uri() + ": HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.loadtest;
+
+import java.util.List;
+
+/**
+ * The synthetic data a run drives traffic against: product ids in generation order, so a
+ * product's popularity rank is the same in every run with the same seed.
+ */
+record Dataset(long[] products, long[] flashDeals, long[] categories, List<String> searchTerms, int users) {
+
+    static final String USER_PREFIX = "lt-user-";
+
+    static String user(int index) {
+        return String.format("%s%06d", USER_PREFIX, index);
+    }
+}
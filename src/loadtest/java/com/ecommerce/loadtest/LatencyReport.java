@@ -0,0 +1,140 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and response counts per endpoint. Latencies are recorded in
+ * microseconds with three significant digits, so p99.9 is as trustworthy as the median.
+ */
+final class LatencyReport {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, int status, long latencyNanos) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+        stats.latency.recordValue(Math.min(HIGHEST_MICROS, Math.max(1, latencyNanos / 1000)));
+        if (status < 0) {
+            stats.ioErrors.increment();
+        } else if (status >= 500) {
+            stats.serverErrors.increment();
+        } else if (status >= 400) {
+            stats.clientErrors.increment();
+        }
+    }
+
+    void print(PrintStream out, Duration measured) {
+        String format = "%-36s %9s %7s %7s %9s %9s %9s %9s %9s%n";
+        out.printf(format, "endpoint", "requests", "4xx", "5xx/io", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        sorted().forEach((name, stats) -> {
+            Histogram latency = stats.latency;
+            out.printf(format, name, latency.getTotalCount(), stats.clientErrors.sum(),
+                    stats.serverErrors.sum() + stats.ioErrors.sum(),
+                    String.format("%.1f", latency.getTotalCount() / seconds(measured)),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()));
+        });
+        out.printf("%d requests, %.1f req/s%n", totalCount(), totalCount() / seconds(measured));
+    }
+
+    /**
+     * Prints throughput and tail latency of each endpoint side by side, one column per run.
+     */
+    static void printComparison(PrintStream out, Map<String, LatencyReport> runs, Duration measured) {
+        Set<String> names = new TreeSet<>();
+        runs.values().forEach(run -> names.addAll(run.endpoints.keySet()));
+        StringBuilder header = new StringBuilder(String.format("%-36s", "endpoint"));
+        for (String label : runs.keySet()) {
+            header.append(String.format(" %22s %22s %22s", label + " req/s", label + " p99 ms", label + " p999 ms"));
+        }
+        out.println(header);
+        for (String name : names) {
+            StringBuilder line = new StringBuilder(String.format("%-36s", name));
+            for (LatencyReport run : runs.values()) {
+                Endpoint stats = run.endpoints.get(name);
+                if (stats == null) {
+                    line.append(String.format(" %22s %22s %22s", "-", "-", "-"));
+                } else {
+                    Histogram latency = stats.latency;
+                    line.append(String.format(" %22.1f %22s %22s", latency.getTotalCount() / seconds(measured),
+                            millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9))));
+                }
+            }
+            out.println(line);
+        }
+        StringBuilder total = new StringBuilder(String.format("%-36s", "total"));
+        for (LatencyReport run : runs.values()) {
+            total.append(String.format(" %22.1f %22s %22s", run.totalCount() / seconds(measured), "", ""));
+        }
+        out.println(total);
+    }
+
+    void write(Path file, ObjectMapper objectMapper, ObjectNode run, Duration measured) throws IOException {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.setAll(run);
+        report.put("measuredSeconds", seconds(measured));
+        report.put("requests", totalCount());
+        report.put("throughput", totalCount() / seconds(measured));
+        ArrayNode results = report.putArray("endpoints");
+        sorted().forEach((name, stats) -> {
+            Histogram latency = stats.latency;
+            ObjectNode result = results.addObject();
+            result.put("endpoint", name);
+            result.put("requests", latency.getTotalCount());
+            result.put("clientErrors", stats.clientErrors.sum());
+            result.put("serverErrors", stats.serverErrors.sum());
+            result.put("ioErrors", stats.ioErrors.sum());
+            result.put("throughput", latency.getTotalCount() / seconds(measured));
+            result.put("p50Ms", latency.getValueAtPercentile(50) / 1000.0);
+            result.put("p99Ms", latency.getValueAtPercentile(99) / 1000.0);
+            result.put("p999Ms", latency.getValueAtPercentile(99.9) / 1000.0);
+            result.put("maxMs", latency.getMaxValue() / 1000.0);
+        });
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    }
+
+    private long totalCount() {
+        return endpoints.values().stream().mapToLong(stats -> stats.latency.getTotalCount()).sum();
+    }
+
+    private Map<String, Endpoint> sorted() {
+        return new TreeMap<>(endpoints);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    private static final class Endpoint {
+
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder ioErrors = new LongAdder();
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP load test of the store API. Generates a catalog, shoppers, carts and order histories
+ * from a seed, drives one traffic scenario against them and reports throughput and latency
+ * percentiles per endpoint.
+ *
+ * <p>By default every shopper sends its next request as soon as the previous one returns
+ * (a closed model). With {@code --rate} shopper visits are due on a fixed schedule instead
+ * and latency is measured from when a visit was due, so a stalled server shows up in the
+ * percentiles rather than just in lower throughput.
+ *
+ * <p>With {@code --threads compare} the scenario runs twice, each time against a freshly
+ * launched application on the same data, first on platform and then on virtual request
+ * threads, and the two runs are compared endpoint by endpoint.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(LoadTestOptions.USAGE);
+            return;
+        }
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, LatencyReport> reports = new LinkedHashMap<>();
+        for (String mode : options.threadModes()) {
+            reports.put(mode, runOnce(options.forThreads(mode), objectMapper));
+        }
+        if (reports.size() > 1) {
+            System.out.printf("%nPlatform and virtual threads, %s%n", options.scenario.label());
+            LatencyReport.printComparison(System.out, reports, options.duration);
+        }
+    }
+
+    private static LatencyReport runOnce(LoadTestOptions options, ObjectMapper objectMapper) throws Exception {
+        StoreClient client = new StoreClient(options.baseUrl);
+        AppLauncher launcher = options.launch == null ? null : AppLauncher.start(options, client);
+        try {
+            JsonNode threads = threads(client, objectMapper);
+            if ("virtual".equals(options.threads) && !threads.path("virtual").asBoolean()) {
+                System.out.printf("Warning: the application is not on virtual threads (Java %s); see --java%n",
+                        threads.path("javaVersion").asText("unknown"));
+            }
+            Dataset dataset = new DataGenerator(client, objectMapper, options).prepare();
+            LatencyReport report = run(options, client, objectMapper, dataset);
+
+            ObjectNode run = objectMapper.createObjectNode();
+            run.put("scenario", options.scenario.label());
+            run.put("baseUrl", options.baseUrl);
+            run.put("database", options.launch == null ? "external" : options.database);
+            run.put("appArgs", String.join(" ", options.appArgs));
+            run.set("threads", threads);
+            run.put("seed", options.seed);
+            run.put("products", options.products);
+            run.put("users", options.users);
+            run.put("concurrency", options.concurrency);
+            run.put("rate", options.rate);
+            run.put("warmupSeconds", options.warmup.toSeconds());
+
+            System.out.printf("%nScenario %s, %d shoppers%s, %d s measured%s%n", options.scenario.label(),
+                    options.concurrency, options.rate > 0 ? String.format(" at %.0f visits/s", options.rate) : "",
+                    options.duration.toSeconds(), options.threads == null ? "" : ", " + options.threads + " threads");
+            report.print(System.out, options.duration);
+            report.write(options.report, objectMapper, run, options.duration);
+            System.out.println("Report written to " + options.report);
+            return report;
+        } finally {
+            if (launcher != null) {
+                launcher.close();
+            }
+        }
+    }
+
+    // The thread mode the application reports it is actually running in
+    private static JsonNode threads(StoreClient client, ObjectMapper objectMapper) {
+        try {
+            HttpResponse<String> info = client.send("GET", "/actuator/info", null);
+            if (info.statusCode() == 200) {
+                return objectMapper.readTree(info.body()).path("threads");
+            }
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return objectMapper.createObjectNode();
+    }
+
+    private static LatencyReport run(LoadTestOptions options, StoreClient client, ObjectMapper objectMapper,
+                                     Dataset dataset) throws InterruptedException {
+        LatencyReport report = new LatencyReport();
+        int shoppers = Math.max(1, options.concurrency);
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        // Open model: each shopper starts iterations at a fixed interval, staggered between shoppers
+        long interval = options.rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(shoppers) / options.rate) : 0;
+
+        System.out.printf("Running %s for %d s after %d s of warmup%n", options.scenario.label(),
+                options.duration.toSeconds(), options.warmup.toSeconds());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < shoppers; i++) {
+            Shopper shopper = new Shopper(client, objectMapper, report, dataset, options.seed, i, shoppers);
+            long first = start + interval * i / shoppers;
+            Thread thread = new Thread(() -> {
+                try {
+                    long due = first;
+                    while (true) {
+                        if (interval > 0) {
+                            long wait = due - System.nanoTime();
+                            if (wait > 0) {
+                                TimeUnit.NANOSECONDS.sleep(wait);
+                            }
+                        } else {
+                            due = System.nanoTime();
+                        }
+                        if (due - end >= 0) {
+                            return;
+                        }
+                        shopper.iterate(options.scenario, interval > 0 ? due : 0, measureFrom);
+                        due += interval;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "shopper-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(Duration.ofNanos(Math.max(0, end - System.nanoTime())).toMillis() + 120_000);
+            thread.interrupt();
+        }
+        return report;
+    }
+}
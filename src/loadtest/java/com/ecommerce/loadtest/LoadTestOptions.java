@@ -0,0 +1,152 @@
+package com.ecommerce.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Command-line options of {@link LoadTest}.
+ */
+final class LoadTestOptions implements Cloneable {
+
+    static final String USAGE = String.join("\n",
+            "Usage: LoadTest [options]",
+            "  --scenario NAME      browse | search | flash-sale | cart-churn (default browse)",
+            "  --base-url URL       application to load (default http://localhost:8081/api)",
+            "  --launch JAR         start the packaged application first, and stop it afterwards",
+            "  --database DB        with --launch: h2 | postgres-mode, H2 emulating PostgreSQL (default h2)",
+            "  --app-args ARGS      with --launch: extra application arguments, space separated",
+            "  --java PATH          with --launch: java executable for the application, e.g. a Java 21",
+            "                       one for virtual threads (default the one running this test)",
+            "  --threads MODE       with --launch: platform | virtual request threads, or compare to run",
+            "                       the scenario once in each mode on fresh data and compare them",
+            "  --products N         synthetic catalog size (default 100000)",
+            "  --users N            synthetic shoppers (default 10000)",
+            "  --seed N             generator seed; the same seed gives the same data and traffic (default 42)",
+            "  --skip-seed          reuse data already loaded into the application",
+            "  --concurrency N      concurrent virtual users (default 16)",
+            "  --rate N             open model: shopper visits (scenario iterations) per second over all",
+            "                       users; 0 runs each user back to back (default 0)",
+            "  --warmup DURATION    load before measuring, e.g. 15s or 1m (default 15s)",
+            "  --duration DURATION  measured load (default 60s)",
+            "  --report FILE        JSON report (default target/loadtest/<scenario>.json, with -<mode>",
+            "                       before .json under --threads)");
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)(ms|s|m)");
+
+    Scenario scenario = Scenario.BROWSE;
+    String baseUrl = "http://localhost:8081/api";
+    Path launch;
+    String database = "h2";
+    List<String> appArgs = new ArrayList<>();
+    Path java;
+    String threads;
+    int products = 100_000;
+    int users = 10_000;
+    long seed = 42;
+    boolean skipSeed;
+    int concurrency = 16;
+    double rate;
+    Duration warmup = Duration.ofSeconds(15);
+    Duration duration = Duration.ofSeconds(60);
+    Path report;
+
+    /**
+     * @throws IllegalArgumentException on an unknown option or a malformed value
+     */
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--skip-seed")) {
+                options.skipSeed = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--scenario" -> options.scenario = Scenario.named(value);
+                case "--base-url" -> options.baseUrl = value.replaceAll("/+$", "");
+                case "--launch" -> options.launch = Path.of(value);
+                case "--database" -> options.database = value;
+                case "--app-args" -> options.appArgs = new ArrayList<>(Arrays.asList(value.trim().split("\\s+")));
+                case "--java" -> options.java = Path.of(value);
+                case "--threads" -> options.threads = value;
+                case "--products" -> options.products = Integer.parseInt(value);
+                case "--users" -> options.users = Integer.parseInt(value);
+                case "--seed" -> options.seed = Long.parseLong(value);
+                case "--concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "--rate" -> options.rate = Double.parseDouble(value);
+                case "--warmup" -> options.warmup = duration(value);
+                case "--duration" -> options.duration = duration(value);
+                case "--report" -> options.report = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (!options.database.equals("h2") && !options.database.equals("postgres-mode")) {
+            throw new IllegalArgumentException("Unknown database " + options.database);
+        }
+        if (options.threads != null && !List.of("platform", "virtual", "compare").contains(options.threads)) {
+            throw new IllegalArgumentException("Unknown thread mode " + options.threads);
+        }
+        if ((options.threads != null || options.java != null) && options.launch == null) {
+            throw new IllegalArgumentException("--threads and --java need --launch");
+        }
+        if (options.report == null) {
+            options.report = Path.of("target", "loadtest", options.scenario.label() + ".json");
+        }
+        return options;
+    }
+
+    /**
+     * @return the thread modes to run in turn; null for the application's own setting
+     */
+    List<String> threadModes() {
+        if (threads == null) {
+            return Collections.singletonList(null);
+        }
+        return threads.equals("compare") ? List.of("platform", "virtual") : List.of(threads);
+    }
+
+    /**
+     * @return these options for one run in {@code mode}, reporting to a file of its own
+     */
+    LoadTestOptions forThreads(String mode) {
+        if (mode == null) {
+            return this;
+        }
+        LoadTestOptions run;
+        try {
+            run = (LoadTestOptions) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        run.threads = mode;
+        run.appArgs = new ArrayList<>(appArgs);
+        run.appArgs.add("--spring.threads.virtual.enabled=" + mode.equals("virtual"));
+        String name = report.getFileName().toString().replaceFirst("(\\.json)?$", "-" + mode + "$1");
+        run.report = report.resolveSibling(name);
+        return run;
+    }
+
+    private static Duration duration(String value) {
+        Matcher matcher = DURATION.matcher(value.toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid duration " + value);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            default -> Duration.ofMinutes(amount);
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The traffic mixes. Endpoints are labelled by their path template so that results
+ * aggregate per endpoint rather than per product or user.
+ */
+enum Scenario {
+
+    /** Storefront browsing: product pages, category listings and the occasional cart or order look */
+    BROWSE {
+        @Override
+        void iterate(Shopper shopper) throws InterruptedException {
+            int roll = shopper.random().nextInt(100);
+            if (roll < 40) {
+                shopper.call("GET /products/{id}", "GET", "/products/" + shopper.popularProduct());
+            } else if (roll < 70) {
+                shopper.call("GET /products/cards?categoryId", "GET", "/products/cards?categoryId="
+                        + shopper.category() + "&page=" + shopper.random().nextInt(5) + "&size=20");
+            } else if (roll < 80) {
+                shopper.call("GET /products/cards", "GET", "/products/cards?page="
+                        + shopper.random().nextInt(10) + "&size=20");
+            } else if (roll < 88) {
+                shopper.call("GET /categories", "GET", "/categories");
+            } else if (roll < 95) {
+                shopper.call("GET /cart/{userId}/lines", "GET", "/cart/" + shopper.user() + "/lines");
+            } else {
+                shopper.call("GET /orders/{userId}/summaries", "GET", "/orders/" + shopper.user() + "/summaries");
+            }
+        }
+    },
+
+    /** Search-driven shopping: typeahead, result pages, then a product page */
+    SEARCH {
+        @Override
+        void iterate(Shopper shopper) throws InterruptedException {
+            String term = shopper.searchTerm().toLowerCase(Locale.ROOT);
+            int roll = shopper.random().nextInt(100);
+            if (roll < 30) {
+                String prefix = term.substring(0, Math.min(term.length(), 2 + shopper.random().nextInt(3)));
+                shopper.call("GET /products/suggest", "GET", "/products/suggest?q=" + prefix);
+            } else if (roll < 75) {
+                shopper.call("GET /products/search", "GET", "/products/search?q=" + term + "&size=20");
+            } else if (roll < 85) {
+                shopper.call("GET /products/search", "GET", "/products/search?q=" + term
+                        + "&page=" + (1 + shopper.random().nextInt(4)) + "&size=20");
+            } else {
+                shopper.call("GET /products/{id}", "GET", "/products/" + shopper.popularProduct());
+            }
+        }
+    },
+
+    /**
+     * A flash sale: most shoppers go straight for a few limited-stock deals and check out.
+     * Once a deal sells out, adding it fails and that shopper does not check out.
+     */
+    FLASH_SALE {
+        @Override
+        void iterate(Shopper shopper) throws InterruptedException {
+            if (shopper.random().nextInt(100) >= 80) {
+                BROWSE.iterate(shopper);
+                return;
+            }
+            long[] deals = shopper.dataset().flashDeals();
+            long deal = deals[shopper.random().nextInt(deals.length)];
+            String user = shopper.user();
+            shopper.call("GET /products/{id}", "GET", "/products/" + deal);
+            if (shopper.call("POST /cart/{userId}/add", "POST", "/cart/" + user + "/add?productId=" + deal) != 200) {
+                return;
+            }
+            JsonNode placed = shopper.callForJson("POST /orders/{userId}", "POST",
+                    "/orders/" + user + "?shippingAddress=1+Load+Test+Way");
+            if (placed != null && placed.has("token")) {
+                // Asynchronous checkout: the shopper waits on the confirmation
+                shopper.call("GET /orders/checkout/{token}", "GET",
+                        "/orders/checkout/" + placed.get("token").asText() + "?waitSeconds=10");
+            }
+        }
+    },
+
+    /** Cart edits without checkout: single-line changes, bulk updates and reviewing the cart */
+    CART_CHURN {
+        @Override
+        void iterate(Shopper shopper) throws InterruptedException {
+            String cart = "/cart/" + shopper.user();
+            long first = shopper.popularProduct();
+            long second = shopper.anyProduct();
+            while (second == first) {
+                second = shopper.anyProduct();
+            }
+            shopper.call("POST /cart/{userId}/add", "POST", cart + "/add?productId=" + first);
+            shopper.call("PUT /cart/{userId}/update", "PUT", cart + "/update?productId=" + first + "&quantity=2");
+            shopper.call("POST /cart/{userId}/bulk", "POST", cart + "/bulk", shopper.json(List.of(
+                    Map.of("productId", second, "operation", "ADD", "quantity", 1),
+                    Map.of("productId", first, "operation", "SET", "quantity", 3))));
+            shopper.call("GET /cart/{userId}/lines", "GET", cart + "/lines");
+            shopper.call("GET /cart/{userId}/total", "GET", cart + "/total");
+            shopper.call("DELETE /cart/{userId}/remove", "DELETE", cart + "/remove?productId=" + first);
+            if (shopper.random().nextInt(5) == 0) {
+                shopper.call("DELETE /cart/{userId}/clear", "DELETE", cart + "/clear");
+            } else {
+                shopper.call("POST /cart/{userId}/bulk", "POST", cart + "/bulk", shopper.json(List.of(
+                        Map.of("productId", second, "operation", "REMOVE"))));
+            }
+        }
+    };
+
+    abstract void iterate(Shopper shopper) throws InterruptedException;
+
+    String label() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    static Scenario named(String label) {
+        for (Scenario scenario : values()) {
+            if (scenario.label().equals(label)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario " + label);
+    }
+}
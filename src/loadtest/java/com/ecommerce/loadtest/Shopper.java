@@ -0,0 +1,142 @@
+package com.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.Random;
+
+/**
+ * One virtual user: issues the requests of a scenario and records their latencies. Each
+ * shopper owns a disjoint slice of the synthetic users, so no two shoppers edit the same cart.
+ */
+final class Shopper {
+
+    private final StoreClient client;
+    private final ObjectMapper objectMapper;
+    private final LatencyReport report;
+    private final Dataset dataset;
+    private final Random random;
+    private final int slice;
+    private final int slices;
+
+    private long measureFrom;
+    private long intendedStart;
+    private String user;
+
+    Shopper(StoreClient client, ObjectMapper objectMapper, LatencyReport report, Dataset dataset,
+            long seed, int slice, int slices) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.report = report;
+        this.dataset = dataset;
+        this.random = new Random(seed * 31 + slice);
+        this.slice = slice;
+        this.slices = slices;
+    }
+
+    /**
+     * Runs one scenario iteration. {@code intendedStart} is when the iteration was due; in an
+     * open model the first request is timed from then, so time spent queued behind a slow
+     * server counts against it instead of being silently omitted.
+     */
+    void iterate(Scenario scenario, long intendedStart, long measureFrom) throws InterruptedException {
+        this.intendedStart = intendedStart;
+        this.measureFrom = measureFrom;
+        this.user = Dataset.user(slice + slices * random.nextInt(Math.max(1, dataset.users() / slices)));
+        scenario.iterate(this);
+    }
+
+    Random random() {
+        return random;
+    }
+
+    String user() {
+        return user;
+    }
+
+    Dataset dataset() {
+        return dataset;
+    }
+
+    /**
+     * A product drawn with a steep popularity skew: the first 1% of the catalog takes
+     * about a fifth of the views, as on a real storefront.
+     */
+    long popularProduct() {
+        long[] products = dataset.products();
+        return products[(int) (products.length * Math.pow(random.nextDouble(), 3))];
+    }
+
+    long anyProduct() {
+        return dataset.products()[random.nextInt(dataset.products().length)];
+    }
+
+    long category() {
+        return dataset.categories()[random.nextInt(dataset.categories().length)];
+    }
+
+    String searchTerm() {
+        return dataset.searchTerms().get(random.nextInt(dataset.searchTerms().size()));
+    }
+
+    /**
+     * @return the response status, or -1 if the request failed without one
+     */
+    int call(String endpoint, String method, String path) throws InterruptedException {
+        return call(endpoint, method, path, null);
+    }
+
+    int call(String endpoint, String method, String path, String json) throws InterruptedException {
+        long started = start();
+        int status;
+        try {
+            status = client.exchange(method, path, json);
+        } catch (IOException e) {
+            status = -1;
+        }
+        finish(endpoint, status, started);
+        return status;
+    }
+
+    /**
+     * Like {@link #call} but keeps the body; null if the request failed.
+     */
+    JsonNode callForJson(String endpoint, String method, String path) throws InterruptedException {
+        long started = start();
+        HttpResponse<String> response;
+        try {
+            response = client.send(method, path, null);
+        } catch (IOException e) {
+            finish(endpoint, -1, started);
+            return null;
+        }
+        finish(endpoint, response.statusCode(), started);
+        if (response.statusCode() >= 300 || response.body().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    String json(Object value) {
+        return objectMapper.valueToTree(value).toString();
+    }
+
+    private long start() {
+        long now = System.nanoTime();
+        long started = intendedStart != 0 ? Math.min(intendedStart, now) : now;
+        intendedStart = 0;
+        return started;
+    }
+
+    private void finish(String endpoint, int status, long started) {
+        if (started - measureFrom >= 0) {
+            report.record(endpoint, status, System.nanoTime() - started);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecommerce.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Message broadcast between application instances when a shared cache changes. EVICT and
+ * CLEAR drop entries from every other instance's local tier; PRODUCT_CHANGED,
+ * CATEGORY_CHANGED and STOCK_CHANGED let each instance work out which of its own "products"
+ * entries are affected, since only it knows what it has cached.
+ */
+public final class CacheInvalidation {
+
+    public enum Type {
+        EVICT, CLEAR, PRODUCT_CHANGED, CATEGORY_CHANGED, STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final String origin;
+    private final String cacheName;
+    private final long generation;
+    private final byte[] payload;
+
+    public CacheInvalidation(Type type, String origin, String cacheName, long generation, byte[] payload) {
+        this.type = type;
+        this.origin = origin;
+        this.cacheName = cacheName;
+        this.generation = generation;
+        this.payload = payload;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (payload == null ? 0 : payload.length));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeUTF(origin);
+            out.writeUTF(cacheName);
+            out.writeLong(generation);
+            out.writeInt(payload == null ? -1 : payload.length);
+            if (payload != null) {
+                out.write(payload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CacheInvalidation fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            Type type = Type.values()[in.readByte()];
+            String origin = in.readUTF();
+            String cacheName = in.readUTF();
+            long generation = in.readLong();
+            int length = in.readInt();
+            byte[] payload = null;
+            if (length >= 0) {
+                payload = new byte[length];
+                in.readFully(payload);
+            }
+            return new CacheInvalidation(type, origin, cacheName, generation, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecommerce.cache;
+
+/**
+ * Recomputes a cached value from its key. Lets the cache refresh hot entries in the background
+ * before they expire, instead of every reader missing at once when the TTL runs out.
+ */
+public interface CacheReloader {
+
+    String getCacheName();
+
+    /**
+     * Returns the fresh value for the key, or null if it cannot be recomputed (the entry is
+     * then dropped and the next read goes through the cached method).
+     */
+    Object reload(Object key);
+}
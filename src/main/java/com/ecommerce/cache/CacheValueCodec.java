@@ -0,0 +1,451 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary format for values kept in the shared cache tier. The types the services actually
+ * cache (products, categories, cart items, lists and pages of them) are written field by
+ * field behind a one-byte tag, which is several times smaller than Java serialization and
+ * does not need the entities to be {@code Serializable}. Lists and pages of products use
+ * the columnar {@link ProductPageCodec}. Cache keys and the product states carried by
+ * invalidation messages have tags of their own.
+ * <p>
+ * There is deliberately no fallback to Java serialization: these bytes come back from a store
+ * other processes can write to, and deserializing them would let whoever can write to Redis
+ * instantiate arbitrary classes here. Any other type is rejected when encoding.
+ */
+public class CacheValueCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 2;
+    private static final byte LONG = 3;
+    private static final byte LIST = 4;
+    private static final byte PAGE = 5;
+    private static final byte PRODUCT = 6;
+    private static final byte CATEGORY = 7;
+    private static final byte CART_ITEM = 8;
+    private static final byte PRODUCT_PAGE = 9;
+    private static final byte PRODUCT_LIST = 10;
+    private static final byte DECIMAL = 11;
+    private static final byte PRODUCT_QUERY_KEY = 12;
+    private static final byte PRODUCT_STATE = 13;
+
+    public byte[] encode(Object value) {
+        Buffer bytes = new Buffer();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public Object decode(byte[] bytes) {
+        return decode(bytes, 0);
+    }
+
+    public Object decode(byte[] bytes, int offset) {
+        try (DataInputStream in = new DataInputStream(new Reader(bytes, offset))) {
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null || value == NullValue.INSTANCE) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeDecimal(out, (BigDecimal) value);
+        } else if (value instanceof ProductQueryKey) {
+            out.writeByte(PRODUCT_QUERY_KEY);
+            writeKey(out, (ProductQueryKey) value);
+        } else if (value instanceof ProductState) {
+            out.writeByte(PRODUCT_STATE);
+            writeState(out, (ProductState) value);
+        } else if (value instanceof Product) {
+            out.writeByte(PRODUCT);
+            writeProduct(out, (Product) value);
+        } else if (value instanceof Category) {
+            out.writeByte(CATEGORY);
+            writeCategory(out, (Category) value);
+        } else if (value instanceof CartItem) {
+            out.writeByte(CART_ITEM);
+            writeCartItem(out, (CartItem) value);
+        } else if (value instanceof Page && ProductPageCodec.isProductList(((Page<?>) value).getContent())) {
+            Page<?> page = (Page<?>) value;
+            out.writeByte(PRODUCT_PAGE);
+            writePageable(out, page.getPageable());
+            out.writeLong(page.getTotalElements());
+            ProductPageCodec.write(out, page.getContent());
+        } else if (value instanceof List && ProductPageCodec.isProductList((List<?>) value)) {
+            out.writeByte(PRODUCT_LIST);
+            ProductPageCodec.write(out, (List<?>) value);
+        } else if (value instanceof Page) {
+            out.writeByte(PAGE);
+            writePage(out, (Page<?>) value);
+        } else if (value instanceof List) {
+            out.writeByte(LIST);
+            writeList(out, (List<?>) value);
+        } else {
+            throw new IllegalArgumentException("Cannot encode cache value of type " + value.getClass().getName());
+        }
+    }
+
+    private Object read(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return in.readLong();
+            case DECIMAL:
+                return readDecimal(in);
+            case PRODUCT_QUERY_KEY:
+                return readKey(in);
+            case PRODUCT_STATE:
+                return readState(in);
+            case PRODUCT:
+                return readProduct(in);
+            case CATEGORY:
+                return readCategory(in);
+            case CART_ITEM:
+                return readCartItem(in);
+            case PRODUCT_PAGE:
+                Pageable pageable = readPageable(in);
+                long total = in.readLong();
+                return new PageImpl<>(ProductPageCodec.read(in), pageable, total);
+            case PRODUCT_LIST:
+                return ProductPageCodec.read(in);
+            case PAGE:
+                return readPage(in);
+            case LIST:
+                return readList(in);
+            default:
+                throw new IOException("Unknown cache value tag " + tag);
+        }
+    }
+
+    private void writeList(DataOutputStream out, List<?> list) throws IOException {
+        out.writeInt(list.size());
+        for (Object element : list) {
+            write(out, element);
+        }
+    }
+
+    private List<Object> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(read(in));
+        }
+        return list;
+    }
+
+    private void writePage(DataOutputStream out, Page<?> page) throws IOException {
+        writePageable(out, page.getPageable());
+        out.writeLong(page.getTotalElements());
+        writeList(out, page.getContent());
+    }
+
+    private Page<Object> readPage(DataInputStream in) throws IOException {
+        Pageable pageable = readPageable(in);
+        long total = in.readLong();
+        return new PageImpl<>(readList(in), pageable, total);
+    }
+
+    private static void writePageable(DataOutputStream out, Pageable pageable) throws IOException {
+        if (pageable.isUnpaged()) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(pageable.getPageNumber());
+        out.writeInt(pageable.getPageSize());
+        List<Sort.Order> orders = pageable.getSort().toList();
+        out.writeInt(orders.size());
+        for (Sort.Order order : orders) {
+            writeString(out, order.getProperty());
+            out.writeBoolean(order.isAscending());
+        }
+    }
+
+    private static Pageable readPageable(DataInputStream in) throws IOException {
+        int page = in.readInt();
+        if (page < 0) {
+            return Pageable.unpaged();
+        }
+        int size = in.readInt();
+        int orderCount = in.readInt();
+        List<Sort.Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            String property = readString(in);
+            orders.add(in.readBoolean() ? Sort.Order.asc(property) : Sort.Order.desc(property));
+        }
+        return PageRequest.of(page, size, Sort.by(orders));
+    }
+
+    private void writeKey(DataOutputStream out, ProductQueryKey key) throws IOException {
+        ProductQueryKey.Family family = key.getFamily();
+        out.writeByte(family.getKind().ordinal());
+        writeList(out, family.getParams());
+        out.writeInt(key.getPage());
+        out.writeInt(key.getSize());
+    }
+
+    private ProductQueryKey readKey(DataInputStream in) throws IOException {
+        ProductQueryKey.Kind kind = ProductQueryKey.Kind.values()[in.readByte()];
+        List<Object> params = readList(in);
+        return ProductQueryKey.of(kind, params, in.readInt(), in.readInt());
+    }
+
+    private static void writeState(DataOutputStream out, ProductState state) throws IOException {
+        writeLong(out, state.getId());
+        writeString(out, state.getName());
+        writeString(out, state.getDescription());
+        writeDecimal(out, state.getPrice());
+        writeInteger(out, state.getStockQuantity());
+        writeLong(out, state.getCategoryId());
+        writeDateTime(out, state.getCreatedAt());
+    }
+
+    private static ProductState readState(DataInputStream in) throws IOException {
+        Product product = new Product();
+        product.setId(readLong(in));
+        product.setName(readString(in));
+        product.setDescription(readString(in));
+        product.setPrice(readDecimal(in));
+        product.setStockQuantity(readInteger(in));
+        Long categoryId = readLong(in);
+        if (categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            product.setCategory(category);
+        }
+        product.setCreatedAt(readDateTime(in));
+        return ProductState.of(product);
+    }
+
+    private void writeProduct(DataOutputStream out, Product product) throws IOException {
+        writeLong(out, product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getDescription());
+        writeDecimal(out, product.getPrice());
+        writeString(out, product.getImageUrl());
+        writeInteger(out, product.getStockQuantity());
+        Category category = product.getCategory();
+        out.writeBoolean(category != null);
+        if (category != null) {
+            writeCategory(out, category);
+        }
+        writeDateTime(out, product.getCreatedAt());
+        writeDateTime(out, product.getUpdatedAt());
+    }
+
+    private Product readProduct(DataInputStream in) throws IOException {
+        Product product = new Product();
+        product.setId(readLong(in));
+        product.setName(readString(in));
+        product.setDescription(readString(in));
+        product.setPrice(readDecimal(in));
+        product.setImageUrl(readString(in));
+        product.setStockQuantity(readInteger(in));
+        product.setCategory(in.readBoolean() ? readCategory(in) : null);
+        product.setCreatedAt(readDateTime(in));
+        product.setUpdatedAt(readDateTime(in));
+        return product;
+    }
+
+    private static void writeCategory(DataOutputStream out, Category category) throws IOException {
+        writeLong(out, category.getId());
+        writeString(out, category.getName());
+        writeString(out, category.getDescription());
+        writeString(out, category.getImageUrl());
+    }
+
+    private static Category readCategory(DataInputStream in) throws IOException {
+        Category category = new Category();
+        category.setId(readLong(in));
+        category.setName(readString(in));
+        category.setDescription(readString(in));
+        category.setImageUrl(readString(in));
+        return category;
+    }
+
+    private void writeCartItem(DataOutputStream out, CartItem item) throws IOException {
+        writeLong(out, item.getId());
+        writeString(out, item.getUserId());
+        write(out, item.getProduct());
+        writeInteger(out, item.getQuantity());
+    }
+
+    private CartItem readCartItem(DataInputStream in) throws IOException {
+        CartItem item = new CartItem();
+        item.setId(readLong(in));
+        item.setUserId(readString(in));
+        item.setProduct((Product) read(in));
+        item.setQuantity(readInteger(in));
+        return item;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int length = in.readShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toLocalDate().toEpochDay());
+            out.writeLong(value.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()),
+                LocalTime.ofNanoOfDay(in.readLong()));
+    }
+
+    // The java.io byte array streams synchronize every call, which dominates the cost of the
+    // single-byte writes and reads this format is made of
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1024);
+        }
+
+        @Override
+        public void write(int b) {
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+
+    private static final class Reader extends ByteArrayInputStream {
+
+        Reader(byte[] bytes, int offset) {
+            super(bytes, offset, bytes.length - offset);
+        }
+
+        @Override
+        public int read() {
+            return pos < count ? buf[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= count) {
+                return -1;
+            }
+            int n = Math.min(len, count - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.springframework.data.domain.Page;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One catalog write as the "products" cache sees it: a product saved or deleted, a category
+ * changed, or some products sold out or came back into stock. Decides which entries the write may have changed,
+ * both for the keys a {@link DependencyTrackingCache} indexes and for a single entry read
+ * back from the shared tier.
+ */
+final class CatalogChange {
+
+    enum Type {
+        PRODUCT, CATEGORY, STOCK
+    }
+
+    private final Type type;
+    private final ProductState before;
+    private final ProductState after;
+    private final Long categoryId;
+    private final Set<Long> productIds;
+
+    private CatalogChange(Type type, ProductState before, ProductState after, Long categoryId, Set<Long> productIds) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.categoryId = categoryId;
+        this.productIds = productIds;
+    }
+
+    static CatalogChange product(ProductState before, ProductState after) {
+        ProductState known = before != null ? before : after;
+        Set<Long> ids = known == null || known.getId() == null
+                ? Collections.emptySet() : Collections.singleton(known.getId());
+        return new CatalogChange(Type.PRODUCT, before, after, null, ids);
+    }
+
+    static CatalogChange category(Long categoryId) {
+        return new CatalogChange(Type.CATEGORY, null, null, categoryId, Collections.emptySet());
+    }
+
+    static CatalogChange stock(Collection<Long> productIds) {
+        return new CatalogChange(Type.STOCK, null, null, null, new HashSet<>(productIds));
+    }
+
+    Type type() {
+        return type;
+    }
+
+    ProductState before() {
+        return before;
+    }
+
+    ProductState after() {
+        return after;
+    }
+
+    Long categoryId() {
+        return categoryId;
+    }
+
+    /**
+     * The products whose entries are affected wherever they are shown.
+     */
+    Set<Long> productIds() {
+        return productIds;
+    }
+
+    /**
+     * Whether every page of the query can have changed, whatever it showed: the change moves
+     * a product into, out of or within its results.
+     */
+    boolean affects(ProductQueryKey.Family family) {
+        switch (type) {
+            case PRODUCT:
+                if (productIds.isEmpty()) {
+                    return false;
+                }
+                if (family.getKind() == ProductQueryKey.Kind.BY_ID) {
+                    return productIds.contains(family.getParams().get(0));
+                }
+                boolean wasListed = before != null && family.matches(before);
+                boolean isListed = after != null && family.matches(after);
+                return wasListed != isListed || (wasListed && !before.sortsLike(after, family.sortProperty()));
+            case CATEGORY:
+                return family.getKind() == ProductQueryKey.Kind.CATEGORY && categoryId.equals(family.getParams().get(0));
+            case STOCK:
+                // Pages sorted by stock drift with every cart hold anyway and are left to expire
+                if (family.getKind() == ProductQueryKey.Kind.BY_ID) {
+                    return productIds.contains(family.getParams().get(0));
+                }
+                return family.getKind() == ProductQueryKey.Kind.AVAILABLE;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Whether the entry can have changed: its query is affected, or it shows an affected
+     * product or a product of an affected category. Keys this cache does not structure are
+     * always affected.
+     */
+    boolean affects(Object key, Object value) {
+        if (!(key instanceof ProductQueryKey)) {
+            return true;
+        }
+        if (affects(((ProductQueryKey) key).getFamily())) {
+            return true;
+        }
+        for (Object item : items(value)) {
+            if (item instanceof Product) {
+                Product product = (Product) item;
+                if (productIds.contains(product.getId())) {
+                    return true;
+                }
+                Category category = product.getCategory();
+                if (categoryId != null && category != null && categoryId.equals(category.getId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static Iterable<?> items(Object value) {
+        return value instanceof Page ? ((Page<?>) value).getContent()
+                : value instanceof Iterable ? (Iterable<?>) value
+                : value == null ? List.of()
+                : Collections.singletonList(value);
+    }
+}
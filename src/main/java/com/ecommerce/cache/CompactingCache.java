@@ -0,0 +1,123 @@
+package com.ecommerce.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Keeps lists and pages in their {@link CacheValueCodec} form on the heap and decodes them on
+ * every read. A page of twenty products shrinks from a couple of hundred objects (entities,
+ * {@code BigDecimal}s, {@code LocalDateTime}s, proxies) to one byte array, at the cost of a
+ * decode per hit. Values that cannot be encoded, such as entities with an uninitialized lazy
+ * association, are kept as they are.
+ */
+public class CompactingCache implements Cache {
+
+    private final Cache delegate;
+    private final CacheValueCodec codec;
+
+    public CompactingCache(Cache delegate, CacheValueCodec codec) {
+        this.delegate = delegate;
+        this.codec = codec;
+    }
+
+    /**
+     * The form a value is stored in; also for values that reach the store without going
+     * through this cache, such as background refreshes.
+     */
+    public static Object compact(CacheValueCodec codec, Object value) {
+        if (!(value instanceof List) && !(value instanceof Page)) {
+            return value;
+        }
+        try {
+            return new Compacted(codec.encode(value));
+        } catch (RuntimeException e) {
+            return value;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper stored = delegate.get(key);
+        if (stored == null || !(stored.get() instanceof Compacted)) {
+            return stored;
+        }
+        return new SimpleValueWrapper(expand(stored.get()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) expand(delegate.get(key, () -> compact(codec, valueLoader.call())));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, compact(codec, value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, compact(codec, value));
+        if (existing == null || !(existing.get() instanceof Compacted)) {
+            return existing;
+        }
+        return new SimpleValueWrapper(expand(existing.get()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    private Object expand(Object stored) {
+        return stored instanceof Compacted ? codec.decode(((Compacted) stored).bytes) : stored;
+    }
+
+    private static final class Compacted {
+        final byte[] bytes;
+
+        Compacted(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache decorator that remembers, for every {@link ProductQueryKey} it stores, which products
+ * and categories the cached value contains and which query family it belongs to. A product
+ * write then evicts only the entries it can have changed instead of the whole cache:
+ * <ul>
+ *   <li>every entry that currently shows the product;</li>
+ *   <li>every page of a query the product enters or leaves, or in which its sort position
+ *       may have moved, since that shifts the page boundaries after it.</li>
+ * </ul>
+ * Reads go straight to the delegate; only puts, evictions and invalidations take the lock.
+ * <p>
+ * Over a {@link TwoLevelCache}, invalidations are also broadcast so every instance evicts the
+ * entries it has cached itself, and shared entries are checked against the same
+ * {@link CatalogChange} when read.
+ */
+public class DependencyTrackingCache implements Cache, TwoLevelCache.Listener {
+
+    private final Cache delegate;
+    private volatile SharedCacheCoordinator coordinator;
+
+    private final Map<ProductQueryKey.Family, Set<Object>> keysByFamily = new HashMap<>();
+    private final Map<Long, Set<Object>> keysByProduct = new HashMap<>();
+    private final Map<Long, Set<Object>> keysByCategory = new HashMap<>();
+    private final Map<Object, Dependencies> dependenciesByKey = new HashMap<>();
+
+    public DependencyTrackingCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, () -> {
+            T value = valueLoader.call();
+            track(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        track(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            track(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        untrack(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.evictIfPresent(key);
+        untrack(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        onCleared();
+    }
+
+    /**
+     * Call when the underlying store drops an entry on its own (expiry, size eviction), so the
+     * dependency index does not keep pointing at it.
+     */
+    @Override
+    public void onRemoval(Object key) {
+        untrack(key);
+    }
+
+    /**
+     * Call when the underlying store loads or refreshes a value itself rather than through
+     * {@link #put}, so the index reflects the new contents.
+     */
+    @Override
+    public void onLoad(Object key, Object value) {
+        track(key, value);
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        keysByFamily.clear();
+        keysByProduct.clear();
+        keysByCategory.clear();
+        dependenciesByKey.clear();
+    }
+
+    void setCoordinator(SharedCacheCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Evicts every entry a product write may have changed. {@code before} is null for a new
+     * product, {@code after} is null for a deleted one.
+     */
+    public void invalidate(ProductState before, ProductState after) {
+        invalidate(CatalogChange.product(before, after));
+    }
+
+    /**
+     * Evicts every entry showing a product of the category, plus the category's own listings.
+     */
+    public void invalidateCategory(Long categoryId) {
+        invalidate(CatalogChange.category(categoryId));
+    }
+
+    /**
+     * Evicts every entry the products selling out or coming back into stock may have changed:
+     * the entries showing them, and every page of the queries that filter on stock.
+     */
+    public void invalidateStock(Collection<Long> productIds) {
+        invalidate(CatalogChange.stock(productIds));
+    }
+
+    private void invalidate(CatalogChange change) {
+        SharedCacheCoordinator peers = coordinator;
+        if (peers == null) {
+            affectedKeys(change).forEach(this::evict);
+            return;
+        }
+        // Shared entries are checked against the change when they are next read (see
+        // TwoLevelCache), so only the local tier needs evicting; publish first so a read in
+        // between cannot pull a stale shared entry back into it
+        peers.publishChange(getName(), change);
+        evictLocal(change);
+    }
+
+    void evictLocal(CatalogChange change) {
+        affectedKeys(change).forEach(this::evictLocal);
+    }
+
+    public synchronized int trackedKeyCount() {
+        return dependenciesByKey.size();
+    }
+
+    private void evictLocal(Object key) {
+        if (delegate instanceof TwoLevelCache) {
+            ((TwoLevelCache) delegate).evictLocal(key);
+        } else {
+            delegate.evict(key);
+        }
+        untrack(key);
+    }
+
+    private Set<Object> affectedKeys(CatalogChange change) {
+        Set<Object> victims = new HashSet<>();
+        synchronized (this) {
+            for (Long id : change.productIds()) {
+                victims.add(ProductQueryKey.byId(id));
+                victims.addAll(keysByProduct.getOrDefault(id, Collections.emptySet()));
+            }
+            if (change.categoryId() != null) {
+                victims.addAll(keysByCategory.getOrDefault(change.categoryId(), Collections.emptySet()));
+            }
+            keysByFamily.forEach((family, keys) -> {
+                if (change.affects(family)) {
+                    victims.addAll(keys);
+                }
+            });
+        }
+        return victims;
+    }
+
+    private void track(Object key, Object value) {
+        if (!(key instanceof ProductQueryKey)) {
+            return;
+        }
+        Dependencies dependencies = Dependencies.of((ProductQueryKey) key, value);
+        synchronized (this) {
+            untrackLocked(key);
+            dependenciesByKey.put(key, dependencies);
+            keysByFamily.computeIfAbsent(dependencies.family, f -> new HashSet<>()).add(key);
+            dependencies.productIds.forEach(id -> keysByProduct.computeIfAbsent(id, i -> new HashSet<>()).add(key));
+            dependencies.categoryIds.forEach(id -> keysByCategory.computeIfAbsent(id, i -> new HashSet<>()).add(key));
+        }
+    }
+
+    private synchronized void untrack(Object key) {
+        untrackLocked(key);
+    }
+
+    private void untrackLocked(Object key) {
+        Dependencies dependencies = dependenciesByKey.remove(key);
+        if (dependencies == null) {
+            return;
+        }
+        remove(keysByFamily, dependencies.family, key);
+        dependencies.productIds.forEach(id -> remove(keysByProduct, id, key));
+        dependencies.categoryIds.forEach(id -> remove(keysByCategory, id, key));
+    }
+
+    private static <K> void remove(Map<K, Set<Object>> index, K indexKey, Object cacheKey) {
+        Set<Object> keys = index.get(indexKey);
+        if (keys != null) {
+            keys.remove(cacheKey);
+            if (keys.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+    private static final class Dependencies {
+        final ProductQueryKey.Family family;
+        final Set<Long> productIds = new HashSet<>();
+        final Set<Long> categoryIds = new HashSet<>();
+
+        private Dependencies(ProductQueryKey.Family family) {
+            this.family = family;
+        }
+
+        static Dependencies of(ProductQueryKey key, Object value) {
+            Dependencies dependencies = new Dependencies(key.getFamily());
+            for (Object item : CatalogChange.items(value)) {
+                if (item instanceof Product) {
+                    Product product = (Product) item;
+                    dependencies.productIds.add(product.getId());
+                    Category category = product.getCategory();
+                    if (category != null && category.getId() != null) {
+                        dependencies.categoryIds.add(category.getId());
+                    }
+                }
+            }
+            return dependencies;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for Redis. Several {@link TwoLevelCache} instances sharing one of these
+ * behave like application instances sharing a Redis server, which is enough to run the
+ * two-tier cache locally and in tests. Messages are delivered synchronously.
+ */
+public class InMemorySharedCacheStore implements SharedCacheStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final List<Consumer<byte[]>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.nanoTime()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        long expiresAt = ttl == null ? Long.MAX_VALUE : System.nanoTime() + ttl.toNanos();
+        entries.put(key, new Entry(value, expiresAt));
+    }
+
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void deleteByPrefix(String prefix) {
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public long increment(String key) {
+        return counters.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public long counter(String key) {
+        AtomicLong counter = counters.get(key);
+        return counter == null ? 0 : counter.get();
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        listeners.forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final byte[] value;
+        final long expiresAt;
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * A {@link CaffeineCache} whose plain lookups only peek. With {@code refreshAfterWrite} the
+ * native cache is a {@code LoadingCache}, and Spring's lookup then calls its loader on a
+ * miss: every {@code get(key)}, {@code putIfAbsent} and two-level read would run the reloader
+ * inline, ahead of the shared tier and outside the caller's own loader. Here a miss is a
+ * miss; a stale hit still starts the background refresh, which {@code getIfPresent} does too.
+ */
+public class PeekingCaffeineCache extends CaffeineCache {
+
+    public PeekingCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return getNativeCache().getIfPresent(key);
+    }
+}
@@ -0,0 +1,55 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.CategoryChangedEvent;
+import com.ecommerce.catalog.ProductChangedEvent;
+import com.ecommerce.catalog.ProductStockChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Applies catalog writes and stock movements to the "products" cache once they have
+ * committed, so a reader that starts after the eviction loads the committed state. A load
+ * that started before the commit can still finish after the eviction and put the old page
+ * back in the local tier; that entry stays until it expires or the products it shows change
+ * again. The shared tier checks its entries against the changes they raced (see
+ * {@link TwoLevelCache}).
+ */
+@Component
+public class ProductCacheInvalidator {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache cache = cacheManager.getCache("products");
+        if (cache instanceof DependencyTrackingCache) {
+            ((DependencyTrackingCache) cache).invalidate(event.getBefore(), event.getAfter());
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        Cache cache = cacheManager.getCache("products");
+        if (cache instanceof DependencyTrackingCache) {
+            ((DependencyTrackingCache) cache).invalidateCategory(event.getCategoryId());
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        Cache cache = cacheManager.getCache("products");
+        if (cache instanceof DependencyTrackingCache) {
+            ((DependencyTrackingCache) cache).invalidateStock(event.getProductIds());
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+}
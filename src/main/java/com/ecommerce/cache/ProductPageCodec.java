@@ -0,0 +1,369 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Columnar encoding for a list of products, the payload of almost every "products" cache
+ * entry. Each attribute is written as one column across all products:
+ * <ul>
+ *   <li>ids and timestamps as zigzag varint deltas from the previous row;</li>
+ *   <li>prices as varint longs scaled to the largest scale in the page, instead of one
+ *       {@link BigDecimal} per row;</li>
+ *   <li>categories once each in a dictionary, referenced by index from every product.</li>
+ * </ul>
+ * Nullable columns carry a presence bitmap. Decoded prices share the page's scale, so
+ * {@code 9.5} next to {@code 10.25} comes back as {@code 9.50}.
+ */
+final class ProductPageCodec {
+
+    private static final int MAX_LONG_SCALE = 18;
+    private static final byte PRICES_SCALED = 0;
+    private static final byte PRICES_DECIMAL = 1;
+
+    private ProductPageCodec() {
+    }
+
+    static boolean isProductList(List<?> values) {
+        for (Object value : values) {
+            if (!(value instanceof Product)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void write(DataOutputStream out, List<?> values) throws IOException {
+        int size = values.size();
+        List<Product> products = new ArrayList<>(size);
+        for (Object value : values) {
+            products.add((Product) value);
+        }
+        writeVarint(out, size);
+        writeCategories(out, products);
+
+        long previousId = 0;
+        writePresence(out, products, p -> p.getId() != null);
+        for (Product product : products) {
+            if (product.getId() != null) {
+                writeZigzag(out, product.getId() - previousId);
+                previousId = product.getId();
+            }
+        }
+
+        writePrices(out, products);
+
+        writePresence(out, products, p -> p.getStockQuantity() != null);
+        for (Product product : products) {
+            if (product.getStockQuantity() != null) {
+                writeZigzag(out, product.getStockQuantity());
+            }
+        }
+
+        for (Product product : products) {
+            writeString(out, product.getName());
+        }
+        for (Product product : products) {
+            writeString(out, product.getDescription());
+        }
+        for (Product product : products) {
+            writeString(out, product.getImageUrl());
+        }
+        writeTimestamps(out, products, true);
+        writeTimestamps(out, products, false);
+    }
+
+    static List<Object> read(DataInputStream in) throws IOException {
+        int size = (int) readVarint(in);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(new Product());
+        }
+        readCategories(in, products);
+
+        boolean[] present = readPresence(in, size);
+        long previousId = 0;
+        for (int i = 0; i < size; i++) {
+            if (present[i]) {
+                previousId += readZigzag(in);
+                products.get(i).setId(previousId);
+            }
+        }
+
+        readPrices(in, products);
+
+        present = readPresence(in, size);
+        for (int i = 0; i < size; i++) {
+            if (present[i]) {
+                products.get(i).setStockQuantity((int) readZigzag(in));
+            }
+        }
+
+        for (Product product : products) {
+            product.setName(readString(in));
+        }
+        for (Product product : products) {
+            product.setDescription(readString(in));
+        }
+        for (Product product : products) {
+            product.setImageUrl(readString(in));
+        }
+        readTimestamps(in, products, true);
+        readTimestamps(in, products, false);
+        return new ArrayList<>(products);
+    }
+
+    // Categories are compared by identity first (one instance per persistence context), then by id
+    private static void writeCategories(DataOutputStream out, List<Product> products) throws IOException {
+        Map<Category, Integer> byInstance = new IdentityHashMap<>();
+        Map<Long, Integer> byId = new HashMap<>();
+        List<Category> dictionary = new ArrayList<>();
+        int[] references = new int[products.size()];
+        for (int i = 0; i < products.size(); i++) {
+            Category category = products.get(i).getCategory();
+            if (category == null) {
+                continue;
+            }
+            Integer index = byInstance.get(category);
+            if (index == null && category.getId() != null) {
+                index = byId.get(category.getId());
+            }
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(category);
+                if (category.getId() != null) {
+                    byId.put(category.getId(), index);
+                }
+            }
+            byInstance.put(category, index);
+            references[i] = index + 1;
+        }
+
+        writeVarint(out, dictionary.size());
+        for (Category category : dictionary) {
+            out.writeBoolean(category.getId() != null);
+            if (category.getId() != null) {
+                writeZigzag(out, category.getId());
+            }
+            writeString(out, category.getName());
+            writeString(out, category.getDescription());
+            writeString(out, category.getImageUrl());
+        }
+        for (int reference : references) {
+            writeVarint(out, reference);
+        }
+    }
+
+    private static void readCategories(DataInputStream in, List<Product> products) throws IOException {
+        int count = (int) readVarint(in);
+        Category[] dictionary = new Category[count];
+        for (int i = 0; i < count; i++) {
+            Category category = new Category();
+            if (in.readBoolean()) {
+                category.setId(readZigzag(in));
+            }
+            category.setName(readString(in));
+            category.setDescription(readString(in));
+            category.setImageUrl(readString(in));
+            dictionary[i] = category;
+        }
+        for (Product product : products) {
+            int reference = (int) readVarint(in);
+            if (reference > 0) {
+                product.setCategory(dictionary[reference - 1]);
+            }
+        }
+    }
+
+    private static void writePrices(DataOutputStream out, List<Product> products) throws IOException {
+        writePresence(out, products, p -> p.getPrice() != null);
+        int scale = 0;
+        for (Product product : products) {
+            if (product.getPrice() != null) {
+                scale = Math.max(scale, product.getPrice().scale());
+            }
+        }
+        long[] unscaled = scale <= MAX_LONG_SCALE ? scaledPrices(products, scale) : null;
+        if (unscaled == null) {
+            out.writeByte(PRICES_DECIMAL);
+            for (Product product : products) {
+                if (product.getPrice() != null) {
+                    byte[] digits = product.getPrice().unscaledValue().toByteArray();
+                    writeVarint(out, digits.length);
+                    out.write(digits);
+                    writeZigzag(out, product.getPrice().scale());
+                }
+            }
+            return;
+        }
+        out.writeByte(PRICES_SCALED);
+        writeVarint(out, scale);
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i).getPrice() != null) {
+                writeZigzag(out, unscaled[i]);
+            }
+        }
+    }
+
+    private static long[] scaledPrices(List<Product> products, int scale) {
+        long[] unscaled = new long[products.size()];
+        for (int i = 0; i < products.size(); i++) {
+            BigDecimal price = products.get(i).getPrice();
+            if (price != null) {
+                BigInteger value = price.setScale(scale).unscaledValue();
+                if (value.bitLength() > 63) {
+                    return null;
+                }
+                unscaled[i] = value.longValue();
+            }
+        }
+        return unscaled;
+    }
+
+    private static void readPrices(DataInputStream in, List<Product> products) throws IOException {
+        boolean[] present = readPresence(in, products.size());
+        byte mode = in.readByte();
+        int scale = mode == PRICES_SCALED ? (int) readVarint(in) : 0;
+        for (int i = 0; i < products.size(); i++) {
+            if (!present[i]) {
+                continue;
+            }
+            if (mode == PRICES_SCALED) {
+                products.get(i).setPrice(BigDecimal.valueOf(readZigzag(in), scale));
+            } else {
+                byte[] digits = new byte[(int) readVarint(in)];
+                in.readFully(digits);
+                products.get(i).setPrice(new BigDecimal(new BigInteger(digits), (int) readZigzag(in)));
+            }
+        }
+    }
+
+    private static void writeTimestamps(DataOutputStream out, List<Product> products, boolean created) throws IOException {
+        writePresence(out, products, p -> timestamp(p, created) != null);
+        long previousSecond = 0;
+        for (Product product : products) {
+            LocalDateTime value = timestamp(product, created);
+            if (value != null) {
+                long second = value.toEpochSecond(ZoneOffset.UTC);
+                writeZigzag(out, second - previousSecond);
+                writeVarint(out, value.getNano());
+                previousSecond = second;
+            }
+        }
+    }
+
+    private static void readTimestamps(DataInputStream in, List<Product> products, boolean created) throws IOException {
+        boolean[] present = readPresence(in, products.size());
+        long previousSecond = 0;
+        for (int i = 0; i < products.size(); i++) {
+            if (!present[i]) {
+                continue;
+            }
+            previousSecond += readZigzag(in);
+            LocalDateTime value = LocalDateTime.ofEpochSecond(previousSecond, (int) readVarint(in), ZoneOffset.UTC);
+            if (created) {
+                products.get(i).setCreatedAt(value);
+            } else {
+                products.get(i).setUpdatedAt(value);
+            }
+        }
+    }
+
+    private static LocalDateTime timestamp(Product product, boolean created) {
+        return created ? product.getCreatedAt() : product.getUpdatedAt();
+    }
+
+    private static void writePresence(DataOutputStream out, List<Product> products, Predicate<Product> presence) throws IOException {
+        int bits = 0;
+        int count = 0;
+        for (Product product : products) {
+            if (presence.test(product)) {
+                bits |= 1 << count;
+            }
+            if (++count == 8) {
+                out.writeByte(bits);
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            out.writeByte(bits);
+        }
+    }
+
+    private static boolean[] readPresence(DataInputStream in, int size) throws IOException {
+        boolean[] present = new boolean[size];
+        int bits = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % 8 == 0) {
+                bits = in.readUnsignedByte();
+            }
+            present[i] = (bits & (1 << (i % 8))) != 0;
+        }
+        return present;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, utf8.length + 1L);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeZigzag(DataOutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigzag(DataInputStream in) throws IOException {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Structured key for the "products" cache. Unlike a concatenated string it keeps the query
+ * that produced the cached value, so a write can work out which entries it may have changed.
+ * Keys that differ only in page and size belong to the same {@link Family}.
+ */
+public final class ProductQueryKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        BY_ID, ALL, CATEGORY, SEARCH, PRICE_RANGE, AVAILABLE, LATEST
+    }
+
+    private final Family family;
+    private final int page;
+    private final int size;
+
+    private ProductQueryKey(Family family, int page, int size) {
+        this.family = family;
+        this.page = page;
+        this.size = size;
+    }
+
+    public static ProductQueryKey byId(Long id) {
+        return new ProductQueryKey(new Family(Kind.BY_ID, id), 0, 1);
+    }
+
+    public static ProductQueryKey all(int page, int size, String sortBy) {
+        return new ProductQueryKey(new Family(Kind.ALL, sortBy), page, size);
+    }
+
+    public static ProductQueryKey category(Long categoryId, int page, int size) {
+        return new ProductQueryKey(new Family(Kind.CATEGORY, categoryId), page, size);
+    }
+
+    public static ProductQueryKey search(String searchTerm, int page, int size) {
+        return new ProductQueryKey(new Family(Kind.SEARCH, searchTerm), page, size);
+    }
+
+    public static ProductQueryKey priceRange(BigDecimal minPrice, BigDecimal maxPrice, int page, int size) {
+        return new ProductQueryKey(new Family(Kind.PRICE_RANGE, minPrice, maxPrice), page, size);
+    }
+
+    public static ProductQueryKey available(int page, int size) {
+        return new ProductQueryKey(new Family(Kind.AVAILABLE), page, size);
+    }
+
+    public static ProductQueryKey latest(int page, int size) {
+        return new ProductQueryKey(new Family(Kind.LATEST), page, size);
+    }
+
+    // For keys decoded from the shared tier
+    static ProductQueryKey of(Kind kind, List<Object> params, int page, int size) {
+        return new ProductQueryKey(new Family(kind, params.toArray()), page, size);
+    }
+
+    public Family getFamily() {
+        return family;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductQueryKey)) {
+            return false;
+        }
+        ProductQueryKey other = (ProductQueryKey) o;
+        return page == other.page && size == other.size && family.equals(other.family);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * family.hashCode() + page) + size;
+    }
+
+    // Matches the string keys this cache used before, which keeps logs and stores readable
+    @Override
+    public String toString() {
+        return family.kind == Kind.BY_ID
+                ? String.valueOf(family.params.get(0))
+                : family + "_" + page + "_" + size;
+    }
+
+    /**
+     * A query without its paging: the predicate and sort order every page shares.
+     */
+    public static final class Family implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Kind kind;
+        private final List<Object> params;
+
+        Family(Kind kind, Object... params) {
+            this.kind = kind;
+            this.params = Collections.unmodifiableList(Arrays.asList(params));
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public List<Object> getParams() {
+            return params;
+        }
+
+        public boolean matches(ProductState state) {
+            switch (kind) {
+                case BY_ID:
+                    return Objects.equals(params.get(0), state.getId());
+                case CATEGORY:
+                    return Objects.equals(params.get(0), state.getCategoryId());
+                case SEARCH:
+                    // Same semantics as the LIKE %term% query behind it
+                    String term = (String) params.get(0);
+                    return contains(state.getName(), term) || contains(state.getDescription(), term);
+                case PRICE_RANGE:
+                    BigDecimal price = state.getPrice();
+                    return price != null
+                            && price.compareTo((BigDecimal) params.get(0)) >= 0
+                            && price.compareTo((BigDecimal) params.get(1)) <= 0;
+                case AVAILABLE:
+                    return state.getStockQuantity() != null && state.getStockQuantity() > 0;
+                default:
+                    return true;
+            }
+        }
+
+        public String sortProperty() {
+            switch (kind) {
+                case ALL:
+                    return (String) params.get(0);
+                case PRICE_RANGE:
+                    return "price";
+                case LATEST:
+                    return "createdAt";
+                case BY_ID:
+                    return "id";
+                default:
+                    return "name";
+            }
+        }
+
+        private static boolean contains(String value, String term) {
+            return value != null && term != null && value.contains(term);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Family)) {
+                return false;
+            }
+            Family other = (Family) o;
+            return kind == other.kind && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + params.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(kind.name().toLowerCase());
+            params.forEach(param -> builder.append('_').append(param));
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.cache;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedCacheStore} on Redis: values are plain binary strings with a TTL, invalidation
+ * messages go over a pub/sub channel.
+ */
+public class RedisSharedCacheStore implements SharedCacheStore {
+
+    private static final int DELETE_BATCH = 500;
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ChannelTopic channel;
+
+    public RedisSharedCacheStore(RedisConnectionFactory connectionFactory,
+                                 RedisMessageListenerContainer listenerContainer, String channel) {
+        this.redisTemplate = new RedisTemplate<>();
+        this.redisTemplate.setConnectionFactory(connectionFactory);
+        this.redisTemplate.setKeySerializer(RedisSerializer.string());
+        this.redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        this.redisTemplate.afterPropertiesSet();
+        this.listenerContainer = listenerContainer;
+        this.channel = new ChannelTopic(channel);
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        if (ttl == null) {
+            redisTemplate.opsForValue().set(key, value);
+        } else {
+            redisTemplate.opsForValue().set(key, value, ttl);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        redisTemplate.delete(key);
+    }
+
+    // SCAN rather than KEYS so a large cache does not block the server
+    @Override
+    public void deleteByPrefix(String prefix) {
+        List<String> batch = new ArrayList<>(DELETE_BATCH);
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(DELETE_BATCH).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                batch.add(keys.next());
+                if (batch.size() == DELETE_BATCH) {
+                    redisTemplate.delete(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            redisTemplate.delete(batch);
+        }
+    }
+
+    @Override
+    public long increment(String key) {
+        Long value = redisTemplate.opsForValue().increment(key);
+        return value == null ? 0 : value;
+    }
+
+    @Override
+    public long counter(String key) {
+        byte[] value = redisTemplate.opsForValue().get(key);
+        return value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        redisTemplate.convertAndSend(channel.getTopic(), message);
+    }
+
+    @Override
+    public void subscribe(Consumer<byte[]> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> listener.accept(message.getBody()), channel);
+    }
+}
@@ -0,0 +1,217 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connects this instance's {@link TwoLevelCache}s to the {@link SharedCacheStore}: builds
+ * the shared keys, sends and applies invalidation messages, and keeps the shared tier
+ * optional at runtime. A store failure is logged and treated as a miss, so an unreachable
+ * Redis degrades the caches to local-only instead of failing requests.
+ */
+public class SharedCacheCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedCacheCoordinator.class);
+
+    private final SharedCacheStore store;
+    private final CacheValueCodec codec;
+    private final String keyPrefix;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, DependencyTrackingCache> trackers = new ConcurrentHashMap<>();
+
+    public SharedCacheCoordinator(SharedCacheStore store, CacheValueCodec codec, String keyPrefix) {
+        this.store = store;
+        this.codec = codec;
+        this.keyPrefix = keyPrefix;
+        store.subscribe(this::onMessage);
+    }
+
+    public TwoLevelCache createCache(Cache local, Duration ttl) {
+        TwoLevelCache cache = new TwoLevelCache(local, this, ttl);
+        caches.put(cache.getName(), cache);
+        return cache;
+    }
+
+    /**
+     * Broadcasts the tracker's product and category invalidations to the other instances.
+     */
+    public void register(DependencyTrackingCache tracker) {
+        trackers.put(tracker.getName(), tracker);
+        tracker.setCoordinator(this);
+    }
+
+    CacheValueCodec codec() {
+        return codec;
+    }
+
+    String sharedKey(String cacheName, Object key) {
+        return keyPrefix + cacheName + "::" + key;
+    }
+
+    byte[] read(String key) {
+        try {
+            return store.get(key);
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    void write(String key, byte[] value, Duration ttl) {
+        try {
+            store.put(key, value, ttl);
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    void delete(String key) {
+        try {
+            store.delete(key);
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache delete failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    void deleteAll(String cacheName) {
+        try {
+            store.deleteByPrefix(keyPrefix + cacheName + "::");
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache clear failed for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * The cache's current generation, or -1 if the store cannot be reached.
+     */
+    long generation(String cacheName) {
+        try {
+            return store.counter(generationKey(cacheName));
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache generation lookup failed for {}: {}", cacheName, e.getMessage());
+            return -1;
+        }
+    }
+
+    void publishEvict(String cacheName, Object key) {
+        byte[] encodedKey;
+        try {
+            encodedKey = codec.encode(key);
+        } catch (RuntimeException e) {
+            logger.warn("Cannot broadcast eviction of {} from {}: {}", key, cacheName, e.getMessage());
+            return;
+        }
+        publish(new CacheInvalidation(CacheInvalidation.Type.EVICT, nodeId, cacheName, 0, encodedKey));
+    }
+
+    void publishClear(String cacheName) {
+        publish(new CacheInvalidation(CacheInvalidation.Type.CLEAR, nodeId, cacheName, 0, null));
+    }
+
+    // Each catalog change gets the next generation of the cache, so every instance can tell
+    // which changes a shared entry was written before and check it against just those
+    void publishChange(String cacheName, CatalogChange change) {
+        long generation = nextGeneration(cacheName, change);
+        switch (change.type()) {
+            case PRODUCT:
+                publish(new CacheInvalidation(CacheInvalidation.Type.PRODUCT_CHANGED, nodeId, cacheName, generation,
+                        codec.encode(Arrays.asList(change.before(), change.after()))));
+                break;
+            case CATEGORY:
+                publish(new CacheInvalidation(CacheInvalidation.Type.CATEGORY_CHANGED, nodeId, cacheName, generation,
+                        codec.encode(change.categoryId())));
+                break;
+            case STOCK:
+                publish(new CacheInvalidation(CacheInvalidation.Type.STOCK_CHANGED, nodeId, cacheName, generation,
+                        codec.encode(new ArrayList<>(change.productIds()))));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private long nextGeneration(String cacheName, CatalogChange change) {
+        TwoLevelCache cache = caches.get(cacheName);
+        try {
+            long generation = store.increment(generationKey(cacheName));
+            if (cache != null) {
+                cache.recordChange(generation, change);
+            }
+            return generation;
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache generation bump failed for {}: {}", cacheName, e.getMessage());
+            if (cache != null) {
+                cache.resetGeneration();
+            }
+            return -1;
+        }
+    }
+
+    private void publish(CacheInvalidation invalidation) {
+        try {
+            store.publish(invalidation.toBytes());
+        } catch (RuntimeException e) {
+            logger.warn("Shared cache invalidation for {} not sent: {}", invalidation.getCacheName(), e.getMessage());
+        }
+    }
+
+    private void onMessage(byte[] message) {
+        CacheInvalidation invalidation = CacheInvalidation.fromBytes(message);
+        if (nodeId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.getCacheName());
+        if (cache == null) {
+            return;
+        }
+        DependencyTrackingCache tracker = trackers.get(invalidation.getCacheName());
+        switch (invalidation.getType()) {
+            case EVICT:
+                cache.evictLocal(codec.decode(invalidation.getPayload()));
+                break;
+            case CLEAR:
+                cache.clearLocal();
+                break;
+            case PRODUCT_CHANGED:
+            case CATEGORY_CHANGED:
+            case STOCK_CHANGED:
+                CatalogChange change = decodeChange(invalidation);
+                cache.recordChange(invalidation.getGeneration(), change);
+                if (tracker != null) {
+                    tracker.evictLocal(change);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CatalogChange decodeChange(CacheInvalidation invalidation) {
+        Object payload = codec.decode(invalidation.getPayload());
+        switch (invalidation.getType()) {
+            case PRODUCT_CHANGED:
+                List<ProductState> states = (List<ProductState>) payload;
+                return CatalogChange.product(states.get(0), states.get(1));
+            case CATEGORY_CHANGED:
+                return CatalogChange.category((Long) payload);
+            default:
+                return CatalogChange.stock((List<Long>) payload);
+        }
+    }
+
+    private String generationKey(String cacheName) {
+        return keyPrefix + "generation::" + cacheName;
+    }
+}
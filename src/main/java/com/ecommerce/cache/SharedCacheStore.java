@@ -0,0 +1,39 @@
+package com.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * The shared second tier behind {@link TwoLevelCache}: a byte-oriented key-value store every
+ * application instance sees, plus a broadcast channel for invalidation messages.
+ */
+public interface SharedCacheStore {
+
+    byte[] get(String key);
+
+    /**
+     * Stores the value; a null ttl keeps it until it is deleted.
+     */
+    void put(String key, byte[] value, Duration ttl);
+
+    void delete(String key);
+
+    void deleteByPrefix(String prefix);
+
+    /**
+     * Atomically increments the counter and returns the new value.
+     */
+    long increment(String key);
+
+    /**
+     * Current value of a counter, 0 if it was never incremented.
+     */
+    long counter(String key);
+
+    /**
+     * Sends the message to every subscriber, including the ones in this instance.
+     */
+    void publish(byte[] message);
+
+    void subscribe(Consumer<byte[]> listener);
+}
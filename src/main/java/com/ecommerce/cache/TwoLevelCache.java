@@ -0,0 +1,274 @@
+package com.ecommerce.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local Caffeine cache (L1) in front of the {@link SharedCacheStore} every instance sees
+ * (L2). Reads try L1, then L2, then the loader, and fill the tiers above on the way back.
+ * Writes go to both tiers and tell the other instances to drop their L1 copy.
+ * <p>
+ * Shared values are stamped with the cache generation they were written under. Every catalog
+ * change gets the next generation (see {@link SharedCacheCoordinator}) and is kept in a short
+ * log, so a shared value written before some changes is still served if none of them affects
+ * it, and ignored otherwise, including one a slower instance writes after the change. A value
+ * older than the log, or older than a change this instance never heard of, is ignored too.
+ */
+public class TwoLevelCache implements Cache {
+
+    /**
+     * Told about entries this instance's L1 gains or loses without going through this cache's
+     * own put and evict methods: loads from L2, and invalidations from other instances.
+     */
+    public interface Listener {
+
+        void onLoad(Object key, Object value);
+
+        void onRemoval(Object key);
+
+        void onCleared();
+    }
+
+    private static final int CHANGE_LOG_SIZE = 1024;
+
+    private static final Listener NO_LISTENER = new Listener() {
+        @Override
+        public void onLoad(Object key, Object value) {
+        }
+
+        @Override
+        public void onRemoval(Object key) {
+        }
+
+        @Override
+        public void onCleared() {
+        }
+    };
+
+    private final Cache local;
+    private final SharedCacheCoordinator coordinator;
+    private final Duration ttl;
+    private volatile Listener listener = NO_LISTENER;
+    private volatile long generation = -1;
+    private final NavigableMap<Long, CatalogChange> changes = new TreeMap<>();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder sharedMisses = new LongAdder();
+
+    TwoLevelCache(Cache local, SharedCacheCoordinator coordinator, Duration ttl) {
+        this.local = local;
+        this.coordinator = coordinator;
+        this.ttl = ttl;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = readShared(key);
+        if (value != null) {
+            local.put(key, value.get());
+            listener.onLoad(key, value.get());
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return local.get(key, () -> {
+            ValueWrapper shared = readShared(key);
+            if (shared != null) {
+                listener.onLoad(key, shared.get());
+                return (T) shared.get();
+            }
+            // Stamp with the generation the load started under, so a change it races with still
+            // gets to check the value
+            long loadedUnder = currentGeneration();
+            T value = valueLoader.call();
+            writeShared(key, value, loadedUnder);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, value);
+        writeShared(key, value, currentGeneration());
+        coordinator.publishEvict(getName(), key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        coordinator.delete(coordinator.sharedKey(getName(), key));
+        coordinator.publishEvict(getName(), key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = local.evictIfPresent(key);
+        coordinator.delete(coordinator.sharedKey(getName(), key));
+        coordinator.publishEvict(getName(), key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        coordinator.deleteAll(getName());
+        coordinator.publishClear(getName());
+    }
+
+    /**
+     * Drops the L1 entry only, for invalidations the shared tier already accounts for.
+     */
+    public void evictLocal(Object key) {
+        local.evict(key);
+        listener.onRemoval(key);
+    }
+
+    void clearLocal() {
+        local.clear();
+        listener.onCleared();
+    }
+
+    synchronized void recordChange(long changeGeneration, CatalogChange change) {
+        if (changeGeneration < 0) {
+            return;
+        }
+        changes.put(changeGeneration, change);
+        if (changes.size() > CHANGE_LOG_SIZE) {
+            changes.pollFirstEntry();
+        }
+        advanceGeneration(changeGeneration);
+    }
+
+    synchronized void advanceGeneration(long newGeneration) {
+        if (newGeneration > generation) {
+            generation = newGeneration;
+        }
+    }
+
+    void resetGeneration() {
+        generation = -1;
+    }
+
+    /**
+     * Whether a value written under {@code stamp} is still current: this instance knows every
+     * change since then, and none of them affects it.
+     */
+    synchronized boolean unchangedSince(long stamp, long current, Object key, Object value) {
+        if (stamp >= current) {
+            return true;
+        }
+        Collection<CatalogChange> since = changes.subMap(stamp, false, current, true).values();
+        if (since.size() != current - stamp) {
+            return false;
+        }
+        for (CatalogChange change : since) {
+            if (change.affects(key, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    public long getSharedMisses() {
+        return sharedMisses.sum();
+    }
+
+    private long currentGeneration() {
+        long current = generation;
+        if (current < 0) {
+            current = coordinator.generation(getName());
+            if (current >= 0) {
+                advanceGeneration(current);
+            }
+        }
+        return current;
+    }
+
+    private ValueWrapper readShared(Object key) {
+        long current = currentGeneration();
+        byte[] bytes = current < 0 ? null : coordinator.read(coordinator.sharedKey(getName(), key));
+        Object value = null;
+        if (bytes != null) {
+            try {
+                value = coordinator.codec().decode(bytes, Long.BYTES);
+            } catch (RuntimeException e) {
+                // Written in a format this version does not read: load it afresh
+                bytes = null;
+            }
+        }
+        if (bytes == null || !unchangedSince(ByteBuffer.wrap(bytes).getLong(), current, key, value)) {
+            sharedMisses.increment();
+            return null;
+        }
+        sharedHits.increment();
+        return new SimpleValueWrapper(value);
+    }
+
+    private void writeShared(Object key, Object value, long current) {
+        if (current < 0) {
+            return;
+        }
+        byte[] encoded;
+        try {
+            encoded = coordinator.codec().encode(value);
+        } catch (RuntimeException e) {
+            // Not encodable (or a lazy association outside its session): keep it local only
+            return;
+        }
+        ByteBuffer stamped = ByteBuffer.allocate(Long.BYTES + encoded.length);
+        stamped.putLong(current).put(encoded);
+        coordinator.write(coordinator.sharedKey(getName(), key), stamped.array(), ttl);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.cart;
+
+/**
+ * One change to a cart line in a bulk cart update.
+ */
+public class CartMutation {
+
+    public enum Operation {
+        /** Adds {@code quantity} units, creating the line if needed */
+        ADD,
+        /** Sets the line to {@code quantity} units; 0 removes it */
+        SET,
+        /** Removes the line */
+        REMOVE
+    }
+
+    private Long productId;
+    private Operation operation;
+    private Integer quantity;
+
+    public CartMutation() {}
+
+    public CartMutation(Long productId, Operation operation, Integer quantity) {
+        this.productId = productId;
+        this.operation = operation;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,362 @@
+package com.ecommerce.cart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The authoritative view of every resident cart: units by product id per user, in the order
+ * the lines were added. Carts are spread over lock-striped shards by user, so mutations of
+ * different users rarely contend and never wait on the database. A cart is loaded on first
+ * use from {@code cart_items} and marked dirty by every mutation; {@link #drainDirty()} hands
+ * the dirty carts to the write-behind flush, which coalesces all mutations since the last
+ * flush into one rewrite per cart.
+ * <p>
+ * Durability: a mutation is acknowledged once it is in memory. A crash loses whatever was
+ * not flushed yet, at most one flush interval of cart changes; the stock those lines held
+ * is returned by the reservation sweeper when the holds expire. Carts live in the node that
+ * served them, so several nodes need requests routed by user.
+ */
+public class CartStore {
+
+    private final Shard[] shards;
+    private final Function<Collection<String>, Map<String, Map<Long, Integer>>> loader;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param shards number of lock stripes, rounded up to a power of two
+     * @param loader reads the persisted carts of the given users; users without one may be
+     *               missing from the result
+     */
+    public CartStore(int shards, Function<Collection<String>, Map<String, Map<Long, Integer>>> loader) {
+        int count = Integer.highestOneBit(Math.max(1, shards - 1)) << 1;
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard();
+        }
+        this.loader = loader;
+    }
+
+    /**
+     * @return a copy of the user's cart, units by product id
+     */
+    public Map<Long, Integer> lines(String userId) {
+        return lines(List.of(userId)).get(userId);
+    }
+
+    /**
+     * @return a copy of each user's cart, loading the ones not in memory with one call to
+     *         the loader
+     */
+    public Map<String, Map<Long, Integer>> lines(Collection<String> userIds) {
+        Map<String, Map<Long, Integer>> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String userId : userIds) {
+            Shard shard = shard(userId);
+            synchronized (shard) {
+                Cart cart = shard.carts.get(userId);
+                if (cart == null) {
+                    missing.add(userId);
+                } else {
+                    hits.increment();
+                    cart.touch();
+                    result.put(userId, new LinkedHashMap<>(cart.lines));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            Map<String, Map<Long, Integer>> loaded = loader.apply(missing);
+            for (String userId : missing) {
+                Cart cart = resident(userId, loaded.getOrDefault(userId, Map.of()));
+                Shard shard = shard(userId);
+                synchronized (shard) {
+                    result.put(userId, new LinkedHashMap<>(cart.lines));
+                }
+            }
+        }
+        Map<String, Map<Long, Integer>> ordered = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            ordered.put(userId, result.get(userId));
+        }
+        return ordered;
+    }
+
+    /**
+     * Adds units to a line, creating it if needed.
+     *
+     * @return the line's new quantity
+     */
+    public int add(String userId, Long productId, int quantity) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            int updated = cart.lines.merge(productId, quantity, Integer::sum);
+            shard.markDirty(userId, cart);
+            return updated;
+        }
+    }
+
+    /**
+     * Sets a line to {@code quantity}, or removes it if {@code quantity} is not positive, but
+     * only while it still holds {@code expected} units (0 for a missing line).
+     *
+     * @return false, with nothing changed, if the line no longer holds {@code expected}
+     */
+    public boolean compareAndSet(String userId, Long productId, int expected, int quantity) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            if (cart.lines.getOrDefault(productId, 0) != expected) {
+                return false;
+            }
+            if (quantity > 0) {
+                cart.lines.put(productId, quantity);
+            } else {
+                cart.lines.remove(productId);
+            }
+            shard.markDirty(userId, cart);
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the whole cart with {@code updated}, but only while it still holds exactly
+     * {@code expected}; several line changes apply together or not at all.
+     *
+     * @return false, with nothing changed, if the cart no longer holds {@code expected}
+     */
+    public boolean compareAndSet(String userId, Map<Long, Integer> expected, Map<Long, Integer> updated) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            if (!cart.lines.equals(expected)) {
+                return false;
+            }
+            cart.lines.clear();
+            for (Map.Entry<Long, Integer> line : updated.entrySet()) {
+                if (line.getValue() > 0) {
+                    cart.lines.put(line.getKey(), line.getValue());
+                }
+            }
+            shard.markDirty(userId, cart);
+            return true;
+        }
+    }
+
+    /**
+     * @return the units the removed line held, or 0 if there was none
+     */
+    public int remove(String userId, Long productId) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            Integer removed = cart.lines.remove(productId);
+            shard.markDirty(userId, cart);
+            return removed == null ? 0 : removed;
+        }
+    }
+
+    public void clear(String userId) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            cart.lines.clear();
+            shard.markDirty(userId, cart);
+        }
+    }
+
+    /**
+     * Takes purchased units out of a cart, leaving lines added or grown since the purchase
+     * was read.
+     */
+    public void subtract(String userId, Map<Long, Integer> purchased) {
+        Cart cart = cart(userId);
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            cart = current(shard, userId, cart);
+            for (Map.Entry<Long, Integer> line : purchased.entrySet()) {
+                cart.lines.computeIfPresent(line.getKey(), (productId, units) ->
+                        units > line.getValue() ? units - line.getValue() : null);
+            }
+            shard.markDirty(userId, cart);
+        }
+    }
+
+    /**
+     * Removes the lines of products that no longer exist. Their {@code cart_items} rows went
+     * with the product, so this does not mark the cart dirty.
+     */
+    public void forget(String userId, Collection<Long> productIds) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            Cart cart = shard.carts.get(userId);
+            if (cart != null) {
+                cart.lines.keySet().removeAll(productIds);
+            }
+        }
+    }
+
+    /**
+     * Hands out the carts changed since the last call, marking them clean. A flush that
+     * fails must give its carts back with {@link #markDirty}.
+     */
+    public Map<String, Map<Long, Integer>> drainDirty() {
+        Map<String, Map<Long, Integer>> dirty = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (String userId : shard.dirty) {
+                    Cart cart = shard.carts.get(userId);
+                    cart.dirty = false;
+                    dirty.put(userId, new LinkedHashMap<>(cart.lines));
+                }
+                shard.dirty.clear();
+            }
+        }
+        return dirty;
+    }
+
+    public void markDirty(Collection<String> userIds) {
+        for (String userId : userIds) {
+            Shard shard = shard(userId);
+            synchronized (shard) {
+                Cart cart = shard.carts.get(userId);
+                if (cart != null) {
+                    shard.markDirty(userId, cart);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops clean carts not used since {@code idleSinceMillis}; they are reloaded from the
+     * database on next use.
+     *
+     * @return the number of carts dropped
+     */
+    public int evictIdle(long idleSinceMillis) {
+        int evicted = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                Iterator<Cart> carts = shard.carts.values().iterator();
+                while (carts.hasNext()) {
+                    Cart cart = carts.next();
+                    if (!cart.dirty && cart.lastAccess < idleSinceMillis) {
+                        carts.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return cart reads and mutations that found the cart in memory
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return cart reads and mutations that had to load the cart from {@code cart_items}
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int residentCarts() {
+        int resident = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                resident += shard.carts.size();
+            }
+        }
+        return resident;
+    }
+
+    public int dirtyCarts() {
+        int dirty = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                dirty += shard.dirty.size();
+            }
+        }
+        return dirty;
+    }
+
+    // Loads outside the lock, so a slow read only holds up this user
+    private Cart cart(String userId) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            Cart cart = shard.carts.get(userId);
+            if (cart != null) {
+                hits.increment();
+                return cart;
+            }
+        }
+        misses.increment();
+        return resident(userId, loader.apply(List.of(userId)).getOrDefault(userId, Map.of()));
+    }
+
+    private Cart resident(String userId, Map<Long, Integer> persisted) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            // Another thread may have loaded or changed the cart meanwhile; its copy wins
+            return shard.carts.computeIfAbsent(userId, user -> new Cart(persisted));
+        }
+    }
+
+    // The cart may have been evicted between load and lock; reinstate the loaded copy
+    private static Cart current(Shard shard, String userId, Cart loaded) {
+        Cart cart = shard.carts.computeIfAbsent(userId, user -> loaded);
+        cart.touch();
+        return cart;
+    }
+
+    private Shard shard(String userId) {
+        int hash = userId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private static final class Shard {
+
+        final Map<String, Cart> carts = new HashMap<>();
+        final Set<String> dirty = new LinkedHashSet<>();
+
+        void markDirty(String userId, Cart cart) {
+            cart.dirty = true;
+            dirty.add(userId);
+        }
+    }
+
+    private static final class Cart {
+
+        final Map<Long, Integer> lines;
+        boolean dirty;
+        long lastAccess;
+
+        Cart(Map<Long, Integer> persisted) {
+            this.lines = new LinkedHashMap<>(persisted);
+            touch();
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.cart;
+
+import com.ecommerce.entity.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A cart's items together with its total, as returned by a bulk cart update.
+ */
+public final class CartView {
+
+    private final List<CartItem> items;
+    private final BigDecimal total;
+
+    public CartView(List<CartItem> items, BigDecimal total) {
+        this.items = items;
+        this.total = total;
+    }
+
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+}
@@ -0,0 +1,458 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, point-in-time view of the catalog. Readers grab the current snapshot once and
+ * never see a half-applied update; writers derive a new snapshot that shares every index
+ * structure the change did not touch.
+ *
+ * <p>A single-entry change is still O(n) in the catalog size: the structures it touches are
+ * flat arrays and open-addressing maps, so the product id map, the sorted id array and the
+ * affected posting list are copied whole. That keeps reads allocation-free and cache-friendly
+ * at the price of writes; at 1M products a write copies tens of megabytes, which is fine for
+ * admin edits and change-feed batches but not for per-request updates. Batched saves and
+ * removals pay that copy once per batch rather than once per product.
+ */
+public final class CatalogSnapshot {
+
+    static final long NO_CATEGORY = Long.MIN_VALUE;
+
+    private final long version;
+    private final ProductStore products;
+    private final long[] productIds;
+    private final LongObjectMap<long[]> productIdsByCategory;
+    private final LongObjectMap<Category> categoriesById;
+    private final long[] categoryIds;
+    private final SearchIndex searchIndex;
+    private final SuggestionIndex suggestionIndex;
+
+    private CatalogSnapshot(long version,
+                            ProductStore products,
+                            long[] productIds,
+                            LongObjectMap<long[]> productIdsByCategory,
+                            LongObjectMap<Category> categoriesById,
+                            long[] categoryIds,
+                            SearchIndex searchIndex,
+                            SuggestionIndex suggestionIndex) {
+        this.version = version;
+        this.products = products;
+        this.productIds = productIds;
+        this.productIdsByCategory = productIdsByCategory;
+        this.categoriesById = categoriesById;
+        this.categoryIds = categoryIds;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    static CatalogSnapshot empty(ProductStore store) {
+        return new CatalogSnapshot(0L, store, new long[0], new LongObjectMap<>(), new LongObjectMap<>(), new long[0],
+                SearchIndex.EMPTY, SuggestionIndex.EMPTY);
+    }
+
+    static CatalogSnapshot build(long version, ProductStore store, Collection<Category> categories,
+                                 Collection<Product> products) {
+        LongObjectMap<Category> categoriesById = new LongObjectMap<>(categories.size());
+        for (Category category : categories) {
+            categoriesById.put(requireId(category.getId()), category);
+        }
+        long[] categoryIds = categories.stream().mapToLong(Category::getId).distinct().sorted().toArray();
+
+        for (Product product : products) {
+            requireId(product.getId());
+        }
+        ProductStore loaded = store.load(products);
+        long[] productIds = products.stream().mapToLong(Product::getId).distinct().sorted().toArray();
+
+        LongObjectMap<long[]> postings = postings(loaded, productIds, categoryIds.length);
+
+        return new CatalogSnapshot(version, loaded, productIds, postings, categoriesById, categoryIds,
+                SearchIndex.build(products), SuggestionIndex.build(categories, products));
+    }
+
+    /**
+     * A snapshot from the parts of a snapshot file; {@code productIds} must be sorted.
+     */
+    static CatalogSnapshot restore(long version, ProductStore store, long[] productIds, Collection<Category> categories,
+                                   SearchIndex searchIndex, SuggestionIndex suggestionIndex) {
+        LongObjectMap<Category> categoriesById = new LongObjectMap<>(categories.size());
+        for (Category category : categories) {
+            categoriesById.put(requireId(category.getId()), category);
+        }
+        long[] categoryIds = categories.stream().mapToLong(Category::getId).distinct().sorted().toArray();
+        return new CatalogSnapshot(version, store, productIds, postings(store, productIds, categoryIds.length),
+                categoriesById, categoryIds, searchIndex, suggestionIndex);
+    }
+
+    CatalogSnapshot withProduct(Product product) {
+        return withProducts(Collections.singletonList(product));
+    }
+
+    /**
+     * Saves a batch of products as one snapshot, so the structures a write copies are copied
+     * once for the batch. A product saved as a new instance with the same name and
+     * description keeps its search postings.
+     */
+    CatalogSnapshot withProducts(Collection<Product> changed) {
+        // Last write wins for an id saved twice in the batch
+        LongObjectMap<Product> batch = new LongObjectMap<>(changed.size());
+        List<Product> ordered = new ArrayList<>(changed.size());
+        for (Product product : changed) {
+            if (batch.put(requireId(product.getId()), product) == null) {
+                ordered.add(product);
+            }
+        }
+        if (ordered.isEmpty()) {
+            return this;
+        }
+        List<Product> saved = new ArrayList<>(ordered.size());
+        List<Product> retexted = new ArrayList<>();
+        long[] added = new long[ordered.size()];
+        int addedCount = 0;
+        LongObjectMap<LongArrayBuilder> leaving = new LongObjectMap<>();
+        LongObjectMap<LongArrayBuilder> joining = new LongObjectMap<>();
+        for (Product first : ordered) {
+            long id = first.getId();
+            Product product = batch.get(id);
+            saved.add(product);
+            long categoryId = ProductStore.categoryIdOf(product);
+            Product previous = products.get(id, categoriesById);
+            if (previous == null) {
+                added[addedCount++] = id;
+            }
+            // The same instance may have been edited in place, so only a distinct copy can vouch
+            if (previous == null || previous == product || !Objects.equals(previous.getName(), product.getName())
+                    || !Objects.equals(previous.getDescription(), product.getDescription())) {
+                retexted.add(product);
+            }
+
+            long previousCategory = products.categoryId(id);
+            if (previousCategory != categoryId) {
+                if (previousCategory != NO_CATEGORY) {
+                    LongArrayBuilder.add(leaving, previousCategory, id);
+                }
+                if (categoryId != NO_CATEGORY) {
+                    LongArrayBuilder.add(joining, categoryId, id);
+                }
+            }
+        }
+
+        long[] ids = productIds;
+        if (addedCount > 0) {
+            long[] sortedAdded = Arrays.copyOf(added, addedCount);
+            Arrays.sort(sortedAdded);
+            ids = merge(productIds, sortedAdded);
+        }
+        return new CatalogSnapshot(version + 1, products.with(saved), ids, movePostings(leaving, joining),
+                categoriesById, categoryIds, searchIndex.withDocuments(retexted), suggestionIndex.withProducts(saved));
+    }
+
+    CatalogSnapshot withoutProduct(long id) {
+        return withoutProducts(new long[] {id});
+    }
+
+    /**
+     * Removes a batch of products as one snapshot, copying the structures a removal copies
+     * once for the batch. Ids the catalog does not hold are ignored.
+     */
+    CatalogSnapshot withoutProducts(long[] ids) {
+        long[] gone = Arrays.stream(ids).filter(products::contains).sorted().distinct().toArray();
+        if (gone.length == 0) {
+            return this;
+        }
+        LongObjectMap<LongArrayBuilder> leaving = new LongObjectMap<>();
+        for (long id : gone) {
+            long previousCategory = products.categoryId(id);
+            if (previousCategory != NO_CATEGORY) {
+                LongArrayBuilder.add(leaving, previousCategory, id);
+            }
+        }
+        return new CatalogSnapshot(version + 1, products.without(gone), subtract(productIds, gone),
+                movePostings(leaving, new LongObjectMap<>()), categoriesById, categoryIds,
+                searchIndex.withoutDocuments(gone), suggestionIndex.withoutProducts(gone));
+    }
+
+    CatalogSnapshot withCategory(Category category) {
+        long id = requireId(category.getId());
+        LongObjectMap<Category> byId = categoriesById.copy();
+        Category previous = byId.put(id, category);
+        long[] ids = previous == null ? insert(categoryIds, id) : categoryIds;
+        return new CatalogSnapshot(version + 1, products, productIds, productIdsByCategory, byId, ids,
+                searchIndex, suggestionIndex.withCategory(category));
+    }
+
+    /**
+     * Drops the category itself; products still filed under it keep their postings until
+     * they are saved again.
+     */
+    CatalogSnapshot withoutCategory(long id) {
+        if (categoriesById.get(id) == null) {
+            return this;
+        }
+        LongObjectMap<Category> byId = categoriesById.copy();
+        byId.remove(id);
+        return new CatalogSnapshot(version + 1, products, productIds, productIdsByCategory, byId,
+                remove(categoryIds, id), searchIndex, suggestionIndex.withoutCategory(id));
+    }
+
+    CatalogSnapshot withDemand(LongLongMap unitsByProductId) {
+        SuggestionIndex updated = suggestionIndex.withDemand(unitsByProductId);
+        if (updated == suggestionIndex) {
+            return this;
+        }
+        return new CatalogSnapshot(version + 1, products, productIds, productIdsByCategory, categoriesById,
+                categoryIds, searchIndex, updated);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    ProductStore products() {
+        return products;
+    }
+
+    long[] productIds() {
+        return productIds;
+    }
+
+    SuggestionIndex suggestionIndex() {
+        return suggestionIndex;
+    }
+
+    public Optional<Product> getProduct(long id) {
+        return Optional.ofNullable(products.get(id, categoriesById));
+    }
+
+    public List<Product> getProducts() {
+        return new ProductListView(productIds);
+    }
+
+    /**
+     * The products with the given ids, in the given order; every id must be in this snapshot,
+     * as ids from its {@link #searchIndex()} are.
+     */
+    public List<Product> getProducts(long[] ids) {
+        return new ProductListView(ids);
+    }
+
+    public List<Product> getProductsByCategory(long categoryId) {
+        long[] posting = productIdsByCategory.get(categoryId);
+        return posting == null ? Collections.emptyList() : new ProductListView(posting);
+    }
+
+    /**
+     * Products matching every token of the query, in relevance order.
+     */
+    public List<Product> search(String query) {
+        return new ProductListView(searchIndex.search(query));
+    }
+
+    public SearchIndex searchIndex() {
+        return searchIndex;
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    public Optional<Category> getCategory(long id) {
+        return Optional.ofNullable(categoriesById.get(id));
+    }
+
+    public List<Category> getCategories() {
+        return new CategoryListView(categoryIds);
+    }
+
+    private static LongObjectMap<long[]> postings(ProductStore store, long[] productIds, int expectedCategories) {
+        // Two passes so every posting list is allocated once, already in id order
+        LongObjectMap<int[]> counts = new LongObjectMap<>(expectedCategories);
+        for (long id : productIds) {
+            long categoryId = store.categoryId(id);
+            if (categoryId != NO_CATEGORY) {
+                int[] count = counts.get(categoryId);
+                if (count == null) {
+                    counts.put(categoryId, count = new int[1]);
+                }
+                count[0]++;
+            }
+        }
+        LongObjectMap<long[]> postings = new LongObjectMap<>(counts.size());
+        LongObjectMap<int[]> cursors = new LongObjectMap<>(counts.size());
+        for (long id : productIds) {
+            long categoryId = store.categoryId(id);
+            if (categoryId == NO_CATEGORY) {
+                continue;
+            }
+            long[] posting = postings.get(categoryId);
+            int[] cursor = cursors.get(categoryId);
+            if (posting == null) {
+                postings.put(categoryId, posting = new long[counts.get(categoryId)[0]]);
+                cursors.put(categoryId, cursor = new int[1]);
+            }
+            posting[cursor[0]++] = id;
+        }
+        return postings;
+    }
+
+    // Rewrites each posting a product left or joined once, however many products moved
+    private LongObjectMap<long[]> movePostings(LongObjectMap<LongArrayBuilder> leaving,
+                                               LongObjectMap<LongArrayBuilder> joining) {
+        if (leaving.size() == 0 && joining.size() == 0) {
+            return productIdsByCategory;
+        }
+        LongObjectMap<long[]> postings = productIdsByCategory.copy();
+        leaving.forEachEntry((categoryId, ids) -> {
+            long[] posting = postings.get(categoryId);
+            if (posting != null) {
+                long[] updated = subtract(posting, ids.sorted());
+                if (updated.length == 0) {
+                    postings.remove(categoryId);
+                } else {
+                    postings.put(categoryId, updated);
+                }
+            }
+        });
+        joining.forEachEntry((categoryId, ids) -> {
+            long[] posting = postings.get(categoryId);
+            postings.put(categoryId, posting == null ? ids.sorted() : merge(posting, ids.sorted()));
+        });
+        return postings;
+    }
+
+    private static long[] insert(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        int at = -index - 1;
+        long[] result = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    // Both arrays are sorted and disjoint
+    private static long[] merge(long[] sorted, long[] more) {
+        long[] result = new long[sorted.length + more.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sorted.length && j < more.length) {
+            result[k++] = sorted[i] < more[j] ? sorted[i++] : more[j++];
+        }
+        System.arraycopy(sorted, i, result, k, sorted.length - i);
+        System.arraycopy(more, j, result, k + sorted.length - i, more.length - j);
+        return result;
+    }
+
+    // Both arrays are sorted; values of the second missing from the first are ignored
+    private static long[] subtract(long[] sorted, long[] removed) {
+        long[] result = new long[sorted.length];
+        int j = 0;
+        int k = 0;
+        for (long value : sorted) {
+            while (j < removed.length && removed[j] < value) {
+                j++;
+            }
+            if (j == removed.length || removed[j] != value) {
+                result[k++] = value;
+            }
+        }
+        return k == sorted.length ? sorted : Arrays.copyOf(result, k);
+    }
+
+    private static long[] remove(long[] sorted, long value) {
+        int at = Arrays.binarySearch(sorted, value);
+        if (at < 0) {
+            return sorted;
+        }
+        long[] result = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        System.arraycopy(sorted, at + 1, result, at, sorted.length - at - 1);
+        return result;
+    }
+
+    private static long requireId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Catalog entries must have an id");
+        }
+        return id;
+    }
+
+    // The ids a batch moves out of or into one category, sorted once the batch is complete
+    private static final class LongArrayBuilder {
+        private long[] values = new long[4];
+        private int size;
+
+        static void add(LongObjectMap<LongArrayBuilder> byKey, long key, long value) {
+            LongArrayBuilder builder = byKey.get(key);
+            if (builder == null) {
+                builder = new LongArrayBuilder();
+                byKey.put(key, builder);
+            }
+            if (builder.size == builder.values.length) {
+                builder.values = Arrays.copyOf(builder.values, builder.size * 2);
+            }
+            builder.values[builder.size++] = value;
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    private final class ProductListView extends AbstractList<Product> implements RandomAccess {
+        private final long[] ids;
+
+        ProductListView(long[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Product get(int index) {
+            return products.get(ids[index], categoriesById);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    private final class CategoryListView extends AbstractList<Category> implements RandomAccess {
+        private final long[] ids;
+
+        CategoryListView(long[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Category get(int index) {
+            return categoriesById.get(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
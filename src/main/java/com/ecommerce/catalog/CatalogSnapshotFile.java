@@ -0,0 +1,197 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A catalog snapshot on disk, so a restarting node can serve from its last state without
+ * reloading the catalog from the database. Layout:
+ * <pre>
+ *  0 magic              long    "ECATSNAP"
+ *  8 format version     int
+ * 12 reserved           int
+ * 16 catalog version    long
+ * 24 product count      long
+ * 32 structure offset   long
+ * 40 structure length   long
+ * 48 product records, in id order, in {@link OffHeapArena} layout, split into segments
+ *    of at most 1 GiB that no record spans
+ *  … structure: segment table, categories, {@link SearchIndex}, {@link SuggestionIndex}
+ * </pre>
+ * Reading maps the record segments: an off-heap store serves straight from the page cache,
+ * a heap store materializes entities from them. The structure section is parsed onto the
+ * heap. Files are written to a temporary sibling and renamed into place, so a reader never
+ * sees a partial file.
+ */
+public final class CatalogSnapshotFile {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final long MAGIC = 0x45434154534E4150L;
+    private static final int HEADER_BYTES = 48;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private CatalogSnapshotFile() {
+    }
+
+    public static void write(CatalogSnapshot snapshot, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES);
+
+            List<long[]> segments = new ArrayList<>();
+            long segmentStart = HEADER_BYTES;
+            long written = HEADER_BYTES;
+            long[] ids = snapshot.productIds();
+            for (long id : ids) {
+                ByteBuffer record = OffHeapArena.encode(snapshot.getProduct(id).orElseThrow());
+                if (written - segmentStart + record.remaining() > MAX_SEGMENT_BYTES) {
+                    segments.add(new long[] {segmentStart, written - segmentStart});
+                    segmentStart = written;
+                }
+                buffered.write(record.array(), 0, record.remaining());
+                written += record.remaining();
+            }
+            if (written > segmentStart) {
+                segments.add(new long[] {segmentStart, written - segmentStart});
+            }
+
+            DataOutputStream out = new DataOutputStream(buffered);
+            out.writeInt(segments.size());
+            for (long[] segment : segments) {
+                out.writeLong(segment[0]);
+                out.writeLong(segment[1]);
+            }
+            List<Category> categories = snapshot.getCategories();
+            out.writeInt(categories.size());
+            for (Category category : categories) {
+                out.writeLong(category.getId());
+                writeString(out, category.getName());
+                writeString(out, category.getDescription());
+                writeString(out, category.getImageUrl());
+            }
+            snapshot.searchIndex().writeTo(out);
+            snapshot.suggestionIndex().writeTo(out);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(0)
+                    .putLong(snapshot.version())
+                    .putLong(ids.length)
+                    .putLong(written)
+                    .putLong(channel.position() - written)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a file written by {@link #write} into a snapshot whose products live in a store of
+     * the same kind as {@code store}.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot file or was written in
+     *                     another format version
+     */
+    public static CatalogSnapshot read(Path path, ProductStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated catalog snapshot " + path);
+                }
+            }
+            header.flip();
+            if (header.getLong() != MAGIC) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            int format = header.getInt();
+            if (format != FORMAT_VERSION) {
+                throw new IOException("Catalog snapshot " + path + " has format " + format + ", expected " + FORMAT_VERSION);
+            }
+            header.getInt();
+            long version = header.getLong();
+            long productCount = header.getLong();
+            long structureOffset = header.getLong();
+            long structureLength = header.getLong();
+            if (structureOffset < HEADER_BYTES || structureOffset + structureLength != channel.size()) {
+                throw new IOException("Truncated catalog snapshot " + path);
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(structureOffset)), BUFFER_BYTES));
+            ByteBuffer[] segments = new ByteBuffer[in.readInt()];
+            for (int i = 0; i < segments.length; i++) {
+                long offset = in.readLong();
+                long length = in.readLong();
+                if (offset < HEADER_BYTES || length > MAX_SEGMENT_BYTES || offset + length > structureOffset) {
+                    throw new IOException("Corrupt segment table in catalog snapshot " + path);
+                }
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            }
+            List<Category> categories = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                Category category = new Category();
+                category.setId(in.readLong());
+                category.setName(readString(in));
+                category.setDescription(readString(in));
+                category.setImageUrl(readString(in));
+                categories.add(category);
+            }
+            SearchIndex searchIndex = SearchIndex.readFrom(in);
+            SuggestionIndex suggestionIndex = SuggestionIndex.readFrom(in);
+
+            LongObjectMap<Category> categoriesById = new LongObjectMap<>(categories.size());
+            categories.forEach(category -> categoriesById.put(category.getId(), category));
+            long[] productIds = new long[Math.toIntExact(productCount)];
+            int[] count = {0};
+            try {
+                OffHeapArena.over(segments, OffHeapArena.HEADER_BYTES)
+                        .forEachMappedRecord((id, address) -> productIds[count[0]++] = id);
+            } catch (IllegalStateException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Corrupt product records in catalog snapshot " + path, e);
+            }
+            if (count[0] != productIds.length) {
+                throw new IOException("Catalog snapshot " + path + " holds " + count[0] + " products, expected " + productCount);
+            }
+            Arrays.sort(productIds);
+
+            return CatalogSnapshot.restore(version, store.restore(segments, categoriesById), productIds, categories,
+                    searchIndex, suggestionIndex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
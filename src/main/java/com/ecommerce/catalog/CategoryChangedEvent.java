@@ -0,0 +1,37 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+
+/**
+ * Published when a category is created, updated or deleted. A null category means it was deleted.
+ */
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+    private final Category category;
+
+    private CategoryChangedEvent(Long categoryId, Category category) {
+        this.categoryId = categoryId;
+        this.category = category;
+    }
+
+    public static CategoryChangedEvent saved(Category category) {
+        return new CategoryChangedEvent(category.getId(), category);
+    }
+
+    public static CategoryChangedEvent deleted(Long categoryId) {
+        return new CategoryChangedEvent(categoryId, null);
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public boolean isDeleted() {
+        return category == null;
+    }
+}
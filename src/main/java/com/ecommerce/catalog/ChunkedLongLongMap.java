@@ -0,0 +1,132 @@
+package com.ecommerce.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Persistent map from primitive long keys to non-negative long values, for indexes that a
+ * snapshot write must not copy whole. Entries are spread over {@link LongLongMap} chunks by a
+ * hash of the key, and a write copies only the chunks it touches plus the array of chunk
+ * references. With about as many chunks as entries per chunk, saving one product into a
+ * million-entry index copies two arrays of around a thousand slots instead of two million.
+ * <p>
+ * Chunks are shared between versions and never modified once a version is built.
+ */
+final class ChunkedLongLongMap {
+
+    private static final LongLongMap EMPTY_CHUNK = new LongLongMap();
+
+    private final LongLongMap[] chunks;
+    private final int size;
+
+    private ChunkedLongLongMap(LongLongMap[] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * An empty map chunked for about {@code expectedSize} entries.
+     */
+    static ChunkedLongLongMap empty(int expectedSize) {
+        LongLongMap[] chunks = new LongLongMap[chunkCountFor(expectedSize)];
+        Arrays.fill(chunks, EMPTY_CHUNK);
+        return new ChunkedLongLongMap(chunks, 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(long key) {
+        return chunks[chunkOf(key, chunks.length)].get(key);
+    }
+
+    void forEachEntry(LongLongMap.EntryConsumer action) {
+        for (LongLongMap chunk : chunks) {
+            chunk.forEachEntry(action);
+        }
+    }
+
+    /**
+     * Starts the next version of the map; this one is left as it is.
+     */
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Collects the writes of one new version, copying each chunk the first time it is written.
+     */
+    static final class Editor {
+
+        private final LongLongMap[] chunks;
+        private final boolean[] copied;
+        private int size;
+
+        private Editor(ChunkedLongLongMap base) {
+            chunks = base.chunks.clone();
+            copied = new boolean[chunks.length];
+            size = base.size;
+        }
+
+        /**
+         * @return the previous value, or {@link LongLongMap#MISSING}
+         */
+        long put(long key, long value) {
+            long previous = writable(chunkOf(key, chunks.length)).put(key, value);
+            if (previous == LongLongMap.MISSING) {
+                size++;
+            }
+            return previous;
+        }
+
+        /**
+         * @return the removed value, or {@link LongLongMap#MISSING}
+         */
+        long remove(long key) {
+            int index = chunkOf(key, chunks.length);
+            if (chunks[index].get(key) == LongLongMap.MISSING) {
+                return LongLongMap.MISSING;
+            }
+            size--;
+            return writable(index).remove(key);
+        }
+
+        ChunkedLongLongMap build() {
+            ChunkedLongLongMap built = new ChunkedLongLongMap(chunks, size);
+            // Re-chunk once the chunks have grown to four times their target size, so the
+            // cost of a write keeps tracking the square root of the size
+            if ((long) size > 4L * chunks.length * chunks.length) {
+                Editor rechunked = empty(size).edit();
+                built.forEachEntry(rechunked::put);
+                return new ChunkedLongLongMap(rechunked.chunks, size);
+            }
+            return built;
+        }
+
+        private LongLongMap writable(int index) {
+            if (!copied[index]) {
+                chunks[index] = chunks[index].copy();
+                copied[index] = true;
+            }
+            return chunks[index];
+        }
+    }
+
+    private static int chunkCountFor(int expectedSize) {
+        int count = 1;
+        while ((long) count * count < expectedSize) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    // The high bits of a different multiplier than LongLongMap's, so the keys of one chunk
+    // still spread over that chunk's slots
+    private static int chunkOf(long key, int chunkCount) {
+        if (chunkCount == 1) {
+            return 0;
+        }
+        int bits = Integer.numberOfTrailingZeros(chunkCount);
+        return (int) ((key * 0xC2B2AE3D27D4EB4FL) >>> (64 - bits));
+    }
+}
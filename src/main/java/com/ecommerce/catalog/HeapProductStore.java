@@ -0,0 +1,96 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Keeps the saved entities themselves. Every write copies the id index.
+ */
+final class HeapProductStore extends ProductStore {
+
+    static final HeapProductStore EMPTY = new HeapProductStore(new LongObjectMap<>());
+
+    private final LongObjectMap<Entry> productsById;
+
+    private HeapProductStore(LongObjectMap<Entry> productsById) {
+        this.productsById = productsById;
+    }
+
+    @Override
+    int size() {
+        return productsById.size();
+    }
+
+    @Override
+    boolean contains(long id) {
+        return productsById.get(id) != null;
+    }
+
+    @Override
+    Product get(long id, LongObjectMap<Category> categories) {
+        Entry entry = productsById.get(id);
+        return entry == null ? null : entry.product;
+    }
+
+    @Override
+    long categoryId(long id) {
+        Entry entry = productsById.get(id);
+        return entry == null ? CatalogSnapshot.NO_CATEGORY : entry.categoryId;
+    }
+
+    @Override
+    ProductStore with(Collection<Product> products) {
+        LongObjectMap<Entry> byId = productsById.copy();
+        for (Product product : products) {
+            byId.put(product.getId(), new Entry(product));
+        }
+        return new HeapProductStore(byId);
+    }
+
+    @Override
+    ProductStore without(long[] ids) {
+        LongObjectMap<Entry> byId = null;
+        for (long id : ids) {
+            if (contains(id)) {
+                if (byId == null) {
+                    byId = productsById.copy();
+                }
+                byId.remove(id);
+            }
+        }
+        return byId == null ? this : new HeapProductStore(byId);
+    }
+
+    @Override
+    ProductStore load(Collection<Product> products) {
+        LongObjectMap<Entry> byId = new LongObjectMap<>(products.size());
+        for (Product product : products) {
+            byId.put(product.getId(), new Entry(product));
+        }
+        return new HeapProductStore(byId);
+    }
+
+    @Override
+    ProductStore restore(ByteBuffer[] segments, LongObjectMap<Category> categories) {
+        OffHeapArena mapped = OffHeapArena.over(segments, OffHeapArena.HEADER_BYTES);
+        LongObjectMap<Entry> byId = new LongObjectMap<>();
+        mapped.forEachMappedRecord((id, address) -> byId.put(id, new Entry(
+                new OffHeapProduct(mapped, address, category(categories, mapped.categoryId(address))).toProduct())));
+        return new HeapProductStore(byId);
+    }
+
+    // Index-time copy of the fields the postings were keyed on, so an entity mutated in
+    // place can still be removed from the lists it was originally filed under
+    private static final class Entry {
+        final Product product;
+        final long categoryId;
+
+        Entry(Product product) {
+            this.product = product;
+            this.categoryId = categoryIdOf(product);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ecommerce.catalog;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative long values, the
+ * {@link LongObjectMap} counterpart for indexes whose values are themselves numbers (record
+ * addresses). Two flat primitive arrays, so even millions of entries give the collector
+ * nothing to trace. Not thread-safe: instances are only mutated while a new snapshot is
+ * being built.
+ */
+final class LongLongMap {
+
+    static final long MISSING = -1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    LongLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongLongMap(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        keys = new long[capacity];
+        values = newValues(capacity);
+    }
+
+    private LongLongMap(LongLongMap source) {
+        keys = source.keys.clone();
+        values = source.values.clone();
+        size = source.size;
+    }
+
+    LongLongMap copy() {
+        return new LongLongMap(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        long value;
+        while ((value = values[i]) != MISSING) {
+            if (keys[i] == key) {
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    long put(long key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        long existing;
+        while ((existing = values[i]) != MISSING) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return existing;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return MISSING;
+    }
+
+    long remove(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        long existing;
+        while ((existing = values[i]) != MISSING) {
+            if (keys[i] == key) {
+                values[i] = MISSING;
+                size--;
+                shiftBack(i, mask);
+                return existing;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void forEachEntry(EntryConsumer action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != MISSING) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int hole, int mask) {
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == MISSING) {
+                return;
+            }
+            int home = mix(keys[j]) & mask;
+            boolean movable = j > hole
+                    ? (home <= hole || home > j)
+                    : (home <= hole && home > j);
+            if (movable) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                values[j] = MISSING;
+                hole = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = newValues(capacity);
+        int mask = capacity - 1;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldValues[k] != MISSING) {
+                int i = mix(oldKeys[k]) & mask;
+                while (values[i] != MISSING) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+            }
+        }
+    }
+
+    private static long[] newValues(int capacity) {
+        long[] values = new long[capacity];
+        Arrays.fill(values, MISSING);
+        return values;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
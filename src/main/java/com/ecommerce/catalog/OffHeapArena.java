@@ -0,0 +1,299 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Append-only product records in direct memory. Each record is a fixed 72-byte header
+ * followed by its UTF-8 strings:
+ * <pre>
+ *  0 length          int     total record bytes, padded to 8
+ *  4 stock           int
+ *  8 id              long
+ * 16 price           long    unscaled; in cents for the usual scale of 2
+ * 24 category id     long
+ * 32 created at      long    epoch seconds, UTC
+ * 40 updated at      long    epoch seconds, UTC
+ * 48 created nanos   int
+ * 52 updated nanos   int
+ * 56 price scale     int
+ * 60 name length     int     bytes; -1 for null
+ * 64 description     int
+ * 68 image url       int
+ * 72 name, description and image url bytes, back to back
+ * </pre>
+ * Fields are little-endian; nulls are stored as the minimum value of the field's type. A
+ * record's address is its chunk index in the high 32 bits and its offset in the low 32.
+ * <p>
+ * Records are never written twice, so readers need no locking: a snapshot only holds
+ * addresses appended before it was published. Appends come from the single catalog writer.
+ */
+final class OffHeapArena {
+
+    static final int HEADER_BYTES = 72;
+
+    private static final int LENGTH = 0;
+    private static final int STOCK = 4;
+    private static final int ID = 8;
+    private static final int PRICE = 16;
+    private static final int CATEGORY = 24;
+    private static final int CREATED_SECONDS = 32;
+    private static final int UPDATED_SECONDS = 40;
+    private static final int CREATED_NANOS = 48;
+    private static final int UPDATED_NANOS = 52;
+    private static final int PRICE_SCALE = 56;
+    private static final int NAME_LENGTH = 60;
+    private static final int DESCRIPTION_LENGTH = 64;
+    private static final int IMAGE_URL_LENGTH = 68;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private final int chunkBytes;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int position;
+    private long allocatedBytes;
+
+    OffHeapArena(int chunkBytes) {
+        if (chunkBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be at least " + HEADER_BYTES + " bytes");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * An arena whose first chunks are {@code segments} of back-to-back records, such as the
+     * mapped regions of a snapshot file. They are only read; appends go to new chunks.
+     */
+    static OffHeapArena over(ByteBuffer[] segments, int chunkBytes) {
+        OffHeapArena arena = new OffHeapArena(chunkBytes);
+        ByteBuffer[] chunks = new ByteBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            chunks[i] = segments[i].slice().order(ByteOrder.LITTLE_ENDIAN);
+            arena.allocatedBytes += chunks[i].capacity();
+        }
+        arena.chunks = chunks;
+        arena.position = chunks.length == 0 ? 0 : chunks[chunks.length - 1].capacity();
+        return arena;
+    }
+
+    /**
+     * Every record in the chunks an arena made by {@link #over} started with, in order.
+     */
+    void forEachMappedRecord(RecordConsumer action) {
+        ByteBuffer[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            ByteBuffer chunk = current[c];
+            int at = 0;
+            while (at < chunk.capacity()) {
+                int length = chunk.getInt(at + LENGTH);
+                if (length < HEADER_BYTES || length > chunk.capacity() - at) {
+                    throw new IllegalStateException("Corrupt product record at offset " + at + " of segment " + c);
+                }
+                action.accept(chunk.getLong(at + ID), ((long) c << 32) | at);
+                at += length;
+            }
+        }
+    }
+
+    int chunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * Bytes taken by every record appended so far, live or not.
+     */
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    long append(Product product) {
+        ByteBuffer record = encode(product);
+        long address = allocate(record.remaining());
+        chunk(address).put(offset(address), record, 0, record.remaining());
+        return address;
+    }
+
+    /**
+     * One product as a standalone record, positioned at its first byte.
+     */
+    static ByteBuffer encode(Product product) {
+        byte[] name = utf8(product.getName());
+        byte[] description = utf8(product.getDescription());
+        byte[] imageUrl = utf8(product.getImageUrl());
+        int length = align(HEADER_BYTES + size(name) + size(description) + size(imageUrl));
+
+        ByteBuffer record = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(LENGTH, length);
+        record.putInt(STOCK, product.getStockQuantity() == null ? NULL_INT : product.getStockQuantity());
+        record.putLong(ID, product.getId());
+        putPrice(record, product.getPrice());
+        record.putLong(CATEGORY, ProductStore.categoryIdOf(product));
+        putTimestamp(record, CREATED_SECONDS, CREATED_NANOS, product.getCreatedAt());
+        putTimestamp(record, UPDATED_SECONDS, UPDATED_NANOS, product.getUpdatedAt());
+        record.putInt(NAME_LENGTH, name == null ? -1 : name.length);
+        record.putInt(DESCRIPTION_LENGTH, description == null ? -1 : description.length);
+        record.putInt(IMAGE_URL_LENGTH, imageUrl == null ? -1 : imageUrl.length);
+        int strings = HEADER_BYTES;
+        if (name != null) {
+            record.put(strings, name);
+            strings += name.length;
+        }
+        if (description != null) {
+            record.put(strings, description);
+            strings += description.length;
+        }
+        if (imageUrl != null) {
+            record.put(strings, imageUrl);
+        }
+        return record;
+    }
+
+    /**
+     * Copies a record from another arena verbatim, for compaction.
+     */
+    long copy(OffHeapArena source, long sourceAddress) {
+        int length = source.length(sourceAddress);
+        byte[] bytes = new byte[length];
+        source.chunk(sourceAddress).get(offset(sourceAddress), bytes);
+        long address = allocate(length);
+        chunk(address).put(offset(address), bytes);
+        return address;
+    }
+
+    int length(long address) {
+        return chunk(address).getInt(offset(address) + LENGTH);
+    }
+
+    long id(long address) {
+        return chunk(address).getLong(offset(address) + ID);
+    }
+
+    long categoryId(long address) {
+        return chunk(address).getLong(offset(address) + CATEGORY);
+    }
+
+    Integer stock(long address) {
+        int stock = chunk(address).getInt(offset(address) + STOCK);
+        return stock == NULL_INT ? null : stock;
+    }
+
+    BigDecimal price(long address) {
+        ByteBuffer chunk = chunk(address);
+        int at = offset(address);
+        int scale = chunk.getInt(at + PRICE_SCALE);
+        return scale == NULL_INT ? null : BigDecimal.valueOf(chunk.getLong(at + PRICE), scale);
+    }
+
+    LocalDateTime createdAt(long address) {
+        return timestamp(address, CREATED_SECONDS, CREATED_NANOS);
+    }
+
+    LocalDateTime updatedAt(long address) {
+        return timestamp(address, UPDATED_SECONDS, UPDATED_NANOS);
+    }
+
+    String name(long address) {
+        return string(address, 0);
+    }
+
+    String description(long address) {
+        return string(address, 1);
+    }
+
+    String imageUrl(long address) {
+        return string(address, 2);
+    }
+
+    private String string(long address, int field) {
+        ByteBuffer chunk = chunk(address);
+        int at = offset(address);
+        int start = at + HEADER_BYTES;
+        for (int i = 0; i < field; i++) {
+            start += Math.max(0, chunk.getInt(at + NAME_LENGTH + i * Integer.BYTES));
+        }
+        int length = chunk.getInt(at + NAME_LENGTH + field * Integer.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        chunk.get(start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private LocalDateTime timestamp(long address, int secondsField, int nanosField) {
+        ByteBuffer chunk = chunk(address);
+        int at = offset(address);
+        long seconds = chunk.getLong(at + secondsField);
+        return seconds == NULL_LONG ? null : LocalDateTime.ofEpochSecond(seconds, chunk.getInt(at + nanosField), ZoneOffset.UTC);
+    }
+
+    private long allocate(int length) {
+        ByteBuffer[] current = chunks;
+        if (current.length == 0 || position + length > current[current.length - 1].capacity()) {
+            // A record never spans chunks; an oversized one gets a chunk to itself
+            ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(chunkBytes, length)).order(ByteOrder.LITTLE_ENDIAN);
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = chunk;
+            chunks = current;
+            position = 0;
+        }
+        long address = ((long) (current.length - 1) << 32) | position;
+        position += length;
+        allocatedBytes += length;
+        return address;
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks[(int) (address >>> 32)];
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long id, long address);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static void putPrice(ByteBuffer record, BigDecimal price) {
+        if (price == null) {
+            record.putLong(PRICE, 0L);
+            record.putInt(PRICE_SCALE, NULL_INT);
+            return;
+        }
+        BigDecimal normalized = price.scale() < 0 ? price.setScale(0) : price;
+        BigInteger unscaled = normalized.unscaledValue();
+        if (unscaled.bitLength() > 63) {
+            throw new IllegalArgumentException("Price out of range for off-heap storage: " + price);
+        }
+        record.putLong(PRICE, unscaled.longValue());
+        record.putInt(PRICE_SCALE, normalized.scale());
+    }
+
+    private static void putTimestamp(ByteBuffer record, int secondsAt, int nanosAt, LocalDateTime value) {
+        record.putLong(secondsAt, value == null ? NULL_LONG : value.toEpochSecond(ZoneOffset.UTC));
+        record.putInt(nanosAt, value == null ? 0 : value.getNano());
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of one {@link OffHeapArena} record. Getters decode the field from the record
+ * on every call, so a reader that needs only a field or two, such as a sort, decodes just
+ * those. Records are never overwritten, so a view stays consistent after the product changes
+ * in a newer snapshot. It is not a {@link Product}: the catalog hands out
+ * {@link #toProduct()} copies, which callers are free to modify.
+ */
+public final class OffHeapProduct {
+
+    private final OffHeapArena arena;
+    private final long address;
+    private final Category category;
+
+    OffHeapProduct(OffHeapArena arena, long address, Category category) {
+        this.arena = arena;
+        this.address = address;
+        this.category = category;
+    }
+
+    /**
+     * A detached entity holding every field of the record.
+     */
+    public Product toProduct() {
+        Product product = new Product(getName(), getDescription(), getPrice(), getImageUrl(), getStockQuantity(), category);
+        product.setId(getId());
+        product.setCreatedAt(getCreatedAt());
+        product.setUpdatedAt(getUpdatedAt());
+        return product;
+    }
+
+    public Long getId() {
+        return arena.id(address);
+    }
+
+    public String getName() {
+        return arena.name(address);
+    }
+
+    public String getDescription() {
+        return arena.description(address);
+    }
+
+    public BigDecimal getPrice() {
+        return arena.price(address);
+    }
+
+    public String getImageUrl() {
+        return arena.imageUrl(address);
+    }
+
+    public Integer getStockQuantity() {
+        return arena.stock(address);
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return arena.createdAt(address);
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return arena.updatedAt(address);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Products as {@link OffHeapArena} records, indexed by a primitive id-to-address map. The
+ * heap holds two long slots per product instead of a Product, two LocalDateTimes, a
+ * BigDecimal and three Strings, so a multi-million-SKU catalog stays out of the collector's
+ * way. The map is a {@link ChunkedLongLongMap}, so a write copies a few of its chunks rather
+ * than the whole index. Reads return detached copies built from an {@link OffHeapProduct}
+ * view.
+ * <p>
+ * Only the products move off the heap. The snapshot's {@link SearchIndex} and
+ * {@link SuggestionIndex} stay on it, together around 1.7 KB per product (about 1.7 GB
+ * for a million SKUs), and size the heap of a large catalog more than the store does.
+ * <p>
+ * An update appends a new record and leaves the old one to the snapshots still using it.
+ * Once the arena is more than half dead records, the next write copies the live ones into a
+ * fresh arena; the old one is freed when the last snapshot referencing it is collected.
+ */
+final class OffHeapProductStore extends ProductStore {
+
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final OffHeapArena arena;
+    private final ChunkedLongLongMap addresses;
+    private final long liveBytes;
+
+    private OffHeapProductStore(OffHeapArena arena, ChunkedLongLongMap addresses, long liveBytes) {
+        this.arena = arena;
+        this.addresses = addresses;
+        this.liveBytes = liveBytes;
+    }
+
+    static OffHeapProductStore empty(int chunkBytes) {
+        return new OffHeapProductStore(new OffHeapArena(chunkBytes), ChunkedLongLongMap.empty(0), 0L);
+    }
+
+    @Override
+    int size() {
+        return addresses.size();
+    }
+
+    @Override
+    boolean contains(long id) {
+        return addresses.get(id) != LongLongMap.MISSING;
+    }
+
+    @Override
+    Product get(long id, LongObjectMap<Category> categories) {
+        OffHeapProduct view = view(id, categories);
+        return view == null ? null : view.toProduct();
+    }
+
+    /**
+     * The record itself, for reads of a field or two; {@code null} if there is none.
+     */
+    OffHeapProduct view(long id, LongObjectMap<Category> categories) {
+        long address = addresses.get(id);
+        if (address == LongLongMap.MISSING) {
+            return null;
+        }
+        return new OffHeapProduct(arena, address, category(categories, arena.categoryId(address)));
+    }
+
+    @Override
+    long categoryId(long id) {
+        long address = addresses.get(id);
+        return address == LongLongMap.MISSING ? CatalogSnapshot.NO_CATEGORY : arena.categoryId(address);
+    }
+
+    @Override
+    ProductStore with(Collection<Product> products) {
+        ChunkedLongLongMap.Editor updated = addresses.edit();
+        long live = liveBytes;
+        for (Product product : products) {
+            long address = arena.append(product);
+            long previous = updated.put(product.getId(), address);
+            live += arena.length(address) - (previous == LongLongMap.MISSING ? 0 : arena.length(previous));
+        }
+        return compactIfSparse(updated.build(), live);
+    }
+
+    @Override
+    ProductStore without(long[] ids) {
+        ChunkedLongLongMap.Editor updated = null;
+        long live = liveBytes;
+        for (long id : ids) {
+            if (contains(id)) {
+                if (updated == null) {
+                    updated = addresses.edit();
+                }
+                live -= arena.length(updated.remove(id));
+            }
+        }
+        return updated == null ? this : compactIfSparse(updated.build(), live);
+    }
+
+    @Override
+    ProductStore load(Collection<Product> products) {
+        OffHeapArena fresh = new OffHeapArena(arena.chunkBytes());
+        ChunkedLongLongMap.Editor loaded = ChunkedLongLongMap.empty(products.size()).edit();
+        for (Product product : products) {
+            loaded.put(product.getId(), fresh.append(product));
+        }
+        // Duplicate ids leave their earlier records behind as garbage
+        ChunkedLongLongMap addresses = loaded.build();
+        long[] live = {0};
+        addresses.forEachEntry((id, address) -> live[0] += fresh.length(address));
+        return new OffHeapProductStore(fresh, addresses, live[0]);
+    }
+
+    // The mapped segments become the arena's first chunks, so restoring copies nothing
+    @Override
+    ProductStore restore(ByteBuffer[] segments, LongObjectMap<Category> categories) {
+        OffHeapArena mapped = OffHeapArena.over(segments, arena.chunkBytes());
+        ChunkedLongLongMap.Editor restored = ChunkedLongLongMap.empty(0).edit();
+        long[] live = {0};
+        mapped.forEachMappedRecord((id, address) -> {
+            long previous = restored.put(id, address);
+            live[0] += mapped.length(address) - (previous == LongLongMap.MISSING ? 0 : mapped.length(previous));
+        });
+        return new OffHeapProductStore(mapped, restored.build(), live[0]);
+    }
+
+    long allocatedBytes() {
+        return arena.allocatedBytes();
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    private OffHeapProductStore compactIfSparse(ChunkedLongLongMap updated, long live) {
+        long allocated = arena.allocatedBytes();
+        if (allocated < MIN_COMPACTION_BYTES || allocated <= live * 2) {
+            return new OffHeapProductStore(arena, updated, live);
+        }
+        OffHeapArena fresh = new OffHeapArena(arena.chunkBytes());
+        ChunkedLongLongMap.Editor moved = ChunkedLongLongMap.empty(updated.size()).edit();
+        updated.forEachEntry((id, address) -> moved.put(id, fresh.copy(arena, address)));
+        return new OffHeapProductStore(fresh, moved.build(), live);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copy-on-write holder for the current {@link CatalogSnapshot}. Reads are a single volatile
+ * load and never block; writes are serialized and publish a fresh snapshot atomically.
+ * <p>
+ * Demand is too frequent to publish a snapshot per order, so it is counted outside the
+ * snapshot and folded in by {@link #foldDemand()}.
+ */
+public class ProductCatalog {
+
+    private final ProductStore store;
+    private final ConcurrentMap<Long, LongAdder> pendingDemand = new ConcurrentHashMap<>();
+    private volatile CatalogSnapshot snapshot;
+
+    public ProductCatalog() {
+        this(ProductStore.onHeap());
+    }
+
+    public ProductCatalog(ProductStore store) {
+        this.store = store;
+        this.snapshot = CatalogSnapshot.empty(store);
+    }
+
+    public CatalogSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public synchronized void load(Collection<Category> categories, Collection<Product> products) {
+        snapshot = CatalogSnapshot.build(snapshot.version() + 1, store, categories, products);
+    }
+
+    /**
+     * Replaces the catalog with the contents of a {@link CatalogSnapshotFile}.
+     */
+    public synchronized void restore(Path path) throws IOException {
+        snapshot = CatalogSnapshotFile.read(path, store);
+    }
+
+    public synchronized void saveProduct(Product product) {
+        snapshot = snapshot.withProduct(product);
+    }
+
+    public synchronized void saveProducts(Collection<Product> products) {
+        snapshot = snapshot.withProducts(products);
+    }
+
+    public synchronized void removeProduct(long id) {
+        snapshot = snapshot.withoutProduct(id);
+    }
+
+    public synchronized void removeProducts(long[] ids) {
+        snapshot = snapshot.withoutProducts(ids);
+    }
+
+    public synchronized void saveCategory(Category category) {
+        snapshot = snapshot.withCategory(category);
+    }
+
+    public synchronized void removeCategory(long id) {
+        snapshot = snapshot.withoutCategory(id);
+    }
+
+    /**
+     * Counts units ordered; they reach the snapshot on the next {@link #foldDemand()}.
+     */
+    public void recordDemand(long productId, long units) {
+        if (units > 0) {
+            pendingDemand.computeIfAbsent(productId, id -> new LongAdder()).add(units);
+        }
+    }
+
+    /**
+     * Publishes the demand counted since the last fold as a single snapshot.
+     */
+    public synchronized void foldDemand() {
+        LongLongMap demand = new LongLongMap();
+        // Counters stay in the map: removing one could drop units added to it concurrently
+        pendingDemand.forEach((id, counter) -> {
+            long units = counter.sumThenReset();
+            if (units > 0) {
+                demand.put(id, units);
+            }
+        });
+        if (demand.size() > 0) {
+            snapshot = snapshot.withDemand(demand);
+        }
+    }
+}
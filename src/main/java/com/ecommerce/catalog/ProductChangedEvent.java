@@ -0,0 +1,51 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Product;
+
+/**
+ * Published by the JPA-backed write path so in-process catalog structures can follow the
+ * database. A null product means the product with {@code productId} was deleted. The before
+ * state is null for new products and for deletes of products that did not exist.
+ */
+public class ProductChangedEvent {
+
+    private final Long productId;
+    private final Product product;
+    private final ProductState before;
+    private final ProductState after;
+
+    private ProductChangedEvent(Long productId, Product product, ProductState before) {
+        this.productId = productId;
+        this.product = product;
+        this.before = before;
+        this.after = ProductState.of(product);
+    }
+
+    public static ProductChangedEvent saved(ProductState before, Product product) {
+        return new ProductChangedEvent(product.getId(), product, before);
+    }
+
+    public static ProductChangedEvent deleted(Long productId, ProductState before) {
+        return new ProductChangedEvent(productId, null, before);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public ProductState getBefore() {
+        return before;
+    }
+
+    public ProductState getAfter() {
+        return after;
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
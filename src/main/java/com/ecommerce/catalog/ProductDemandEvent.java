@@ -0,0 +1,21 @@
+package com.ecommerce.catalog;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Units sold per product id, published when an order is placed. Feeds the popularity signal
+ * used to rank typeahead suggestions.
+ */
+public class ProductDemandEvent {
+
+    private final Map<Long, Integer> unitsByProductId;
+
+    public ProductDemandEvent(Map<Long, Integer> unitsByProductId) {
+        this.unitsByProductId = Collections.unmodifiableMap(unitsByProductId);
+    }
+
+    public Map<Long, Integer> getUnitsByProductId() {
+        return unitsByProductId;
+    }
+}
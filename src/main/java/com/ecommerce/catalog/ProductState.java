@@ -0,0 +1,93 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Detached copy of the product attributes that listings filter and sort on. Captured inside
+ * the write transaction so listeners can compare before and after without touching an
+ * entity that may since have been mutated or detached.
+ */
+public final class ProductState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final BigDecimal price;
+    private final Integer stockQuantity;
+    private final Long categoryId;
+    private final LocalDateTime createdAt;
+
+    private ProductState(Product product) {
+        Category category = product.getCategory();
+        this.id = product.getId();
+        this.name = product.getName();
+        this.description = product.getDescription();
+        this.price = product.getPrice();
+        this.stockQuantity = product.getStockQuantity();
+        this.categoryId = category == null ? null : category.getId();
+        this.createdAt = product.getCreatedAt();
+    }
+
+    public static ProductState of(Product product) {
+        return product == null ? null : new ProductState(product);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Whether two states order identically under the given sort property. Unknown properties
+     * are reported as changed.
+     */
+    public boolean sortsLike(ProductState other, String property) {
+        switch (property) {
+            case "id":
+                return Objects.equals(id, other.id);
+            case "name":
+                return Objects.equals(name, other.name);
+            case "description":
+                return Objects.equals(description, other.description);
+            case "price":
+                return price != null && other.price != null ? price.compareTo(other.price) == 0 : price == other.price;
+            case "stockQuantity":
+                return Objects.equals(stockQuantity, other.stockQuantity);
+            case "createdAt":
+                return Objects.equals(createdAt, other.createdAt);
+            default:
+                return false;
+        }
+    }
+}
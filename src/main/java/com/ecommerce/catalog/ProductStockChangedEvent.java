@@ -0,0 +1,22 @@
+package com.ecommerce.catalog;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Ids of the products a transaction sold out or brought back into stock, published by the
+ * reservation path. Moves that leave a product in stock are not published. The new levels
+ * are not carried: a listener acting after commit can read the committed rows.
+ */
+public class ProductStockChangedEvent {
+
+    private final Set<Long> productIds;
+
+    public ProductStockChangedEvent(Set<Long> productIds) {
+        this.productIds = Collections.unmodifiableSet(productIds);
+    }
+
+    public Set<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Where a {@link CatalogSnapshot} keeps its products, by id. Stores are persistent: a write
+ * returns a new store and leaves the receiver, which older snapshots may still be reading,
+ * unchanged.
+ */
+public abstract class ProductStore {
+
+    ProductStore() {
+    }
+
+    /**
+     * Product entities on the heap, returned as they were saved.
+     */
+    public static ProductStore onHeap() {
+        return HeapProductStore.EMPTY;
+    }
+
+    /**
+     * Fixed-layout records in direct memory, allocated {@code chunkBytes} at a time, returned
+     * as detached copies. The search and suggestion indexes stay on the heap either way.
+     */
+    public static ProductStore offHeap(int chunkBytes) {
+        return OffHeapProductStore.empty(chunkBytes);
+    }
+
+    abstract int size();
+
+    abstract boolean contains(long id);
+
+    /**
+     * The product, or {@code null}; {@code categories} resolves the category of stores that
+     * only keep its id.
+     */
+    abstract Product get(long id, LongObjectMap<Category> categories);
+
+    /**
+     * The category id the product was filed under when it was saved, or
+     * {@link CatalogSnapshot#NO_CATEGORY}.
+     */
+    abstract long categoryId(long id);
+
+    ProductStore with(Product product) {
+        return with(Collections.singletonList(product));
+    }
+
+    /**
+     * A store with every product of {@code products} saved, in one copy of the id index.
+     */
+    abstract ProductStore with(Collection<Product> products);
+
+    ProductStore without(long id) {
+        return without(new long[] {id});
+    }
+
+    /**
+     * A store with every product of {@code ids} removed, in one copy of the id index. Ids the
+     * store does not hold are ignored.
+     */
+    abstract ProductStore without(long[] ids);
+
+    /**
+     * A store of the same kind holding exactly {@code products}.
+     */
+    abstract ProductStore load(Collection<Product> products);
+
+    /**
+     * A store of the same kind holding the records in {@code segments}, in the
+     * {@link OffHeapArena} layout, as read from a snapshot file.
+     */
+    abstract ProductStore restore(ByteBuffer[] segments, LongObjectMap<Category> categories);
+
+    static long categoryIdOf(Product product) {
+        Category category = product.getCategory();
+        return category == null || category.getId() == null ? CatalogSnapshot.NO_CATEGORY : category.getId();
+    }
+
+    // A product can name a category the catalog has not been told about yet
+    static Category category(LongObjectMap<Category> categories, long categoryId) {
+        if (categoryId == CatalogSnapshot.NO_CATEGORY) {
+            return null;
+        }
+        Category category = categories.get(categoryId);
+        if (category == null) {
+            category = new Category();
+            category.setId(categoryId);
+        }
+        return category;
+    }
+}
@@ -0,0 +1,602 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable inverted index over product names and descriptions. Each query token is matched
+ * against the term dictionary as an exact term, as a prefix, and (for three characters or
+ * more) as an infix through a trigram index, then scored with a field-weighted tf-idf.
+ * Updates copy only the postings of the terms the changed product actually contains.
+ * <p>
+ * The index lives on the heap whichever {@link ProductStore} holds the products: about
+ * 0.9 KB per product for names and descriptions like the benchmark catalog's, mostly the
+ * per-document term arrays and the posting entries.
+ */
+public final class SearchIndex {
+
+    static final SearchIndex EMPTY = new SearchIndex(Collections.emptyMap(), new String[0],
+            Collections.emptyMap(), new LongObjectMap<>());
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.6;
+    private static final double INFIX_MATCH = 0.3;
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int INCREMENTAL_DICTIONARY_LIMIT = 64;
+
+    private final Map<String, Posting> postings;
+    private final String[] terms;
+    private final Map<String, String[]> termsByGram;
+    private final LongObjectMap<Document> documents;
+
+    private SearchIndex(Map<String, Posting> postings, String[] terms,
+                        Map<String, String[]> termsByGram, LongObjectMap<Document> documents) {
+        this.postings = postings;
+        this.terms = terms;
+        this.termsByGram = termsByGram;
+        this.documents = documents;
+    }
+
+    static SearchIndex build(Collection<Product> products) {
+        Builder builder = new Builder(EMPTY, products.size());
+        for (Product product : products) {
+            builder.add(product);
+        }
+        return builder.build();
+    }
+
+    SearchIndex withDocument(Product product) {
+        return withDocuments(Collections.singletonList(product));
+    }
+
+    SearchIndex withDocuments(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder(this, documents.size() + products.size());
+        for (Product product : products) {
+            builder.remove(product.getId());
+            builder.add(product);
+        }
+        return builder.build();
+    }
+
+    SearchIndex withoutDocument(long id) {
+        return withoutDocuments(new long[] {id});
+    }
+
+    SearchIndex withoutDocuments(long[] ids) {
+        Builder builder = null;
+        for (long id : ids) {
+            if (documents.get(id) != null) {
+                if (builder == null) {
+                    builder = new Builder(this, documents.size());
+                }
+                builder.remove(id);
+            }
+        }
+        return builder == null ? this : builder.build();
+    }
+
+    /**
+     * Writes the dictionary, postings and documents; the trigram table is derived on read.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(terms.length);
+        for (String term : terms) {
+            Posting posting = postings.get(term);
+            out.writeUTF(term);
+            out.writeInt(posting.ids.length);
+            for (int i = 0; i < posting.ids.length; i++) {
+                out.writeLong(posting.ids[i]);
+                out.writeFloat(posting.weights[i]);
+            }
+        }
+        List<Document> all = new ArrayList<>(documents.size());
+        documents.forEachValue(all::add);
+        out.writeInt(all.size());
+        for (Document document : all) {
+            out.writeLong(document.id);
+            out.writeInt(document.terms.length);
+            for (int i = 0; i < document.terms.length; i++) {
+                out.writeInt(Arrays.binarySearch(terms, document.terms[i]));
+                out.writeFloat(document.weights[i]);
+            }
+        }
+    }
+
+    static SearchIndex readFrom(DataInput in) throws IOException {
+        String[] terms = new String[in.readInt()];
+        Map<String, Posting> postings = new HashMap<>(terms.length * 2);
+        for (int t = 0; t < terms.length; t++) {
+            terms[t] = in.readUTF();
+            long[] ids = new long[in.readInt()];
+            float[] weights = new float[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = in.readLong();
+                weights[i] = in.readFloat();
+            }
+            postings.put(terms[t], new Posting(ids, weights));
+        }
+        int documentCount = in.readInt();
+        LongObjectMap<Document> documents = new LongObjectMap<>(documentCount);
+        for (int d = 0; d < documentCount; d++) {
+            long id = in.readLong();
+            String[] documentTerms = new String[in.readInt()];
+            float[] weights = new float[documentTerms.length];
+            for (int i = 0; i < documentTerms.length; i++) {
+                documentTerms[i] = terms[in.readInt()];
+                weights[i] = in.readFloat();
+            }
+            documents.put(id, new Document(id, documentTerms, weights));
+        }
+        return new SearchIndex(postings, terms, gramIndex(terms), documents);
+    }
+
+    public int documentCount() {
+        return documents.size();
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Returns the ids of every product matching all query tokens, best match first.
+     */
+    public long[] search(String query) {
+        LongObjectMap<double[]> scores = score(query);
+        return scores == null ? new long[0] : top(scores, scores.size());
+    }
+
+    /**
+     * Returns the best {@code limit} matches, best first, along with how many products matched
+     * in all. Only the kept hits are ranked, through a heap bounded by {@code limit}.
+     */
+    public TopHits search(String query, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        LongObjectMap<double[]> scores = score(query);
+        return scores == null ? TopHits.NONE : new TopHits(top(scores, limit), scores.size());
+    }
+
+    // Summed scores of the documents matching every token, or null when nothing matches
+    private LongObjectMap<double[]> score(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || documents.size() == 0) {
+            return null;
+        }
+
+        LongObjectMap<double[]> scores = null;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            LongObjectMap<double[]> tokenScores = scoreToken(token);
+            scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+            if (scores.size() == 0) {
+                return null;
+            }
+        }
+        return scores;
+    }
+
+    // Min-heap of the best hits seen so far: the root is the weakest one kept
+    private static long[] top(LongObjectMap<double[]> scores, int limit) {
+        int capacity = Math.min(limit, scores.size());
+        long[] ids = new long[capacity];
+        double[] heapScores = new double[capacity];
+        int[] size = new int[1];
+        if (capacity > 0) {
+            scores.forEachEntry((id, score) -> {
+                if (size[0] < capacity) {
+                    int i = size[0]++;
+                    ids[i] = id;
+                    heapScores[i] = score[0];
+                    siftUp(ids, heapScores, i);
+                } else if (ranksBefore(id, score[0], ids[0], heapScores[0])) {
+                    ids[0] = id;
+                    heapScores[0] = score[0];
+                    siftDown(ids, heapScores, capacity);
+                }
+            });
+        }
+
+        // Popping the weakest hit fills the result from the back
+        long[] ranked = new long[capacity];
+        for (int end = capacity - 1; end >= 0; end--) {
+            ranked[end] = ids[0];
+            ids[0] = ids[end];
+            heapScores[0] = heapScores[end];
+            siftDown(ids, heapScores, end);
+        }
+        return ranked;
+    }
+
+    private static boolean ranksBefore(long id, double score, long otherId, double otherScore) {
+        return score != otherScore ? score > otherScore : id < otherId;
+    }
+
+    private static void siftUp(long[] ids, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBefore(ids[parent], scores[parent], ids[i], scores[i])) {
+                return;
+            }
+            swap(ids, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] ids, double[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int weakest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (ranksBefore(ids[weakest], scores[weakest], ids[child], scores[child])) {
+                    weakest = child;
+                }
+            }
+            if (weakest == i) {
+                return;
+            }
+            swap(ids, scores, i, weakest);
+            i = weakest;
+        }
+    }
+
+    private static void swap(long[] ids, double[] scores, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // A document's score for one token is its best-scoring matching term. Every matching term
+    // is expanded, so the hit count is exact however short the token
+    private LongObjectMap<double[]> scoreToken(String token) {
+        LongObjectMap<double[]> scores = new LongObjectMap<>();
+
+        int from = Arrays.binarySearch(terms, token);
+        for (int i = from >= 0 ? from : -from - 1; i < terms.length && terms[i].startsWith(token); i++) {
+            accumulate(scores, terms[i], terms[i].length() == token.length() ? EXACT_MATCH : PREFIX_MATCH);
+        }
+
+        if (token.length() >= GRAM_LENGTH) {
+            String[] candidates = null;
+            for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+                String[] gramTerms = termsByGram.get(token.substring(i, i + GRAM_LENGTH));
+                if (gramTerms == null) {
+                    return scores;
+                }
+                if (candidates == null || gramTerms.length < candidates.length) {
+                    candidates = gramTerms;
+                }
+            }
+            for (String term : candidates) {
+                if (!term.startsWith(token) && term.contains(token)) {
+                    accumulate(scores, term, INFIX_MATCH);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void accumulate(LongObjectMap<double[]> scores, String term, double matchWeight) {
+        Posting posting = postings.get(term);
+        double idf = Math.log(1.0 + (double) documents.size() / posting.ids.length);
+        for (int i = 0; i < posting.ids.length; i++) {
+            double score = matchWeight * idf * posting.weights[i];
+            double[] current = scores.get(posting.ids[i]);
+            if (current == null) {
+                scores.put(posting.ids[i], new double[] {score});
+            } else if (score > current[0]) {
+                current[0] = score;
+            }
+        }
+    }
+
+    private static LongObjectMap<double[]> intersect(LongObjectMap<double[]> left, LongObjectMap<double[]> right) {
+        LongObjectMap<double[]> smaller = left.size() <= right.size() ? left : right;
+        LongObjectMap<double[]> larger = smaller == left ? right : left;
+        LongObjectMap<double[]> result = new LongObjectMap<>(smaller.size());
+        smaller.forEachEntry((id, score) -> {
+            double[] other = larger.get(id);
+            if (other != null) {
+                result.put(id, new double[] {score[0] + other[0]});
+            }
+        });
+        return result;
+    }
+
+    private static Map<String, String[]> gramIndex(String[] terms) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (String term : terms) {
+            for (String gram : grams(term)) {
+                grouped.computeIfAbsent(gram, g -> new ArrayList<>()).add(term);
+            }
+        }
+        Map<String, String[]> termsByGram = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((gram, list) -> termsByGram.put(gram, list.toArray(new String[0])));
+        return termsByGram;
+    }
+
+    private static Set<String> grams(String term) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            grams.add(term.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * The kept ids of a bounded search, best first, and the number of products that matched.
+     */
+    public static final class TopHits {
+
+        static final TopHits NONE = new TopHits(new long[0], 0);
+
+        private final long[] ids;
+        private final int total;
+
+        TopHits(long[] ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public long[] ids() {
+            return ids;
+        }
+
+        public int total() {
+            return total;
+        }
+    }
+
+    private static final class Posting {
+        final long[] ids;
+        final float[] weights;
+
+        Posting(long[] ids, float[] weights) {
+            this.ids = ids;
+            this.weights = weights;
+        }
+    }
+
+    // Distinct terms of one product with their field-weighted frequencies, kept so the
+    // product can be removed from exactly the postings it was added to
+    private static final class Document {
+        final long id;
+        final String[] terms;
+        final float[] weights;
+
+        Document(long id, String[] terms, float[] weights) {
+            this.id = id;
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        static Document of(Product product) {
+            Map<String, float[]> weights = new LinkedHashMap<>();
+            for (String token : tokenize(product.getName())) {
+                weights.computeIfAbsent(token, t -> new float[1])[0] += NAME_WEIGHT;
+            }
+            for (String token : tokenize(product.getDescription())) {
+                weights.computeIfAbsent(token, t -> new float[1])[0] += DESCRIPTION_WEIGHT;
+            }
+            String[] terms = weights.keySet().toArray(new String[0]);
+            float[] values = new float[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                values[i] = weights.get(terms[i])[0];
+            }
+            return new Document(product.getId(), terms, values);
+        }
+    }
+
+    private static final class PostingBuilder {
+        long[] ids;
+        float[] weights;
+        int size;
+
+        PostingBuilder(Posting source) {
+            int capacity = source == null ? 4 : source.ids.length + 4;
+            ids = new long[capacity];
+            weights = new float[capacity];
+            if (source != null) {
+                System.arraycopy(source.ids, 0, ids, 0, source.ids.length);
+                System.arraycopy(source.weights, 0, weights, 0, source.weights.length);
+                size = source.ids.length;
+            }
+        }
+
+        void add(long id, float weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        Posting freeze() {
+            return new Posting(Arrays.copyOf(ids, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    private static final class Builder {
+        private final SearchIndex base;
+        private final Map<String, Posting> postings;
+        private final Map<String, PostingBuilder> touched = new HashMap<>();
+        private final LongObjectMap<Document> documents;
+
+        Builder(SearchIndex base, int expectedDocuments) {
+            this.base = base;
+            this.postings = new HashMap<>(base.postings);
+            this.documents = base == EMPTY ? new LongObjectMap<>(expectedDocuments) : base.documents.copy();
+        }
+
+        void add(Product product) {
+            if (product.getId() == null) {
+                throw new IllegalArgumentException("Indexed products must have an id");
+            }
+            Document document = Document.of(product);
+            documents.put(document.id, document);
+            for (int i = 0; i < document.terms.length; i++) {
+                posting(document.terms[i]).add(document.id, document.weights[i]);
+            }
+        }
+
+        void remove(Long id) {
+            Document document = id == null ? null : documents.remove(id);
+            if (document != null) {
+                for (String term : document.terms) {
+                    posting(term).remove(document.id);
+                }
+            }
+        }
+
+        SearchIndex build() {
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            touched.forEach((term, builder) -> {
+                boolean existed = base.postings.containsKey(term);
+                if (builder.size == 0) {
+                    postings.remove(term);
+                    if (existed) {
+                        removed.add(term);
+                    }
+                } else {
+                    postings.put(term, builder.freeze());
+                    if (!existed) {
+                        added.add(term);
+                    }
+                }
+            });
+
+            if (added.isEmpty() && removed.isEmpty()) {
+                return new SearchIndex(postings, base.terms, base.termsByGram, documents);
+            }
+            if (added.size() + removed.size() > INCREMENTAL_DICTIONARY_LIMIT) {
+                return rebuildDictionary();
+            }
+
+            String[] terms = base.terms;
+            Map<String, String[]> termsByGram = new HashMap<>(base.termsByGram);
+            for (String term : removed) {
+                terms = removeSorted(terms, term);
+                for (String gram : grams(term)) {
+                    String[] updated = removeUnsorted(termsByGram.get(gram), term);
+                    if (updated.length == 0) {
+                        termsByGram.remove(gram);
+                    } else {
+                        termsByGram.put(gram, updated);
+                    }
+                }
+            }
+            for (String term : added) {
+                terms = insertSorted(terms, term);
+                for (String gram : grams(term)) {
+                    String[] existing = termsByGram.get(gram);
+                    String[] updated = existing == null ? new String[1] : Arrays.copyOf(existing, existing.length + 1);
+                    updated[updated.length - 1] = term;
+                    termsByGram.put(gram, updated);
+                }
+            }
+            return new SearchIndex(postings, terms, termsByGram, documents);
+        }
+
+        private SearchIndex rebuildDictionary() {
+            String[] terms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            return new SearchIndex(postings, terms, gramIndex(terms), documents);
+        }
+
+        private PostingBuilder posting(String term) {
+            return touched.computeIfAbsent(term, t -> new PostingBuilder(base.postings.get(t)));
+        }
+
+        private static String[] insertSorted(String[] sorted, String term) {
+            int index = Arrays.binarySearch(sorted, term);
+            if (index >= 0) {
+                return sorted;
+            }
+            int at = -index - 1;
+            String[] result = new String[sorted.length + 1];
+            System.arraycopy(sorted, 0, result, 0, at);
+            result[at] = term;
+            System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+            return result;
+        }
+
+        private static String[] removeSorted(String[] sorted, String term) {
+            int at = Arrays.binarySearch(sorted, term);
+            if (at < 0) {
+                return sorted;
+            }
+            String[] result = new String[sorted.length - 1];
+            System.arraycopy(sorted, 0, result, 0, at);
+            System.arraycopy(sorted, at + 1, result, at, sorted.length - at - 1);
+            return result;
+        }
+
+        private static String[] removeUnsorted(String[] values, String term) {
+            List<String> result = new ArrayList<>(values.length);
+            for (String value : values) {
+                if (!value.equals(term)) {
+                    result.add(value);
+                }
+            }
+            return result.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ecommerce.catalog;
+
+/**
+ * One typeahead entry. The weight is fixed when the entry is indexed; a stock or popularity
+ * change re-indexes the entry rather than mutating it.
+ */
+public final class Suggestion {
+
+    public enum Type {
+        PRODUCT, CATEGORY
+    }
+
+    private static final double CATEGORY_WEIGHT = 2.0;
+    private static final double OUT_OF_STOCK_FACTOR = 0.05;
+
+    private final Type type;
+    private final long id;
+    private final String text;
+    private final int stockQuantity;
+    private final long popularity;
+    private final double weight;
+
+    private Suggestion(Type type, long id, String text, int stockQuantity, long popularity, double weight) {
+        this.type = type;
+        this.id = id;
+        this.text = text;
+        this.stockQuantity = stockQuantity;
+        this.popularity = popularity;
+        this.weight = weight;
+    }
+
+    static Suggestion product(long id, String name, Integer stockQuantity, long popularity) {
+        int stock = stockQuantity == null ? 0 : stockQuantity;
+        double availability = stock > 0 ? 1.0 : OUT_OF_STOCK_FACTOR;
+        return new Suggestion(Type.PRODUCT, id, name, stock, popularity,
+                availability * (1.0 + Math.log1p(popularity)));
+    }
+
+    static Suggestion category(long id, String name) {
+        return new Suggestion(Type.CATEGORY, id, name, 0, 0L, CATEGORY_WEIGHT);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    int stockQuantity() {
+        return stockQuantity;
+    }
+
+    long popularity() {
+        return popularity;
+    }
+
+    double weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,518 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable radix trie over product and category names for typeahead. Every node stores the
+ * best {@link #MAX_SUGGESTIONS} entries of its subtree, so a lookup is one walk down the
+ * query prefix and no subtree traversal. Names are keyed on each word boundary, so "max"
+ * finds "Nike Air Max 270". Updates copy only the nodes on the changed keys' paths.
+ * <p>
+ * Like {@link SearchIndex} it stays on the heap with an off-heap product store, at about
+ * 0.8 KB per product for benchmark-catalog names: the entry, its text, and the trie nodes
+ * and top lists along its keys.
+ */
+public final class SuggestionIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int MAX_KEYS_PER_ENTRY = 8;
+
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator
+            .comparingDouble(Suggestion::weight).reversed()
+            .thenComparing(Suggestion::getText, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(Suggestion::getId);
+
+    static final SuggestionIndex EMPTY = new SuggestionIndex(Node.EMPTY, new LongObjectMap<>(), new LongObjectMap<>());
+
+    private final Node root;
+    private final LongObjectMap<Suggestion> products;
+    private final LongObjectMap<Suggestion> categories;
+
+    private SuggestionIndex(Node root, LongObjectMap<Suggestion> products, LongObjectMap<Suggestion> categories) {
+        this.root = root;
+        this.products = products;
+        this.categories = categories;
+    }
+
+    static SuggestionIndex build(Collection<Category> categories, Collection<Product> products) {
+        LongObjectMap<Suggestion> productEntries = new LongObjectMap<>(products.size());
+        LongObjectMap<Suggestion> categoryEntries = new LongObjectMap<>(categories.size());
+        List<KeyedSuggestion> keyed = new ArrayList<>(products.size() * 3);
+        for (Product product : products) {
+            Suggestion suggestion = Suggestion.product(product.getId(), product.getName(), product.getStockQuantity(), 0L);
+            productEntries.put(product.getId(), suggestion);
+            keys(suggestion).forEach(key -> keyed.add(new KeyedSuggestion(key, suggestion)));
+        }
+        for (Category category : categories) {
+            Suggestion suggestion = Suggestion.category(category.getId(), category.getName());
+            categoryEntries.put(category.getId(), suggestion);
+            keys(suggestion).forEach(key -> keyed.add(new KeyedSuggestion(key, suggestion)));
+        }
+        keyed.sort(Comparator.comparing(entry -> entry.key));
+        Node root = keyed.isEmpty() ? Node.EMPTY : buildNode("", keyed, 0, keyed.size(), 0);
+        return new SuggestionIndex(root, productEntries, categoryEntries);
+    }
+
+    SuggestionIndex withProduct(Product product) {
+        return withProducts(Collections.singletonList(product));
+    }
+
+    /**
+     * Re-indexes the products whose name or stock changed, copying the entry map once for the
+     * whole batch.
+     */
+    SuggestionIndex withProducts(Collection<Product> changed) {
+        LongObjectMap<Suggestion> updated = null;
+        Node updatedRoot = root;
+        for (Product product : changed) {
+            LongObjectMap<Suggestion> current = updated == null ? products : updated;
+            Suggestion previous = current.get(product.getId());
+            long popularity = previous == null ? 0L : previous.popularity();
+            Suggestion next = Suggestion.product(product.getId(), product.getName(), product.getStockQuantity(), popularity);
+            if (previous != null && Objects.equals(previous.getText(), next.getText())
+                    && previous.stockQuantity() == next.stockQuantity()) {
+                continue;
+            }
+            if (updated == null) {
+                updated = products.copy();
+            }
+            updated.put(product.getId(), next);
+            updatedRoot = replace(updatedRoot, previous, next);
+        }
+        return updated == null ? this : new SuggestionIndex(updatedRoot, updated, categories);
+    }
+
+    SuggestionIndex withoutProduct(long id) {
+        return withoutProducts(new long[] {id});
+    }
+
+    SuggestionIndex withoutProducts(long[] ids) {
+        LongObjectMap<Suggestion> updated = null;
+        Node updatedRoot = root;
+        for (long id : ids) {
+            Suggestion previous = products.get(id);
+            if (previous == null) {
+                continue;
+            }
+            if (updated == null) {
+                updated = products.copy();
+            }
+            if (updated.remove(id) != null) {
+                updatedRoot = replace(updatedRoot, previous, null);
+            }
+        }
+        return updated == null ? this : new SuggestionIndex(updatedRoot, updated, categories);
+    }
+
+    SuggestionIndex withoutCategory(long id) {
+        Suggestion previous = categories.get(id);
+        if (previous == null) {
+            return this;
+        }
+        LongObjectMap<Suggestion> updated = categories.copy();
+        updated.remove(id);
+        return new SuggestionIndex(replace(root, previous, null), products, updated);
+    }
+
+    SuggestionIndex withCategory(Category category) {
+        Suggestion previous = categories.get(category.getId());
+        Suggestion next = Suggestion.category(category.getId(), category.getName());
+        if (previous != null && previous.getText().equals(next.getText())) {
+            return this;
+        }
+        LongObjectMap<Suggestion> updated = categories.copy();
+        updated.put(category.getId(), next);
+        return new SuggestionIndex(replace(root, previous, next), products, updated);
+    }
+
+    /**
+     * Adds units ordered to the popularity of each product, copying the entry map once for the
+     * whole batch.
+     */
+    SuggestionIndex withDemand(LongLongMap unitsByProductId) {
+        LongObjectMap<Suggestion> updated = null;
+        Node updatedRoot = root;
+        long[] ids = new long[unitsByProductId.size()];
+        long[] units = new long[ids.length];
+        int[] size = new int[1];
+        unitsByProductId.forEachEntry((id, count) -> {
+            ids[size[0]] = id;
+            units[size[0]++] = count;
+        });
+        for (int i = 0; i < size[0]; i++) {
+            Suggestion previous = products.get(ids[i]);
+            if (previous == null || units[i] <= 0) {
+                continue;
+            }
+            Suggestion next = Suggestion.product(ids[i], previous.getText(), previous.stockQuantity(),
+                    previous.popularity() + units[i]);
+            if (updated == null) {
+                updated = products.copy();
+            }
+            updated.put(ids[i], next);
+            updatedRoot = replace(updatedRoot, previous, next);
+        }
+        return updated == null ? this : new SuggestionIndex(updatedRoot, updated, categories);
+    }
+
+    /**
+     * Writes the entries, then the trie in pre-order with every node's terminal and top
+     * lists as references into the entries, so reading rebuilds it without sorting.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        List<Suggestion> entries = new ArrayList<>(products.size() + categories.size());
+        products.forEachValue(entries::add);
+        categories.forEachValue(entries::add);
+        Map<Suggestion, Integer> references = new IdentityHashMap<>(entries.size() * 2);
+        out.writeInt(entries.size());
+        for (Suggestion entry : entries) {
+            references.put(entry, references.size());
+            out.writeBoolean(entry.getType() == Suggestion.Type.PRODUCT);
+            out.writeLong(entry.getId());
+            out.writeBoolean(entry.getText() != null);
+            if (entry.getText() != null) {
+                out.writeUTF(entry.getText());
+            }
+            out.writeInt(entry.stockQuantity());
+            out.writeLong(entry.popularity());
+        }
+        writeNode(out, root, references);
+    }
+
+    static SuggestionIndex readFrom(DataInput in) throws IOException {
+        Suggestion[] entries = new Suggestion[in.readInt()];
+        LongObjectMap<Suggestion> products = new LongObjectMap<>(entries.length);
+        LongObjectMap<Suggestion> categories = new LongObjectMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            boolean product = in.readBoolean();
+            long id = in.readLong();
+            String text = in.readBoolean() ? in.readUTF() : null;
+            int stockQuantity = in.readInt();
+            long popularity = in.readLong();
+            if (product) {
+                products.put(id, entries[i] = Suggestion.product(id, text, stockQuantity, popularity));
+            } else {
+                categories.put(id, entries[i] = Suggestion.category(id, text));
+            }
+        }
+        return new SuggestionIndex(readNode(in, entries), products, categories);
+    }
+
+    private static void writeNode(DataOutput out, Node node, Map<Suggestion, Integer> references) throws IOException {
+        out.writeUTF(node.label);
+        writeReferences(out, node.terminals, references);
+        writeReferences(out, node.top, references);
+        out.writeInt(node.children.length);
+        for (Node child : node.children) {
+            writeNode(out, child, references);
+        }
+    }
+
+    private static Node readNode(DataInput in, Suggestion[] entries) throws IOException {
+        String label = in.readUTF();
+        Suggestion[] terminals = readReferences(in, entries);
+        Suggestion[] top = readReferences(in, entries);
+        Node[] children = new Node[in.readInt()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = readNode(in, entries);
+        }
+        return new Node(label, terminals, children, top);
+    }
+
+    private static void writeReferences(DataOutput out, Suggestion[] values, Map<Suggestion, Integer> references) throws IOException {
+        out.writeInt(values.length);
+        for (Suggestion value : values) {
+            out.writeInt(references.get(value));
+        }
+    }
+
+    private static Suggestion[] readReferences(DataInput in, Suggestion[] entries) throws IOException {
+        Suggestion[] values = new Suggestion[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = entries[in.readInt()];
+        }
+        return values;
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizePrefix(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        int offset = 0;
+        while (offset < key.length()) {
+            Node child = node.child(key.charAt(offset));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            int matched = commonPrefix(child.label, key, offset);
+            if (offset + matched == key.length()) {
+                node = child;
+                break;
+            }
+            if (matched < child.label.length()) {
+                return Collections.emptyList();
+            }
+            offset += matched;
+            node = child;
+        }
+        List<Suggestion> top = Arrays.asList(node.top);
+        return top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    // Keys end with a separator so a completed word ("air ") still matches a name ending in it
+    static List<String> keys(Suggestion suggestion) {
+        List<String> tokens = SearchIndex.tokenize(suggestion.getText());
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < tokens.size() && i < MAX_KEYS_PER_ENTRY; i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())) + " ");
+        }
+        return keys;
+    }
+
+    // A trailing separator is significant: "air " must not match "airpods"
+    static String normalizePrefix(String prefix) {
+        List<String> tokens = SearchIndex.tokenize(prefix);
+        if (tokens.isEmpty()) {
+            return "";
+        }
+        String key = String.join(" ", tokens);
+        char last = prefix.charAt(prefix.length() - 1);
+        return Character.isLetterOrDigit(last) ? key : key + " ";
+    }
+
+    private static Node replace(Node root, Suggestion previous, Suggestion next) {
+        Node updated = root;
+        if (previous != null) {
+            for (String key : keys(previous)) {
+                updated = remove(updated, key, 0, previous);
+            }
+        }
+        if (next != null) {
+            for (String key : keys(next)) {
+                updated = insert(updated, key, 0, next);
+            }
+        }
+        return updated == null ? Node.EMPTY : updated;
+    }
+
+    // Path copying: only nodes between the root and the key's end are rebuilt
+    private static Node insert(Node node, String key, int offset, Suggestion suggestion) {
+        if (offset == key.length()) {
+            return node.withTerminals(append(node.terminals, suggestion), node.children);
+        }
+        int index = node.childIndex(key.charAt(offset));
+        if (index < 0) {
+            Node leaf = Node.of(key.substring(offset), new Suggestion[] {suggestion}, Node.NO_CHILDREN);
+            return node.withTerminals(node.terminals, insertChild(node.children, -index - 1, leaf));
+        }
+        Node child = node.children[index];
+        int matched = commonPrefix(child.label, key, offset);
+        Node replacement;
+        if (matched == child.label.length()) {
+            replacement = insert(child, key, offset + matched, suggestion);
+        } else {
+            Node tail = child.withLabel(child.label.substring(matched));
+            Node split = Node.of(child.label.substring(0, matched), Node.NO_TERMINALS, new Node[] {tail});
+            replacement = insert(split, key, offset + matched, suggestion);
+        }
+        Node[] children = node.children.clone();
+        children[index] = replacement;
+        return node.withTerminals(node.terminals, children);
+    }
+
+    private static Node remove(Node node, String key, int offset, Suggestion suggestion) {
+        Node result;
+        if (offset == key.length()) {
+            result = node.withTerminals(without(node.terminals, suggestion), node.children);
+        } else {
+            int index = node.childIndex(key.charAt(offset));
+            if (index < 0) {
+                return node;
+            }
+            Node child = node.children[index];
+            int matched = commonPrefix(child.label, key, offset);
+            if (matched < child.label.length()) {
+                return node;
+            }
+            Node replacement = remove(child, key, offset + matched, suggestion);
+            Node[] children;
+            if (replacement == null) {
+                children = new Node[node.children.length - 1];
+                System.arraycopy(node.children, 0, children, 0, index);
+                System.arraycopy(node.children, index + 1, children, index, children.length - index);
+            } else {
+                children = node.children.clone();
+                children[index] = replacement;
+            }
+            result = node.withTerminals(node.terminals, children);
+        }
+        return result.compact();
+    }
+
+    private static Node buildNode(String label, List<KeyedSuggestion> entries, int from, int to, int offset) {
+        List<Suggestion> terminals = new ArrayList<>();
+        int i = from;
+        while (i < to && entries.get(i).key.length() == offset) {
+            terminals.add(entries.get(i++).suggestion);
+        }
+        List<Node> children = new ArrayList<>();
+        while (i < to) {
+            char first = entries.get(i).key.charAt(offset);
+            int end = i + 1;
+            while (end < to && entries.get(end).key.charAt(offset) == first) {
+                end++;
+            }
+            String low = entries.get(i).key;
+            String high = entries.get(end - 1).key;
+            int length = commonPrefix(low.substring(offset), high, offset);
+            children.add(buildNode(low.substring(offset, offset + length), entries, i, end, offset + length));
+            i = end;
+        }
+        return Node.of(label, terminals.toArray(Node.NO_TERMINALS), children.toArray(Node.NO_CHILDREN));
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Suggestion[] append(Suggestion[] values, Suggestion value) {
+        Suggestion[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static Suggestion[] without(Suggestion[] values, Suggestion value) {
+        List<Suggestion> result = new ArrayList<>(values.length);
+        for (Suggestion candidate : values) {
+            if (candidate != value) {
+                result.add(candidate);
+            }
+        }
+        return result.toArray(Node.NO_TERMINALS);
+    }
+
+    private static Node[] insertChild(Node[] children, int at, Node child) {
+        Node[] result = new Node[children.length + 1];
+        System.arraycopy(children, 0, result, 0, at);
+        result[at] = child;
+        System.arraycopy(children, at, result, at + 1, children.length - at);
+        return result;
+    }
+
+    private static final class KeyedSuggestion {
+        final String key;
+        final Suggestion suggestion;
+
+        KeyedSuggestion(String key, Suggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+
+    private static final class Node {
+        static final Suggestion[] NO_TERMINALS = new Suggestion[0];
+        static final Node[] NO_CHILDREN = new Node[0];
+        static final Node EMPTY = new Node("", NO_TERMINALS, NO_CHILDREN, NO_TERMINALS);
+
+        final String label;
+        final Suggestion[] terminals;
+        final Node[] children;
+        final Suggestion[] top;
+
+        private Node(String label, Suggestion[] terminals, Node[] children, Suggestion[] top) {
+            this.label = label;
+            this.terminals = terminals;
+            this.children = children;
+            this.top = top;
+        }
+
+        static Node of(String label, Suggestion[] terminals, Node[] children) {
+            return new Node(label, terminals, children, top(terminals, children));
+        }
+
+        Node withTerminals(Suggestion[] terminals, Node[] children) {
+            return of(label, terminals, children);
+        }
+
+        Node withLabel(String label) {
+            return new Node(label, terminals, children, top);
+        }
+
+        // Drops empty nodes and folds a lone child into its parent to keep edges compressed
+        Node compact() {
+            if (terminals.length == 0 && children.length == 0) {
+                return label.isEmpty() ? EMPTY : null;
+            }
+            if (!label.isEmpty() && terminals.length == 0 && children.length == 1) {
+                Node child = children[0];
+                return child.withLabel(label + child.label);
+            }
+            return this;
+        }
+
+        int childIndex(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Node child(char c) {
+            int index = childIndex(c);
+            return index < 0 ? null : children[index];
+        }
+
+        private static Suggestion[] top(Suggestion[] terminals, Node[] children) {
+            // The same entry can reach a subtree through several of its keys, so dedupe by identity
+            Map<Suggestion, Boolean> seen = new IdentityHashMap<>();
+            List<Suggestion> candidates = new ArrayList<>();
+            for (Suggestion suggestion : terminals) {
+                if (seen.put(suggestion, Boolean.TRUE) == null) {
+                    candidates.add(suggestion);
+                }
+            }
+            for (Node child : children) {
+                for (Suggestion suggestion : child.top) {
+                    if (seen.put(suggestion, Boolean.TRUE) == null) {
+                        candidates.add(suggestion);
+                    }
+                }
+            }
+            candidates.sort(BY_WEIGHT);
+            int size = Math.min(candidates.size(), MAX_SUGGESTIONS);
+            return candidates.subList(0, size).toArray(NO_TERMINALS);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.ecommerce.checkout;
+
+import com.ecommerce.service.OrderService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order intake for asynchronous checkout. Requests wait in a bounded in-process queue and a
+ * single worker drains them in micro-batches of up to {@code batchSize}, which
+ * {@link OrderService#createOrders} turns into orders with one lock per product for the
+ * whole batch, instead of one per checkout. A full queue rejects new requests rather than
+ * letting latency grow without bound.
+ * <p>
+ * The queue lives in this process: requests still waiting when it stops are processed
+ * before shutdown completes, but a crash loses them, and their clients see the token
+ * expire. Statuses are kept for {@code statusTtl} after their last change.
+ * <p>
+ * Metrics: {@code checkout.queue.depth} and {@code checkout.queue.remaining} (gauges),
+ * {@code checkout.requests} tagged {@code result=accepted|rejected},
+ * {@code checkout.orders} tagged {@code result=completed|failed},
+ * {@code checkout.queue.wait} (time from acceptance to processing),
+ * {@code checkout.batch.size} and {@code checkout.batch.duration}.
+ */
+public class CheckoutQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutQueue.class);
+
+    private static final long POLL_MILLIS = 200;
+
+    private final OrderService orderService;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final Cache<String, Ticket> tickets;
+    private final Thread worker;
+    private final Object intake = new Object();
+    private volatile boolean running = true;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter completed;
+    private final Counter failed;
+    private final Timer queueWait;
+    private final Timer batchDuration;
+    private final DistributionSummary batchSizes;
+
+    public CheckoutQueue(OrderService orderService, int capacity, int batchSize, Duration statusTtl,
+                         MeterRegistry registry) {
+        this.orderService = orderService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.tickets = Caffeine.newBuilder().expireAfterWrite(statusTtl).build();
+        this.worker = new Thread(this::drain, "checkout-worker");
+        this.worker.setDaemon(true);
+
+        Gauge.builder("checkout.queue.depth", queue, BlockingQueue::size)
+                .description("Checkouts waiting to be processed").register(registry);
+        Gauge.builder("checkout.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Checkouts the queue can still accept").register(registry);
+        accepted = Counter.builder("checkout.requests").tag("result", "accepted").register(registry);
+        rejected = Counter.builder("checkout.requests").tag("result", "rejected").register(registry);
+        completed = Counter.builder("checkout.orders").tag("result", "completed").register(registry);
+        failed = Counter.builder("checkout.orders").tag("result", "failed").register(registry);
+        queueWait = Timer.builder("checkout.queue.wait").publishPercentiles(0.5, 0.99).register(registry);
+        batchDuration = Timer.builder("checkout.batch.duration").register(registry);
+        batchSizes = DistributionSummary.builder("checkout.batch.size").register(registry);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Stops accepting checkouts and waits for the ones already queued to be processed.
+     */
+    public void stop() throws InterruptedException {
+        synchronized (intake) {
+            running = false;
+        }
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Queues a checkout.
+     *
+     * @return its status, holding the token to poll, or null if the queue is full
+     */
+    public CheckoutStatus submit(String userId, String shippingAddress) {
+        Ticket ticket = new Ticket(CheckoutStatus.queued(UUID.randomUUID().toString(), Instant.now()));
+        tickets.put(ticket.status.getToken(), ticket);
+        boolean queued;
+        // Checked and offered under the lock stop() takes, so no checkout can be queued after
+        // the worker has seen it stopped with an empty queue and exited
+        synchronized (intake) {
+            queued = running && queue.offer(new Pending(new CheckoutRequest(userId, shippingAddress), ticket));
+        }
+        if (!queued) {
+            tickets.invalidate(ticket.status.getToken());
+            rejected.increment();
+            return null;
+        }
+        accepted.increment();
+        return ticket.status;
+    }
+
+    /**
+     * @return the checkout's current status, or null if the token is unknown or expired
+     */
+    public CheckoutStatus status(String token) {
+        Ticket ticket = tickets.getIfPresent(token);
+        return ticket == null ? null : ticket.status;
+    }
+
+    /**
+     * Completes with the checkout's final status, or with its status at the time if it is not
+     * done within {@code timeout}; null if the token is unknown or expired.
+     */
+    public CompletableFuture<CheckoutStatus> awaitStatus(String token, Duration timeout) {
+        Ticket ticket = tickets.getIfPresent(token);
+        if (ticket == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // A copy, so the timeout does not complete the ticket itself
+        return ticket.done.copy().completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(status -> status != null ? status : ticket.status);
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Checkout worker failed on a batch of {}", batch.size(), e);
+                failUnfinished(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Pending> batch) {
+        long started = System.nanoTime();
+        List<CheckoutRequest> requests = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            queueWait.record(Duration.between(pending.ticket.status.getAcceptedAt(), Instant.now()));
+            pending.ticket.update(pending.ticket.status.processing());
+            tickets.put(pending.ticket.status.getToken(), pending.ticket);
+            requests.add(pending.request);
+        }
+
+        List<CheckoutResult> results;
+        try {
+            results = orderService.createOrders(requests);
+        } catch (RuntimeException e) {
+            // One bad request must not fail the batch: retry each checkout on its own
+            logger.warn("Checkout batch of {} failed, processing its requests one by one", batch.size(), e);
+            results = new ArrayList<>(requests.size());
+            for (CheckoutRequest request : requests) {
+                results.add(processAlone(request));
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Ticket ticket = batch.get(i).ticket;
+            CheckoutResult result = results.get(i);
+            (result.isCompleted() ? completed : failed).increment();
+            ticket.update(ticket.status.finished(result));
+            tickets.put(ticket.status.getToken(), ticket);
+            ticket.done.complete(ticket.status);
+        }
+        batchSizes.record(batch.size());
+        batchDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    // Whatever went wrong, no client may be left polling a ticket that will never finish
+    private void failUnfinished(List<Pending> batch) {
+        for (Pending pending : batch) {
+            Ticket ticket = pending.ticket;
+            if (ticket.done.isDone()) {
+                continue;
+            }
+            failed.increment();
+            ticket.update(ticket.status.finished(CheckoutResult.failed("Checkout could not be processed")));
+            tickets.put(ticket.status.getToken(), ticket);
+            ticket.done.complete(ticket.status);
+        }
+    }
+
+    private CheckoutResult processAlone(CheckoutRequest request) {
+        try {
+            return orderService.createOrders(List.of(request)).get(0);
+        } catch (RuntimeException e) {
+            return CheckoutResult.failed(e.getMessage());
+        }
+    }
+
+    private static final class Pending {
+
+        final CheckoutRequest request;
+        final Ticket ticket;
+
+        Pending(CheckoutRequest request, Ticket ticket) {
+            this.request = request;
+            this.ticket = ticket;
+        }
+    }
+
+    private static final class Ticket {
+
+        final CompletableFuture<CheckoutStatus> done = new CompletableFuture<>();
+        volatile CheckoutStatus status;
+
+        Ticket(CheckoutStatus status) {
+            this.status = status;
+        }
+
+        void update(CheckoutStatus status) {
+            this.status = status;
+        }
+    }
+}
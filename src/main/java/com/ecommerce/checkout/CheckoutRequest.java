@@ -0,0 +1,23 @@
+package com.ecommerce.checkout;
+
+/**
+ * A user's request to turn their cart into an order.
+ */
+public final class CheckoutRequest {
+
+    private final String userId;
+    private final String shippingAddress;
+
+    public CheckoutRequest(String userId, String shippingAddress) {
+        this.userId = userId;
+        this.shippingAddress = shippingAddress;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ecommerce.checkout;
+
+import com.ecommerce.entity.Order;
+
+/**
+ * The outcome of one {@link CheckoutRequest}: the order it created, or why it failed.
+ */
+public final class CheckoutResult {
+
+    private final Order order;
+    private final String failure;
+
+    private CheckoutResult(Order order, String failure) {
+        this.order = order;
+        this.failure = failure;
+    }
+
+    public static CheckoutResult completed(Order order) {
+        return new CheckoutResult(order, null);
+    }
+
+    public static CheckoutResult failed(String failure) {
+        return new CheckoutResult(null, failure);
+    }
+
+    public boolean isCompleted() {
+        return order != null;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.checkout;
+
+import java.time.Instant;
+
+/**
+ * Where a queued checkout stands, as reported to the client polling its token.
+ */
+public final class CheckoutStatus {
+
+    public enum State {
+        QUEUED, PROCESSING, COMPLETED, FAILED
+    }
+
+    private final String token;
+    private final State state;
+    private final Long orderId;
+    private final String message;
+    private final Instant acceptedAt;
+
+    private CheckoutStatus(String token, State state, Long orderId, String message, Instant acceptedAt) {
+        this.token = token;
+        this.state = state;
+        this.orderId = orderId;
+        this.message = message;
+        this.acceptedAt = acceptedAt;
+    }
+
+    static CheckoutStatus queued(String token, Instant acceptedAt) {
+        return new CheckoutStatus(token, State.QUEUED, null, null, acceptedAt);
+    }
+
+    CheckoutStatus processing() {
+        return new CheckoutStatus(token, State.PROCESSING, null, null, acceptedAt);
+    }
+
+    CheckoutStatus finished(CheckoutResult result) {
+        return result.isCompleted()
+                ? new CheckoutStatus(token, State.COMPLETED, result.getOrder().getId(), null, acceptedAt)
+                : new CheckoutStatus(token, State.FAILED, null, result.getFailure(), acceptedAt);
+    }
+
+    public boolean isDone() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getAcceptedAt() {
+        return acceptedAt;
+    }
+}
@@ -1,10 +1,176 @@
 package com.ecommerce.config;
 
+import com.ecommerce.cache.CacheReloader;
+import com.ecommerce.cache.CacheValueCodec;
+import com.ecommerce.cache.CompactingCache;
+import com.ecommerce.cache.DependencyTrackingCache;
+import com.ecommerce.cache.InMemorySharedCacheStore;
+import com.ecommerce.cache.PeekingCaffeineCache;
+import com.ecommerce.cache.RedisSharedCacheStore;
+import com.ecommerce.cache.SharedCacheCoordinator;
+import com.ecommerce.cache.SharedCacheStore;
+import com.ecommerce.cache.TwoLevelCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CachePolicyProperties.class)
 public class CacheConfig {
-    // Using Spring Boot's auto-configuration for caching
+
+    static final String TRACKED_CACHE = "products";
+
+    // One bounded Caffeine (W-TinyLFU) cache per configured policy, backed by the shared tier
+    // when one is configured. "products" additionally tracks which entries each product and
+    // category appears in, so writes evict only what they touch (see ProductCacheInvalidator)
+    @Bean
+    public CacheManager cacheManager(CachePolicyProperties properties, ObjectProvider<CacheReloader> reloaders,
+                                     ObjectProvider<SharedCacheStore> sharedStores) {
+        CacheValueCodec codec = new CacheValueCodec();
+        SharedCacheStore sharedStore = sharedStores.getIfAvailable();
+        SharedCacheCoordinator coordinator = sharedStore == null ? null
+                : new SharedCacheCoordinator(sharedStore, codec, properties.getShared().getKeyPrefix());
+
+        List<Cache> caches = new ArrayList<>();
+        properties.getPolicies().forEach((name, policy) ->
+                caches.add(buildCache(name, policy, reloaders, codec, coordinator)));
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ecommerce.cache.shared", name = "type", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ecommerce.cache.shared", name = "type", havingValue = "redis")
+    public SharedCacheStore redisSharedCacheStore(RedisConnectionFactory connectionFactory,
+                                                  RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                                  CachePolicyProperties properties) {
+        return new RedisSharedCacheStore(connectionFactory, cacheInvalidationListenerContainer,
+                properties.getShared().getChannel());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ecommerce.cache.shared", name = "type", havingValue = "memory")
+    public SharedCacheStore inMemorySharedCacheStore() {
+        return new InMemorySharedCacheStore();
+    }
+
+    // Let the actuator bind hit/miss/eviction metrics for the decorated caches too
+    @Bean
+    public CacheMeterBinderProvider<DependencyTrackingCache> dependencyTrackingCacheMeterBinderProvider() {
+        return (cache, tags) -> cacheMetrics(cache, cache.getDelegate(), tags);
+    }
+
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> cacheMetrics(cache, cache, tags);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MeterBinder cacheMetrics(Cache cache, Cache delegate, Iterable<Tag> tags) {
+        CaffeineCacheMetrics<Object, Object, ?> local = new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+        if (!(delegate instanceof TwoLevelCache)) {
+            return local;
+        }
+        TwoLevelCache twoLevel = (TwoLevelCache) delegate;
+        return registry -> {
+            local.bindTo(registry);
+            FunctionCounter.builder("cache.shared.gets", twoLevel, TwoLevelCache::getSharedHits)
+                    .tags(tags).tag("cache", cache.getName()).tag("result", "hit")
+                    .description("Local misses answered by the shared cache tier")
+                    .register(registry);
+            FunctionCounter.builder("cache.shared.gets", twoLevel, TwoLevelCache::getSharedMisses)
+                    .tags(tags).tag("cache", cache.getName()).tag("result", "miss")
+                    .description("Local misses the shared cache tier could not answer")
+                    .register(registry);
+        };
+    }
+
+    private Cache buildCache(String name, CachePolicyProperties.Policy policy, ObjectProvider<CacheReloader> reloaders,
+                             CacheValueCodec codec, SharedCacheCoordinator coordinator) {
+        AtomicReference<DependencyTrackingCache> tracker = new AtomicReference<>();
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(policy.getMaximumSize())
+                .recordStats();
+        if (policy.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(policy.getExpireAfterWrite());
+        }
+        if (policy.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(policy.getExpireAfterAccess());
+        }
+        if (TRACKED_CACHE.equals(name)) {
+            builder.removalListener((key, value, cause) -> {
+                if (cause.wasEvicted() && tracker.get() != null) {
+                    tracker.get().onRemoval(key);
+                }
+            });
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache;
+        if (policy.getRefreshAfterWrite() != null) {
+            // Reads past the refresh interval return the current value and reload it in the
+            // background. Refreshes stay local: the shared copy ages out on its own TTL
+            builder.refreshAfterWrite(policy.getRefreshAfterWrite());
+            nativeCache = builder.build(key -> {
+                CacheReloader reloader = reloaders.orderedStream()
+                        .filter(candidate -> candidate.getCacheName().equals(name))
+                        .findFirst()
+                        .orElse(null);
+                Object value = reloader == null ? null : reloader.reload(key);
+                if (value != null && tracker.get() != null) {
+                    tracker.get().onLoad(key, value);
+                }
+                return policy.isCompactValues() ? CompactingCache.compact(codec, value) : value;
+            });
+        } else {
+            nativeCache = builder.build();
+        }
+
+        Cache cache = new PeekingCaffeineCache(name, nativeCache, true);
+        if (policy.isCompactValues()) {
+            cache = new CompactingCache(cache, codec);
+        }
+        TwoLevelCache twoLevel = null;
+        if (coordinator != null && policy.isShared()) {
+            twoLevel = coordinator.createCache(cache, policy.getExpireAfterWrite());
+            cache = twoLevel;
+        }
+        if (TRACKED_CACHE.equals(name)) {
+            tracker.set(new DependencyTrackingCache(cache));
+            if (twoLevel != null) {
+                twoLevel.setListener(tracker.get());
+                coordinator.register(tracker.get());
+            }
+            return tracker.get();
+        }
+        return cache;
+    }
 }
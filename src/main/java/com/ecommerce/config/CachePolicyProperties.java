@@ -0,0 +1,136 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-cache size and expiry limits, keyed by cache name under {@code ecommerce.cache}.
+ * Setting {@code refresh-after-write} below {@code expire-after-write} turns on
+ * stale-while-refresh: once an entry is older than the refresh interval, reads keep getting
+ * it while one background reload replaces it.
+ * <p>
+ * A refresh only starts on a read, so it only ever fires for entries that outlive
+ * {@code expire-after-access}: with access expiry at 1m and refresh at 4m, only keys read at
+ * least once a minute are still cached at 4m. That is deliberate: hot keys are reloaded in
+ * the background before their hard expiry, and cold keys simply expire instead of costing a
+ * reload nobody reads. Set {@code refresh-after-write} below {@code expire-after-access} to
+ * refresh every key that is read again.
+ */
+@ConfigurationProperties(prefix = "ecommerce.cache")
+public class CachePolicyProperties {
+
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+    private Shared shared = new Shared();
+
+    public Map<String, Policy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, Policy> policies) {
+        this.policies = policies;
+    }
+
+    public Shared getShared() {
+        return shared;
+    }
+
+    public void setShared(Shared shared) {
+        this.shared = shared;
+    }
+
+    public static class Policy {
+
+        private long maximumSize = 1000;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+        private Duration refreshAfterWrite;
+        private boolean shared = true;
+        private boolean compactValues;
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public void setShared(boolean shared) {
+            this.shared = shared;
+        }
+
+        public boolean isCompactValues() {
+            return compactValues;
+        }
+
+        public void setCompactValues(boolean compactValues) {
+            this.compactValues = compactValues;
+        }
+    }
+
+    /**
+     * The second cache tier shared by all instances: {@code none} (local caches only),
+     * {@code redis}, or {@code memory}, an in-process stand-in for running without Redis.
+     */
+    public static class Shared {
+
+        private String type = "none";
+        private String channel = "ecommerce:cache:invalidation";
+        private String keyPrefix = "ecommerce:";
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        public void setKeyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+    }
+}
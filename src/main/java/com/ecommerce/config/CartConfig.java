@@ -0,0 +1,41 @@
+package com.ecommerce.config;
+
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.repository.CartItemRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CartProperties.class)
+public class CartConfig {
+
+    // The cart store is the cache in front of cart_items; it reports like one
+    @Bean
+    public CartStore cartStore(CartProperties properties, CartItemRepository cartItemRepository, MeterRegistry registry) {
+        Timer load = Timer.builder("cart.store.load")
+                .description("Loading carts missing from memory from cart_items")
+                .register(registry);
+        CartStore store = new CartStore(properties.getShards(),
+                userIds -> load.record(() -> cartItemRepository.findCartLines(userIds)));
+        FunctionCounter.builder("cart.store.gets", store, CartStore::getHits)
+                .tag("result", "hit")
+                .description("Cart accesses answered from memory")
+                .register(registry);
+        FunctionCounter.builder("cart.store.gets", store, CartStore::getMisses)
+                .tag("result", "miss")
+                .description("Cart accesses that loaded the cart from cart_items")
+                .register(registry);
+        Gauge.builder("cart.store.resident", store, CartStore::residentCarts)
+                .description("Carts held in memory")
+                .register(registry);
+        Gauge.builder("cart.store.dirty", store, CartStore::dirtyCarts)
+                .description("Carts changed since the last write-behind flush")
+                .register(registry);
+        return store;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The in-memory cart store, under {@code ecommerce.cart}. Cart changes are written behind
+ * to {@code cart_items} every {@code flush-interval}, so a crash loses at most that much;
+ * carts unused for {@code idle-timeout} are dropped from memory once flushed. See
+ * {@link com.ecommerce.cart.CartStore}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.cart")
+public class CartProperties {
+
+    private int shards = 64;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.config;
+
+import com.ecommerce.catalog.CatalogSnapshot;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.catalog.ProductStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(CatalogProperties.class)
+public class CatalogConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogConfig.class);
+
+    @Bean
+    public ProductCatalog productCatalog(CatalogProperties properties) {
+        ProductCatalog catalog = properties.getStore() == CatalogProperties.Store.OFF_HEAP
+                ? new ProductCatalog(ProductStore.offHeap(Math.toIntExact(properties.getOffHeap().getChunkSize().toBytes())))
+                : new ProductCatalog();
+
+        Path path = properties.getSnapshot().getPath();
+        if (path != null && Files.isRegularFile(path)) {
+            long started = System.nanoTime();
+            try {
+                catalog.restore(path);
+                CatalogSnapshot snapshot = catalog.snapshot();
+                logger.info("Restored catalog version {} ({} products) from {} in {} ms", snapshot.version(),
+                        snapshot.productCount(), path, (System.nanoTime() - started) / 1_000_000);
+            } catch (IOException | RuntimeException e) {
+                // The database catch-up rebuilds the catalog from scratch
+                logger.warn("Ignoring unreadable catalog snapshot {}: {}", path, e.toString());
+            }
+        }
+        return catalog;
+    }
+}
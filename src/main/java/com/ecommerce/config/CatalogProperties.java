@@ -0,0 +1,95 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * How the in-memory catalog keeps its products, under {@code ecommerce.catalog}. The
+ * off-heap store suits catalogs large enough that product entities dominate the heap:
+ * records live in direct memory (size {@code -XX:MaxDirectMemorySize} accordingly) and are
+ * decoded per request.
+ * <p>
+ * Setting {@code snapshot.path} makes the node keep a {@link com.ecommerce.catalog.CatalogSnapshotFile}
+ * there: it boots from the file, catches up with the database in the background, and
+ * rewrites the file every {@code snapshot.write-interval} while the catalog changes.
+ * <p>
+ * {@code demand-fold-interval} and {@code stock-refresh-interval}, under the same prefix, are
+ * read by the schedules of {@link com.ecommerce.service.InMemoryProductService} rather than
+ * bound here. Units ordered are counted as they happen and folded into the suggestion
+ * ranking once per fold; products that sold out or came back into stock are re-read from the
+ * database once per refresh. Both produce one snapshot each time. Other stock moves are not
+ * followed, so the catalog's counts lag behind cart holds.
+ */
+@ConfigurationProperties(prefix = "ecommerce.catalog")
+public class CatalogProperties {
+
+    public enum Store {
+        HEAP, OFF_HEAP
+    }
+
+    private Store store = Store.HEAP;
+    private OffHeap offHeap = new OffHeap();
+    private Snapshot snapshot = new Snapshot();
+
+    public Store getStore() {
+        return store;
+    }
+
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    public OffHeap getOffHeap() {
+        return offHeap;
+    }
+
+    public void setOffHeap(OffHeap offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public static class OffHeap {
+
+        private DataSize chunkSize = DataSize.ofMegabytes(16);
+
+        public DataSize getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(DataSize chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Snapshot {
+
+        private Path path;
+        private Duration writeInterval = Duration.ofMinutes(5);
+
+        public Path getPath() {
+            return path;
+        }
+
+        public void setPath(Path path) {
+            this.path = path;
+        }
+
+        public Duration getWriteInterval() {
+            return writeInterval;
+        }
+
+        public void setWriteInterval(Duration writeInterval) {
+            this.writeInterval = writeInterval;
+        }
+    }
+}
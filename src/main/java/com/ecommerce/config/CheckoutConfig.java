@@ -0,0 +1,23 @@
+package com.ecommerce.config;
+
+import com.ecommerce.checkout.CheckoutQueue;
+import com.ecommerce.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CheckoutProperties.class)
+public class CheckoutConfig {
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(prefix = "ecommerce.checkout", name = "mode", havingValue = "async")
+    public CheckoutQueue checkoutQueue(OrderService orderService, CheckoutProperties properties, MeterRegistry registry) {
+        CheckoutQueue queue = new CheckoutQueue(orderService, properties.getQueueCapacity(), properties.getBatchSize(),
+                properties.getStatusTtl(), registry);
+        queue.start();
+        return queue;
+    }
+}
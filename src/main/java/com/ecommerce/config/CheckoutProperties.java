@@ -0,0 +1,66 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * How checkout runs, under {@code ecommerce.checkout}. In {@code async} mode
+ * {@code POST /orders/{userId}} answers 202 with a token once the checkout is queued,
+ * and {@code GET /orders/checkout/{token}} reports its progress, waiting up to
+ * {@code max-poll-wait} for it to finish when asked to. See
+ * {@link com.ecommerce.checkout.CheckoutQueue}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.checkout")
+public class CheckoutProperties {
+
+    public enum Mode {
+        SYNC, ASYNC
+    }
+
+    private Mode mode = Mode.SYNC;
+    private int queueCapacity = 10_000;
+    private int batchSize = 100;
+    private Duration statusTtl = Duration.ofMinutes(10);
+    private Duration maxPollWait = Duration.ofSeconds(20);
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getStatusTtl() {
+        return statusTtl;
+    }
+
+    public void setStatusTtl(Duration statusTtl) {
+        this.statusTtl = statusTtl;
+    }
+
+    public Duration getMaxPollWait() {
+        return maxPollWait;
+    }
+
+    public void setMaxPollWait(Duration maxPollWait) {
+        this.maxPollWait = maxPollWait;
+    }
+}
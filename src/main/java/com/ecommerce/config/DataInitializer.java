@@ -23,6 +23,11 @@ public class DataInitializer implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
+        // A persistent database is only seeded once
+        if (categoryRepository.count() > 0) {
+            return;
+        }
+
         // Create categories
         List<Category> categories = Arrays.asList(
             new Category("Electronics", "Electronic devices and gadgets", "https://images.unsplash.com/photo-1498049794561-7780e7231661?w=400"),
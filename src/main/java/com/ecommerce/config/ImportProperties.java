@@ -0,0 +1,52 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Bulk catalog imports, under {@code ecommerce.import}. Uploads are spooled to
+ * {@code spool-dir} so an interrupted import can be resumed without sending the file again,
+ * validated by {@code workers} threads (0 means one per core) and written
+ * {@code batch-size} rows per transaction. See {@link com.ecommerce.importer.CatalogImporter}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.import")
+public class ImportProperties {
+
+    private int batchSize = 1000;
+    private int workers = 0;
+    private Path spoolDir = Path.of(System.getProperty("java.io.tmpdir"), "ecommerce-imports");
+    private int maxReportedErrors = 100;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public Path getSpoolDir() {
+        return spoolDir;
+    }
+
+    public void setSpoolDir(Path spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public int getMaxReportedErrors() {
+        return maxReportedErrors;
+    }
+
+    public void setMaxReportedErrors(int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.config;
+
+import com.ecommerce.metrics.ControllerMethodObservationConvention;
+import com.ecommerce.metrics.RequestStatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Tags http.server.requests with the controller method as well as the URI template
+    @Bean
+    public ControllerMethodObservationConvention controllerMethodObservationConvention() {
+        return new ControllerMethodObservationConvention();
+    }
+
+    @Bean
+    public RequestStatementCounter requestStatementCounter(MeterRegistry registry) {
+        return new RequestStatementCounter(registry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer(RequestStatementCounter requestStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, requestStatementCounter);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecommerce.config;
+
+import com.ecommerce.metrics.LazyLoadRecorder;
+import com.ecommerce.metrics.SlowRequestEndpoint;
+import com.ecommerce.metrics.SlowRequestProfiler;
+import com.ecommerce.metrics.TimelineRecorder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SlowRequestProperties.class)
+@ConditionalOnProperty(prefix = "ecommerce.slow-requests", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SlowRequestConfig {
+
+    // Static: it wraps the data source and the repositories, so it has to exist before them
+    @Bean
+    public static TimelineRecorder timelineRecorder() {
+        return new TimelineRecorder();
+    }
+
+    @Bean
+    public SlowRequestProfiler slowRequestProfiler(SlowRequestProperties properties) {
+        return new SlowRequestProfiler(properties.getThreshold(), properties.getCapacity(), properties.getMaxEvents(),
+                properties.getSampleRate());
+    }
+
+    @Bean
+    public SlowRequestEndpoint slowRequestEndpoint(SlowRequestProfiler slowRequestProfiler) {
+        return new SlowRequestEndpoint(slowRequestProfiler);
+    }
+
+    @Bean
+    public LazyLoadRecorder lazyLoadRecorder(EntityManagerFactory entityManagerFactory) {
+        LazyLoadRecorder recorder = new LazyLoadRecorder();
+        recorder.register(entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class));
+        return recorder;
+    }
+}
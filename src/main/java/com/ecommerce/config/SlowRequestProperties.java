@@ -0,0 +1,62 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The slow-request profiler, under {@code ecommerce.slow-requests}. Requests that take at
+ * least {@code threshold} are kept with their SQL and lazy-load timeline, the last
+ * {@code capacity} of them, each with at most {@code max-events} events. Every request is
+ * recorded unless {@code sample-rate} is lowered below 1. See
+ * {@link com.ecommerce.metrics.SlowRequestProfiler}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.slow-requests")
+public class SlowRequestProperties {
+
+    private boolean enabled = true;
+    private Duration threshold = Duration.ofMillis(500);
+    private int capacity = 64;
+    private int maxEvents = 256;
+    private double sampleRate = 1.0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    public void setMaxEvents(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.config;
+
+import com.ecommerce.metrics.VirtualThreadPinningMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * The opt-in virtual-thread mode. {@code spring.threads.virtual.enabled} moves Tomcat
+ * requests, MVC async work such as the catalog export, and scheduled jobs onto virtual
+ * threads, but only on Java 21 or later; on an older runtime it is ignored, which is logged
+ * at startup. Nothing then limits request concurrency but Tomcat's connection limit, so the
+ * connection pool is what keeps the database from being flooded.
+ */
+@Configuration
+@EnableConfigurationProperties(ThreadingProperties.class)
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private static final String VIRTUAL_THREADS = "spring.threads.virtual.enabled";
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(ThreadingProperties properties, MeterRegistry registry) {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(registry, properties.getPinnedThreshold(),
+                properties.getPinnedStackDepth());
+        monitor.start();
+        return monitor;
+    }
+
+    // GET /actuator/info shows which mode is actually in effect
+    @Bean
+    public InfoContributor threadingInfoContributor(Environment environment) {
+        return builder -> builder.withDetail("threads", Map.of(
+                "virtual", Threading.VIRTUAL.isActive(environment),
+                "virtualRequested", environment.getProperty(VIRTUAL_THREADS, Boolean.class, false),
+                "javaVersion", Runtime.version().toString()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreading(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean requested = environment.getProperty(VIRTUAL_THREADS, Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            HikariDataSource pool = DataSourceUnwrapper.unwrap(event.getApplicationContext().getBean(DataSource.class),
+                    HikariDataSource.class);
+            logger.info("Handling requests on virtual threads; the database sees at most {} of them at a time",
+                    pool == null ? "(unknown)" : pool.getMaximumPoolSize());
+        } else if (requested) {
+            logger.warn("{} is set but virtual threads need Java 21 or later; running on Java {} with platform threads",
+                    VIRTUAL_THREADS, Runtime.version().feature());
+        }
+    }
+}
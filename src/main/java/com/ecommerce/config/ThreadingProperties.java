@@ -0,0 +1,34 @@
+package com.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Diagnostics for the virtual-thread mode ({@code spring.threads.virtual.enabled}), under
+ * {@code ecommerce.threads}. Virtual threads pinned to their carrier for at least
+ * {@code pinned-threshold} are reported, with up to {@code pinned-stack-depth} frames of the
+ * first stack seen at each site. See {@link com.ecommerce.metrics.VirtualThreadPinningMonitor}.
+ */
+@ConfigurationProperties(prefix = "ecommerce.threads")
+public class ThreadingProperties {
+
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+    private int pinnedStackDepth = 16;
+
+    public Duration getPinnedThreshold() {
+        return pinnedThreshold;
+    }
+
+    public void setPinnedThreshold(Duration pinnedThreshold) {
+        this.pinnedThreshold = pinnedThreshold;
+    }
+
+    public int getPinnedStackDepth() {
+        return pinnedStackDepth;
+    }
+
+    public void setPinnedStackDepth(int pinnedStackDepth) {
+        this.pinnedStackDepth = pinnedStackDepth;
+    }
+}
@@ -1,5 +1,8 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.cart.CartMutation;
+import com.ecommerce.cart.CartView;
+import com.ecommerce.dto.CartLine;
 import com.ecommerce.entity.CartItem;
 import com.ecommerce.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +26,12 @@ public class CartController {
         return ResponseEntity.ok(cartItems);
     }
     
+    @GetMapping("/{userId}/lines")
+    public ResponseEntity<List<CartLine>> getCartLines(@PathVariable String userId) {
+        List<CartLine> cartLines = cartService.getCartLines(userId);
+        return ResponseEntity.ok(cartLines);
+    }
+    
     @PostMapping("/{userId}/add")
     public ResponseEntity<CartItem> addToCart(
             @PathVariable String userId,
@@ -41,6 +50,14 @@ public class CartController {
         return ResponseEntity.ok(cartItem);
     }
     
+    @PostMapping("/{userId}/bulk")
+    public ResponseEntity<CartView> applyCartMutations(
+            @PathVariable String userId,
+            @RequestBody List<CartMutation> mutations) {
+        CartView cart = cartService.applyMutations(userId, mutations);
+        return ResponseEntity.ok(cart);
+    }
+    
     @DeleteMapping("/{userId}/remove")
     public ResponseEntity<Void> removeFromCart(
             @PathVariable String userId,
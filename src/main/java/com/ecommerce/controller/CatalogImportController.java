@@ -0,0 +1,66 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.CatalogImport;
+import com.ecommerce.importer.CatalogImporter;
+import com.ecommerce.importer.ImportStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+@RestController
+@RequestMapping("/admin/imports")
+@CrossOrigin(origins = "*")
+public class CatalogImportController {
+    
+    @Autowired
+    private CatalogImporter catalogImporter;
+    
+    /**
+     * Takes a CSV or NDJSON file as the request body and imports it in the background;
+     * poll the returned location for progress.
+     */
+    @PostMapping
+    public ResponseEntity<ImportStatus> submitImport(
+            @RequestParam(defaultValue = "CSV") CatalogImport.Format format,
+            @RequestParam(required = false) String importId,
+            InputStream body) throws IOException {
+        try {
+            ImportStatus status = catalogImporter.submit(importId, format, body);
+            return ResponseEntity.accepted().location(statusLocation(status.getImportId())).body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @PostMapping("/{importId}/resume")
+    public ResponseEntity<ImportStatus> resumeImport(@PathVariable String importId) {
+        try {
+            ImportStatus status = catalogImporter.resume(importId);
+            if (status == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.accepted().location(statusLocation(importId)).body(status);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @GetMapping("/{importId}")
+    public ResponseEntity<ImportStatus> getImportStatus(@PathVariable String importId) {
+        ImportStatus status = catalogImporter.getStatus(importId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+    
+    private static URI statusLocation(String importId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/admin/imports/{importId}").buildAndExpand(importId).toUri();
+    }
+}
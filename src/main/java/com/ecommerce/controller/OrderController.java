@@ -1,14 +1,25 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.checkout.CheckoutQueue;
+import com.ecommerce.checkout.CheckoutStatus;
+import com.ecommerce.config.CheckoutProperties;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.OrderSummary;
 import com.ecommerce.entity.Order;
 import com.ecommerce.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/orders")
@@ -18,14 +29,45 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
     
+    // Present only in async checkout mode
+    @Autowired(required = false)
+    private CheckoutQueue checkoutQueue;
+    
+    @Autowired
+    private CheckoutProperties checkoutProperties;
+    
     @PostMapping("/{userId}")
-    public ResponseEntity<Order> createOrder(
+    public ResponseEntity<?> createOrder(
             @PathVariable String userId,
             @RequestParam String shippingAddress) {
+        if (checkoutQueue != null) {
+            CheckoutStatus status = checkoutQueue.submit(userId, shippingAddress);
+            if (status == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/orders/checkout/{token}").buildAndExpand(status.getToken()).toUri();
+            return ResponseEntity.accepted().location(location).body(status);
+        }
         Order order = orderService.createOrder(userId, shippingAddress);
         return ResponseEntity.ok(order);
     }
     
+    @GetMapping("/checkout/{token}")
+    public CompletableFuture<ResponseEntity<CheckoutStatus>> getCheckoutStatus(
+            @PathVariable String token,
+            @RequestParam(defaultValue = "0") long waitSeconds) {
+        if (checkoutQueue == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        Duration wait = Duration.ofSeconds(Math.max(0, waitSeconds));
+        if (wait.compareTo(checkoutProperties.getMaxPollWait()) > 0) {
+            wait = checkoutProperties.getMaxPollWait();
+        }
+        return checkoutQueue.awaitStatus(token, wait)
+                .thenApply(status -> status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status));
+    }
+    
     @GetMapping("/{userId}")
     public ResponseEntity<Page<Order>> getUserOrders(
             @PathVariable String userId,
@@ -35,6 +77,28 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping("/{userId}/summaries")
+    public ResponseEntity<Page<OrderSummary>> getUserOrderSummaries(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        Page<OrderSummary> summaries = orderService.getUserOrderSummaries(userId, page, size);
+        return ResponseEntity.ok(summaries);
+    }
+    
+    // Keyset-paginated history, newest first: pass nextCursor back for the following window
+    @GetMapping("/{userId}/scroll")
+    public ResponseEntity<CursorPage<OrderSummary>> scrollUserOrders(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(orderService.scrollUserOrders(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/order/{orderId}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long orderId) {
         Order order = orderService.getOrderById(orderId);
@@ -1,10 +1,18 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.catalog.Suggestion;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.Product;
+import com.ecommerce.service.CatalogExportService;
 import com.ecommerce.service.InMemoryProductService;
+import com.ecommerce.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -16,12 +24,55 @@ public class ProductController {
     @Autowired
     private InMemoryProductService productService;
     
+    @Autowired
+    private ProductService databaseProductService;
+    
+    @Autowired
+    private CatalogExportService catalogExportService;
+    
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         List<Product> products = productService.getAllProducts();
         return ResponseEntity.ok(products);
     }
     
+    @GetMapping("/cards")
+    public ResponseEntity<List<ProductCard>> getProductCards(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<ProductCard> cards = productService.getProductCards(categoryId, page, size);
+            return ResponseEntity.ok()
+                    .header("X-Total-Count", String.valueOf(cards.getTotalElements()))
+                    .body(cards.getContent());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Keyset-paginated listing from the database: pass nextCursor back for the following window
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProductCard>> scrollProducts(
+            @RequestParam(defaultValue = "LATEST") ProductService.ProductOrder sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(databaseProductService.scrollProducts(sort, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // The whole catalog as NDJSON, streamed from the database as it is read
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = out -> catalogExportService.exportProducts(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         return productService.getProductById(id)
@@ -36,9 +87,26 @@ public class ProductController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
-        List<Product> products = productService.searchProducts(q);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<Product> hits = productService.searchProducts(q, page, size);
+            return ResponseEntity.ok()
+                    .header("X-Total-Count", String.valueOf(hits.getTotalElements()))
+                    .body(hits.getContent());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<Suggestion> suggestions = productService.suggest(q, limit);
+        return ResponseEntity.ok(suggestions);
     }
     
     @GetMapping("/available")
@@ -0,0 +1,15 @@
+package com.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a cart as the cart page shows it.
+ */
+public record CartLine(Long productId, String name, String imageUrl, BigDecimal unitPrice, Integer quantity,
+                       BigDecimal lineTotal) {
+
+    public static CartLine of(ProductCard product, int quantity) {
+        return new CartLine(product.id(), product.name(), product.imageUrl(), product.price(), quantity,
+                product.price().multiply(BigDecimal.valueOf(quantity)));
+    }
+}
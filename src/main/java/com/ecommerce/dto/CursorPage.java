@@ -0,0 +1,10 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * One window of a keyset-paginated listing. {@code nextCursor} is opaque to clients: they
+ * pass it back to get the following window, and it is null on the last one.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,106 @@
+package com.ecommerce.dto;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns keyset scroll positions into opaque API cursors and back. A cursor carries the sort
+ * key values of the last row a client saw, tagged with the listing and sort it came from, so
+ * it cannot be replayed against a different ordering.
+ */
+public final class KeysetCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * @return the cursor for the window after {@code window}, or null if it is the last one
+     */
+    public static String next(String scope, Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        StringBuilder cursor = new StringBuilder(scope);
+        position.getKeys().forEach((key, value) ->
+                cursor.append('\n').append(key).append('=').append(type(value)).append(':').append(encode(value.toString())));
+        return encode(cursor.toString());
+    }
+
+    /**
+     * @return the position to scroll from: the start for a missing cursor
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another listing
+     */
+    public static KeysetScrollPosition decode(String scope, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        String[] lines;
+        try {
+            lines = decode(cursor).split("\n");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (!lines[0].equals(scope) || lines.length < 2) {
+            throw new IllegalArgumentException("Cursor does not belong to this listing");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int equals = lines[i].indexOf('=');
+            if (equals < 1 || lines[i].length() < equals + 3 || lines[i].charAt(equals + 2) != ':') {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            keys.put(lines[i].substring(0, equals), value(lines[i].charAt(equals + 1), decode(lines[i].substring(equals + 3))));
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static char type(Object value) {
+        if (value instanceof String) {
+            return 's';
+        }
+        if (value instanceof Long) {
+            return 'l';
+        }
+        if (value instanceof BigDecimal) {
+            return 'd';
+        }
+        if (value instanceof LocalDateTime) {
+            return 't';
+        }
+        throw new IllegalStateException("Unsupported sort key type: " + (value == null ? "null" : value.getClass()));
+    }
+
+    private static Object value(char type, String value) {
+        try {
+            return switch (type) {
+                case 's' -> value;
+                case 'l' -> Long.valueOf(value);
+                case 'd' -> new BigDecimal(value);
+                case 't' -> LocalDateTime.parse(value);
+                default -> throw new IllegalArgumentException("Malformed cursor");
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
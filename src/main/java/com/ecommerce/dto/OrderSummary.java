@@ -0,0 +1,13 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's order history; the lines are only loaded for the order detail.
+ */
+public record OrderSummary(Long id, Order.OrderStatus status, BigDecimal totalAmount, Integer itemCount,
+                           LocalDateTime createdAt) {
+}
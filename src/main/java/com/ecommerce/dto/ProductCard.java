@@ -0,0 +1,21 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * What a product listing shows for one product: no description, timestamps or nested
+ * category entity.
+ */
+public record ProductCard(Long id, String name, BigDecimal price, String imageUrl, Integer stockQuantity,
+                          Long categoryId, String categoryName) {
+
+    public static ProductCard of(Product product) {
+        Category category = product.getCategory();
+        return new ProductCard(product.getId(), product.getName(), product.getPrice(), product.getImageUrl(),
+                product.getStockQuantity(), category == null ? null : category.getId(),
+                category == null ? null : category.getName());
+    }
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One product as written to the catalog export, a flat line for partners to sync from.
+ */
+public record ProductExport(Long id, String name, String description, BigDecimal price, String imageUrl,
+                            Integer stockQuantity, Long categoryId, String categoryName,
+                            LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+    public static ProductExport of(Product product) {
+        Category category = product.getCategory();
+        return new ProductExport(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getImageUrl(), product.getStockQuantity(), category == null ? null : category.getId(),
+                category == null ? null : category.getName(), product.getCreatedAt(), product.getUpdatedAt());
+    }
+}
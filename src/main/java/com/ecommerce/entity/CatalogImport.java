@@ -0,0 +1,145 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A catalog import and its checkpoint: the number of input records whose effects are
+ * committed. The checkpoint is advanced in the same transaction as each batch it covers,
+ * so a resumed import neither repeats nor skips a record.
+ */
+@Entity
+@Table(name = "catalog_imports")
+public class CatalogImport {
+    
+    public enum Format {
+        CSV, NDJSON
+    }
+    
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    @Id
+    @Column(length = 64)
+    private String id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Format format;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state = State.RUNNING;
+    
+    @Column(name = "records_done", nullable = false)
+    private long recordsDone;
+    
+    @Column(nullable = false)
+    private long inserted;
+    
+    @Column(nullable = false)
+    private long updated;
+    
+    @Column(nullable = false)
+    private long rejected;
+    
+    @Column(length = 1000)
+    private String message;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    // Constructors
+    public CatalogImport() {}
+    
+    public CatalogImport(String id, Format format) {
+        this.id = id;
+        this.format = format;
+        this.startedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public Format getFormat() {
+        return format;
+    }
+    
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public void setState(State state) {
+        this.state = state;
+    }
+    
+    public long getRecordsDone() {
+        return recordsDone;
+    }
+    
+    public void setRecordsDone(long recordsDone) {
+        this.recordsDone = recordsDone;
+    }
+    
+    public long getInserted() {
+        return inserted;
+    }
+    
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+    
+    public long getUpdated() {
+        return updated;
+    }
+    
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+    
+    public long getRejected() {
+        return rejected;
+    }
+    
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -11,11 +11,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+       indexes = @Index(name = "idx_orders_user_id_created_at_id", columnList = "user_id, created_at, id"))
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_generator")
+    @SequenceGenerator(name = "orders_id_generator", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "User ID is required")
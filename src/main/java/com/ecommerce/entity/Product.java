@@ -5,12 +5,20 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
-public class Product {
+@Table(name = "products",
+       indexes = {
+           @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+           @Index(name = "idx_products_name_id", columnList = "name, id"),
+           @Index(name = "idx_products_price_id", columnList = "price, id")
+       })
+public class Product implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,86 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_reservations",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "product_id"}),
+       indexes = @Index(name = "idx_stock_reservations_expires_at", columnList = "expires_at"))
+public class StockReservation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_id_generator")
+    @SequenceGenerator(name = "stock_reservations_id_generator", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    private Long id;
+    
+    @NotNull(message = "User ID is required")
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @NotNull(message = "Expiry is required")
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public StockReservation() {}
+    
+    public StockReservation(String userId, Long productId, Integer quantity, LocalDateTime expiresAt) {
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
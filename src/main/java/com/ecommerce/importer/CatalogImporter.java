@@ -0,0 +1,492 @@
+package com.ecommerce.importer;
+
+import com.ecommerce.config.ImportProperties;
+import com.ecommerce.entity.CatalogImport;
+import com.ecommerce.entity.Category;
+import com.ecommerce.repository.CatalogImportRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.service.CatalogLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk catalog import. An upload is spooled to disk and imported in the background, one
+ * import at a time: records are parsed as a stream, validated in batches on a worker pool,
+ * and written in file order, one transaction per batch, as JDBC batch inserts and updates.
+ * Each transaction also advances the import's checkpoint, so an import stopped by a failure
+ * or a restart resumes after the last committed batch. Invalid rows are counted and a sample
+ * of them reported, without stopping the import.
+ * <p>
+ * Writes go around JPA, so no change events fire per row; once the import finishes the
+ * in-memory catalog and its search index are rebuilt from the database and the product and
+ * category caches cleared, once.
+ * <p>
+ * An update replaces the whole row. The feed's stock is the count on hand, while the row's
+ * stock has the units held by shopping carts taken out of it, so the row is given the feed's
+ * count less the holds outstanding when the update runs, and never less than zero. The
+ * batch locks the rows it updates first, in id order: holds only change under their
+ * product's lock, so the count the update subtracts cannot move while it runs.
+ */
+@Service
+public class CatalogImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImporter.class);
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final long PROGRESS_LOG_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final String INSERT_PRODUCT = "INSERT INTO products (name, description, price, image_url, "
+            + "stock_quantity, category_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_PRODUCT = "UPDATE products SET name = ?, description = ?, price = ?, "
+            + "image_url = ?, stock_quantity = GREATEST(? - (SELECT COALESCE(SUM(sr.quantity), 0) "
+            + "FROM stock_reservations sr WHERE sr.product_id = products.id), 0), category_id = ?, updated_at = ? "
+            + "WHERE id = ?";
+    private static final String ADVANCE_CHECKPOINT = "UPDATE catalog_imports SET records_done = ?, "
+            + "inserted = inserted + ?, updated = updated + ?, rejected = rejected + ? WHERE id = ?";
+
+    @Autowired
+    private ImportProperties properties;
+
+    @Autowired
+    private CatalogImportRepository importRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CatalogLoader catalogLoader;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "catalog-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void stop() {
+        // Unfinished imports keep their spooled upload and checkpoint for a resume
+        runner.shutdownNow();
+    }
+
+    /**
+     * Spools the upload and queues its import. Sending the file again under the id of an
+     * import that did not finish resumes it from its checkpoint.
+     *
+     * @param importId the import's id, or null for a new one
+     * @throws IllegalArgumentException if the id is not usable
+     * @throws IllegalStateException    if the import is running or has completed
+     */
+    public ImportStatus submit(String importId, CatalogImport.Format format, InputStream upload) throws IOException {
+        String id = importId == null ? UUID.randomUUID().toString() : importId;
+        if (!IMPORT_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid import id: " + id);
+        }
+        checkResumable(id);
+        Path dir = properties.getSpoolDir();
+        Files.createDirectories(dir);
+        Path partial = Files.createTempFile(dir, id, ".part");
+        try {
+            Files.copy(upload, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, spool(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        return start(id, format);
+    }
+
+    /**
+     * Resumes an import that did not finish from its spooled upload.
+     *
+     * @return null if there is no such import
+     * @throws IllegalStateException if the import is running, has completed or its upload is gone
+     */
+    public ImportStatus resume(String importId) {
+        CatalogImport existing = importRepository.findById(importId).orElse(null);
+        if (existing == null) {
+            return null;
+        }
+        checkResumable(importId);
+        if (!Files.isRegularFile(spool(importId))) {
+            throw new IllegalStateException("The upload of import " + importId + " is no longer available");
+        }
+        return start(importId, existing.getFormat());
+    }
+
+    /**
+     * @return null if there is no such import
+     */
+    public ImportStatus getStatus(String importId) {
+        Job job = jobs.get(importId);
+        if (job != null) {
+            return job.status();
+        }
+        return importRepository.findById(importId).map(CatalogImporter::persistedStatus).orElse(null);
+    }
+
+    private void checkResumable(String importId) {
+        Job job = jobs.get(importId);
+        if (job != null && !job.status().isDone()) {
+            throw new IllegalStateException("Import " + importId + " is already running");
+        }
+        importRepository.findById(importId).ifPresent(existing -> {
+            if (existing.getState() == CatalogImport.State.COMPLETED) {
+                throw new IllegalStateException("Import " + importId + " has already completed");
+            }
+        });
+    }
+
+    private synchronized ImportStatus start(String importId, CatalogImport.Format format) {
+        Job previous = jobs.get(importId);
+        if (previous != null && !previous.status().isDone()) {
+            throw new IllegalStateException("Import " + importId + " is already running");
+        }
+        Job job = new Job(importId, format);
+        jobs.put(importId, job);
+        runner.execute(() -> run(job));
+        return job.status();
+    }
+
+    private void run(Job job) {
+        job.runStarted = System.nanoTime();
+        try {
+            CatalogImport checkpoint = transactionTemplate.execute(status -> {
+                CatalogImport existing = importRepository.findById(job.id)
+                        .orElseGet(() -> new CatalogImport(job.id, job.format));
+                existing.setFormat(job.format);
+                existing.setState(CatalogImport.State.RUNNING);
+                existing.setMessage(null);
+                return importRepository.save(existing);
+            });
+            job.resume(checkpoint);
+            job.state = ImportStatus.State.RUNNING;
+            if (checkpoint.getRecordsDone() > 0) {
+                logger.info("Resuming import {} after record {}", job.id, checkpoint.getRecordsDone());
+            }
+
+            importRecords(job);
+            rebuildCatalog();
+            finish(job, CatalogImport.State.COMPLETED, null);
+            Files.deleteIfExists(spool(job.id));
+            ImportStatus status = job.status();
+            logger.info("Import {} completed: {} records, {} inserted, {} updated, {} rejected, {} rows/s", job.id,
+                    status.getRecordsDone(), status.getInserted(), status.getUpdated(), status.getRejected(),
+                    Math.round(status.getRowsPerSecond()));
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Import {} failed after record {}; it can be resumed", job.id, job.recordsDone, e);
+            try {
+                finish(job, CatalogImport.State.FAILED, String.valueOf(e.getMessage()));
+            } catch (RuntimeException recording) {
+                logger.warn("Could not record the failure of import {}", job.id, recording);
+                job.finished(ImportStatus.State.FAILED, e.getMessage());
+            }
+        }
+    }
+
+    private void importRecords(Job job) throws IOException, InterruptedException, ExecutionException {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int workers = properties.getWorkers() > 0 ? properties.getWorkers() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService validators = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "catalog-import-validate-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Batches are written in file order, which the checkpoint relies on; bounding the
+        // batches in flight bounds memory when validation outruns the database
+        Deque<Future<Batch>> pending = new ArrayDeque<>();
+        try (ImportReader reader = ImportReader.open(job.format,
+                Files.newBufferedReader(spool(job.id), StandardCharsets.UTF_8), objectMapper)) {
+            List<ImportRecord> records = new ArrayList<>(batchSize);
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.number() <= job.resumedFrom) {
+                    continue;
+                }
+                records.add(record);
+                if (records.size() == batchSize) {
+                    List<ImportRecord> batch = records;
+                    pending.addLast(validators.submit(() -> validate(batch)));
+                    records = new ArrayList<>(batchSize);
+                    while (pending.size() >= 2 * workers) {
+                        write(job, pending.removeFirst().get());
+                    }
+                }
+            }
+            if (!records.isEmpty()) {
+                List<ImportRecord> batch = records;
+                pending.addLast(validators.submit(() -> validate(batch)));
+            }
+            while (!pending.isEmpty()) {
+                write(job, pending.removeFirst().get());
+            }
+        } finally {
+            validators.shutdownNow();
+        }
+    }
+
+    private static Batch validate(List<ImportRecord> records) {
+        List<ImportRow> rows = new ArrayList<>(records.size());
+        List<String> errors = new ArrayList<>();
+        for (ImportRecord record : records) {
+            try {
+                rows.add(ImportRow.of(record));
+            } catch (IllegalArgumentException e) {
+                errors.add(error(record.number(), e.getMessage()));
+            }
+        }
+        return new Batch(records.get(records.size() - 1).number(), rows, errors);
+    }
+
+    private void write(Job job, Batch batch) {
+        Written written = transactionTemplate.execute(status -> {
+            List<String> errors = new ArrayList<>(batch.errors());
+            Map<String, Long> categoryIds = categoryIds(batch.rows());
+            Set<Long> existing = lockExistingIds(batch.rows());
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            for (ImportRow row : batch.rows()) {
+                Long categoryId = categoryIds.get(row.categoryName());
+                if (row.id() == null) {
+                    inserts.add(new Object[] {row.name(), row.description(), row.price(), row.imageUrl(),
+                            row.stockQuantity(), categoryId, now, now});
+                } else if (existing.contains(row.id())) {
+                    updates.add(new Object[] {row.name(), row.description(), row.price(), row.imageUrl(),
+                            row.stockQuantity(), categoryId, now, row.id()});
+                } else {
+                    errors.add(error(row.number(), "Product not found with id: " + row.id()));
+                }
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_PRODUCT, inserts);
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_PRODUCT, updates);
+            }
+            jdbcTemplate.update(ADVANCE_CHECKPOINT, batch.lastRecord(), inserts.size(), updates.size(), errors.size(),
+                    job.id);
+            return new Written(inserts.size(), updates.size(), errors);
+        });
+        job.advance(batch, written, properties.getMaxReportedErrors());
+        if (System.nanoTime() - job.lastLogged >= PROGRESS_LOG_NANOS) {
+            job.lastLogged = System.nanoTime();
+            logger.info("Import {}: {} records done, {} rows/s", job.id, job.recordsDone,
+                    Math.round(job.status().getRowsPerSecond()));
+        }
+    }
+
+    // Categories are matched by name; missing ones are created with the batch
+    private Map<String, Long> categoryIds(List<ImportRow> rows) {
+        Set<String> names = new LinkedHashSet<>();
+        rows.forEach(row -> names.add(row.categoryName()));
+        Map<String, Long> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query("SELECT id, name FROM categories WHERE name IN (" + placeholders(names.size()) + ")",
+                row -> {
+                    ids.put(row.getString(2), row.getLong(1));
+                }, names.toArray());
+        for (String name : names) {
+            if (!ids.containsKey(name)) {
+                ids.put(name, categoryRepository.save(new Category(name, null, null)).getId());
+            }
+        }
+        return ids;
+    }
+
+    private Set<Long> lockExistingIds(List<ImportRow> rows) {
+        Set<Long> requested = new HashSet<>();
+        rows.forEach(row -> {
+            if (row.id() != null) {
+                requested.add(row.id());
+            }
+        });
+        Set<Long> existing = new HashSet<>();
+        if (requested.isEmpty()) {
+            return existing;
+        }
+        jdbcTemplate.query("SELECT id FROM products WHERE id IN (" + placeholders(requested.size())
+                        + ") ORDER BY id FOR UPDATE",
+                row -> {
+                    existing.add(row.getLong(1));
+                }, requested.toArray());
+        return existing;
+    }
+
+    private void rebuildCatalog() {
+        long started = System.nanoTime();
+        int products = catalogLoader.reload();
+        for (String name : List.of("products", "categories")) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        logger.info("Rebuilt the catalog ({} products) after import in {} ms", products,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void finish(Job job, CatalogImport.State state, String message) {
+        transactionTemplate.executeWithoutResult(status -> importRepository.findById(job.id).ifPresent(existing -> {
+            existing.setState(state);
+            existing.setMessage(message == null ? null : truncate(message));
+            existing.setFinishedAt(LocalDateTime.now());
+        }));
+        job.finished(state == CatalogImport.State.COMPLETED ? ImportStatus.State.COMPLETED : ImportStatus.State.FAILED,
+                message);
+    }
+
+    private Path spool(String importId) {
+        return properties.getSpoolDir().resolve(importId + ".upload");
+    }
+
+    // An import recorded as running that this process is not running was cut short
+    private static ImportStatus persistedStatus(CatalogImport existing) {
+        ImportStatus.State state = switch (existing.getState()) {
+            case RUNNING -> ImportStatus.State.INTERRUPTED;
+            case COMPLETED -> ImportStatus.State.COMPLETED;
+            case FAILED -> ImportStatus.State.FAILED;
+        };
+        return new ImportStatus(existing.getId(), state, existing.getRecordsDone(), existing.getInserted(),
+                existing.getUpdated(), existing.getRejected(), 0, 0, List.of(), existing.getMessage(),
+                existing.getStartedAt(), existing.getFinishedAt());
+    }
+
+    private static String error(long number, String message) {
+        return "record " + number + ": " + message;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private record Batch(long lastRecord, List<ImportRow> rows, List<String> errors) {
+    }
+
+    private record Written(int inserted, int updated, List<String> errors) {
+    }
+
+    // Written by the import thread, read by status requests
+    private static final class Job {
+
+        final String id;
+        final CatalogImport.Format format;
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile ImportStatus.State state = ImportStatus.State.QUEUED;
+        volatile long resumedFrom;
+        volatile long recordsDone;
+        volatile long inserted;
+        volatile long updated;
+        volatile long rejected;
+        volatile String message;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile long runStarted;
+        volatile long runFinished;
+        long lastLogged = System.nanoTime();
+
+        Job(String id, CatalogImport.Format format) {
+            this.id = id;
+            this.format = format;
+        }
+
+        void resume(CatalogImport checkpoint) {
+            resumedFrom = checkpoint.getRecordsDone();
+            recordsDone = checkpoint.getRecordsDone();
+            inserted = checkpoint.getInserted();
+            updated = checkpoint.getUpdated();
+            rejected = checkpoint.getRejected();
+            startedAt = checkpoint.getStartedAt();
+        }
+
+        void advance(Batch batch, Written written, int maxErrors) {
+            recordsDone = batch.lastRecord();
+            inserted += written.inserted();
+            updated += written.updated();
+            rejected += written.errors().size();
+            for (String error : written.errors()) {
+                if (errors.size() >= maxErrors) {
+                    break;
+                }
+                errors.add(error);
+            }
+        }
+
+        void finished(ImportStatus.State state, String message) {
+            runFinished = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            this.message = message;
+            this.state = state;
+        }
+
+        ImportStatus status() {
+            long end = runFinished != 0 ? runFinished : System.nanoTime();
+            double seconds = runStarted == 0 ? 0 : (end - runStarted) / 1e9;
+            double rowsPerSecond = seconds > 0 ? (recordsDone - resumedFrom) / seconds : 0;
+            List<String> sample;
+            synchronized (errors) {
+                sample = List.copyOf(errors);
+            }
+            return new ImportStatus(id, state, recordsDone, inserted, updated, rejected, resumedFrom, rowsPerSecond,
+                    sample, message, startedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ecommerce.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV with a header row naming the columns: fields separated by commas, optionally
+ * enclosed in double quotes, inside which commas, line breaks and doubled quotes are data.
+ * Blank lines are skipped.
+ */
+class CsvImportReader implements ImportReader {
+
+    private static final int BOM = '\uFEFF';
+
+    private final BufferedReader in;
+    private final List<String> header = new ArrayList<>();
+    private long number;
+
+    CsvImportReader(BufferedReader in) throws IOException {
+        this.in = in;
+        in.mark(1);
+        if (in.read() != BOM) {
+            in.reset();
+        }
+        List<String> names = readRow();
+        if (names == null) {
+            throw new IOException("Missing CSV header row");
+        }
+        for (String name : names) {
+            header.add(name.trim());
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        List<String> values;
+        do {
+            values = readRow();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty());
+
+        number++;
+        if (values.size() != header.size()) {
+            return ImportRecord.unreadable(number,
+                    "Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return new ImportRecord(number, fields, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // One row, which may span several lines inside quotes; null at the end of the input
+    private List<String> readRow() throws IOException {
+        int c = in.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field in CSV record " + (number + 1));
+                }
+                if (c == '"') {
+                    c = in.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                value.append((char) c);
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+            c = in.read();
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.importer;
+
+import com.ecommerce.entity.CatalogImport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads an import file one record at a time, so memory does not grow with the file.
+ */
+public interface ImportReader extends Closeable {
+
+    /**
+     * @return the next record, or null at the end of the file
+     * @throws IOException if the file cannot be read any further
+     */
+    ImportRecord next() throws IOException;
+
+    static ImportReader open(CatalogImport.Format format, BufferedReader in, ObjectMapper objectMapper)
+            throws IOException {
+        return format == CatalogImport.Format.CSV ? new CsvImportReader(in) : new NdjsonImportReader(in, objectMapper);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.importer;
+
+import java.util.Map;
+
+/**
+ * One record of an import file as read, before validation.
+ *
+ * @param number  position among the file's records, from 1; the unit of the checkpoint
+ * @param fields  raw values by column or property name
+ * @param problem why the record could not be read, or null
+ */
+public record ImportRecord(long number, Map<String, String> fields, String problem) {
+
+    static ImportRecord unreadable(long number, String problem) {
+        return new ImportRecord(number, Map.of(), problem);
+    }
+}
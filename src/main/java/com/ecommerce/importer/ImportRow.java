@@ -0,0 +1,96 @@
+package com.ecommerce.importer;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * A validated product row. Rows with an {@code id} update that product; rows without one
+ * create a product. Field names match the catalog export, so an export can be imported back.
+ */
+record ImportRow(long number, Long id, String name, String description, BigDecimal price, String imageUrl,
+                 int stockQuantity, String categoryName) {
+
+    // Column limits of the products and categories tables
+    private static final int MAX_NAME = 200;
+    private static final int MAX_DESCRIPTION = 1000;
+    private static final int MAX_IMAGE_URL = 255;
+    private static final int MAX_CATEGORY_NAME = 100;
+    private static final int PRICE_INTEGER_DIGITS = 8;
+
+    /**
+     * @throws IllegalArgumentException if the record is not a valid product
+     */
+    static ImportRow of(ImportRecord record) {
+        if (record.problem() != null) {
+            throw new IllegalArgumentException(record.problem());
+        }
+        Map<String, String> fields = record.fields();
+        Long id = null;
+        String idText = optional(fields, "id");
+        if (idText != null) {
+            try {
+                id = Long.parseLong(idText);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid id: " + idText);
+            }
+            if (id <= 0) {
+                throw new IllegalArgumentException("Invalid id: " + idText);
+            }
+        }
+
+        String name = required(fields, "name", MAX_NAME);
+        String description = optional(fields, "description");
+        if (description != null && description.length() > MAX_DESCRIPTION) {
+            throw new IllegalArgumentException("Description must not exceed " + MAX_DESCRIPTION + " characters");
+        }
+        String imageUrl = optional(fields, "imageUrl");
+        if (imageUrl != null && imageUrl.length() > MAX_IMAGE_URL) {
+            throw new IllegalArgumentException("Image URL must not exceed " + MAX_IMAGE_URL + " characters");
+        }
+
+        String priceText = required(fields, "price", Integer.MAX_VALUE);
+        BigDecimal price;
+        try {
+            price = new BigDecimal(priceText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + priceText);
+        }
+        if (price.signum() <= 0) {
+            throw new IllegalArgumentException("Price must be greater than 0");
+        }
+        if (price.stripTrailingZeros().scale() > 2 || price.precision() - price.scale() > PRICE_INTEGER_DIGITS) {
+            throw new IllegalArgumentException("Invalid price: " + priceText);
+        }
+
+        String stockText = required(fields, "stockQuantity", Integer.MAX_VALUE);
+        int stockQuantity;
+        try {
+            stockQuantity = Integer.parseInt(stockText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stock quantity: " + stockText);
+        }
+        if (stockQuantity < 0) {
+            throw new IllegalArgumentException("Stock quantity must not be negative");
+        }
+
+        String categoryName = required(fields, "categoryName", MAX_CATEGORY_NAME);
+        return new ImportRow(record.number(), id, name, description, price, imageUrl, stockQuantity, categoryName);
+    }
+
+    private static String required(Map<String, String> fields, String field, int maxLength) {
+        String value = optional(fields, field);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " must not exceed " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    // Blank values count as absent
+    private static String optional(Map<String, String> fields, String field) {
+        String value = fields.get(field);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.importer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Where a catalog import stands, as reported to the client polling it. Counts cover the
+ * whole import, including runs before a resume; {@code rowsPerSecond} covers the current run.
+ */
+public final class ImportStatus {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED,
+        /** Stopped without finishing, such as by a restart; can be resumed */
+        INTERRUPTED
+    }
+
+    private final String importId;
+    private final State state;
+    private final long recordsDone;
+    private final long inserted;
+    private final long updated;
+    private final long rejected;
+    private final long resumedFrom;
+    private final double rowsPerSecond;
+    private final List<String> errors;
+    private final String message;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime finishedAt;
+
+    ImportStatus(String importId, State state, long recordsDone, long inserted, long updated, long rejected,
+                 long resumedFrom, double rowsPerSecond, List<String> errors, String message,
+                 LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.importId = importId;
+        this.state = state;
+        this.recordsDone = recordsDone;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.rejected = rejected;
+        this.resumedFrom = resumedFrom;
+        this.rowsPerSecond = rowsPerSecond;
+        this.errors = errors;
+        this.message = message;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public boolean isDone() {
+        return state != State.QUEUED && state != State.RUNNING;
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRecordsDone() {
+        return recordsDone;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getResumedFrom() {
+        return resumedFrom;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Newline-delimited JSON, one object per line, as written by the catalog export. Scalar
+ * properties become fields; nested values and nulls are ignored. Blank lines are skipped.
+ */
+class NdjsonImportReader implements ImportReader {
+
+    private final BufferedReader in;
+    private final ObjectReader json;
+    private long number;
+
+    NdjsonImportReader(BufferedReader in, ObjectMapper objectMapper) {
+        this.in = in;
+        // Prices keep the digits they were written with
+        this.json = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES);
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        number++;
+        JsonNode node;
+        try {
+            node = json.readTree(line);
+        } catch (JsonProcessingException e) {
+            return ImportRecord.unreadable(number, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            return ImportRecord.unreadable(number, "Expected a JSON object");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> properties = node.fields(); properties.hasNext(); ) {
+            Map.Entry<String, JsonNode> property = properties.next();
+            if (property.getValue().isValueNode() && !property.getValue().isNull()) {
+                fields.put(property.getKey(), property.getValue().asText());
+            }
+        }
+        return new ImportRecord(number, fields, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Adds the controller method that handled a request, such as
+ * {@code ProductController.getProductById}, to {@code http.server.requests}. Unlike the URI
+ * template it stays the same when a mapping is changed, and it names requests that matched
+ * no controller {@code none}.
+ */
+public class ControllerMethodObservationConvention extends DefaultServerRequestObservationConvention {
+
+    static final String HANDLER = "handler";
+    static final String NONE = "none";
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and(KeyValue.of(HANDLER, handlerName(context.getCarrier())));
+    }
+
+    static String handlerName(HttpServletRequest request) {
+        Object handler = request == null ? null : request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return NONE;
+    }
+}
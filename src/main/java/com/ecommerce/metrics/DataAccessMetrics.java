@@ -0,0 +1,43 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Times the database work of the services as {@code repository.calls}, tagged with the
+ * service and the operation, so that the time of an endpoint can be split into the queries,
+ * stock updates and inserts behind it.
+ */
+@Component
+public class DataAccessMetrics {
+
+    public static final String METRIC = "repository.calls";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public DataAccessMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T time(String service, String operation, Supplier<T> call) {
+        return timer(service, operation).record(call);
+    }
+
+    public void time(String service, String operation, Runnable call) {
+        timer(service, operation).record(call);
+    }
+
+    private Timer timer(String service, String operation) {
+        return timers.computeIfAbsent(service + '.' + operation, name -> Timer.builder(METRIC)
+                .description("Database calls made by the services")
+                .tag("service", service)
+                .tag("operation", operation)
+                .register(registry));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.metrics;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+
+/**
+ * Marks lazy loads on the {@link RequestTimeline} of a profiled request: a proxy such as
+ * {@code Product.category} being initialized, or a collection such as
+ * {@code Order.orderItems} being read for the first time. It runs ahead of Hibernate's own
+ * listeners, so the mark comes just before the statement the load runs.
+ */
+public class LazyLoadRecorder implements LoadEventListener, InitializeCollectionEventListener {
+
+    public void register(EventListenerRegistry listeners) {
+        listeners.prependListeners(EventType.LOAD, this);
+        listeners.prependListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        // Proxies initialize through an immediate load; finds and queries use other load types
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            RequestTimeline timeline = RequestTimeline.current();
+            if (timeline != null) {
+                timeline.lazyLoad(simpleName(event.getEntityClassName()) + "#" + event.getEntityId());
+            }
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline != null) {
+            timeline.lazyLoad(simpleName(event.getCollection().getRole()) + "#" + event.getAffectedOwnerIdOrNull());
+        }
+    }
+
+    // com.ecommerce.entity.Category -> Category, com.ecommerce.entity.Order.orderItems -> Order.orderItems
+    private static String simpleName(String name) {
+        int member = name.lastIndexOf('.');
+        int type = member < 0 ? -1 : name.lastIndexOf('.', member - 1);
+        String last = name.substring(member + 1);
+        return Character.isUpperCase(last.charAt(0)) ? last : name.substring(type + 1);
+    }
+}
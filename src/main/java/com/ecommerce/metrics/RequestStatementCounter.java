@@ -0,0 +1,62 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements Hibernate prepares while a request is handled, including lazy
+ * loads during rendering, and records them as {@code jpa.statements} per controller method.
+ * Statements are counted on the request thread only; work handed to other threads, such as
+ * a streamed export or the checkout queue, is not attributed to the request.
+ */
+public class RequestStatementCounter extends OncePerRequestFilter implements StatementInspector {
+
+    public static final String METRIC = "jpa.statements";
+
+    private final ThreadLocal<int[]> statements = new ThreadLocal<>();
+    private final MeterRegistry registry;
+
+    public RequestStatementCounter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = statements.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int[] count = new int[1];
+        statements.set(count);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            statements.remove();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String handler = ControllerMethodObservationConvention.handlerName(request);
+            DistributionSummary.builder(METRIC)
+                    .description("SQL statements prepared by Hibernate per request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                    .tag(ControllerMethodObservationConvention.HANDLER, handler)
+                    .register(registry)
+                    .record(count[0]);
+        }
+    }
+}
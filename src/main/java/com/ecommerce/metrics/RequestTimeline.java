@@ -0,0 +1,136 @@
+package com.ecommerce.metrics;
+
+import com.ecommerce.metrics.SlowRequestSample.Event;
+import com.ecommerce.metrics.SlowRequestSample.EventType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * What the current request did on its thread: statements, repository calls and lazy loads.
+ * Each thread keeps one timeline and reuses its arrays from request to request, so a request
+ * that turns out to be fast costs a few array writes and is then forgotten; only a slow one
+ * is copied out into a {@link SlowRequestSample}. Events beyond {@code maxEvents} are counted
+ * but not kept.
+ */
+final class RequestTimeline {
+
+    private static final ThreadLocal<RequestTimeline> CURRENT = new ThreadLocal<>();
+
+    private EventType[] types = new EventType[0];
+    private String[] details = new String[0];
+    private long[] startedAt = new long[0];
+    private long[] durations = new long[0];
+    private int[] binds = new int[0];
+    private int[] batchRows = new int[0];
+
+    private boolean active;
+    private long started;
+    private long startedMillis;
+    private int size;
+    private int dropped;
+    private int statements;
+    private long statementNanos;
+    private int lazyLoads;
+
+    /**
+     * Starts recording on this thread, discarding what the previous request recorded.
+     */
+    static RequestTimeline begin(int maxEvents) {
+        RequestTimeline timeline = CURRENT.get();
+        if (timeline == null) {
+            timeline = new RequestTimeline();
+            CURRENT.set(timeline);
+        }
+        timeline.reset(maxEvents);
+        return timeline;
+    }
+
+    /**
+     * @return the timeline recording on this thread, or null outside a profiled request
+     */
+    static RequestTimeline current() {
+        RequestTimeline timeline = CURRENT.get();
+        return timeline != null && timeline.active ? timeline : null;
+    }
+
+    /**
+     * Stops recording.
+     *
+     * @return how long the request took, in nanoseconds
+     */
+    long finish() {
+        active = false;
+        return System.nanoTime() - started;
+    }
+
+    void statement(String sql, long start, long end, int bindCount, int rows) {
+        statements++;
+        statementNanos += end - start;
+        add(EventType.SQL, sql, start, end - start, bindCount, rows);
+    }
+
+    void repositoryCall(String method, long end, long duration) {
+        add(EventType.REPOSITORY, method, end - duration, duration, -1, -1);
+    }
+
+    void lazyLoad(String target) {
+        lazyLoads++;
+        add(EventType.LAZY_LOAD, target, System.nanoTime(), 0, -1, -1);
+    }
+
+    SlowRequestSample toSample(String method, String path, String handler, int status, long elapsed) {
+        List<Event> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(new Event(types[i], millis(startedAt[i] - started), millis(durations[i]), details[i],
+                    binds[i] < 0 ? null : binds[i], batchRows[i] < 0 ? null : batchRows[i]));
+        }
+        // Repository calls are reported when they return, after the statements they ran
+        events.sort(Comparator.comparingDouble(Event::atMs));
+        return new SlowRequestSample(Instant.ofEpochMilli(startedMillis), method, path, handler, status,
+                millis(elapsed), statements, millis(statementNanos), lazyLoads, dropped, events);
+    }
+
+    private void add(EventType type, String detail, long start, long duration, int bindCount, int rows) {
+        if (size == types.length) {
+            dropped++;
+            return;
+        }
+        types[size] = type;
+        details[size] = detail;
+        startedAt[size] = start;
+        durations[size] = duration;
+        binds[size] = bindCount;
+        batchRows[size] = rows;
+        size++;
+    }
+
+    private void reset(int maxEvents) {
+        if (types.length != maxEvents) {
+            types = new EventType[maxEvents];
+            details = new String[maxEvents];
+            startedAt = new long[maxEvents];
+            durations = new long[maxEvents];
+            binds = new int[maxEvents];
+            batchRows = new int[maxEvents];
+        } else {
+            // Let go of the previous request's SQL strings
+            Arrays.fill(details, 0, size, null);
+        }
+        active = true;
+        started = System.nanoTime();
+        startedMillis = System.currentTimeMillis();
+        size = 0;
+        dropped = 0;
+        statements = 0;
+        statementNanos = 0;
+        lazyLoads = 0;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
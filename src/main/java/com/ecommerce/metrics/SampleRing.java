@@ -0,0 +1,57 @@
+package com.ecommerce.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last {@code capacity} slow requests. Writers claim a slot with one atomic increment
+ * and overwrite whatever was there, so recording never blocks a request thread or waits for
+ * a reader; a reader racing a writer may miss the sample being written.
+ */
+public final class SampleRing {
+
+    private final AtomicReferenceArray<SlowRequestSample> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public SampleRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(SlowRequestSample sample) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), sample);
+    }
+
+    /**
+     * @return the retained samples, newest first
+     */
+    public List<SlowRequestSample> newestFirst() {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<SlowRequestSample> samples = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            SlowRequestSample sample = slots.get((int) (sequence % slots.length()));
+            if (sample != null) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * @return how many samples were ever added, including those since overwritten
+     */
+    public long added() {
+        return next.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@code GET /actuator/slowrequests} lists the retained slow requests, newest first, and
+ * {@code DELETE} forgets them.
+ */
+@Endpoint(id = "slowrequests")
+public class SlowRequestEndpoint {
+
+    private final SlowRequestProfiler profiler;
+
+    public SlowRequestEndpoint(SlowRequestProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public SlowRequests slowRequests() {
+        SampleRing samples = profiler.getSamples();
+        return new SlowRequests(profiler.getThreshold(), samples.added(), samples.newestFirst());
+    }
+
+    @DeleteOperation
+    public void clear() {
+        profiler.getSamples().clear();
+    }
+
+    /**
+     * @param sampled every request over the threshold since startup, including those no longer retained
+     */
+    public record SlowRequests(Duration threshold, long sampled, List<SlowRequestSample> samples) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records a {@link RequestTimeline} for a random {@code sampleRate} share of requests and keeps
+ * the ones slower than the threshold in a {@link SampleRing}, read through the
+ * {@code slowrequests} actuator endpoint. Requests left out run without a timeline, so their
+ * connections and statements are not wrapped by the {@link TimelineRecorder}.
+ * Only work on the request thread is recorded; a streamed export or the checkout queue
+ * shows as the time the request thread spent handing it over. Actuator requests are not
+ * profiled.
+ */
+public class SlowRequestProfiler extends OncePerRequestFilter {
+
+    private static final String ACTUATOR = "/actuator/";
+
+    private final long thresholdNanos;
+    private final int maxEvents;
+    private final double sampleRate;
+    private final SampleRing samples;
+
+    public SlowRequestProfiler(Duration threshold, int capacity, int maxEvents, double sampleRate) {
+        this.thresholdNanos = threshold.toNanos();
+        this.maxEvents = maxEvents;
+        this.sampleRate = sampleRate;
+        this.samples = new SampleRing(capacity);
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    public SampleRing getSamples() {
+        return samples;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + ACTUATOR);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            chain.doFilter(request, response);
+            return;
+        }
+        RequestTimeline timeline = RequestTimeline.begin(maxEvents);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = timeline.finish();
+            if (elapsed >= thresholdNanos) {
+                samples.add(timeline.toSample(request.getMethod(), request.getRequestURI(),
+                        ControllerMethodObservationConvention.handlerName(request), response.getStatus(), elapsed));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.metrics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A request that took longer than the profiler threshold, with everything it did on its
+ * thread in the order it happened. Times are milliseconds from the start of the request.
+ * Statement durations cover executing the statement, not reading its rows. Bind values are
+ * never recorded, only how many there were.
+ */
+public record SlowRequestSample(
+        Instant startedAt,
+        String method,
+        String path,
+        String handler,
+        int status,
+        double durationMs,
+        int statements,
+        double statementMs,
+        int lazyLoads,
+        int droppedEvents,
+        List<Event> events) {
+
+    public enum EventType {
+        /** A Spring Data repository method; the statements it ran follow it */
+        REPOSITORY,
+        /** A JDBC statement, or a JDBC batch */
+        SQL,
+        /** An uninitialized proxy or collection touched outside a query; its statement follows it */
+        LAZY_LOAD
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Event(EventType type, double atMs, double durationMs, String detail, Integer binds, Integer batchRows) {
+    }
+}
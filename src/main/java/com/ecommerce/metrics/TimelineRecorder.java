@@ -0,0 +1,153 @@
+package com.ecommerce.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the {@link RequestTimeline} of a profiled request: every JDBC statement executed on
+ * its thread, whether from a repository, a lazy load or {@code JdbcTemplate}, with its bind
+ * count and execution time, and every Spring Data repository method it called. Connections
+ * taken outside a profiled request, such as by scheduled jobs, are handed out unwrapped.
+ */
+public class TimelineRecorder implements BeanPostProcessor, RepositoryMethodInvocationListener {
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // Listeners have to be in place before the factory bean creates its repository
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactory) {
+            repositoryFactory.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(this));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof RecordingDataSource)) {
+            return new RecordingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline != null) {
+            timeline.repositoryCall(invocation.getRepositoryInterface().getSimpleName() + "."
+                    + invocation.getMethod().getName(), System.nanoTime(), invocation.getDuration(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                new Class<?>[] {method.getReturnType()}, new RecordingStatement((Statement) result, sql));
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Counts the parameters bound to a statement and times each execution. A batch is
+     * recorded once, with the parameters of all its rows.
+     */
+    private static final class RecordingStatement implements InvocationHandler {
+
+        private final Statement target;
+        private final String sql;
+        private int binds;
+        private int batchBinds;
+        private int batchRows;
+
+        RecordingStatement(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return TimelineRecorder.invoke(target, method, args);
+                } finally {
+                    executed(name, args, start);
+                }
+            }
+            if (name.equals("addBatch")) {
+                batchBinds += binds;
+                binds = 0;
+                batchRows++;
+            } else if (name.equals("clearBatch")) {
+                batchBinds = 0;
+                batchRows = 0;
+            } else if (name.equals("clearParameters")) {
+                binds = 0;
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setLong(index, value) and the like, not setFetchSize(rows)
+                binds++;
+            }
+            return TimelineRecorder.invoke(target, method, args);
+        }
+
+        private void executed(String name, Object[] args, long start) {
+            RequestTimeline timeline = RequestTimeline.current();
+            boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+            if (timeline != null) {
+                String text = args != null && args.length > 0 && args[0] instanceof String given ? given : sql;
+                timeline.statement(text, start, System.nanoTime(), batch ? batchBinds : binds, batch ? batchRows : -1);
+            }
+            binds = 0;
+            if (batch) {
+                batchBinds = 0;
+                batchRows = 0;
+            }
+        }
+    }
+
+    private static final class RecordingDataSource extends DelegatingDataSource {
+
+        RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return RequestTimeline.current() == null ? connection : recording(connection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            Connection connection = super.getConnection(username, password);
+            return RequestTimeline.current() == null ? connection : recording(connection);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that stayed pinned to their carrier thread, typically by blocking
+ * inside a {@code synchronized} block or method, for longer than the threshold. A pinned
+ * thread blocked on JDBC holds one of the few carriers, so a handful of them stall every
+ * other request. Pinning is read from the JDK's {@code jdk.VirtualThreadPinned} flight
+ * recorder event and recorded as {@code jvm.threads.virtual.pinned} by the first application
+ * frame; the first time a site pins, its stack is logged.
+ */
+public class VirtualThreadPinningMonitor {
+
+    public static final String METRIC = "jvm.threads.virtual.pinned";
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String APPLICATION = "com.ecommerce.";
+
+    private final MeterRegistry registry;
+    private final Duration threshold;
+    private final int stackDepth;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry registry, Duration threshold, int stackDepth) {
+        this.registry = registry;
+        this.threshold = threshold;
+        this.stackDepth = stackDepth;
+    }
+
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Reporting virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<String> frames = new ArrayList<>();
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                frames.add(frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber());
+            }
+        }
+        record(event.getDuration(), frames);
+    }
+
+    /**
+     * @param frames the pinned thread's stack, innermost first
+     */
+    void record(Duration duration, List<String> frames) {
+        String site = frames.stream().filter(frame -> frame.startsWith(APPLICATION)).findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0));
+        Timer.builder(METRIC)
+                .description("Time virtual threads stayed pinned to their carrier")
+                .tag("site", site)
+                .register(registry)
+                .record(duration);
+        if (reportedSites.add(site)) {
+            logger.warn("Virtual thread pinned for {} ms at {}; further pinning here is only counted\n\tat {}",
+                    duration.toMillis(), site, String.join("\n\tat ", frames.subList(0, Math.min(stackDepth, frames.size()))));
+        }
+    }
+}
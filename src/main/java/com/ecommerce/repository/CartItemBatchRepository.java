@@ -0,0 +1,21 @@
+package com.ecommerce.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Whole-cart reads and writes for the write-behind cart store, a batch of users at a time.
+ */
+public interface CartItemBatchRepository {
+    
+    /**
+     * @return units by product id for each user with a persisted cart, in insertion order
+     */
+    Map<String, Map<Long, Integer>> findCartLines(Collection<String> userIds);
+    
+    /**
+     * Replaces the persisted carts of the given users with the given lines; an empty cart
+     * deletes the user's rows.
+     */
+    void replaceCarts(Map<String, Map<Long, Integer>> cartsByUser);
+}
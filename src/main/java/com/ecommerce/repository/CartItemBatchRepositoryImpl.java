@@ -0,0 +1,61 @@
+package com.ecommerce.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class CartItemBatchRepositoryImpl implements CartItemBatchRepository {
+    
+    // Keeps IN lists well under any driver's parameter limit
+    private static final int USERS_PER_STATEMENT = 500;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public Map<String, Map<Long, Integer>> findCartLines(Collection<String> userIds) {
+        Map<String, Map<Long, Integer>> carts = new LinkedHashMap<>();
+        for (List<String> chunk : chunks(userIds)) {
+            jdbcTemplate.query("SELECT user_id, product_id, quantity FROM cart_items WHERE user_id IN ("
+                            + placeholders(chunk.size()) + ") ORDER BY id",
+                    row -> {
+                        carts.computeIfAbsent(row.getString(1), user -> new LinkedHashMap<>())
+                                .merge(row.getLong(2), row.getInt(3), Integer::sum);
+                    }, chunk.toArray());
+        }
+        return carts;
+    }
+    
+    @Override
+    public void replaceCarts(Map<String, Map<Long, Integer>> cartsByUser) {
+        for (List<String> chunk : chunks(cartsByUser.keySet())) {
+            jdbcTemplate.update("DELETE FROM cart_items WHERE user_id IN (" + placeholders(chunk.size()) + ")",
+                    chunk.toArray());
+        }
+        List<Object[]> rows = new ArrayList<>();
+        cartsByUser.forEach((userId, lines) -> lines.forEach((productId, quantity) ->
+                rows.add(new Object[] {userId, productId, quantity})));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?)", rows);
+        }
+    }
+    
+    private static List<List<String>> chunks(Collection<String> userIds) {
+        List<String> all = new ArrayList<>(userIds);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += USERS_PER_STATEMENT) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + USERS_PER_STATEMENT)));
+        }
+        return chunks;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
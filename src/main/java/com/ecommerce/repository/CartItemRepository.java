@@ -1,18 +1,21 @@
 package com.ecommerce.repository;
 
 import com.ecommerce.entity.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemBatchRepository {
     
+    @EntityGraph(attributePaths = {"product", "product.category"})
     List<CartItem> findByUserId(String userId);
     
     Optional<CartItem> findByUserIdAndProductId(String userId, Long productId);
@@ -24,6 +27,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Query("DELETE FROM CartItem ci WHERE ci.userId = :userId")
     void deleteByUserId(@Param("userId") String userId);
     
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.userId IN :userIds")
+    void deleteByUserIdIn(@Param("userIds") Collection<String> userIds);
+    
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.userId = :userId AND ci.product.id = :productId")
     void deleteByUserIdAndProductId(@Param("userId") String userId, @Param("productId") Long productId);
@@ -0,0 +1,9 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.CatalogImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogImportRepository extends JpaRepository<CatalogImport, String> {
+}
@@ -1,21 +1,48 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.OrderSummary;
 import com.ecommerce.entity.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    // Pages of orders are read without their items; fetching a collection alongside a page
+    // would make Hibernate paginate in memory. findWithItemsByIdIn then loads the page's items.
     Page<Order> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
     
+    // Keyset scrolling through a user's history; see ProductRepository.findBy
+    Window<Order> findByUserId(String userId, ScrollPosition position, Sort sort, Limit limit);
+    
+    @Query("SELECT o.id, SIZE(o.orderItems) FROM Order o WHERE o.id IN :ids")
+    List<Object[]> countItemsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(value = "SELECT new com.ecommerce.dto.OrderSummary(o.id, o.status, o.totalAmount, SIZE(o.orderItems), o.createdAt) " +
+                   "FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
+    Page<OrderSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.product", "orderItems.product.category"})
+    Optional<Order> findWithItemsById(Long id);
+    
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.product", "orderItems.product.category"})
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+    
     List<Order> findByUserIdAndStatus(String userId, Order.OrderStatus status);
     
     @Query("SELECT o FROM Order o WHERE o.userId = :userId AND o.createdAt BETWEEN :startDate AND :endDate")
@@ -26,6 +53,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.status = :status ORDER BY o.createdAt DESC")
     Page<Order> findByStatusOrderByCreatedAtDesc(@Param("status") Order.OrderStatus status, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.product", "orderItems.product.category"})
     @Query("SELECT o FROM Order o WHERE o.totalAmount >= :minAmount ORDER BY o.totalAmount DESC")
     List<Order> findHighValueOrders(@Param("minAmount") java.math.BigDecimal minAmount);
     
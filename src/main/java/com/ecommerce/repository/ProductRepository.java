@@ -1,43 +1,118 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
     
+    // Listings fetch each product's category with it instead of one query per category
+    @Override
+    @EntityGraph(attributePaths = "category")
+    Page<Product> findAll(Pageable pageable);
+    
+    // Keyset scrolling: each window continues after the last row of the previous one, so a
+    // deep window costs the same as the first, and no count query runs
+    @EntityGraph(attributePaths = "category")
+    Window<Product> findBy(ScrollPosition position, Sort sort, Limit limit);
+    
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId")
     Page<Product> findByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.name LIKE %:name% OR p.description LIKE %:name%")
     Page<Product> findByNameOrDescriptionContaining(@Param("name") String name, Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
     Page<Product> findByPriceBetween(@Param("minPrice") BigDecimal minPrice, 
                                    @Param("maxPrice") BigDecimal maxPrice, 
                                    Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
     Page<Product> findAvailableProducts(Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 AND p.category.id = :categoryId")
     Page<Product> findAvailableProductsByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p ORDER BY p.createdAt DESC")
     Page<Product> findLatestProducts(Pageable pageable);
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.price = (SELECT MIN(p2.price) FROM Product p2)")
     List<Product> findCheapestProducts();
     
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= :threshold")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
+    
+    @EntityGraph(attributePaths = "category")
+    Optional<Product> findWithCategoryById(Long id);
+    
+    @EntityGraph(attributePaths = "category")
+    List<Product> findWithCategoryByIdIn(Collection<Long> ids);
+    
+    @Query("SELECT new com.ecommerce.dto.ProductCard(p.id, p.name, p.price, p.imageUrl, p.stockQuantity, c.id, c.name) " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids")
+    List<ProductCard> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // A forward-only cursor over the whole catalog, for exports; must be read inside a
+    // transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.id")
+    Stream<Product> streamAllWithCategory();
+    
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
+    
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.updatedAt IS NULL OR p.updatedAt >= :since")
+    List<Product> findChangedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT p.id FROM Product p")
+    List<Long> findAllIds();
+    
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") Long id);
+    
+    // Takes stock only if enough is left; the database serializes concurrent decrements on the row
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = :now " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.updatedAt = :now WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,28 @@
+package com.ecommerce.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Stock changes for many products in one JDBC batch, so a checkout moves the stock of a
+ * whole cart in a single round trip.
+ */
+public interface ProductStockRepository {
+    
+    /**
+     * Locks the products' rows, in id order, until the transaction ends and reads their
+     * current stock, bypassing any stale copies in the persistence context.
+     *
+     * @return stock by product id; products that do not exist are missing
+     */
+    Map<Long, Integer> lockStock(Collection<Long> productIds);
+    
+    /**
+     * Adds each change (negative to take stock) to its product's stock, in product id order.
+     * A negative change only applies if the product has enough stock left.
+     *
+     * @return the id of the first product whose change did not apply, or null if all did
+     */
+    Long applyStockChanges(Map<Long, Integer> changesByProductId, LocalDateTime now);
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+    
+    // The same conditional update as ProductRepository.decrementStock, with the floor as a parameter
+    private static final String UPDATE_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ? AND stock_quantity >= ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public Map<Long, Integer> lockStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new TreeMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        List<Long> ids = new ArrayList<>(new TreeSet<>(productIds));
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                row -> {
+                    stock.put(row.getLong(1), row.getInt(2));
+                }, ids.toArray());
+        return stock;
+    }
+    
+    @Override
+    public Long applyStockChanges(Map<Long, Integer> changesByProductId, LocalDateTime now) {
+        // Id order keeps concurrent checkouts locking shared products in the same order
+        List<Long> productIds = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        for (Map.Entry<Long, Integer> change : new TreeMap<>(changesByProductId).entrySet()) {
+            int delta = change.getValue();
+            if (delta != 0) {
+                productIds.add(change.getKey());
+                rows.add(new Object[] {delta, updatedAt, change.getKey(), Math.max(0, -delta)});
+            }
+        }
+        if (rows.isEmpty()) {
+            return null;
+        }
+        
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_STOCK, rows);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                return productIds.get(i);
+            }
+        }
+        return null;
+    }
+}
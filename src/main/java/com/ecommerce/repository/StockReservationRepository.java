@@ -0,0 +1,46 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.userId = :userId AND sr.productId = :productId")
+    Optional<StockReservation> findForUpdate(@Param("userId") String userId, @Param("productId") Long productId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.userId = :userId ORDER BY sr.id")
+    List<StockReservation> findAllForUpdate(@Param("userId") String userId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.userId IN :userIds ORDER BY sr.id")
+    List<StockReservation> findAllForUpdateByUserIdIn(@Param("userIds") Collection<String> userIds);
+    
+    @Query("SELECT DISTINCT sr.productId FROM StockReservation sr WHERE sr.userId IN :userIds")
+    List<Long> findProductIdsByUserIdIn(@Param("userIds") Collection<String> userIds);
+    
+    @Query("SELECT sr.productId FROM StockReservation sr WHERE sr.expiresAt < :now ORDER BY sr.id")
+    List<Long> findExpiredProductIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sr FROM StockReservation sr WHERE sr.expiresAt < :now ORDER BY sr.id")
+    List<StockReservation> findExpiredForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM StockReservation sr WHERE sr.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<String> userIds);
+}
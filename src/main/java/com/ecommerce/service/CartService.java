@@ -1,92 +1,277 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cart.CartMutation;
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.cart.CartView;
+import com.ecommerce.catalog.CatalogSnapshot;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.dto.CartLine;
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.CartItem;
 import com.ecommerce.entity.Product;
-import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.metrics.DataAccessMetrics;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class CartService {
     
+    private static final String METRICS = "CartService";
+    
+    @Autowired
+    private CartStore cartStore;
+    
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private ProductCatalog catalog;
     
     @Autowired
     private ProductRepository productRepository;
     
-    @Cacheable(value = "userCarts", key = "#userId")
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private DataAccessMetrics dataAccessMetrics;
+    
     public List<CartItem> getCartItems(String userId) {
-        return cartItemRepository.findByUserId(userId);
+        Map<Long, Integer> lines = cartStore.lines(userId);
+        return toCartItems(userId, lines, findProducts(lines.keySet()));
+    }
+    
+    /**
+     * The cart as the cart page shows it. Products come from the catalog, and any it does not
+     * know are read as cards rather than as managed entities.
+     */
+    @Transactional(readOnly = true)
+    public List<CartLine> getCartLines(String userId) {
+        Map<Long, Integer> lines = cartStore.lines(userId);
+        CatalogSnapshot snapshot = catalog.snapshot();
+        Map<Long, ProductCard> cards = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : lines.keySet()) {
+            Optional<Product> product = snapshot.getProduct(productId);
+            if (product.isPresent()) {
+                cards.put(productId, ProductCard.of(product.get()));
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            dataAccessMetrics.time(METRICS, "findCards", () -> productRepository.findCardsByIdIn(missing))
+                    .forEach(card -> cards.put(card.id(), card));
+        }
+        
+        List<CartLine> cartLines = new ArrayList<>();
+        lines.forEach((productId, quantity) -> {
+            ProductCard card = cards.get(productId);
+            if (card != null) {
+                cartLines.add(CartLine.of(card, quantity));
+            }
+        });
+        return cartLines;
     }
     
-    @CacheEvict(value = "userCarts", key = "#userId")
     public CartItem addToCart(String userId, Long productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
+        Product product = findProduct(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         
+        // The catalog's count lags behind cart holds, so a short count is confirmed against the row
         if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
+            int available = currentStock(productId);
+            if (available < quantity) {
+                throw new RuntimeException("Insufficient stock. Available: " + available);
+            }
         }
         
-        Optional<CartItem> existingItem = cartItemRepository.findByUserIdAndProductId(userId, productId);
-        
-        if (existingItem.isPresent()) {
-            CartItem cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            return cartItemRepository.save(cartItem);
-        } else {
-            CartItem cartItem = new CartItem(userId, product, quantity);
-            return cartItemRepository.save(cartItem);
+        // The catalog's count is only a first check; the reservation takes the stock for real
+        if (!dataAccessMetrics.time(METRICS, "reserveStock", () -> stockReservationService.reserve(userId, productId, quantity))) {
+            throw new RuntimeException("Insufficient stock. Available: " + currentStock(productId));
         }
+        
+        int updated = cartStore.add(userId, productId, quantity);
+        return new CartItem(userId, product, updated);
     }
     
-    @CacheEvict(value = "userCarts", key = "#userId")
     public CartItem updateCartItemQuantity(String userId, Long productId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductId(userId, productId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        Integer current = cartStore.lines(userId).get(productId);
+        if (current == null) {
+            throw new RuntimeException("Cart item not found");
+        }
         
         if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
+            dataAccessMetrics.time(METRICS, "releaseStock", () -> stockReservationService.releaseAll(userId, productId));
+            cartStore.remove(userId, productId);
             return null;
         }
         
-        Product product = cartItem.getProduct();
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + product.getStockQuantity());
+        // The units already in the cart are held, so only the difference changes hands
+        int delta = quantity - current;
+        if (delta > 0 && !dataAccessMetrics.time(METRICS, "reserveStock",
+                () -> stockReservationService.reserve(userId, productId, delta))) {
+            throw new RuntimeException("Insufficient stock. Available: " + currentStock(productId));
+        }
+        if (delta < 0) {
+            dataAccessMetrics.time(METRICS, "releaseStock", () -> stockReservationService.release(userId, productId, -delta));
         }
         
-        cartItem.setQuantity(quantity);
-        return cartItemRepository.save(cartItem);
+        // Losing a race with another change to the line rolls the reservation back with it
+        if (!cartStore.compareAndSet(userId, productId, current, quantity)) {
+            throw new RuntimeException("Cart item changed concurrently, please retry");
+        }
+        Product product = findProduct(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        return new CartItem(userId, product, quantity);
     }
     
-    @CacheEvict(value = "userCarts", key = "#userId")
     public void removeFromCart(String userId, Long productId) {
-        cartItemRepository.deleteByUserIdAndProductId(userId, productId);
+        dataAccessMetrics.time(METRICS, "releaseStock", () -> stockReservationService.releaseAll(userId, productId));
+        cartStore.remove(userId, productId);
     }
     
-    @CacheEvict(value = "userCarts", key = "#userId")
     public void clearCart(String userId) {
-        cartItemRepository.deleteByUserId(userId);
+        dataAccessMetrics.time(METRICS, "releaseStock", () -> stockReservationService.releaseAll(userId));
+        cartStore.clear(userId);
+    }
+    
+    /**
+     * Applies a list of cart changes, in order, as one unit: the products are read with one
+     * query, the stock for all changed lines is reserved or released in one batch, and the
+     * cart is replaced in one step. Any failure leaves both the cart and the stock as they were.
+     *
+     * @return the resulting cart and its total
+     */
+    public CartView applyMutations(String userId, List<CartMutation> mutations) {
+        Map<Long, Integer> current = cartStore.lines(userId);
+        Map<Long, Integer> updated = new LinkedHashMap<>(current);
+        for (CartMutation mutation : mutations) {
+            apply(updated, mutation);
+        }
+        
+        Set<Long> productIds = new HashSet<>(current.keySet());
+        productIds.addAll(updated.keySet());
+        Map<Long, Product> products = findProducts(productIds);
+        for (Long productId : updated.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+        }
+        
+        // The units already in the cart are held, so only the differences change hands
+        Map<Long, Integer> changes = new HashMap<>();
+        for (Long productId : productIds) {
+            int change = updated.getOrDefault(productId, 0) - current.getOrDefault(productId, 0);
+            if (change != 0) {
+                changes.put(productId, change);
+            }
+        }
+        Long shortProductId = changes.isEmpty() ? null
+                : dataAccessMetrics.time(METRICS, "adjustStock", () -> stockReservationService.adjust(userId, changes));
+        if (shortProductId != null) {
+            throw new RuntimeException("Insufficient stock for product: " + products.get(shortProductId).getName()
+                    + ". Available: " + currentStock(shortProductId));
+        }
+        
+        // Losing a race with another change to the cart rolls the reservations back with it
+        if (!changes.isEmpty() && !cartStore.compareAndSet(userId, current, updated)) {
+            throw new RuntimeException("Cart changed concurrently, please retry");
+        }
+        List<CartItem> cartItems = toCartItems(userId, updated, products);
+        return new CartView(cartItems, total(cartItems));
     }
     
     public BigDecimal calculateCartTotal(String userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        return total(getCartItems(userId));
+    }
+    
+    public Long getCartItemCount(String userId) {
+        return (long) cartStore.lines(userId).size();
+    }
+    
+    // Products come from the in-memory catalog; the database only for ones it does not know yet
+    private Optional<Product> findProduct(Long productId) {
+        return catalog.snapshot().getProduct(productId).or(() -> dataAccessMetrics.time(METRICS, "findProduct",
+                () -> productRepository.findWithCategoryById(productId)));
+    }
+    
+    // As above, with one query for all the products the catalog does not know
+    private Map<Long, Product> findProducts(Collection<Long> productIds) {
+        CatalogSnapshot snapshot = catalog.snapshot();
+        Map<Long, Product> products = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            Optional<Product> product = snapshot.getProduct(productId);
+            if (product.isPresent()) {
+                products.put(productId, product.get());
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            dataAccessMetrics.time(METRICS, "findProducts", () -> productRepository.findWithCategoryByIdIn(missing))
+                    .forEach(product -> products.put(product.getId(), product));
+        }
+        return products;
+    }
+    
+    private static void apply(Map<Long, Integer> lines, CartMutation mutation) {
+        Long productId = mutation.getProductId();
+        if (productId == null || mutation.getOperation() == null) {
+            throw new RuntimeException("Cart change needs a product id and an operation");
+        }
+        int quantity = mutation.getQuantity() == null ? 0 : mutation.getQuantity();
+        switch (mutation.getOperation()) {
+            case ADD -> {
+                if (quantity <= 0) {
+                    throw new RuntimeException("Quantity to add must be positive for product: " + productId);
+                }
+                lines.merge(productId, quantity, Integer::sum);
+            }
+            case SET -> {
+                if (quantity < 0) {
+                    throw new RuntimeException("Quantity must not be negative for product: " + productId);
+                }
+                if (quantity == 0) {
+                    lines.remove(productId);
+                } else {
+                    lines.put(productId, quantity);
+                }
+            }
+            case REMOVE -> lines.remove(productId);
+        }
+    }
+    
+    private static List<CartItem> toCartItems(String userId, Map<Long, Integer> lines, Map<Long, Product> products) {
+        List<CartItem> cartItems = new ArrayList<>();
+        lines.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product != null) {
+                cartItems.add(new CartItem(userId, product, quantity));
+            }
+        });
+        return cartItems;
+    }
+    
+    private static BigDecimal total(List<CartItem> cartItems) {
         return cartItems.stream()
                 .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
-    public Long getCartItemCount(String userId) {
-        return cartItemRepository.countByUserId(userId);
+    private Integer currentStock(Long productId) {
+        return dataAccessMetrics.time(METRICS, "findStock", () -> productRepository.findStockQuantityById(productId)).orElse(0);
     }
 }
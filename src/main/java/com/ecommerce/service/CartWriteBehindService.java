@@ -0,0 +1,116 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.config.CartProperties;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes the cart store's changes behind to {@code cart_items}: every flush rewrites each
+ * cart changed since the previous one in a single transaction, so any number of changes
+ * to a cart between flushes cost one delete and one batched insert. Lines for products
+ * deleted in the meantime are dropped rather than written. Carts that cannot be written are
+ * put back to be retried by the next flush. Runs once more on shutdown.
+ */
+@Service
+public class CartWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindService.class);
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CartProperties properties;
+
+    // Not synchronized: a virtual thread blocked on JDBC inside a monitor pins its carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * @return the number of carts written
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.cart.flush-interval:PT1S}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushDirty();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushDirty() {
+        Map<String, Map<Long, Integer>> dirty = cartStore.drainDirty();
+        if (!dirty.isEmpty()) {
+            long started = System.nanoTime();
+            dropDeletedProducts(dirty);
+            try {
+                write(dirty);
+            } catch (RuntimeException e) {
+                // Keep one bad cart, such as one naming a product deleted since the check, from holding up the rest
+                logger.warn("Could not write {} carts behind in one batch, writing them one by one", dirty.size(), e);
+                dirty.forEach((userId, lines) -> {
+                    try {
+                        write(Map.of(userId, lines));
+                    } catch (RuntimeException failure) {
+                        cartStore.markDirty(List.of(userId));
+                        logger.warn("Could not write the cart of {} behind; retrying with the next flush: {}",
+                                userId, failure.toString());
+                    }
+                });
+            }
+            logger.debug("Wrote {} carts behind in {} ms", dirty.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+        cartStore.evictIdle(System.currentTimeMillis() - properties.getIdleTimeout().toMillis());
+        return dirty.size();
+    }
+
+    // Their rows went with the product, so there is nothing to write for them
+    private void dropDeletedProducts(Map<String, Map<Long, Integer>> carts) {
+        Set<Long> productIds = new HashSet<>();
+        carts.values().forEach(lines -> productIds.addAll(lines.keySet()));
+        if (productIds.isEmpty()) {
+            return;
+        }
+        productIds.removeAll(productRepository.findExistingIds(productIds));
+        if (!productIds.isEmpty()) {
+            carts.forEach((userId, lines) -> {
+                if (lines.keySet().removeAll(productIds)) {
+                    cartStore.forget(userId, productIds);
+                }
+            });
+            logger.info("Dropped cart lines for deleted products {}", productIds);
+        }
+    }
+
+    private void write(Map<String, Map<Long, Integer>> carts) {
+        transactionTemplate.executeWithoutResult(status -> cartItemRepository.replaceCarts(carts));
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductExport;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog as NDJSON, one product per line in id order. Products are read
+ * through a forward-only database cursor and written as they arrive, and each one is dropped
+ * from the persistence context once written, so memory stays flat however large the catalog.
+ */
+@Service
+public class CatalogExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogExportService.class);
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final byte NEWLINE = '\n';
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @return the number of products written
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        ObjectWriter writer = objectMapper.writerFor(ProductExport.class);
+        long written = 0;
+        try (Stream<Product> products = productRepository.streamAllWithCategory()) {
+            Iterator<Product> cursor = products.iterator();
+            while (cursor.hasNext()) {
+                Product product = cursor.next();
+                out.write(writer.writeValueAsBytes(ProductExport.of(product)));
+                out.write(NEWLINE);
+                entityManager.detach(product);
+                // Push full chunks to the client rather than buffering the response
+                if (++written % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        logger.info("Exported {} products in {} ms", written,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return written;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.service;
+
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Replaces the whole in-memory catalog with the database's, for when change events cannot
+ * be relied on: after a bulk import, or when a restored catalog has nothing to catch up from.
+ * Products are read through the forward-only cursor of
+ * {@link ProductRepository#streamAllWithCategory()}, which left-joins the category, and each
+ * one is detached as it is read, so the persistence context holds one fetch of rows at a time
+ * rather than a managed copy of the whole catalog next to the one being built.
+ */
+@Service
+public class CatalogLoader {
+
+    @Autowired
+    private ProductCatalog catalog;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * @return the number of products loaded
+     */
+    @Transactional(readOnly = true)
+    public int reload() {
+        List<Product> products = new ArrayList<>();
+        try (Stream<Product> rows = productRepository.streamAllWithCategory()) {
+            Iterator<Product> cursor = rows.iterator();
+            while (cursor.hasNext()) {
+                Product product = cursor.next();
+                entityManager.detach(product);
+                products.add(product);
+            }
+        }
+        catalog.load(categoryRepository.findAll(), products);
+        return products.size();
+    }
+}
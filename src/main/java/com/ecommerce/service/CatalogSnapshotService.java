@@ -0,0 +1,219 @@
+package com.ecommerce.service;
+
+import com.ecommerce.catalog.CatalogSnapshot;
+import com.ecommerce.catalog.CatalogSnapshotFile;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.config.CatalogProperties;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the catalog snapshot file current. Once the application is ready it brings a
+ * catalog restored from the file up to date with the database: changed and deleted
+ * categories, products updated at or after the newest timestamp in the catalog, and products
+ * that no longer exist. The newest timestamp itself is included because a row committed in
+ * the same clock tick as the last one the catalog saw would otherwise be skipped. Catalog
+ * change events keep applying meanwhile; a database row only replaces a catalog product it
+ * is newer than, or differs from at the same timestamp. After that the file is rewritten whenever the catalog
+ * version has moved, and once more on shutdown.
+ */
+@Service
+@ConditionalOnProperty(prefix = "ecommerce.catalog.snapshot", name = "path")
+public class CatalogSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    @Autowired
+    private ProductCatalog catalog;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CatalogLoader catalogLoader;
+
+    @Autowired
+    private CatalogProperties properties;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long writtenVersion = -1;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.execute(() -> {
+            try {
+                catchUp();
+            } catch (RuntimeException e) {
+                logger.warn("Catalog catch-up with the database failed; serving the restored catalog", e);
+            }
+            writeQuietly();
+        });
+        long interval = properties.getSnapshot().getWriteInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::writeQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        writeQuietly();
+    }
+
+    public void catchUp() {
+        long started = System.nanoTime();
+        CatalogSnapshot before = catalog.snapshot();
+        LocalDateTime since = lastUpdate(before);
+        if (since == null) {
+            // Nothing to diff against, such as the built-in demo data
+            catalogLoader.reload();
+            before = catalog.snapshot();
+            since = lastUpdate(before);
+            logger.info("Loaded {} products into the catalog from the database", before.productCount());
+            if (since == null) {
+                return;
+            }
+        }
+
+        List<Category> categories = categoryRepository.findAll();
+        for (Category category : categories) {
+            Category current = before.getCategory(category.getId()).orElse(null);
+            if (current == null || !sameCategory(current, category)) {
+                catalog.saveCategory(category);
+            }
+        }
+        long[] liveCategories = categories.stream().mapToLong(Category::getId).sorted().toArray();
+        for (Category category : before.getCategories()) {
+            if (Arrays.binarySearch(liveCategories, category.getId()) < 0) {
+                catalog.removeCategory(category.getId());
+            }
+        }
+
+        // Each catalog change copies the snapshot, so the rows go in as one batch per kind
+        List<Product> changed = productRepository.findChangedSince(since);
+        CatalogSnapshot current = catalog.snapshot();
+        List<Product> updated = new ArrayList<>(changed.size());
+        for (Product product : changed) {
+            Product held = current.getProduct(product.getId()).orElse(null);
+            if (held == null || isNewer(product, held)) {
+                updated.add(product);
+            }
+        }
+        catalog.saveProducts(updated);
+
+        // Only products the catalog held before the id query can be stale deletions
+        long[] live = productRepository.findAllIds().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] removed = before.getProducts().stream()
+                .mapToLong(Product::getId)
+                .filter(id -> Arrays.binarySearch(live, id) < 0)
+                .toArray();
+        catalog.removeProducts(removed);
+        logger.info("Catalog caught up with the database since {}: {} products updated, {} removed in {} ms",
+                since, updated.size(), removed.length, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void write() throws IOException {
+        catalog.foldDemand();
+        CatalogSnapshot snapshot = catalog.snapshot();
+        if (snapshot.version() == writtenVersion) {
+            return;
+        }
+        Path path = properties.getSnapshot().getPath();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long started = System.nanoTime();
+        CatalogSnapshotFile.write(snapshot, path);
+        writtenVersion = snapshot.version();
+        logger.debug("Wrote catalog version {} to {} in {} ms", snapshot.version(), path,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // A failed write must not cancel the periodic task; the next run retries
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write the catalog snapshot", e);
+        }
+    }
+
+    // The newest update in the catalog, or null when any product's state is unknown
+    private static LocalDateTime lastUpdate(CatalogSnapshot snapshot) {
+        LocalDateTime latest = null;
+        for (Product product : snapshot.getProducts()) {
+            LocalDateTime updatedAt = product.getUpdatedAt();
+            if (updatedAt == null) {
+                return null;
+            }
+            if (latest == null || updatedAt.isAfter(latest)) {
+                latest = updatedAt;
+            }
+        }
+        return latest;
+    }
+
+    private static boolean isNewer(Product stored, Product current) {
+        if (current.getUpdatedAt() == null) {
+            return true;
+        }
+        if (stored.getUpdatedAt() == null || stored.getUpdatedAt().isBefore(current.getUpdatedAt())) {
+            return false;
+        }
+        return stored.getUpdatedAt().isAfter(current.getUpdatedAt()) || !sameProduct(stored, current);
+    }
+
+    private static boolean sameProduct(Product a, Product b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && Objects.equals(a.getStockQuantity(), b.getStockQuantity())
+                && samePrice(a.getPrice(), b.getPrice())
+                && Objects.equals(categoryId(a), categoryId(b));
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static Long categoryId(Product product) {
+        return product.getCategory() == null ? null : product.getCategory().getId();
+    }
+
+    private static boolean sameCategory(Category a, Category b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl());
+    }
+}
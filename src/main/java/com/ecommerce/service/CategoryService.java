@@ -1,8 +1,11 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.CacheReloader;
+import com.ecommerce.catalog.CategoryChangedEvent;
 import com.ecommerce.entity.Category;
 import com.ecommerce.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,23 +15,28 @@ import java.util.Optional;
 
 @Service
 @Transactional
-public class CategoryService {
+public class CategoryService implements CacheReloader {
     
     @Autowired
     private CategoryRepository categoryRepository;
     
-    @Cacheable(value = "categories", key = "'all'")
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Cacheable(value = "categories", sync = true, key = "'all'")
     public List<Category> getAllCategories() {
         return categoryRepository.findAllOrderByName();
     }
     
-    @Cacheable(value = "categories", key = "#id")
+    @Cacheable(value = "categories", sync = true, key = "#id")
     public Optional<Category> getCategoryById(Long id) {
         return categoryRepository.findById(id);
     }
     
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(CategoryChangedEvent.saved(saved));
+        return saved;
     }
     
     public Category updateCategory(Long id, Category categoryDetails) {
@@ -39,11 +47,30 @@ public class CategoryService {
         category.setDescription(categoryDetails.getDescription());
         category.setImageUrl(categoryDetails.getImageUrl());
         
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(CategoryChangedEvent.saved(saved));
+        return saved;
     }
     
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(CategoryChangedEvent.deleted(id));
+    }
+    
+    @Override
+    public String getCacheName() {
+        return "categories";
+    }
+    
+    @Override
+    public Object reload(Object key) {
+        if ("all".equals(key)) {
+            return categoryRepository.findAllOrderByName();
+        }
+        if (key instanceof Long) {
+            return categoryRepository.findById((Long) key).orElse(null);
+        }
+        return null;
     }
     
     public List<Category> searchCategories(String name) {
@@ -1,26 +1,58 @@
 package com.ecommerce.service;
 
+import com.ecommerce.catalog.CatalogSnapshot;
+import com.ecommerce.catalog.CategoryChangedEvent;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.catalog.ProductChangedEvent;
+import com.ecommerce.catalog.ProductDemandEvent;
+import com.ecommerce.catalog.ProductStockChangedEvent;
+import com.ecommerce.catalog.SearchIndex;
+import com.ecommerce.catalog.Suggestion;
+import com.ecommerce.catalog.SuggestionIndex;
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.Category;
 import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class InMemoryProductService {
     
-    private final List<Product> products = new ArrayList<>();
-    private final List<Category> categories = new ArrayList<>();
+    private final ProductCatalog catalog;
     
-    public InMemoryProductService() {
-        initializeData();
+    // Ids that sold out or came back into stock since the last refresh
+    private final Set<Long> staleStock = ConcurrentHashMap.newKeySet();
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    public InMemoryProductService(ProductCatalog catalog) {
+        this.catalog = catalog;
+        // A catalog restored from a snapshot file already holds the real data
+        if (catalog.snapshot().version() == 0) {
+            initializeData();
+        }
     }
     
     private void initializeData() {
+        List<Product> products = new ArrayList<>();
+        List<Category> categories = new ArrayList<>();
+        
         // Create categories
         Category electronics = new Category("Electronics", "Electronic devices and gadgets", "https://images.unsplash.com/photo-1498049794561-7780e7231661?w=400");
         Category fashion = new Category("Fashion", "Clothing and accessories", "https://images.unsplash.com/photo-1441986300917-64674bd600d8?w=400");
@@ -67,38 +99,166 @@ public class InMemoryProductService {
         for (int i = 0; i < categories.size(); i++) {
             categories.get(i).setId((long) (i + 1));
         }
+        
+        catalog.load(categories, products);
+    }
+    
+    public CatalogSnapshot getSnapshot() {
+        return catalog.snapshot();
     }
     
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        return catalog.snapshot().getProducts();
     }
     
     public Optional<Product> getProductById(Long id) {
-        return products.stream()
-                .filter(product -> product.getId().equals(id))
-                .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        return catalog.snapshot().getProduct(id);
     }
     
     public List<Product> getProductsByCategory(Long categoryId) {
-        return products.stream()
-                .filter(product -> product.getCategory().getId().equals(categoryId))
-                .collect(Collectors.toList());
+        if (categoryId == null) {
+            return List.of();
+        }
+        return catalog.snapshot().getProductsByCategory(categoryId);
     }
     
     public List<Product> searchProducts(String searchTerm) {
-        return products.stream()
-                .filter(product -> product.getName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                 product.getDescription().toLowerCase().contains(searchTerm.toLowerCase()))
-                .collect(Collectors.toList());
+        return catalog.snapshot().search(searchTerm);
+    }
+    
+    /**
+     * One page of search hits; only the hits up to the end of the page are ranked.
+     */
+    public Page<Product> searchProducts(String searchTerm, int page, int size) {
+        PageRequest pageable = pageRequest(page, size);
+        CatalogSnapshot snapshot = catalog.snapshot();
+        int limit = (int) Math.min(pageable.getOffset() + size, Integer.MAX_VALUE);
+        SearchIndex.TopHits hits = snapshot.searchIndex().search(searchTerm, limit);
+        long[] ids = hits.ids();
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        return new PageImpl<>(snapshot.getProducts(Arrays.copyOfRange(ids, from, ids.length)), pageable, hits.total());
+    }
+    
+    /**
+     * A page of product cards, optionally of one category; only the products on the page are
+     * read from the catalog.
+     */
+    public Page<ProductCard> getProductCards(Long categoryId, int page, int size) {
+        PageRequest pageable = pageRequest(page, size);
+        CatalogSnapshot snapshot = catalog.snapshot();
+        List<Product> products = categoryId == null ? snapshot.getProducts() : snapshot.getProductsByCategory(categoryId);
+        int from = (int) Math.min(pageable.getOffset(), products.size());
+        int to = Math.min(from + size, products.size());
+        List<ProductCard> cards = new ArrayList<>(to - from);
+        for (Product product : products.subList(from, to)) {
+            cards.add(ProductCard.of(product));
+        }
+        return new PageImpl<>(cards, pageable, products.size());
+    }
+    
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return catalog.snapshot().suggest(prefix, Math.min(limit, SuggestionIndex.MAX_SUGGESTIONS));
     }
     
     public List<Category> getAllCategories() {
-        return new ArrayList<>(categories);
+        return catalog.snapshot().getCategories();
     }
     
     public Optional<Category> getCategoryById(Long id) {
-        return categories.stream()
-                .filter(category -> category.getId().equals(id))
-                .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        return catalog.snapshot().getCategory(id);
+    }
+    
+    public Product saveProduct(Product product) {
+        catalog.saveProduct(product);
+        return product;
+    }
+    
+    public void deleteProduct(Long id) {
+        catalog.removeProduct(id);
+    }
+    
+    public Category saveCategory(Category category) {
+        catalog.saveCategory(category);
+        return category;
+    }
+    
+    public void deleteCategory(Long id) {
+        catalog.removeCategory(id);
+    }
+    
+    private static PageRequest pageRequest(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Page must not be negative and size must be positive");
+        }
+        return PageRequest.of(page, size);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            deleteProduct(event.getProductId());
+        } else {
+            saveProduct(event.getProduct());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.isDeleted()) {
+            deleteCategory(event.getCategoryId());
+        } else {
+            saveCategory(event.getCategory());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDemand(ProductDemandEvent event) {
+        event.getUnitsByProductId().forEach(catalog::recordDemand);
+    }
+    
+    @Scheduled(fixedDelayString = "${ecommerce.catalog.demand-fold-interval:PT10S}")
+    public void foldDemand() {
+        catalog.foldDemand();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        staleStock.addAll(event.getProductIds());
+    }
+    
+    /**
+     * Re-reads the products that sold out or came back into stock since the last refresh and
+     * saves them as one snapshot. A row older than the catalog's copy lost a race with an edit
+     * applied since.
+     *
+     * @return the number of products updated
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.catalog.stock-refresh-interval:PT1S}")
+    public int refreshStock() {
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = staleStock.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        CatalogSnapshot snapshot = catalog.snapshot();
+        List<Product> changed = new ArrayList<>(ids.size());
+        for (Product product : productRepository.findWithCategoryByIdIn(ids)) {
+            Product current = snapshot.getProduct(product.getId()).orElse(null);
+            if (current == null || current.getUpdatedAt() == null
+                    || (product.getUpdatedAt() != null && !product.getUpdatedAt().isBefore(current.getUpdatedAt()))) {
+                changed.add(product);
+            }
+        }
+        catalog.saveProducts(changed);
+        return changed.size();
     }
 }
@@ -1,25 +1,51 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.catalog.ProductDemandEvent;
+import com.ecommerce.checkout.CheckoutRequest;
+import com.ecommerce.checkout.CheckoutResult;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.KeysetCursor;
+import com.ecommerce.dto.OrderSummary;
 import com.ecommerce.entity.*;
+import com.ecommerce.metrics.DataAccessMetrics;
 import com.ecommerce.repository.CartItemRepository;
 import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @Transactional
 public class OrderService {
     
+    private static final String METRICS = "OrderService";
+    private static final String ORDER_CURSOR_SCOPE = "orders";
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -29,76 +55,213 @@ public class OrderService {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private CartStore cartStore;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private DataAccessMetrics dataAccessMetrics;
+    
     public Order createOrder(String userId, String shippingAddress) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        CheckoutResult result = createOrders(List.of(new CheckoutRequest(userId, shippingAddress))).get(0);
+        if (!result.isCompleted()) {
+            throw new RuntimeException(result.getFailure());
+        }
+        return result.getOrder();
+    }
+    
+    /**
+     * Checks out a batch of carts in one transaction, in request order. Carts are read from
+     * the cart store, which is ahead of {@code cart_items}. Stock is handed out with one lock
+     * per product for the whole batch, and orders, items and cart deletions go out as batched
+     * statements, so the cost barely grows with the batch. A checkout that fails, for an
+     * empty cart or missing stock, leaves that user's cart and holds alone. Lines for products
+     * deleted since they were added are dropped from the cart and left out of the order.
+     *
+     * @return one result per request, in the same order
+     */
+    public List<CheckoutResult> createOrders(List<CheckoutRequest> requests) {
+        Set<String> userIds = new LinkedHashSet<>();
+        requests.forEach(request -> userIds.add(request.getUserId()));
+        Map<String, Map<Long, Integer>> carts = cartStore.lines(userIds);
         
-        if (cartItems.isEmpty()) {
-            throw new RuntimeException("Cart is empty");
+        // A user's cart goes to their first request in the batch; later ones find it empty
+        Map<String, CheckoutRequest> checkouts = new LinkedHashMap<>();
+        Map<String, Map<Long, Integer>> purchases = new LinkedHashMap<>();
+        Set<Long> productIds = new HashSet<>();
+        for (CheckoutRequest request : requests) {
+            Map<Long, Integer> cart = carts.get(request.getUserId());
+            if (!cart.isEmpty() && !checkouts.containsKey(request.getUserId())) {
+                checkouts.put(request.getUserId(), request);
+                purchases.put(request.getUserId(), cart);
+                productIds.addAll(cart.keySet());
+            }
         }
+        Map<Long, Product> products = new HashMap<>();
+        dataAccessMetrics.time(METRICS, "loadProducts", () -> productRepository.findWithCategoryByIdIn(productIds))
+                .forEach(product -> products.put(product.getId(), product));
         
-        // Calculate total amount
-        BigDecimal totalAmount = cartItems.stream()
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Products deleted since they were added took their cart_items rows with them
+        purchases.entrySet().removeIf(cart -> {
+            Set<Long> deleted = new HashSet<>(cart.getValue().keySet());
+            deleted.removeAll(products.keySet());
+            if (!deleted.isEmpty()) {
+                cart.getValue().keySet().removeAll(deleted);
+                cartStore.forget(cart.getKey(), deleted);
+            }
+            return cart.getValue().isEmpty();
+        });
+        checkouts.keySet().retainAll(purchases.keySet());
         
-        // Create order
-        Order order = new Order(userId, totalAmount, Order.OrderStatus.PENDING, shippingAddress);
-        order = orderRepository.save(order);
+        // Take the stock for every order at once; orders that do not fit are left out
+        Map<String, Long> shortfalls = dataAccessMetrics.time(METRICS, "commitStock",
+                () -> stockReservationService.commit(purchases));
         
-        // Create order items and update stock
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            
-            // Check stock availability
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        Map<CheckoutRequest, CheckoutResult> results = new HashMap<>();
+        List<Order> orders = new ArrayList<>();
+        Map<Long, Integer> unitsByProductId = new TreeMap<>();
+        for (Map.Entry<String, CheckoutRequest> checkout : checkouts.entrySet()) {
+            Map<Long, Integer> cart = purchases.get(checkout.getKey());
+            Long shortProductId = shortfalls.get(checkout.getKey());
+            if (shortProductId != null) {
+                Product product = products.get(shortProductId);
+                results.put(checkout.getValue(), CheckoutResult.failed("Insufficient stock for product: "
+                        + (product != null ? product.getName() : String.valueOf(shortProductId))));
+                continue;
             }
             
-            // Update stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+            // Calculate total amount
+            BigDecimal totalAmount = cart.entrySet().stream()
+                    .map(line -> products.get(line.getKey()).getPrice().multiply(BigDecimal.valueOf(line.getValue())))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
             
-            // Create order item
-            OrderItem orderItem = new OrderItem(order, product, cartItem.getQuantity(), product.getPrice());
-            order.getOrderItems().add(orderItem);
+            // Create order and items; pooled ids let them go out as batched inserts at commit
+            Order order = new Order(checkout.getKey(), totalAmount, Order.OrderStatus.PENDING,
+                    checkout.getValue().getShippingAddress());
+            cart.forEach((productId, quantity) -> {
+                Product product = products.get(productId);
+                order.getOrderItems().add(new OrderItem(order, product, quantity, product.getPrice()));
+            });
+            orders.add(order);
+            results.put(checkout.getValue(), CheckoutResult.completed(order));
+            cart.forEach((productId, units) -> unitsByProductId.merge(productId, units, Integer::sum));
         }
         
-        // Clear cart
-        cartItemRepository.deleteByUserId(userId);
+        if (!orders.isEmpty()) {
+            // Flushed here rather than at commit so that the inserts are timed on their own
+            dataAccessMetrics.time(METRICS, "insertOrders", () -> {
+                orderRepository.saveAll(orders);
+                orderRepository.flush();
+            });
+            
+            // Clear carts: the rows now, so a crash cannot bring the purchase back, and the
+            // store once the orders are committed, keeping anything added in the meantime
+            List<String> checkedOut = orders.stream().map(Order::getUserId).toList();
+            dataAccessMetrics.time(METRICS, "clearCarts", () -> cartItemRepository.deleteByUserIdIn(checkedOut));
+            afterCommit(() -> checkedOut.forEach(userId -> cartStore.subtract(userId, purchases.get(userId))));
+            
+            eventPublisher.publishEvent(new ProductDemandEvent(unitsByProductId));
+        }
         
-        return orderRepository.save(order);
+        List<CheckoutResult> ordered = new ArrayList<>(requests.size());
+        for (CheckoutRequest request : requests) {
+            ordered.add(results.getOrDefault(request, CheckoutResult.failed("Cart is empty")));
+        }
+        return ordered;
     }
     
     public Page<Order> getUserOrders(String userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        return withItems(dataAccessMetrics.time(METRICS, "findUserOrders",
+                () -> orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable)));
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getUserOrderSummaries(String userId, int page, int size) {
+        return dataAccessMetrics.time(METRICS, "findOrderSummaries",
+                () -> orderRepository.findSummariesByUserId(userId, PageRequest.of(page, size)));
+    }
+    
+    /**
+     * A window of the user's orders, newest first, continuing after {@code cursor}; null
+     * starts from the newest.
+     *
+     * @throws IllegalArgumentException if the cursor is not one this listing handed out
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummary> scrollUserOrders(String userId, String cursor, int size) {
+        KeysetScrollPosition position = KeysetCursor.decode(ORDER_CURSOR_SCOPE, cursor);
+        Window<Order> orders = dataAccessMetrics.time(METRICS, "scrollUserOrders",
+                () -> orderRepository.findByUserId(userId, position, NEWEST_FIRST, Limit.of(size)));
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        if (!orders.isEmpty()) {
+            List<Long> orderIds = orders.stream().map(Order::getId).toList();
+            for (Object[] row : dataAccessMetrics.time(METRICS, "countOrderItems",
+                    () -> orderRepository.countItemsByIdIn(orderIds))) {
+                itemCounts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        List<OrderSummary> summaries = orders.stream()
+                .map(order -> new OrderSummary(order.getId(), order.getStatus(), order.getTotalAmount(),
+                        itemCounts.getOrDefault(order.getId(), 0), order.getCreatedAt()))
+                .toList();
+        return new CursorPage<>(summaries, KeysetCursor.next(ORDER_CURSOR_SCOPE, orders));
     }
     
     public Order getOrderById(Long orderId) {
-        return orderRepository.findById(orderId)
+        return dataAccessMetrics.time(METRICS, "findOrder", () -> orderRepository.findWithItemsById(orderId))
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
     }
     
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
         Order order = getOrderById(orderId);
         order.setStatus(status);
-        return orderRepository.save(order);
+        return dataAccessMetrics.time(METRICS, "saveOrder", () -> orderRepository.save(order));
     }
     
     public List<Order> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status, PageRequest.of(0, 100)).getContent();
+        return withItems(dataAccessMetrics.time(METRICS, "findOrdersByStatus",
+                () -> orderRepository.findByStatusOrderByCreatedAtDesc(status, PageRequest.of(0, 100)))).getContent();
     }
     
     public List<Order> getHighValueOrders(BigDecimal minAmount) {
-        return orderRepository.findHighValueOrders(minAmount);
+        return dataAccessMetrics.time(METRICS, "findHighValueOrders", () -> orderRepository.findHighValueOrders(minAmount));
     }
     
     public Long getUserOrderCount(String userId) {
-        return orderRepository.countByUserId(userId);
+        return dataAccessMetrics.time(METRICS, "countUserOrders", () -> orderRepository.countByUserId(userId));
     }
     
     public BigDecimal getUserTotalSpent(String userId) {
-        BigDecimal total = orderRepository.getTotalSpentByUserId(userId);
+        BigDecimal total = dataAccessMetrics.time(METRICS, "sumUserSpending", () -> orderRepository.getTotalSpentByUserId(userId));
         return total != null ? total : BigDecimal.ZERO;
     }
+    
+    // Loads the items of a whole page of orders, with their products, in one query
+    private Page<Order> withItems(Page<Order> orders) {
+        if (orders.hasContent()) {
+            List<Long> orderIds = new ArrayList<>();
+            orders.forEach(order -> orderIds.add(order.getId()));
+            dataAccessMetrics.time(METRICS, "loadOrderItems", () -> orderRepository.findWithItemsByIdIn(orderIds));
+        }
+        return orders;
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -1,14 +1,25 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.CacheReloader;
+import com.ecommerce.cache.ProductQueryKey;
+import com.ecommerce.catalog.ProductChangedEvent;
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.KeysetCursor;
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.Product;
+import com.ecommerce.metrics.DataAccessMetrics;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,61 +29,103 @@ import java.util.Optional;
 
 @Service
 @Transactional
-public class ProductService {
+public class ProductService implements CacheReloader {
+    
+    private static final String METRICS = "ProductService";
+    
+    /**
+     * The orderings products can be scrolled in; each ends on the id so that it is total.
+     */
+    public enum ProductOrder {
+        LATEST(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"))),
+        NAME(Sort.by("name", "id")),
+        PRICE(Sort.by("price", "id"));
+        
+        private final Sort sort;
+        
+        ProductOrder(Sort sort) {
+            this.sort = sort;
+        }
+    }
     
     @Autowired
     private ProductRepository productRepository;
     
-    @Cacheable(value = "products", key = "#page + '_' + #size + '_' + #sortBy")
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private DataAccessMetrics dataAccessMetrics;
+    
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).all(#page, #size, #sortBy)")
     public Page<Product> getAllProducts(int page, int size, String sortBy) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy).ascending());
-        return productRepository.findAll(pageable);
+        return dataAccessMetrics.time(METRICS, "findAllProducts", () -> productRepository.findAll(pageable));
+    }
+    
+    /**
+     * A window of products in the given order, continuing after {@code cursor}; null starts
+     * from the beginning. Reads the database rather than the catalog.
+     *
+     * @throws IllegalArgumentException if the cursor is not one this ordering handed out
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductCard> scrollProducts(ProductOrder order, String cursor, int size) {
+        String scope = "products:" + order.name();
+        KeysetScrollPosition position = KeysetCursor.decode(scope, cursor);
+        Window<Product> products = dataAccessMetrics.time(METRICS, "scrollProducts",
+                () -> productRepository.findBy(position, order.sort, Limit.of(size)));
+        return new CursorPage<>(products.map(ProductCard::of).getContent(), KeysetCursor.next(scope, products));
     }
     
-    @Cacheable(value = "products", key = "#id")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).byId(#id)")
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return dataAccessMetrics.time(METRICS, "findProduct", () -> productRepository.findById(id));
     }
     
-    @Cacheable(value = "products", key = "'category_' + #categoryId + '_' + #page + '_' + #size")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).category(#categoryId, #page, #size)")
     public Page<Product> getProductsByCategory(Long categoryId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-        return productRepository.findByCategoryId(categoryId, pageable);
+        return dataAccessMetrics.time(METRICS, "findByCategory", () -> productRepository.findByCategoryId(categoryId, pageable));
     }
     
-    @Cacheable(value = "products", key = "'search_' + #searchTerm + '_' + #page + '_' + #size")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).search(#searchTerm, #page, #size)")
     public Page<Product> searchProducts(String searchTerm, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-        return productRepository.findByNameOrDescriptionContaining(searchTerm, pageable);
+        return dataAccessMetrics.time(METRICS, "searchProducts",
+                () -> productRepository.findByNameOrDescriptionContaining(searchTerm, pageable));
     }
     
-    @Cacheable(value = "products", key = "'price_' + #minPrice + '_' + #maxPrice + '_' + #page + '_' + #size")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).priceRange(#minPrice, #maxPrice, #page, #size)")
     public Page<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("price").ascending());
-        return productRepository.findByPriceBetween(minPrice, maxPrice, pageable);
+        return dataAccessMetrics.time(METRICS, "findByPriceRange",
+                () -> productRepository.findByPriceBetween(minPrice, maxPrice, pageable));
     }
     
-    @Cacheable(value = "products", key = "'available_' + #page + '_' + #size")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).available(#page, #size)")
     public Page<Product> getAvailableProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
-        return productRepository.findAvailableProducts(pageable);
+        return dataAccessMetrics.time(METRICS, "findAvailable", () -> productRepository.findAvailableProducts(pageable));
     }
     
-    @Cacheable(value = "products", key = "'latest_' + #page + '_' + #size")
+    @Cacheable(value = "products", sync = true, key = "T(com.ecommerce.cache.ProductQueryKey).latest(#page, #size)")
     public Page<Product> getLatestProducts(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return productRepository.findLatestProducts(pageable);
+        return dataAccessMetrics.time(METRICS, "findLatest", () -> productRepository.findLatestProducts(pageable));
     }
     
-    @CacheEvict(value = "products", allEntries = true)
+    // Cache entries are evicted after commit by ProductCacheInvalidator, per affected key
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = dataAccessMetrics.time(METRICS, "saveProduct", () -> productRepository.save(product));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(null, saved));
+        return saved;
     }
     
-    @CacheEvict(value = "products", allEntries = true)
     public Product updateProduct(Long id, Product productDetails) {
-        Product product = productRepository.findById(id)
+        Product product = dataAccessMetrics.time(METRICS, "findProduct", () -> productRepository.findById(id))
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        ProductState before = ProductState.of(product);
         
         product.setName(productDetails.getName());
         product.setDescription(productDetails.getDescription());
@@ -81,19 +134,60 @@ public class ProductService {
         product.setStockQuantity(productDetails.getStockQuantity());
         product.setCategory(productDetails.getCategory());
         
-        return productRepository.save(product);
+        Product saved = dataAccessMetrics.time(METRICS, "saveProduct", () -> productRepository.save(product));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(before, saved));
+        return saved;
     }
     
-    @CacheEvict(value = "products", allEntries = true)
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        ProductState before = dataAccessMetrics.time(METRICS, "findProduct", () -> productRepository.findById(id))
+                .map(ProductState::of).orElse(null);
+        dataAccessMetrics.time(METRICS, "deleteProduct", () -> productRepository.deleteById(id));
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id, before));
+    }
+    
+    @Override
+    public String getCacheName() {
+        return "products";
+    }
+    
+    // Refresh-ahead for the "products" cache: recomputes an entry from its key without going
+    // back through the @Cacheable proxy
+    @Override
+    public Object reload(Object key) {
+        if (!(key instanceof ProductQueryKey)) {
+            return null;
+        }
+        ProductQueryKey queryKey = (ProductQueryKey) key;
+        List<Object> params = queryKey.getFamily().getParams();
+        int page = queryKey.getPage();
+        int size = queryKey.getSize();
+        switch (queryKey.getFamily().getKind()) {
+            case BY_ID:
+                return dataAccessMetrics.time(METRICS, "findProduct", () -> productRepository.findById((Long) params.get(0)))
+                        .orElse(null);
+            case ALL:
+                return getAllProducts(page, size, (String) params.get(0));
+            case CATEGORY:
+                return getProductsByCategory((Long) params.get(0), page, size);
+            case SEARCH:
+                return searchProducts((String) params.get(0), page, size);
+            case PRICE_RANGE:
+                return getProductsByPriceRange((BigDecimal) params.get(0), (BigDecimal) params.get(1), page, size);
+            case AVAILABLE:
+                return getAvailableProducts(page, size);
+            case LATEST:
+                return getLatestProducts(page, size);
+            default:
+                return null;
+        }
     }
     
     public List<Product> getLowStockProducts(Integer threshold) {
-        return productRepository.findLowStockProducts(threshold);
+        return dataAccessMetrics.time(METRICS, "findLowStock", () -> productRepository.findLowStockProducts(threshold));
     }
     
     public List<Product> getCheapestProducts() {
-        return productRepository.findCheapestProducts();
+        return dataAccessMetrics.time(METRICS, "findCheapest", productRepository::findCheapestProducts);
     }
 }
@@ -0,0 +1,329 @@
+package com.ecommerce.service;
+
+import com.ecommerce.catalog.ProductStockChangedEvent;
+import com.ecommerce.entity.StockReservation;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Stock held for shopping carts. Stock is taken with a single conditional update, so
+ * concurrent buyers of one SKU queue on its row instead of reading, checking and writing
+ * back a count they may have lost to someone else. A cart's hold is recorded per user and
+ * product and expires after the reservation TTL; the sweeper then returns it to stock.
+ * <p>
+ * Product rows are always locked before hold rows, and several products or holds in id
+ * order, so checkouts, cart edits and the sweeper do not deadlock. A hold that does not
+ * exist yet cannot be locked, but its product row can: two first reservations of one cart
+ * line queue on the product, and the second extends the hold the first inserted. Checkouts,
+ * whole-cart releases and the sweeper learn their products from the holds, so they read the
+ * product ids unlocked, lock those products and only then lock the holds; a hold placed in
+ * between has its product locked after the others.
+ * <p>
+ * Every method that moves stock publishes a {@link ProductStockChangedEvent} for the products
+ * it sold out or brought back into stock, which caches and the in-memory catalog act on once
+ * the transaction commits. The levels come from the locked rows. Other moves publish nothing,
+ * so cart traffic does not churn the caches or the catalog, and the stock counts they show
+ * lag behind the holds.
+ */
+@Service
+@Transactional
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ecommerce.inventory.reservation-ttl:15m}")
+    private Duration reservationTtl = Duration.ofMinutes(15);
+
+    /**
+     * Takes {@code quantity} units out of stock for the user's cart and extends the hold.
+     *
+     * @return false, with nothing changed, if fewer than {@code quantity} units are in stock
+     */
+    public boolean reserve(String userId, Long productId, int quantity) {
+        requirePositive(quantity);
+        Map<Long, Integer> available = productRepository.lockStock(Set.of(productId));
+        StockReservation hold = reservationRepository.findForUpdate(userId, productId).orElse(null);
+        if (available.getOrDefault(productId, 0) < quantity) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (productRepository.decrementStock(productId, quantity, now) == 0) {
+            throw new IllegalStateException("Stock of locked product " + productId + " changed during reservation");
+        }
+        if (hold == null) {
+            hold = new StockReservation(userId, productId, quantity, now.plus(reservationTtl));
+        } else {
+            hold.setQuantity(hold.getQuantity() + quantity);
+            hold.setExpiresAt(now.plus(reservationTtl));
+        }
+        reservationRepository.save(hold);
+        publishStockChanged(soldOutOrRestocked(available, Map.of(productId, -quantity)));
+        return true;
+    }
+
+    /**
+     * Returns up to {@code quantity} held units to stock; a hold that already expired has
+     * nothing left to return.
+     */
+    public void release(String userId, Long productId, int quantity) {
+        requirePositive(quantity);
+        productRepository.lockStock(Set.of(productId));
+        reservationRepository.findForUpdate(userId, productId)
+                .ifPresent(hold -> releaseUnits(List.of(hold), Math.min(quantity, hold.getQuantity())));
+    }
+
+    public void releaseAll(String userId, Long productId) {
+        productRepository.lockStock(Set.of(productId));
+        reservationRepository.findForUpdate(userId, productId).ifPresent(hold -> releaseUnits(List.of(hold), null));
+    }
+
+    public void releaseAll(String userId) {
+        productRepository.lockStock(reservationRepository.findProductIdsByUserIdIn(Set.of(userId)));
+        releaseUnits(reservationRepository.findAllForUpdate(userId), null);
+    }
+
+    /**
+     * Reserves and releases stock for several of the user's cart lines at once: a positive
+     * change reserves that many more units, a negative one returns up to that many held units.
+     * The user's holds and the products involved are locked once, and all stock changes go
+     * out as one batch. Either every reservation fits or nothing changes.
+     *
+     * @return the id of the first product short of stock, or null if all changes were applied
+     */
+    public Long adjust(String userId, Map<Long, Integer> changesByProductId) {
+        // Releases are locked too, so all product rows are taken in id order
+        Set<Long> productIds = new TreeSet<>(changesByProductId.keySet());
+        Map<Long, Integer> available = productRepository.lockStock(productIds);
+        Map<Long, StockReservation> holds = new HashMap<>();
+        for (StockReservation hold : reservationRepository.findAllForUpdate(userId)) {
+            holds.put(hold.getProductId(), hold);
+        }
+        for (Long productId : productIds) {
+            if (changesByProductId.get(productId) > available.getOrDefault(productId, 0)) {
+                return productId;
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> stockChanges = new TreeMap<>();
+        List<StockReservation> saved = new ArrayList<>();
+        List<StockReservation> deleted = new ArrayList<>();
+        new TreeMap<>(changesByProductId).forEach((productId, change) -> {
+            StockReservation hold = holds.get(productId);
+            if (change > 0) {
+                stockChanges.put(productId, -change);
+                if (hold == null) {
+                    hold = new StockReservation(userId, productId, change, now.plus(reservationTtl));
+                } else {
+                    hold.setQuantity(hold.getQuantity() + change);
+                    hold.setExpiresAt(now.plus(reservationTtl));
+                }
+                saved.add(hold);
+            } else if (change < 0 && hold != null) {
+                int released = Math.min(-change, hold.getQuantity());
+                stockChanges.put(productId, released);
+                if (released == hold.getQuantity()) {
+                    deleted.add(hold);
+                } else {
+                    hold.setQuantity(hold.getQuantity() - released);
+                    saved.add(hold);
+                }
+            }
+        });
+
+        // The rows are locked, so every conditional update applies
+        Long failed = productRepository.applyStockChanges(stockChanges, now);
+        if (failed != null) {
+            throw new IllegalStateException("Stock of locked product " + failed + " changed during cart update");
+        }
+        reservationRepository.deleteAll(deleted);
+        reservationRepository.saveAll(saved);
+        publishStockChanged(soldOutOrRestocked(available, stockChanges));
+        return null;
+    }
+
+    /**
+     * Turns the holds of a batch of checkouts into purchases. {@code purchases} maps each user,
+     * in arrival order, to the units they buy by product id. Every product involved is locked
+     * once for the whole batch, and its stock is handed out to the purchases in order: a
+     * user's held units count towards their purchase, any shortfall, such as after a hold
+     * expired, comes from stock, and holds beyond the purchase go back to stock. A purchase
+     * that does not fit is left untouched, holds included; the rest go through as one batch
+     * of stock updates. Must run inside the orders' transaction.
+     *
+     * @return for each user whose purchase did not fit, the id of the first product short of
+     *         stock
+     */
+    public Map<String, Long> commit(Map<String, Map<Long, Integer>> purchases) {
+        Map<String, Long> shortfalls = new HashMap<>();
+        if (purchases.isEmpty()) {
+            return shortfalls;
+        }
+        Set<Long> productIds = new TreeSet<>();
+        purchases.values().forEach(quantities -> productIds.addAll(quantities.keySet()));
+        productIds.addAll(reservationRepository.findProductIdsByUserIdIn(purchases.keySet()));
+        Map<Long, Integer> available = productRepository.lockStock(productIds);
+        Map<String, Map<Long, Integer>> held = new HashMap<>();
+        Set<Long> lateProductIds = new TreeSet<>();
+        for (StockReservation hold : reservationRepository.findAllForUpdateByUserIdIn(purchases.keySet())) {
+            held.computeIfAbsent(hold.getUserId(), user -> new TreeMap<>())
+                    .merge(hold.getProductId(), hold.getQuantity(), Integer::sum);
+            if (!available.containsKey(hold.getProductId())) {
+                lateProductIds.add(hold.getProductId());
+            }
+        }
+        // Holds placed since the product ids were read
+        available.putAll(productRepository.lockStock(lateProductIds));
+        Map<Long, Integer> before = new HashMap<>(available);
+
+        Map<Long, Integer> changes = new TreeMap<>();
+        Set<String> committed = new HashSet<>();
+        for (Map.Entry<String, Map<Long, Integer>> purchase : purchases.entrySet()) {
+            // What the user still needs from stock per product; negative gives held units back
+            Map<Long, Integer> needed = new TreeMap<>();
+            held.getOrDefault(purchase.getKey(), Map.of()).forEach((productId, quantity) ->
+                    needed.merge(productId, -quantity, Integer::sum));
+            purchase.getValue().forEach((productId, quantity) -> {
+                requirePositive(quantity);
+                needed.merge(productId, quantity, Integer::sum);
+            });
+
+            Long shortProductId = null;
+            for (Map.Entry<Long, Integer> need : needed.entrySet()) {
+                if (need.getValue() > available.getOrDefault(need.getKey(), 0)) {
+                    shortProductId = need.getKey();
+                    break;
+                }
+            }
+            if (shortProductId != null) {
+                shortfalls.put(purchase.getKey(), shortProductId);
+                continue;
+            }
+            needed.forEach((productId, quantity) -> {
+                available.merge(productId, -quantity, Integer::sum);
+                changes.merge(productId, -quantity, Integer::sum);
+            });
+            committed.add(purchase.getKey());
+        }
+
+        // The rows are locked, so every conditional update applies
+        Long failed = productRepository.applyStockChanges(changes, LocalDateTime.now());
+        if (failed != null) {
+            throw new IllegalStateException("Stock of locked product " + failed + " changed during checkout");
+        }
+        publishStockChanged(soldOutOrRestocked(before, changes));
+        committed.retainAll(held.keySet());
+        if (!committed.isEmpty()) {
+            reservationRepository.deleteByUserIdIn(committed);
+        }
+        return shortfalls;
+    }
+
+    /**
+     * Returns expired holds to stock.
+     *
+     * @return the number of holds released
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.inventory.sweep-interval:PT1M}")
+    public int releaseExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int released = 0;
+        List<StockReservation> expired;
+        do {
+            productRepository.lockStock(reservationRepository.findExpiredProductIds(now, PageRequest.of(0, SWEEP_BATCH_SIZE)));
+            expired = reservationRepository.findExpiredForUpdate(now, PageRequest.of(0, SWEEP_BATCH_SIZE));
+            releaseUnits(expired, null);
+            released += expired.size();
+            reservationRepository.flush();
+        } while (expired.size() == SWEEP_BATCH_SIZE);
+        if (released > 0) {
+            logger.debug("Returned {} expired stock reservations to stock", released);
+        }
+        return released;
+    }
+
+    /**
+     * Returns {@code quantity} units of each hold to stock, or the whole hold if null, and
+     * publishes the products that came back into stock.
+     */
+    private void releaseUnits(List<StockReservation> holds, Integer quantity) {
+        if (holds.isEmpty()) {
+            return;
+        }
+        Set<Long> productIds = new TreeSet<>();
+        holds.forEach(hold -> productIds.add(hold.getProductId()));
+        Map<Long, Integer> available = productRepository.lockStock(productIds);
+        Map<Long, Integer> changes = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockReservation hold : holds) {
+            int units = quantity == null ? hold.getQuantity() : quantity;
+            if (units > 0) {
+                productRepository.incrementStock(hold.getProductId(), units, now);
+                changes.merge(hold.getProductId(), units, Integer::sum);
+            }
+            if (units >= hold.getQuantity()) {
+                reservationRepository.delete(hold);
+            } else {
+                hold.setQuantity(hold.getQuantity() - units);
+                reservationRepository.save(hold);
+            }
+        }
+        publishStockChanged(soldOutOrRestocked(available, changes));
+    }
+
+    private void publishStockChanged(Collection<Long> productIds) {
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductStockChangedEvent(new HashSet<>(productIds)));
+        }
+    }
+
+    // Only these change which products listings show as available
+    private static Set<Long> soldOutOrRestocked(Map<Long, Integer> before, Map<Long, Integer> stockChanges) {
+        Set<Long> crossed = new HashSet<>();
+        stockChanges.forEach((productId, change) -> {
+            int level = before.getOrDefault(productId, 0);
+            if ((level == 0) != (level + change == 0)) {
+                crossed.add(productId);
+            }
+        });
+        return crossed;
+    }
+
+    private static void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheValueCodecTest {
+
+    private final CacheValueCodec codec = new CacheValueCodec();
+
+    @Test
+    void testPageOfProductsRoundTrips() {
+        // Given
+        Page<Product> page = new PageImpl<>(Arrays.asList(product(1L, "iPhone 15", "999.99"), product(2L, "Galaxy S24", "899.90")),
+                PageRequest.of(2, 2, Sort.by("price").descending()), 42);
+
+        // When
+        @SuppressWarnings("unchecked")
+        Page<Product> decoded = (Page<Product>) codec.decode(codec.encode(page));
+
+        // Then
+        assertEquals(42, decoded.getTotalElements());
+        assertEquals(page.getPageable(), decoded.getPageable());
+        assertEquals(2, decoded.getContent().size());
+        Product first = decoded.getContent().get(0);
+        assertEquals(1L, first.getId());
+        assertEquals("iPhone 15", first.getName());
+        assertEquals(new BigDecimal("999.99"), first.getPrice());
+        assertEquals(10, first.getStockQuantity());
+        assertEquals("Electronics", first.getCategory().getName());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30, 5, 123456789), first.getCreatedAt());
+        assertNull(first.getUpdatedAt());
+    }
+
+    @Test
+    void testCartItemsRoundTrip() {
+        // Given
+        CartItem item = new CartItem("user1", product(1L, "iPhone 15", "999.99"), 2);
+        item.setId(7L);
+
+        // When
+        @SuppressWarnings("unchecked")
+        List<CartItem> decoded = (List<CartItem>) codec.decode(codec.encode(Arrays.asList(item)));
+
+        // Then
+        assertEquals(1, decoded.size());
+        assertEquals(7L, decoded.get(0).getId());
+        assertEquals("user1", decoded.get(0).getUserId());
+        assertEquals(2, decoded.get(0).getQuantity());
+        assertEquals("iPhone 15", decoded.get(0).getProduct().getName());
+    }
+
+    @Test
+    void testNullValueAndKeysRoundTrip() {
+        assertNull(codec.decode(codec.encode(NullValue.INSTANCE)));
+        assertEquals(5L, codec.decode(codec.encode(5L)));
+        assertEquals(ProductQueryKey.search("phone", 0, 20), codec.decode(codec.encode(ProductQueryKey.search("phone", 0, 20))));
+    }
+
+    @Test
+    void testPriceRangeKeyAndProductStateRoundTrip() {
+        // Given
+        ProductQueryKey key = ProductQueryKey.priceRange(new BigDecimal("10.50"), null, 1, 20);
+        ProductState state = ProductState.of(product(3L, "Galaxy S24", "799.00"));
+
+        // When
+        Object decodedKey = codec.decode(codec.encode(key));
+        ProductState decodedState = (ProductState) codec.decode(codec.encode(state));
+
+        // Then
+        assertEquals(key, decodedKey);
+        assertEquals(3L, decodedState.getId());
+        assertEquals(new BigDecimal("799.00"), decodedState.getPrice());
+        assertEquals(1L, decodedState.getCategoryId());
+        assertTrue(decodedState.sortsLike(state, "price"));
+    }
+
+    @Test
+    void testUnsupportedValueIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(new Object()));
+        // Serializable is not enough: nothing read back from the store goes through Java deserialization
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(new Date()));
+    }
+
+    private static Product product(Long id, String name, String price) {
+        Category category = new Category("Electronics", "Electronic devices", "electronics.jpg");
+        category.setId(1L);
+        Product product = new Product(name, name + " description", new BigDecimal(price), "image.jpg", 10, category);
+        product.setId(id);
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 15, 10, 30, 5, 123456789));
+        return product;
+    }
+}
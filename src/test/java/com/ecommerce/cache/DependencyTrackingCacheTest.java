@@ -0,0 +1,181 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.PageImpl;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyTrackingCacheTest {
+
+    private DependencyTrackingCache cache;
+    private Category electronics;
+    private Category fashion;
+    private Product iphone;
+    private Product galaxy;
+    private Product sneakers;
+
+    private final ProductQueryKey electronicsPage0 = ProductQueryKey.category(1L, 0, 1);
+    private final ProductQueryKey electronicsPage1 = ProductQueryKey.category(1L, 1, 1);
+    private final ProductQueryKey fashionPage0 = ProductQueryKey.category(2L, 0, 1);
+    private final ProductQueryKey cheapPage0 = ProductQueryKey.priceRange(new BigDecimal("0"), new BigDecimal("200"), 0, 10);
+    private final ProductQueryKey iphoneSearch = ProductQueryKey.search("iPhone", 0, 10);
+    private final ProductQueryKey iphoneById = ProductQueryKey.byId(1L);
+
+    @BeforeEach
+    void setUp() {
+        electronics = category(1L, "Electronics");
+        fashion = category(2L, "Fashion");
+        galaxy = product(2L, "Galaxy S24", "899.99", 30, electronics);
+        iphone = product(1L, "iPhone 15", "999.99", 10, electronics);
+        sneakers = product(3L, "Air Max", "150.00", 100, fashion);
+
+        cache = new DependencyTrackingCache(new ConcurrentMapCache("products"));
+        cache.put(electronicsPage0, new PageImpl<>(Collections.singletonList(galaxy)));
+        cache.put(electronicsPage1, new PageImpl<>(Collections.singletonList(iphone)));
+        cache.put(fashionPage0, new PageImpl<>(Collections.singletonList(sneakers)));
+        cache.put(cheapPage0, new PageImpl<>(Collections.singletonList(sneakers)));
+        cache.put(iphoneSearch, new PageImpl<>(Collections.singletonList(iphone)));
+        cache.put(iphoneById, iphone);
+    }
+
+    @Test
+    void testStockChangeEvictsOnlyEntriesShowingTheProduct() {
+        // Given
+        ProductState before = ProductState.of(iphone);
+        iphone.setStockQuantity(3);
+
+        // When
+        cache.invalidate(before, ProductState.of(iphone));
+
+        // Then
+        assertNull(cache.get(iphoneById));
+        assertNull(cache.get(electronicsPage1));
+        assertNull(cache.get(iphoneSearch));
+        assertNotNull(cache.get(electronicsPage0));
+        assertNotNull(cache.get(fashionPage0));
+        assertNotNull(cache.get(cheapPage0));
+    }
+
+    @Test
+    void testSellingOutEvictsShowingEntriesAndAvailableListings() {
+        // Given
+        ProductQueryKey availablePage0 = ProductQueryKey.available(0, 10);
+        cache.put(availablePage0, new PageImpl<>(Collections.singletonList(sneakers)));
+
+        // When - a cart hold takes the last iPhone
+        cache.invalidateStock(Collections.singleton(1L));
+
+        // Then - the available listing no longer shows it
+        assertNull(cache.get(iphoneById));
+        assertNull(cache.get(electronicsPage1));
+        assertNull(cache.get(iphoneSearch));
+        assertNull(cache.get(availablePage0));
+        assertNotNull(cache.get(electronicsPage0));
+        assertNotNull(cache.get(cheapPage0));
+    }
+
+    @Test
+    void testRenameEvictsEveryPageOfTheCategory() {
+        // Given - a name change can move the product between name-sorted pages
+        ProductState before = ProductState.of(iphone);
+        iphone.setName("Apple iPhone 15");
+
+        // When
+        cache.invalidate(before, ProductState.of(iphone));
+
+        // Then
+        assertNull(cache.get(electronicsPage0));
+        assertNull(cache.get(electronicsPage1));
+        assertNotNull(cache.get(fashionPage0));
+        assertNotNull(cache.get(cheapPage0));
+    }
+
+    @Test
+    void testPriceDropIntoRangeEvictsThatRange() {
+        // Given
+        ProductState before = ProductState.of(galaxy);
+        galaxy.setPrice(new BigDecimal("199.00"));
+
+        // When
+        cache.invalidate(before, ProductState.of(galaxy));
+
+        // Then
+        assertNull(cache.get(cheapPage0));
+        assertNull(cache.get(electronicsPage0));
+        assertNotNull(cache.get(electronicsPage1));
+        assertNotNull(cache.get(fashionPage0));
+        assertNotNull(cache.get(iphoneSearch));
+    }
+
+    @Test
+    void testNewProductEvictsMatchingListingsOnly() {
+        // Given
+        Product boots = product(4L, "Hiking Boots", "120.00", 5, fashion);
+
+        // When
+        cache.invalidate(null, ProductState.of(boots));
+
+        // Then
+        assertNull(cache.get(fashionPage0));
+        assertNull(cache.get(cheapPage0));
+        assertNotNull(cache.get(electronicsPage0));
+        assertNotNull(cache.get(electronicsPage1));
+        assertNotNull(cache.get(iphoneSearch));
+    }
+
+    @Test
+    void testDeleteEvictsListingsThatContainedIt() {
+        // When
+        cache.invalidate(ProductState.of(sneakers), null);
+
+        // Then
+        assertNull(cache.get(fashionPage0));
+        assertNull(cache.get(cheapPage0));
+        assertNotNull(cache.get(electronicsPage0));
+    }
+
+    @Test
+    void testCategoryChangeEvictsItsProducts() {
+        // When
+        cache.invalidateCategory(1L);
+
+        // Then
+        assertNull(cache.get(electronicsPage0));
+        assertNull(cache.get(electronicsPage1));
+        assertNull(cache.get(iphoneSearch));
+        assertNull(cache.get(iphoneById));
+        assertNotNull(cache.get(fashionPage0));
+    }
+
+    @Test
+    void testEvictionKeepsIndexInSync() {
+        // When
+        cache.evict(electronicsPage0);
+        cache.clear();
+        cache.put(fashionPage0, new PageImpl<>(Arrays.asList(sneakers)));
+
+        // Then
+        assertEquals(1, cache.trackedKeyCount());
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", name.toLowerCase() + ".jpg");
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, String price, int stock, Category category) {
+        Product product = new Product(name, name + " description", new BigDecimal(price), "image.jpg", stock, category);
+        product.setId(id);
+        return product;
+    }
+}
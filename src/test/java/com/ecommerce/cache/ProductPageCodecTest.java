@@ -0,0 +1,136 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPageCodecTest {
+
+    private final CacheValueCodec codec = new CacheValueCodec();
+    private final Category electronics = category(1L, "Electronics");
+    private final Category fashion = category(2L, "Fashion");
+
+    @Test
+    void testColumnsRoundTripWithNulls() {
+        // Given
+        Product complete = product(10L, "iPhone 15", new BigDecimal("999.99"), electronics);
+        complete.setUpdatedAt(LocalDateTime.of(2024, 2, 1, 8, 0));
+        Product sparse = new Product();
+        sparse.setName("Draft");
+        List<Product> products = Arrays.asList(complete, sparse, product(3L, "Air Max", new BigDecimal("150.5"), fashion));
+
+        // When
+        @SuppressWarnings("unchecked")
+        List<Product> decoded = (List<Product>) codec.decode(codec.encode(products));
+
+        // Then
+        assertEquals(3, decoded.size());
+        assertEquals(10L, decoded.get(0).getId());
+        assertEquals(new BigDecimal("999.99"), decoded.get(0).getPrice());
+        assertEquals(LocalDateTime.of(2024, 2, 1, 8, 0), decoded.get(0).getUpdatedAt());
+        assertNull(decoded.get(1).getId());
+        assertNull(decoded.get(1).getPrice());
+        assertNull(decoded.get(1).getCategory());
+        assertNull(decoded.get(1).getStockQuantity());
+        assertEquals("Draft", decoded.get(1).getName());
+        assertEquals(3L, decoded.get(2).getId());
+        assertEquals(0, new BigDecimal("150.5").compareTo(decoded.get(2).getPrice()));
+        assertEquals("Fashion", decoded.get(2).getCategory().getName());
+    }
+
+    @Test
+    void testCategoriesAreInterned() {
+        // Given
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            products.add(product(id, "Phone " + id, new BigDecimal("100.00"), category(1L, "Electronics")));
+        }
+
+        // When
+        @SuppressWarnings("unchecked")
+        List<Product> decoded = (List<Product>) codec.decode(codec.encode(products));
+
+        // Then - one category instance, shared by every decoded product
+        Category first = decoded.get(0).getCategory();
+        assertTrue(decoded.stream().allMatch(product -> product.getCategory() == first));
+    }
+
+    @Test
+    void testPricesBeyondLongRangeFallBackToDecimals() {
+        // Given
+        BigDecimal huge = new BigDecimal("123456789012345678901234567890.12");
+        List<Product> products = Arrays.asList(product(1L, "Yacht", huge, electronics),
+                product(2L, "Pen", new BigDecimal("1.5"), electronics));
+
+        // When
+        @SuppressWarnings("unchecked")
+        List<Product> decoded = (List<Product>) codec.decode(codec.encode(products));
+
+        // Then
+        assertEquals(huge, decoded.get(0).getPrice());
+        assertEquals(new BigDecimal("1.5"), decoded.get(1).getPrice());
+    }
+
+    @Test
+    void testColumnarPageIsSmallerThanRowEncoding() {
+        // Given
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            products.add(product(id, "Phone " + id, new BigDecimal("100.00").add(BigDecimal.valueOf(id)), electronics));
+        }
+        Page<Product> page = new PageImpl<>(products, PageRequest.of(0, 20), 100);
+        List<Object> mixed = new ArrayList<>(products);
+        mixed.add("not a product");
+
+        // When - a list that is not all products falls back to row-by-row encoding
+        int columnar = codec.encode(page).length;
+        int rows = codec.encode(mixed).length;
+
+        // Then
+        assertTrue(columnar * 3 < rows * 2, "columnar " + columnar + " bytes, rows " + rows + " bytes");
+    }
+
+    @Test
+    void testCompactingCacheStoresBytesAndDecodesOnRead() {
+        // Given
+        ConcurrentMapCache store = new ConcurrentMapCache("products");
+        CompactingCache cache = new CompactingCache(store, codec);
+        Page<Product> page = new PageImpl<>(Arrays.asList(product(1L, "iPhone 15", new BigDecimal("999.99"), electronics)));
+
+        // When
+        cache.put("page", page);
+        Object loaded = cache.get("loaded", () -> page);
+
+        // Then
+        assertFalse(store.get("page").get() instanceof Page);
+        assertEquals("iPhone 15", ((Page<?>) cache.get("page").get()).getContent().stream()
+                .map(product -> ((Product) product).getName()).findFirst().orElse(null));
+        assertTrue(loaded instanceof Page);
+        assertEquals(1, ((Page<?>) loaded).getTotalElements());
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", name.toLowerCase() + ".jpg");
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, BigDecimal price, Category category) {
+        Product product = new Product(name, name + " description", price, "image.jpg", 10, category);
+        product.setId(id);
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 15, 10, 30).plusMinutes(id));
+        return product;
+    }
+}
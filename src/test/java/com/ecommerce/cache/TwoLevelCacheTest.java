@@ -0,0 +1,207 @@
+package com.ecommerce.cache;
+
+import com.ecommerce.catalog.ProductState;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCacheTest {
+
+    private InMemorySharedCacheStore store;
+    private TwoLevelCache nodeA;
+    private TwoLevelCache nodeB;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemorySharedCacheStore();
+        nodeA = node(store, "categories");
+        nodeB = node(store, "categories");
+    }
+
+    @Test
+    void testValueLoadedOnOneNodeIsServedToAnother() {
+        // Given
+        nodeA.get("all", () -> "from database");
+
+        // When
+        Object result = nodeB.get("all", () -> fail("should be served from the shared tier"));
+
+        // Then
+        assertEquals("from database", result);
+        assertEquals(1, nodeB.getSharedHits());
+    }
+
+    @Test
+    void testEvictDropsOtherNodesLocalCopy() {
+        // Given
+        nodeA.put(1L, "Electronics");
+        assertEquals("Electronics", nodeB.get(1L).get());
+
+        // When
+        nodeA.evict(1L);
+
+        // Then
+        assertNull(nodeB.get(1L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testPutReplacesOtherNodesLocalCopy() {
+        // Given
+        nodeA.put(1L, "Electronics");
+        nodeB.get(1L);
+
+        // When
+        nodeA.put(1L, "Gadgets");
+
+        // Then
+        assertEquals("Gadgets", nodeB.get(1L).get());
+    }
+
+    @Test
+    void testCachedNullIsShared() {
+        // Given
+        nodeA.get(99L, () -> null);
+
+        // When
+        Object result = nodeB.get(99L, () -> "loaded again");
+
+        // Then
+        assertNull(result);
+    }
+
+    @Test
+    void testProductChangeInvalidatesEveryNode() {
+        // Given - both nodes track a category page showing the product
+        DependencyTrackingCache productsA = trackedNode(store);
+        DependencyTrackingCache productsB = trackedNode(store);
+        Product iphone = product(1L, "iPhone 15", "999.99");
+        ProductQueryKey page = ProductQueryKey.category(1L, 0, 10);
+        Page<Product> cached = new PageImpl<>(Collections.singletonList(iphone));
+        productsA.get(page, () -> cached);
+        productsB.get(page, () -> fail("should be served from the shared tier"));
+        assertEquals(1, productsB.trackedKeyCount());
+
+        // When
+        ProductState before = ProductState.of(iphone);
+        iphone.setStockQuantity(0);
+        productsA.invalidate(before, ProductState.of(iphone));
+
+        // Then - neither tier serves the old page on either node
+        assertNull(productsB.get(page));
+        assertNull(productsA.get(page));
+        assertEquals(0, productsB.trackedKeyCount());
+    }
+
+    @Test
+    void testProductChangeKeepsUnrelatedSharedEntries() {
+        // Given - only the shared tier holds the entries when the change is made
+        DependencyTrackingCache productsA = trackedNode(store);
+        DependencyTrackingCache productsB = trackedNode(store);
+        Product iphone = product(1L, "iPhone 15", "999.99");
+        Product pixel = product(2L, "Pixel 8", "699.99");
+        ProductQueryKey iphonePage = ProductQueryKey.category(1L, 0, 10);
+        productsA.get(iphonePage, () -> new PageImpl<>(Collections.singletonList(iphone)));
+        productsA.get(ProductQueryKey.byId(2L), () -> pixel);
+
+        // When
+        ProductState before = ProductState.of(iphone);
+        iphone.setPrice(new BigDecimal("899.99"));
+        productsA.invalidate(before, ProductState.of(iphone));
+
+        // Then - the other node still reads the unrelated entry from the shared tier
+        Product shared = productsB.get(ProductQueryKey.byId(2L), () -> fail("should be served from the shared tier"));
+        assertEquals("Pixel 8", shared.getName());
+        assertEquals("reloaded", productsB.get(iphonePage, () -> "reloaded"));
+    }
+
+    @Test
+    void testUnreachableStoreFallsBackToLocal() {
+        // Given
+        TwoLevelCache cache = node(new FailingSharedCacheStore(), "categories");
+
+        // When
+        Object loaded = cache.get("all", () -> "from database");
+
+        // Then
+        assertEquals("from database", loaded);
+        assertEquals("from database", cache.get("all").get());
+    }
+
+    private static TwoLevelCache node(SharedCacheStore store, String name) {
+        SharedCacheCoordinator coordinator = new SharedCacheCoordinator(store, new CacheValueCodec(), "test:");
+        return coordinator.createCache(new CaffeineCache(name, Caffeine.newBuilder().build(), true), Duration.ofMinutes(5));
+    }
+
+    private static DependencyTrackingCache trackedNode(SharedCacheStore store) {
+        SharedCacheCoordinator coordinator = new SharedCacheCoordinator(store, new CacheValueCodec(), "test:");
+        TwoLevelCache twoLevel = coordinator.createCache(
+                new CaffeineCache("products", Caffeine.newBuilder().build(), true), Duration.ofMinutes(5));
+        DependencyTrackingCache tracker = new DependencyTrackingCache(twoLevel);
+        twoLevel.setListener(tracker);
+        coordinator.register(tracker);
+        return tracker;
+    }
+
+    private static Product product(Long id, String name, String price) {
+        Category category = new Category("Electronics", "Electronic devices", "electronics.jpg");
+        category.setId(1L);
+        Product product = new Product(name, name + " description", new BigDecimal(price), "image.jpg", 10, category);
+        product.setId(id);
+        return product;
+    }
+
+    private static final class FailingSharedCacheStore implements SharedCacheStore {
+
+        @Override
+        public byte[] get(String key) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public void put(String key, byte[] value, Duration ttl) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public void delete(String key) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public void deleteByPrefix(String prefix) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public long increment(String key) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public long counter(String key) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public void publish(byte[] message) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public void subscribe(Consumer<byte[]> listener) {
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.cart;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartStoreTest {
+
+    private final Map<String, Map<Long, Integer>> persisted = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CartStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CartStore(8, this::load);
+    }
+
+    @Test
+    void testLoadsEachCartOnceAndCoalescesChanges() {
+        // Given
+        persisted.put("user1", Map.of(1L, 2));
+
+        // When - several changes between two flushes
+        store.add("user1", 1L, 1);
+        store.add("user1", 2L, 5);
+        store.compareAndSet("user1", 2L, 5, 4);
+        store.remove("user1", 1L);
+        Map<String, Map<Long, Integer>> dirty = store.drainDirty();
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals(Map.of("user1", Map.of(2L, 4)), dirty);
+        assertTrue(store.drainDirty().isEmpty());
+    }
+
+    @Test
+    void testCompareAndSetRejectsStaleQuantity() {
+        // Given
+        store.add("user1", 1L, 2);
+
+        // When / Then
+        assertFalse(store.compareAndSet("user1", 1L, 3, 5));
+        assertEquals(Map.of(1L, 2), store.lines("user1"));
+        assertTrue(store.compareAndSet("user1", 1L, 2, 0));
+        assertTrue(store.lines("user1").isEmpty());
+    }
+
+    @Test
+    void testCompareAndSetReplacesTheWholeCart() {
+        // Given
+        store.add("user1", 1L, 2);
+        store.add("user1", 2L, 1);
+        Map<Long, Integer> read = store.lines("user1");
+        Map<Long, Integer> updated = new LinkedHashMap<>(Map.of(1L, 5, 3L, 1));
+
+        // When / Then - a change since the read makes the whole update fail
+        store.add("user1", 2L, 1);
+        assertFalse(store.compareAndSet("user1", read, updated));
+        assertEquals(Map.of(1L, 2, 2L, 2), store.lines("user1"));
+        assertTrue(store.compareAndSet("user1", store.lines("user1"), updated));
+        assertEquals(Map.of(1L, 5, 3L, 1), store.lines("user1"));
+    }
+
+    @Test
+    void testSubtractKeepsUnitsAddedSinceThePurchase() {
+        // Given - a purchase of two units of product 1 read from the cart
+        store.add("user1", 1L, 2);
+        store.add("user1", 2L, 1);
+        Map<Long, Integer> purchased = store.lines("user1");
+        store.add("user1", 1L, 3);
+        store.add("user1", 3L, 1);
+
+        // When
+        store.subtract("user1", purchased);
+
+        // Then
+        assertEquals(Map.of(1L, 3, 3L, 1), store.lines("user1"));
+    }
+
+    @Test
+    void testEvictsOnlyCleanIdleCarts() {
+        // Given
+        store.add("clean", 1L, 1);
+        store.drainDirty();
+        store.add("dirty", 1L, 1);
+
+        // When
+        int evicted = store.evictIdle(System.currentTimeMillis() + 1);
+
+        // Then
+        assertEquals(1, evicted);
+        assertEquals(1, store.residentCarts());
+        assertEquals(1, store.dirtyCarts());
+    }
+
+    @Test
+    void testFailedFlushCanPutCartsBack() {
+        // Given
+        store.add("user1", 1L, 1);
+        Map<String, Map<Long, Integer>> dirty = store.drainDirty();
+
+        // When
+        store.markDirty(dirty.keySet());
+
+        // Then
+        assertEquals(dirty, store.drainDirty());
+    }
+
+    @Test
+    void testConcurrentAddsAreNotLost() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - 8 threads adding to 16 carts
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    store.add("user" + (i % 16), (long) (i % 3), 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        int units = 0;
+        for (int u = 0; u < 16; u++) {
+            units += store.lines("user" + u).values().stream().mapToInt(Integer::intValue).sum();
+        }
+        assertEquals(8000, units);
+        assertEquals(16, store.drainDirty().size());
+    }
+
+    @Test
+    void testCountsHitsAndMisses() {
+        // Given
+        persisted.put("user1", Map.of(1L, 2));
+
+        // When - two carts loaded, then both read from memory
+        store.add("user1", 2L, 1);
+        store.lines(List.of("user1", "user2"));
+        store.lines("user2");
+
+        // Then
+        assertEquals(2, store.getMisses());
+        assertEquals(2, store.getHits());
+        assertEquals(2, loads.get());
+    }
+
+    private Map<String, Map<Long, Integer>> load(Collection<String> userIds) {
+        loads.incrementAndGet();
+        Map<String, Map<Long, Integer>> carts = new HashMap<>();
+        for (String userId : userIds) {
+            if (persisted.containsKey(userId)) {
+                carts.put(userId, persisted.get(userId));
+            }
+        }
+        return carts;
+    }
+}
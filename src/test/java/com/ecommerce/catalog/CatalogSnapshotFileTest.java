@@ -0,0 +1,136 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private ProductCatalog source;
+
+    @BeforeEach
+    void setUp() {
+        Category electronics = category(1L, "Electronics");
+        Category fashion = category(2L, "Fashion");
+
+        source = new ProductCatalog();
+        source.load(Arrays.asList(electronics, fashion), Arrays.asList(
+                product(1L, "iPhone 15", "Latest iPhone with a titanium frame", "999.99", electronics),
+                product(2L, "Nike Air Max", "Running shoes", "150.00", fashion),
+                product(3L, "MacBook Pro", "Laptop for professionals", "2499.99", electronics)));
+        source.recordDemand(2L, 40L);
+        source.foldDemand();
+    }
+
+    @Test
+    void testRoundTripIntoHeapStore() throws IOException {
+        // Given
+        Path file = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(source.snapshot(), file);
+
+        // When
+        ProductCatalog restored = new ProductCatalog();
+        restored.restore(file);
+
+        // Then
+        assertSameCatalog(source.snapshot(), restored.snapshot());
+        assertTrue(restored.snapshot().products() instanceof HeapProductStore);
+    }
+
+    @Test
+    void testRoundTripIntoOffHeapStoreKeepsAcceptingWrites() throws IOException {
+        // Given
+        Path file = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(source.snapshot(), file);
+
+        // When
+        ProductCatalog restored = new ProductCatalog(ProductStore.offHeap(4096));
+        restored.restore(file);
+        CatalogSnapshot mapped = restored.snapshot();
+        restored.saveProduct(product(4L, "Pixel 9", "Android phone", "799.00", mapped.getCategory(1L).orElseThrow()));
+        restored.removeProduct(3L);
+
+        // Then
+        assertSameCatalog(source.snapshot(), mapped);
+        assertTrue(mapped.products() instanceof OffHeapProductStore);
+        assertEquals(Arrays.asList(1L, 4L), ids(restored.snapshot().getProductsByCategory(1L)));
+        assertEquals(Arrays.asList(4L), ids(restored.snapshot().search("pixel")));
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotSnapshots() throws IOException {
+        // Given
+        Path garbage = directory.resolve("garbage.snapshot");
+        Files.write(garbage, new byte[100]);
+        Path truncated = directory.resolve("truncated.snapshot");
+        CatalogSnapshotFile.write(source.snapshot(), truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+
+        // When / Then
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.read(garbage, ProductStore.onHeap()));
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.read(truncated, ProductStore.onHeap()));
+    }
+
+    private static void assertSameCatalog(CatalogSnapshot expected, CatalogSnapshot actual) {
+        assertEquals(expected.version(), actual.version());
+        assertEquals(ids(expected.getProducts()), ids(actual.getProducts()));
+        for (Product product : expected.getProducts()) {
+            Product copy = actual.getProduct(product.getId()).orElseThrow();
+            assertEquals(product.getName(), copy.getName());
+            assertEquals(product.getDescription(), copy.getDescription());
+            assertEquals(product.getPrice(), copy.getPrice());
+            assertEquals(product.getStockQuantity(), copy.getStockQuantity());
+            assertEquals(product.getUpdatedAt(), copy.getUpdatedAt());
+            assertEquals(product.getCategory().getName(), copy.getCategory().getName());
+        }
+        assertEquals(Arrays.asList(1L, 3L), ids(actual.getProductsByCategory(1L)));
+        assertEquals(Arrays.asList("Electronics", "Fashion"),
+                actual.getCategories().stream().map(Category::getName).toList());
+        assertEquals(ids(expected.search("titan")), ids(actual.search("titan")));
+        assertEquals(ids(expected.search("pro")), ids(actual.search("pro")));
+        assertEquals(texts(expected.suggest("n", 10)), texts(actual.suggest("n", 10)));
+        assertEquals(texts(expected.suggest("e", 10)), texts(actual.suggest("e", 10)));
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        List<Long> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).toList();
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", null);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, String description, String price, Category category) {
+        Product product = new Product(name, description, new BigDecimal(price), null, 10, category);
+        product.setId(id);
+        product.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(id));
+        return product;
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapProductStoreTest {
+
+    private ProductCatalog catalog;
+    private Category electronics;
+    private Category fashion;
+
+    @BeforeEach
+    void setUp() {
+        electronics = category(1L, "Electronics");
+        fashion = category(2L, "Fashion");
+
+        catalog = new ProductCatalog(ProductStore.offHeap(4096));
+        catalog.load(Arrays.asList(electronics, fashion), Arrays.asList(
+                product(2L, "Nike Air Max", "19.50", fashion),
+                product(1L, "iPhone 15", "999.99", electronics)));
+    }
+
+    @Test
+    void testRecordsRoundTripEveryField() {
+        // Given
+        Product original = product(3L, "Café crème — 咖啡", "12.345", electronics);
+        original.setDescription(null);
+        original.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456789));
+        original.setUpdatedAt(null);
+
+        // When
+        catalog.saveProduct(original);
+        Product stored = catalog.snapshot().getProduct(3L).orElseThrow();
+
+        // Then
+        assertTrue(catalog.snapshot().products() instanceof OffHeapProductStore);
+        assertEquals(3L, stored.getId());
+        assertEquals("Café crème — 咖啡", stored.getName());
+        assertNull(stored.getDescription());
+        assertEquals(new BigDecimal("12.345"), stored.getPrice());
+        assertEquals(original.getImageUrl(), stored.getImageUrl());
+        assertEquals(7, stored.getStockQuantity());
+        assertSame(electronics, stored.getCategory());
+        assertEquals(original.getCreatedAt(), stored.getCreatedAt());
+        assertNull(stored.getUpdatedAt());
+    }
+
+    @Test
+    void testOlderSnapshotsKeepTheirRecords() {
+        // Given
+        CatalogSnapshot before = catalog.snapshot();
+        Product before1 = before.getProduct(1L).orElseThrow();
+
+        // When
+        catalog.saveProduct(product(1L, "iPhone 16", "1099.00", fashion));
+        CatalogSnapshot after = catalog.snapshot();
+
+        // Then
+        assertEquals("iPhone 15", before1.getName());
+        assertEquals("iPhone 15", before.getProduct(1L).orElseThrow().getName());
+        assertEquals("iPhone 16", after.getProduct(1L).orElseThrow().getName());
+        assertEquals(Arrays.asList(1L, 2L), ids(after.getProductsByCategory(2L)));
+        assertTrue(after.getProductsByCategory(1L).isEmpty());
+        assertEquals(Arrays.asList(1L), ids(before.getProductsByCategory(1L)));
+    }
+
+    @Test
+    void testCompactionKeepsOnlyLiveRecords() {
+        // Given
+        OffHeapProductStore store = (OffHeapProductStore) ProductStore.offHeap(64 * 1024);
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            products.add(product(id, "Product " + id, "10.00", electronics));
+        }
+        ProductStore current = store.load(products);
+
+        // When - rewrite every product many times over
+        for (int round = 0; round < 200; round++) {
+            for (long id = 1; id <= 100; id++) {
+                current = current.with(product(id, "Product " + id + " v" + round, "10.00", electronics));
+            }
+        }
+        current = current.without(100L);
+
+        // Then
+        OffHeapProductStore compacted = (OffHeapProductStore) current;
+        assertEquals(99, compacted.size());
+        assertTrue(compacted.allocatedBytes() <= Math.max(1 << 20, compacted.liveBytes() * 2));
+        assertEquals("Product 42 v199", compacted.get(42L, new LongObjectMap<>()).getName());
+        assertNull(compacted.get(100L, new LongObjectMap<>()));
+    }
+
+    @Test
+    void testReadsAreDetachedCopies() {
+        // Given
+        Product copy = catalog.snapshot().getProduct(2L).orElseThrow();
+
+        // When
+        copy.setStockQuantity(0);
+
+        // Then
+        OffHeapProduct view = ((OffHeapProductStore) catalog.snapshot().products()).view(2L, new LongObjectMap<>());
+        assertEquals(7, view.getStockQuantity());
+        assertEquals(7, catalog.snapshot().getProduct(2L).orElseThrow().getStockQuantity());
+        assertEquals("Nike Air Max", copy.getName());
+        assertEquals(new BigDecimal("19.50"), copy.getPrice());
+    }
+
+    @Test
+    void testGrowingIndexLeavesOlderStoresIntact() {
+        // Given
+        ProductStore current = ProductStore.offHeap(64 * 1024);
+        ProductStore early = null;
+
+        // When - enough single writes for the address index to re-chunk several times
+        for (long id = 1; id <= 5000; id++) {
+            current = current.with(product(id, "Product " + id, "10.00", electronics));
+            if (id == 100) {
+                early = current;
+            }
+        }
+        current = current.without(50L);
+
+        // Then
+        assertEquals(100, early.size());
+        assertTrue(early.contains(50L));
+        assertFalse(early.contains(101L));
+        assertEquals(4999, current.size());
+        assertFalse(current.contains(50L));
+        assertEquals("Product 4321", current.get(4321L, new LongObjectMap<>()).getName());
+        assertEquals("Product 50", early.get(50L, new LongObjectMap<>()).getName());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        List<Long> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", null);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, String price, Category category) {
+        Product product = new Product(name, name + " description", new BigDecimal(price),
+                "https://example.com/" + id + ".jpg", 7, category);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,177 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogTest {
+
+    private ProductCatalog catalog;
+    private Category electronics;
+    private Category fashion;
+
+    @BeforeEach
+    void setUp() {
+        electronics = category(1L, "Electronics");
+        fashion = category(2L, "Fashion");
+
+        catalog = new ProductCatalog();
+        catalog.load(Arrays.asList(electronics, fashion), Arrays.asList(
+                product(3L, "MacBook Pro", electronics),
+                product(1L, "iPhone 15", electronics),
+                product(2L, "Nike Air Max", fashion)));
+    }
+
+    @Test
+    void testLookupById() {
+        // When
+        CatalogSnapshot snapshot = catalog.snapshot();
+
+        // Then
+        assertEquals("iPhone 15", snapshot.getProduct(1L).orElseThrow().getName());
+        assertFalse(snapshot.getProduct(99L).isPresent());
+        assertEquals("Fashion", snapshot.getCategory(2L).orElseThrow().getName());
+    }
+
+    @Test
+    void testListingsAreOrderedById() {
+        // When
+        CatalogSnapshot snapshot = catalog.snapshot();
+
+        // Then
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(snapshot.getProducts()));
+        assertEquals(Arrays.asList(1L, 3L), ids(snapshot.getProductsByCategory(1L)));
+        assertEquals(Arrays.asList(2L), ids(snapshot.getProductsByCategory(2L)));
+        assertTrue(snapshot.getProductsByCategory(42L).isEmpty());
+    }
+
+    @Test
+    void testSaveProductMovesCategoryPosting() {
+        // Given
+        Product iphone = catalog.snapshot().getProduct(1L).orElseThrow();
+
+        // When - the entity is mutated in place, as JPA-managed entities are
+        iphone.setCategory(fashion);
+        catalog.saveProduct(iphone);
+
+        // Then
+        CatalogSnapshot snapshot = catalog.snapshot();
+        assertEquals(Arrays.asList(3L), ids(snapshot.getProductsByCategory(1L)));
+        assertEquals(Arrays.asList(1L, 2L), ids(snapshot.getProductsByCategory(2L)));
+    }
+
+    @Test
+    void testRemoveProduct() {
+        // When
+        catalog.removeProduct(2L);
+
+        // Then
+        CatalogSnapshot snapshot = catalog.snapshot();
+        assertFalse(snapshot.getProduct(2L).isPresent());
+        assertEquals(Arrays.asList(1L, 3L), ids(snapshot.getProducts()));
+        assertTrue(snapshot.getProductsByCategory(2L).isEmpty());
+    }
+
+    @Test
+    void testRemoveProductsAsOneSnapshot() {
+        // Given
+        long version = catalog.snapshot().version();
+
+        // When - 99 is not in the catalog and 1 is listed twice
+        catalog.removeProducts(new long[] {3L, 99L, 1L, 1L});
+
+        // Then
+        CatalogSnapshot snapshot = catalog.snapshot();
+        assertEquals(version + 1, snapshot.version());
+        assertEquals(Arrays.asList(2L), ids(snapshot.getProducts()));
+        assertTrue(snapshot.getProductsByCategory(1L).isEmpty());
+        assertEquals(Arrays.asList(2L), ids(snapshot.getProductsByCategory(2L)));
+    }
+
+    @Test
+    void testSnapshotIsIsolatedFromLaterWrites() {
+        // Given
+        CatalogSnapshot before = catalog.snapshot();
+
+        // When
+        catalog.saveProduct(product(4L, "Galaxy S24", electronics));
+        catalog.removeProduct(1L);
+
+        // Then
+        assertEquals(3, before.productCount());
+        assertTrue(before.getProduct(1L).isPresent());
+        assertFalse(before.getProduct(4L).isPresent());
+        assertEquals(Arrays.asList(1L, 3L), ids(before.getProductsByCategory(1L)));
+        assertEquals(Arrays.asList(3L, 4L), ids(catalog.snapshot().getProductsByCategory(1L)));
+        assertTrue(catalog.snapshot().version() > before.version());
+    }
+
+    @Test
+    void testDemandIsFoldedAsOneSnapshot() {
+        // Given
+        long version = catalog.snapshot().version();
+
+        // When - counting demand leaves the snapshot alone
+        catalog.recordDemand(3L, 5);
+        catalog.recordDemand(2L, 1);
+        catalog.recordDemand(3L, 2);
+        assertEquals(version, catalog.snapshot().version());
+        catalog.foldDemand();
+
+        // Then
+        CatalogSnapshot snapshot = catalog.snapshot();
+        assertEquals(version + 1, snapshot.version());
+        assertEquals(7, snapshot.suggest("macbook", 1).get(0).popularity());
+        catalog.foldDemand();
+        assertSame(snapshot, catalog.snapshot());
+    }
+
+    @Test
+    void testLargeCatalogSurvivesChurn() {
+        // Given
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            products.add(product(id, "Product " + id, id % 2 == 0 ? electronics : fashion));
+        }
+        catalog.load(Arrays.asList(electronics, fashion), products);
+
+        // When
+        for (long id = 1; id <= 5000; id += 3) {
+            catalog.removeProduct(id);
+        }
+
+        // Then
+        CatalogSnapshot snapshot = catalog.snapshot();
+        for (long id = 1; id <= 5000; id++) {
+            assertEquals((id - 1) % 3 != 0, snapshot.getProduct(id).isPresent(), "product " + id);
+        }
+        assertEquals(snapshot.productCount(),
+                snapshot.getProductsByCategory(1L).size() + snapshot.getProductsByCategory(2L).size());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        List<Long> ids = new ArrayList<>();
+        products.forEach(product -> ids.add(product.getId()));
+        return ids;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", name.toLowerCase() + ".jpg");
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, Category category) {
+        Product product = new Product(name, name + " description", new BigDecimal("9.99"), "image.jpg", 10, category);
+        product.setId(id);
+        return product;
+    }
+}
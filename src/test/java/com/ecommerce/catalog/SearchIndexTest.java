@@ -0,0 +1,145 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private Category category;
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category("Electronics", "Electronic devices", "electronics.jpg");
+        category.setId(1L);
+
+        index = SearchIndex.build(Arrays.asList(
+                product(1L, "iPhone 15 Pro", "Latest iPhone with advanced camera system"),
+                product(2L, "Samsung Galaxy S24", "Premium Android smartphone with AI features"),
+                product(3L, "Sony WH-1000XM5", "Industry-leading noise canceling headphones"),
+                product(4L, "Phone Case", "Protective case for your iPhone")));
+    }
+
+    @Test
+    void testTokenize() {
+        assertEquals(Arrays.asList("sony", "wh", "1000xm5"), SearchIndex.tokenize("Sony WH-1000XM5"));
+        assertTrue(SearchIndex.tokenize("  --  ").isEmpty());
+    }
+
+    @Test
+    void testExactNameMatchRanksFirst() {
+        // When
+        long[] hits = index.search("iphone");
+
+        // Then - the name match outweighs the description mention
+        assertArrayEquals(new long[] {1L, 4L}, hits);
+    }
+
+    @Test
+    void testPrefixMatch() {
+        assertArrayEquals(new long[] {2L}, index.search("sams"));
+    }
+
+    @Test
+    void testInfixMatchThroughTrigrams() {
+        // When
+        long[] hits = index.search("phone");
+
+        // Then - exact "phone" first, then "headphones"/"smartphone"/"iphone" as infix hits
+        assertEquals(4L, hits[0]);
+        assertEquals(4, hits.length);
+    }
+
+    @Test
+    void testAllTokensMustMatch() {
+        assertArrayEquals(new long[] {3L}, index.search("noise headphones"));
+        assertEquals(0, index.search("noise camera").length);
+    }
+
+    @Test
+    void testIncrementalUpdateAndRemoval() {
+        // When
+        SearchIndex updated = index.withDocument(product(2L, "Samsung Galaxy Tab", "Android tablet"))
+                .withoutDocument(3L);
+
+        // Then
+        assertEquals(0, updated.search("smartphone").length);
+        assertArrayEquals(new long[] {2L}, updated.search("tablet"));
+        assertEquals(0, updated.search("headphones").length);
+        assertEquals(3, updated.documentCount());
+        // the original index is untouched
+        assertArrayEquals(new long[] {2L}, index.search("smartphone"));
+        assertArrayEquals(new long[] {3L}, index.search("headphones"));
+    }
+
+    @Test
+    void testBulkUpdatesKeepDictionaryConsistent() {
+        // Given
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            products.add(product(id, "Widget model" + id, "Gadget number " + id));
+        }
+        SearchIndex large = SearchIndex.build(products);
+
+        // When
+        for (long id = 1; id <= 200; id += 2) {
+            large = large.withoutDocument(id);
+        }
+
+        // Then
+        assertEquals(100, large.search("widget").length);
+        assertArrayEquals(new long[] {42L}, large.search("model42"));
+        assertEquals(0, large.search("model41").length);
+    }
+
+    @Test
+    void testBoundedSearchKeepsBestHitsInOrder() {
+        // Given - scores tie on the name, so the description count decides
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            products.add(product(id, "Widget " + id, "widget ".repeat((int) (id % 7))));
+        }
+        SearchIndex large = SearchIndex.build(products);
+        long[] all = large.search("widget");
+
+        // When
+        SearchIndex.TopHits top = large.search("widget", 12);
+
+        // Then
+        assertEquals(50, top.total());
+        assertArrayEquals(Arrays.copyOf(all, 12), top.ids());
+        assertArrayEquals(all, large.search("widget", 500).ids());
+        assertEquals(0, large.search("widget", 0).ids().length);
+        assertEquals(0, large.search("gizmo", 10).total());
+    }
+
+    @Test
+    void testEveryMatchingTermCountsTowardsTheTotal() {
+        // Given - a distinct name term per product, all sharing one prefix and one infix
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            products.add(product(id, "Model" + id, "Accessory"));
+        }
+        SearchIndex large = SearchIndex.build(products);
+
+        // When / Then - no expansion limit cuts the count short
+        assertEquals(1000, large.search("mod", 10).total());
+        assertEquals(1000, large.search("ode", 10).total());
+        assertEquals(1000, large.search("m", 10).total());
+    }
+
+    private Product product(Long id, String name, String description) {
+        Product product = new Product(name, description, new BigDecimal("9.99"), "image.jpg", 10, category);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ecommerce.catalog;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private Category electronics;
+    private Category fashion;
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        electronics = category(1L, "Electronics");
+        fashion = category(2L, "Fashion");
+
+        index = SuggestionIndex.build(Arrays.asList(electronics, fashion), Arrays.asList(
+                product(1L, "iPhone 15 Pro", 50, electronics),
+                product(2L, "iPad Air", 30, electronics),
+                product(3L, "Nike Air Max 270", 100, fashion),
+                product(4L, "AirPods Pro", 0, electronics)));
+    }
+
+    @Test
+    void testPrefixOfFirstWord() {
+        assertEquals(Arrays.asList("iPad Air", "iPhone 15 Pro"), texts(index.suggest("ip", 10)));
+        assertEquals(Arrays.asList("Electronics"), texts(index.suggest("elec", 10)));
+    }
+
+    @Test
+    void testPrefixOfLaterWord() {
+        // When
+        List<Suggestion> suggestions = index.suggest("max", 10);
+
+        // Then
+        assertEquals(1, suggestions.size());
+        assertEquals(3L, suggestions.get(0).getId());
+        assertEquals(Suggestion.Type.PRODUCT, suggestions.get(0).getType());
+    }
+
+    @Test
+    void testOutOfStockRanksLast() {
+        assertEquals(Arrays.asList("iPad Air", "Nike Air Max 270", "AirPods Pro"), texts(index.suggest("air", 10)));
+    }
+
+    @Test
+    void testTrailingSpaceEndsTheWord() {
+        assertEquals(Arrays.asList("iPad Air", "Nike Air Max 270"), texts(index.suggest("air ", 10)));
+        assertTrue(index.suggest("zzz", 10).isEmpty());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testDemandBoostsRanking() {
+        // When
+        LongLongMap demand = new LongLongMap();
+        demand.put(3L, 25);
+        SuggestionIndex updated = index.withDemand(demand);
+
+        // Then
+        assertEquals("Nike Air Max 270", updated.suggest("air", 1).get(0).getText());
+        assertEquals("iPad Air", index.suggest("air", 1).get(0).getText());
+    }
+
+    @Test
+    void testRenameAndRemoveProduct() {
+        // Given
+        Product renamed = product(2L, "Galaxy Tab", 30, electronics);
+
+        // When
+        SuggestionIndex updated = index.withProduct(renamed).withoutProduct(1L);
+
+        // Then
+        assertTrue(updated.suggest("ip", 10).isEmpty());
+        assertEquals(Arrays.asList("Galaxy Tab"), texts(updated.suggest("tab", 10)));
+        assertEquals(Arrays.asList("Nike Air Max 270", "AirPods Pro"), texts(updated.suggest("air", 10)));
+    }
+
+    @Test
+    void testIncrementalInsertsMatchBulkBuild() {
+        // Given
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            products.add(product(id, "Item " + id + " edition", (int) (id % 7), electronics));
+        }
+        SuggestionIndex bulk = SuggestionIndex.build(List.of(electronics), products);
+
+        // When
+        SuggestionIndex incremental = SuggestionIndex.build(List.of(electronics), List.of());
+        for (Product product : products) {
+            incremental = incremental.withProduct(product);
+        }
+
+        // Then
+        for (String prefix : Arrays.asList("item 1", "item 29", "edit", "e", "12")) {
+            assertEquals(texts(bulk.suggest(prefix, 10)), texts(incremental.suggest(prefix, 10)), prefix);
+        }
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        List<String> texts = new ArrayList<>();
+        suggestions.forEach(suggestion -> texts.add(suggestion.getText()));
+        return texts;
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, name + " description", name.toLowerCase() + ".jpg");
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, String name, int stock, Category category) {
+        Product product = new Product(name, name + " description", new BigDecimal("9.99"), "image.jpg", stock, category);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,174 @@
+package com.ecommerce.checkout;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutQueueTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Mock
+    private OrderService orderService;
+
+    private MeterRegistry registry;
+    private CheckoutQueue queue;
+    private final AtomicLong orderIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void testQueuedCheckoutsAreProcessedInOneBatch() throws Exception {
+        // Given - five checkouts waiting before the worker starts
+        queue = new CheckoutQueue(orderService, 10, 10, Duration.ofMinutes(1), registry);
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> complete(invocation.getArgument(0)));
+        List<CheckoutStatus> accepted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            accepted.add(queue.submit("user" + i, "1 Main St"));
+        }
+        assertEquals(CheckoutStatus.State.QUEUED, queue.status(accepted.get(0).getToken()).getState());
+
+        // When
+        queue.start();
+
+        // Then
+        for (CheckoutStatus status : accepted) {
+            CheckoutStatus done = queue.awaitStatus(status.getToken(), WAIT).get();
+            assertEquals(CheckoutStatus.State.COMPLETED, done.getState());
+            assertNotNull(done.getOrderId());
+        }
+        verify(orderService, times(1)).createOrders(argThat(requests -> requests.size() == 5));
+        assertEquals(5.0, registry.get("checkout.orders").tag("result", "completed").counter().count());
+        assertEquals(5.0, registry.get("checkout.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testFullQueueRejectsCheckouts() {
+        // Given
+        queue = new CheckoutQueue(orderService, 2, 10, Duration.ofMinutes(1), registry);
+
+        // When
+        CheckoutStatus first = queue.submit("user1", "1 Main St");
+        CheckoutStatus second = queue.submit("user2", "1 Main St");
+        CheckoutStatus third = queue.submit("user3", "1 Main St");
+
+        // Then
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(third);
+        assertEquals(2.0, registry.get("checkout.requests").tag("result", "accepted").counter().count());
+        assertEquals(1.0, registry.get("checkout.requests").tag("result", "rejected").counter().count());
+        assertEquals(0.0, registry.get("checkout.queue.remaining").gauge().value());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedOneByOne() throws Exception {
+        // Given - the batch fails, and so does one of its checkouts on its own
+        queue = new CheckoutQueue(orderService, 10, 10, Duration.ofMinutes(1), registry);
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+            List<CheckoutRequest> requests = invocation.getArgument(0);
+            if (requests.size() > 1 || requests.get(0).getUserId().equals("bad")) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            return complete(requests);
+        });
+        CheckoutStatus good = queue.submit("good", "1 Main St");
+        CheckoutStatus bad = queue.submit("bad", "1 Main St");
+
+        // When
+        queue.start();
+
+        // Then
+        assertEquals(CheckoutStatus.State.COMPLETED, queue.awaitStatus(good.getToken(), WAIT).get().getState());
+        CheckoutStatus failed = queue.awaitStatus(bad.getToken(), WAIT).get();
+        assertEquals(CheckoutStatus.State.FAILED, failed.getState());
+        assertEquals("Database unavailable", failed.getMessage());
+    }
+
+    @Test
+    void testBatchThatFailsOutsideTheOrderServiceFailsEveryCheckout() throws Exception {
+        // Given - results that do not line up with the requests
+        queue = new CheckoutQueue(orderService, 10, 10, Duration.ofMinutes(1), registry);
+        when(orderService.createOrders(anyList())).thenAnswer(invocation -> {
+            List<CheckoutRequest> requests = invocation.getArgument(0);
+            return complete(requests.subList(0, 1));
+        });
+        CheckoutStatus first = queue.submit("user1", "1 Main St");
+        CheckoutStatus second = queue.submit("user2", "1 Main St");
+
+        // When
+        queue.start();
+
+        // Then - the result that was recorded stands, the other checkout fails instead of hanging
+        assertEquals(CheckoutStatus.State.COMPLETED, queue.awaitStatus(first.getToken(), WAIT).get().getState());
+        assertEquals(CheckoutStatus.State.FAILED, queue.awaitStatus(second.getToken(), WAIT).get().getState());
+        assertEquals(1.0, registry.get("checkout.orders").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void testStoppedQueueRejectsCheckouts() throws Exception {
+        // Given
+        queue = new CheckoutQueue(orderService, 10, 10, Duration.ofMinutes(1), registry);
+        queue.start();
+
+        // When
+        queue.stop();
+
+        // Then
+        assertNull(queue.submit("user1", "1 Main St"));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testAwaitStatusReturnsCurrentStatusOnTimeout() throws Exception {
+        // Given - no worker running
+        queue = new CheckoutQueue(orderService, 10, 10, Duration.ofMinutes(1), registry);
+        CheckoutStatus status = queue.submit("user1", "1 Main St");
+
+        // When
+        CheckoutStatus polled = queue.awaitStatus(status.getToken(), Duration.ofMillis(50)).get();
+
+        // Then
+        assertEquals(CheckoutStatus.State.QUEUED, polled.getState());
+        assertNull(queue.awaitStatus("unknown", Duration.ofMillis(50)).get());
+    }
+
+    private List<CheckoutResult> complete(List<CheckoutRequest> requests) {
+        List<CheckoutResult> results = new ArrayList<>();
+        for (CheckoutRequest request : requests) {
+            Order order = new Order(request.getUserId(), new BigDecimal("10.00"), Order.OrderStatus.PENDING,
+                    request.getShippingAddress());
+            order.setId(orderIds.incrementAndGet());
+            results.add(CheckoutResult.completed(order));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ecommerce.config;
+
+import com.ecommerce.cache.CacheReloader;
+import com.ecommerce.cache.SharedCacheStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        // Given
+        Cache cache = cacheManager(policy(null), new StaticListableBeanFactory()).getCache("categories");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return cache.get("all", () -> {
+                    loads.incrementAndGet();
+                    Thread.sleep(50);
+                    return "loaded";
+                });
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<Object> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testStaleValueIsServedWhileRefreshRuns() throws Exception {
+        // Given
+        AtomicInteger version = new AtomicInteger(1);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("reloader", new CacheReloader() {
+            @Override
+            public String getCacheName() {
+                return "categories";
+            }
+
+            @Override
+            public Object reload(Object key) {
+                return "v" + version.get();
+            }
+        });
+        Cache cache = cacheManager(policy(Duration.ofMillis(20)), beans).getCache("categories");
+        cache.put("all", "v1");
+        version.set(2);
+        Thread.sleep(40);
+
+        // When - the first read past the refresh interval still gets the old value
+        Object stale = cache.get("all").get();
+
+        // Then - and the reload lands in the background
+        assertEquals("v1", stale);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"v2".equals(cache.get("all").get()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("v2", cache.get("all").get());
+    }
+
+    @Test
+    void testPlainLookupsDoNotRunTheReloader() {
+        // Given - refresh turns the native cache into a loading cache
+        AtomicInteger reloads = new AtomicInteger();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("reloader", new CacheReloader() {
+            @Override
+            public String getCacheName() {
+                return "categories";
+            }
+
+            @Override
+            public Object reload(Object key) {
+                reloads.incrementAndGet();
+                return "reloaded";
+            }
+        });
+        Cache cache = cacheManager(policy(Duration.ofMinutes(1)), beans).getCache("categories");
+
+        // When
+        Cache.ValueWrapper missed = cache.get("all");
+        Cache.ValueWrapper absent = cache.putIfAbsent("all", "put");
+
+        // Then
+        assertNull(missed);
+        assertNull(absent);
+        assertEquals("put", cache.get("all").get());
+        assertEquals(0, reloads.get());
+    }
+
+    private static CachePolicyProperties.Policy policy(Duration refreshAfterWrite) {
+        CachePolicyProperties.Policy policy = new CachePolicyProperties.Policy();
+        policy.setMaximumSize(10);
+        policy.setExpireAfterWrite(Duration.ofMinutes(5));
+        policy.setRefreshAfterWrite(refreshAfterWrite);
+        return policy;
+    }
+
+    private static CacheManager cacheManager(CachePolicyProperties.Policy policy, StaticListableBeanFactory beans) {
+        CachePolicyProperties properties = new CachePolicyProperties();
+        properties.getPolicies().put("categories", policy);
+        CacheManager cacheManager = new CacheConfig().cacheManager(properties, beans.getBeanProvider(CacheReloader.class),
+                beans.getBeanProvider(SharedCacheStore.class));
+        ((SimpleCacheManager) cacheManager).afterPropertiesSet();
+        return cacheManager;
+    }
+}
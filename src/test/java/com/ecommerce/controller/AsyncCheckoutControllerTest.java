@@ -0,0 +1,64 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:asyncorders",
+        "ecommerce.checkout.mode=async"
+})
+@AutoConfigureMockMvc
+class AsyncCheckoutControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void testAcceptedCheckoutPointsAtItsStatusUnderTheContextPath() throws Exception {
+        // Given
+        Category category = categoryRepository.save(new Category("Async " + UUID.randomUUID(), "Orders", null));
+        Product product = productRepository.save(new Product("Queued", "Ordered", new BigDecimal("10.00"), null, 100, category));
+        String userId = "async-" + UUID.randomUUID();
+        cartItemRepository.save(new CartItem(userId, product, 1));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/orders/{userId}", userId).contextPath("/api")
+                        .param("shippingAddress", "1 Main St"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+
+        // Then
+        String token = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+        assertEquals("http://localhost/api/orders/checkout/" + token, result.getResponse().getHeader("Location"));
+    }
+}
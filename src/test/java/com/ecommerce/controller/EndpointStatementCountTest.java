@@ -0,0 +1,297 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.support.StatementCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements behind the read endpoints, including lazy loads during JSON
+ * rendering, and fails if they grow with the number of orders, order lines or cart lines:
+ * an N+1 regression breaks the build here rather than in production.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:endpoints")
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
+class EndpointStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        // Products spread over several categories, none of them in the in-memory catalog
+        products = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            Category category = categoryRepository.save(new Category("Fetch " + UUID.randomUUID(), "Fetch plans", null));
+            for (int i = 0; i < 3; i++) {
+                products.add(new Product("Item " + c + "-" + i, "Fetch item", new BigDecimal("10.00"), null, 100, category));
+            }
+        }
+        products = productRepository.saveAll(products);
+    }
+
+    @Test
+    void testUserOrdersDoNotQueryPerOrderOrLine() throws Exception {
+        // Given
+        String few = user();
+        placeOrder(few, 1);
+        String many = user();
+        for (int i = 0; i < 8; i++) {
+            placeOrder(many, 6);
+        }
+
+        // When
+        long small = statements(get("/orders/{userId}", few));
+        long large = statements(get("/orders/{userId}", many));
+
+        // Then - the page and the lines of all its orders; a partial first page needs no count
+        assertEquals(small, large);
+        assertEquals(2, large);
+        mockMvc.perform(get("/orders/{userId}", many))
+                .andExpect(jsonPath("$.content.length()").value(8))
+                .andExpect(jsonPath("$.content[0].orderItems.length()").value(6))
+                .andExpect(jsonPath("$.content[0].orderItems[0].product.category.name").exists());
+    }
+
+    @Test
+    void testOrderSummariesAreOneQuery() throws Exception {
+        // Given
+        String userId = user();
+        for (int i = 0; i < 3; i++) {
+            placeOrder(userId, 4);
+        }
+
+        // When / Then - a partial first page needs no count
+        assertEquals(1, statements(get("/orders/{userId}/summaries", userId)));
+        mockMvc.perform(get("/orders/{userId}/summaries", userId))
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].itemCount").value(4))
+                .andExpect(jsonPath("$.content[0].orderItems").doesNotExist());
+    }
+
+    @Test
+    void testOrderScrollSeeksWithoutCounting() throws Exception {
+        // Given
+        String userId = user();
+        List<Long> placed = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            placed.add(0, placeOrder(userId, 1 + i % 3).getId());
+        }
+
+        // When - three windows, each the window itself and the item counts of its orders
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/orders/{userId}/scroll", userId).param("size", "10");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            assertEquals(2, statements(request));
+            JsonNode window = json(request);
+            window.get("items").forEach(order -> seen.add(order.get("id").asLong()));
+            cursor = window.get("nextCursor").isNull() ? null : window.get("nextCursor").asText();
+        } while (cursor != null);
+
+        // Then - newest first, each order once
+        assertEquals(placed, seen);
+        mockMvc.perform(get("/orders/{userId}/scroll", userId).param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testOrderDetailDoesNotQueryPerLine() throws Exception {
+        // Given
+        Long small = placeOrder(user(), 1).getId();
+        Long large = placeOrder(user(), 12).getId();
+
+        // When / Then
+        assertEquals(1, statements(get("/orders/order/{orderId}", small)));
+        assertEquals(1, statements(get("/orders/order/{orderId}", large)));
+    }
+
+    @Test
+    void testOrderListingsDoNotGrowWithOrders() throws Exception {
+        // Given
+        placeOrder(user(), 2);
+        long byStatus = statements(get("/orders/status/PENDING"));
+        long highValue = statements(get("/orders/high-value").param("minAmount", "0"));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            placeOrder(user(), 6);
+        }
+
+        // Then
+        assertEquals(byStatus, statements(get("/orders/status/PENDING")));
+        assertEquals(highValue, statements(get("/orders/high-value").param("minAmount", "0")));
+    }
+
+    @Test
+    void testCartDoesNotQueryPerLine() throws Exception {
+        // Given - carts persisted before this node served them
+        String few = user();
+        cartItemRepository.save(new CartItem(few, products.get(0), 1));
+        String many = user();
+        List<CartItem> lines = new ArrayList<>();
+        for (Product product : products) {
+            lines.add(new CartItem(many, product, 2));
+        }
+        cartItemRepository.saveAll(lines);
+
+        // When
+        long small = statements(get("/cart/{userId}", few));
+        long large = statements(get("/cart/{userId}", many));
+
+        // Then - the cart, then the products the catalog does not know
+        assertEquals(small, large);
+        assertEquals(2, large);
+    }
+
+    @Test
+    void testCartLinesDoNotQueryPerLine() throws Exception {
+        // Given
+        String userId = user();
+        List<CartItem> lines = new ArrayList<>();
+        for (Product product : products) {
+            lines.add(new CartItem(userId, product, 3));
+        }
+        cartItemRepository.saveAll(lines);
+
+        // When / Then - the cart, then cards for the products the catalog does not know
+        assertEquals(2, statements(get("/cart/{userId}/lines", userId)));
+        mockMvc.perform(get("/cart/{userId}/lines", userId))
+                .andExpect(jsonPath("$.length()").value(products.size()))
+                .andExpect(jsonPath("$[0].lineTotal").value(30.0));
+    }
+
+    @Test
+    void testProductListingsFetchCategoriesWithProducts() throws Exception {
+        // Given
+        Long categoryId = products.get(0).getCategory().getId();
+
+        // When - full pages of one category, then of several
+        long oneCategory = statementCounter.count(() -> transactionTemplate.executeWithoutResult(status ->
+                touchCategories(productRepository.findByCategoryId(categoryId, PageRequest.of(0, 2)))));
+        long severalCategories = statementCounter.count(() -> transactionTemplate.executeWithoutResult(status ->
+                touchCategories(productRepository.findAll(PageRequest.of(0, 10, Sort.by("id").descending())))));
+
+        // Then
+        assertEquals(oneCategory, severalCategories);
+    }
+
+    @Test
+    void testProductScrollVisitsEveryProductOnceInOrder() throws Exception {
+        // Given - many products share a price, so the id has to break ties
+        long total = productRepository.count();
+
+        // When
+        List<JsonNode> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/products/scroll").param("sort", "PRICE").param("size", "7");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            assertEquals(1, statements(request));
+            JsonNode window = json(request);
+            window.get("items").forEach(seen::add);
+            cursor = window.get("nextCursor").isNull() ? null : window.get("nextCursor").asText();
+        } while (cursor != null);
+
+        // Then
+        assertEquals(total, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            int byPrice = seen.get(i - 1).get("price").decimalValue().compareTo(seen.get(i).get("price").decimalValue());
+            assertTrue(byPrice < 0 || byPrice == 0 && seen.get(i - 1).get("id").asLong() < seen.get(i).get("id").asLong());
+        }
+    }
+
+    @Test
+    void testCatalogEndpointsDoNotQuery() throws Exception {
+        assertEquals(0, statements(get("/products")));
+        assertEquals(0, statements(get("/products/search").param("q", "phone")));
+        assertEquals(0, statements(get("/products/cards").param("size", "50")));
+        assertEquals(0, statements(get("/categories")));
+    }
+
+    private JsonNode json(RequestBuilder request) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(request).andReturn().getResponse().getContentAsString());
+    }
+
+    private long statements(RequestBuilder request) throws Exception {
+        return statementCounter.count(() -> mockMvc.perform(request).andExpect(status().isOk()));
+    }
+
+    private Order placeOrder(String userId, int lines) {
+        Order order = new Order(userId, new BigDecimal("10.00").multiply(BigDecimal.valueOf(lines)),
+                Order.OrderStatus.PENDING, "1 Main St");
+        for (Product product : products.subList(0, lines)) {
+            order.getOrderItems().add(new OrderItem(order, product, 1, product.getPrice()));
+        }
+        return orderRepository.save(order);
+    }
+
+    private static void touchCategories(Page<Product> page) {
+        assertTrue(page.hasContent());
+        page.forEach(product -> assertNotNull(product.getCategory().getName()));
+    }
+
+    private static String user() {
+        return "fetch-" + UUID.randomUUID();
+    }
+}
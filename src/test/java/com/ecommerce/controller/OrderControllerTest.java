@@ -0,0 +1,54 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:orders")
+@AutoConfigureMockMvc
+class OrderControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Test
+    void testPlacedOrderRendersWithCategories() throws Exception {
+        // Given - products loaded fresh by the checkout, with no category in the session yet
+        Category category = categoryRepository.save(new Category("Orders " + UUID.randomUUID(), "Orders", null));
+        Product first = productRepository.save(new Product("First", "Ordered", new BigDecimal("10.00"), null, 100, category));
+        Product second = productRepository.save(new Product("Second", "Ordered", new BigDecimal("4.00"), null, 100, category));
+        String userId = "orders-" + UUID.randomUUID();
+        cartItemRepository.save(new CartItem(userId, first, 1));
+        cartItemRepository.save(new CartItem(userId, second, 2));
+
+        // When / Then
+        mockMvc.perform(post("/orders/{userId}", userId).param("shippingAddress", "1 Main St"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderItems.length()").value(2))
+                .andExpect(jsonPath("$.orderItems[0].product.category.name").value(category.getName()));
+    }
+}
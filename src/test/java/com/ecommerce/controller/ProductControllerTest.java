@@ -1,5 +1,6 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.Category;
 import com.ecommerce.entity.Product;
 import com.ecommerce.service.InMemoryProductService;
@@ -9,6 +10,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -106,17 +110,45 @@ class ProductControllerTest {
     @Test
     void testSearchProducts() {
         // Given
-        List<Product> products = Arrays.asList(product);
-        when(productService.searchProducts("iPhone")).thenReturn(products);
+        Page<Product> hits = new PageImpl<>(Arrays.asList(product), PageRequest.of(0, 20), 1);
+        when(productService.searchProducts("iPhone", 0, 20)).thenReturn(hits);
 
         // When
-        ResponseEntity<List<Product>> response = productController.searchProducts("iPhone");
+        ResponseEntity<List<Product>> response = productController.searchProducts("iPhone", 0, 20);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(productService).searchProducts("iPhone");
+        assertEquals("1", response.getHeaders().getFirst("X-Total-Count"));
+        verify(productService).searchProducts("iPhone", 0, 20);
+    }
+
+    @Test
+    void testSearchProductsRejectsInvalidPage() {
+        // Given
+        when(productService.searchProducts("iPhone", 0, 0)).thenThrow(new IllegalArgumentException("size"));
+
+        // When
+        ResponseEntity<List<Product>> response = productController.searchProducts("iPhone", 0, 0);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testGetProductCards() {
+        // Given
+        Page<ProductCard> cards = new PageImpl<>(List.of(ProductCard.of(product)), PageRequest.of(0, 20), 41);
+        when(productService.getProductCards(1L, 0, 20)).thenReturn(cards);
+
+        // When
+        ResponseEntity<List<ProductCard>> response = productController.getProductCards(1L, 0, 20);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Electronics", response.getBody().get(0).categoryName());
+        assertEquals("41", response.getHeaders().getFirst("X-Total-Count"));
     }
 
     @Test
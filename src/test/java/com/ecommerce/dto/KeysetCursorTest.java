@@ -0,0 +1,59 @@
+package com.ecommerce.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testRoundTripsSortKeys() {
+        // Given - a window whose last row has keys of every supported type
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("createdAt", LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000));
+        keys.put("name", "Café = 50% off\nnow");
+        keys.put("price", new BigDecimal("19.990"));
+        keys.put("id", 42L);
+        Window<String> window = Window.from(List.of("a", "b"), index -> ScrollPosition.forward(keys), true);
+
+        // When
+        String cursor = KeysetCursor.next("products:LATEST", window);
+        KeysetScrollPosition position = KeysetCursor.decode("products:LATEST", cursor);
+
+        // Then
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+        assertEquals(keys, position.getKeys());
+        assertEquals(List.copyOf(keys.keySet()), List.copyOf(position.getKeys().keySet()));
+    }
+
+    @Test
+    void testLastWindowHasNoCursor() {
+        // Given
+        Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.forward(Map.of("id", 1L)), false);
+
+        // When / Then
+        assertNull(KeysetCursor.next("orders", window));
+        assertTrue(KeysetCursor.decode("orders", null).isInitial());
+    }
+
+    @Test
+    void testRejectsForeignAndMalformedCursors() {
+        // Given
+        Window<String> window = Window.from(List.of("a"), index -> ScrollPosition.forward(Map.of("id", 1L)), true);
+        String cursor = KeysetCursor.next("products:NAME", window);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("products:PRICE", cursor));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("products:NAME", "not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("products:NAME", "cHJvZHVjdHM6TkFNRQppZD14OjE"));
+    }
+}
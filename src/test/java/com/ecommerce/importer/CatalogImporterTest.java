@@ -0,0 +1,198 @@
+package com.ecommerce.importer;
+
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.config.ImportProperties;
+import com.ecommerce.entity.CatalogImport;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CatalogImportRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.StockReservationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:imports",
+        "ecommerce.import.spool-dir=target/import-spool",
+        "ecommerce.import.batch-size=50",
+        "ecommerce.import.workers=3"
+})
+@AutoConfigureMockMvc
+class CatalogImporterTest {
+
+    @Autowired
+    private CatalogImporter catalogImporter;
+
+    @Autowired
+    private CatalogImportRepository importRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog catalog;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ImportProperties properties;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testImportsValidRowsAndReportsInvalidOnes() throws Exception {
+        // Given - several batches, two bad rows among them
+        String category = "Import " + UUID.randomUUID();
+        StringBuilder csv = new StringBuilder("name,description,price,stockQuantity,categoryName\n");
+        for (int i = 0; i < 230; i++) {
+            String price = i == 10 ? "free" : "2.50";
+            String stock = i == 120 ? "-3" : "7";
+            csv.append("Imported ").append(i).append(",\"Row, ").append(i).append("\",")
+                    .append(price).append(',').append(stock).append(',').append(category).append('\n');
+        }
+
+        // When
+        ImportStatus status = await(catalogImporter.submit(null, CatalogImport.Format.CSV, stream(csv.toString())));
+
+        // Then
+        assertEquals(ImportStatus.State.COMPLETED, status.getState());
+        assertEquals(230, status.getRecordsDone());
+        assertEquals(228, status.getInserted());
+        assertEquals(2, status.getRejected());
+        assertEquals(List.of("record 11: Invalid price: free", "record 121: Stock quantity must not be negative"),
+                status.getErrors());
+        assertEquals(228, productsIn(category).size());
+        // The catalog was rebuilt, search index included
+        assertEquals(1, catalog.snapshot().search("Imported 229").size());
+        assertFalse(Files.exists(properties.getSpoolDir().resolve(status.getImportId() + ".upload")));
+    }
+
+    @Test
+    void testRowsWithAnIdUpdateThatProduct() throws Exception {
+        // Given
+        String category = "Update " + UUID.randomUUID();
+        await(catalogImporter.submit(null, CatalogImport.Format.NDJSON, stream(
+                "{\"name\":\"Lamp\",\"price\":20.00,\"stockQuantity\":4,\"categoryName\":\"" + category + "\"}\n")));
+        Product lamp = productsIn(category).get(0);
+
+        // When - an export line with a new price, and an id that does not exist
+        ImportStatus status = await(catalogImporter.submit(null, CatalogImport.Format.NDJSON, stream(
+                "{\"id\":" + lamp.getId() + ",\"name\":\"Lamp\",\"price\":18.50,\"stockQuantity\":9,\"categoryName\":\""
+                        + category + "\",\"categoryId\":1,\"createdAt\":\"2024-01-01T00:00:00\"}\n"
+                        + "{\"id\":999999,\"name\":\"Ghost\",\"price\":1,\"stockQuantity\":1,\"categoryName\":\""
+                        + category + "\"}\n")));
+
+        // Then
+        assertEquals(1, status.getUpdated());
+        assertEquals(0, status.getInserted());
+        assertEquals(List.of("record 2: Product not found with id: 999999"), status.getErrors());
+        Product updated = productRepository.findById(lamp.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("18.50").compareTo(updated.getPrice()));
+        assertEquals(9, updated.getStockQuantity());
+        assertEquals(0, new BigDecimal("18.50").compareTo(catalog.snapshot().getProduct(lamp.getId()).orElseThrow().getPrice()));
+    }
+
+    @Test
+    void testUpdateLeavesStockHeldByCartsOutOfTheRow() throws Exception {
+        // Given - 3 of the lamp's 4 units held by a cart
+        String category = "Held " + UUID.randomUUID();
+        await(catalogImporter.submit(null, CatalogImport.Format.NDJSON, stream(
+                "{\"name\":\"Lamp\",\"price\":20.00,\"stockQuantity\":4,\"categoryName\":\"" + category + "\"}\n")));
+        Product lamp = productsIn(category).get(0);
+        assertTrue(stockReservationService.reserve("importer-" + UUID.randomUUID(), lamp.getId(), 3));
+
+        // When - the feed counts 9 on hand
+        await(catalogImporter.submit(null, CatalogImport.Format.NDJSON, stream(
+                "{\"id\":" + lamp.getId() + ",\"name\":\"Lamp\",\"price\":20.00,\"stockQuantity\":9,\"categoryName\":\""
+                        + category + "\"}\n")));
+
+        // Then
+        assertEquals(6, productRepository.findById(lamp.getId()).orElseThrow().getStockQuantity());
+        assertEquals(6, catalog.snapshot().getProduct(lamp.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void testInterruptedImportResumesAfterItsCheckpoint() throws Exception {
+        // Given - an import cut short after its first 60 records were committed
+        String importId = "resume-" + UUID.randomUUID();
+        String category = "Resume " + UUID.randomUUID();
+        StringBuilder csv = new StringBuilder("name,price,stockQuantity,categoryName\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("Resumed ").append(i).append(",1.00,1,").append(category).append('\n');
+        }
+        Files.createDirectories(properties.getSpoolDir());
+        Files.writeString(properties.getSpoolDir().resolve(importId + ".upload"), csv);
+        CatalogImport interrupted = new CatalogImport(importId, CatalogImport.Format.CSV);
+        interrupted.setRecordsDone(60);
+        interrupted.setInserted(60);
+        importRepository.save(interrupted);
+        mockMvc.perform(get("/admin/imports/{importId}", importId))
+                .andExpect(jsonPath("$.state").value("INTERRUPTED"));
+
+        // When
+        mockMvc.perform(post("/api/admin/imports/{importId}/resume", importId).contextPath("/api"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/admin/imports/" + importId));
+        ImportStatus status = await(catalogImporter.getStatus(importId));
+
+        // Then - only the remaining records were written
+        assertEquals(60, status.getResumedFrom());
+        assertEquals(100, status.getInserted());
+        List<Product> products = productsIn(category);
+        assertEquals(40, products.size());
+        assertTrue(products.stream().allMatch(product -> Integer.parseInt(product.getName().substring(8)) >= 60));
+        mockMvc.perform(post("/admin/imports/{importId}/resume", importId))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testUploadEndpointAcceptsTheFile() throws Exception {
+        String importId = "upload-" + UUID.randomUUID();
+        mockMvc.perform(post("/admin/imports").param("format", "NDJSON").param("importId", importId)
+                        .content("{\"name\":\"Posted\",\"price\":3,\"stockQuantity\":1,\"categoryName\":\"Posted\"}\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.importId").value(importId));
+        assertEquals(1, await(catalogImporter.getStatus(importId)).getInserted());
+        mockMvc.perform(post("/admin/imports").param("importId", "../escape").content("name\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ImportStatus await(ImportStatus submitted) throws InterruptedException {
+        ImportStatus status = submitted;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!status.isDone()) {
+            assertTrue(System.currentTimeMillis() < deadline, "import did not finish");
+            Thread.sleep(20);
+            status = catalogImporter.getStatus(submitted.getImportId());
+        }
+        return status;
+    }
+
+    private List<Product> productsIn(String category) {
+        return productRepository.findAllWithCategory().stream()
+                .filter(product -> product.getCategory().getName().equals(category))
+                .toList();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package com.ecommerce.importer;
+
+import com.ecommerce.entity.CatalogImport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportReaderTest {
+
+    @Test
+    void testCsvHandlesQuotesAndLineBreaksInsideFields() throws IOException {
+        // Given - line breaks inside quotes are data and kept as written
+        String csv = "\uFEFFname,description,price,stockQuantity,categoryName\r\n"
+                + "Mug,\"Holds tea, coffee\r\nand \"\"more\"\"\",4.50,10,Kitchen\r\n"
+                + "\r\n"
+                + "Plate,,3,5,Kitchen\n";
+
+        // When
+        List<ImportRecord> records = readAll(CatalogImport.Format.CSV, csv);
+
+        // Then
+        assertEquals(2, records.size());
+        assertEquals("Holds tea, coffee\r\nand \"more\"", records.get(0).fields().get("description"));
+        assertEquals("Mug", records.get(0).fields().get("name"));
+        assertEquals(2, records.get(1).number());
+        assertEquals("", records.get(1).fields().get("description"));
+    }
+
+    @Test
+    void testCsvReportsRowsWithTheWrongNumberOfColumns() throws IOException {
+        // When
+        List<ImportRecord> records = readAll(CatalogImport.Format.CSV, "name,price\nMug,4.50,extra\nPlate,3\n");
+
+        // Then - the bad row is reported, the next one still read
+        assertEquals("Expected 2 columns but found 3", records.get(0).problem());
+        assertNull(records.get(1).problem());
+    }
+
+    @Test
+    void testCsvFailsOnAnUnterminatedQuote() {
+        assertThrows(IOException.class, () -> readAll(CatalogImport.Format.CSV, "name,price\n\"Mug,4.50\n"));
+    }
+
+    @Test
+    void testNdjsonReadsExportLinesAndReportsMalformedOnes() throws IOException {
+        // Given
+        String ndjson = "{\"id\":7,\"name\":\"Mug\",\"price\":4.50,\"stockQuantity\":3,\"categoryName\":\"Kitchen\","
+                + "\"imageUrl\":null}\n"
+                + "\n"
+                + "{not json\n"
+                + "[1,2]\n";
+
+        // When
+        List<ImportRecord> records = readAll(CatalogImport.Format.NDJSON, ndjson);
+
+        // Then
+        assertEquals(3, records.size());
+        ImportRow row = ImportRow.of(records.get(0));
+        assertEquals(7L, row.id());
+        assertEquals(new BigDecimal("4.50"), row.price());
+        assertNull(row.imageUrl());
+        assertTrue(records.get(1).problem().startsWith("Malformed JSON"));
+        assertEquals("Expected a JSON object", records.get(2).problem());
+    }
+
+    @Test
+    void testRowValidationRejectsInvalidProducts() throws IOException {
+        // Given
+        String csv = "name,price,stockQuantity,categoryName\n"
+                + ",1,1,A\n"
+                + "Mug,0,1,A\n"
+                + "Mug,1.005,1,A\n"
+                + "Mug,1,-1,A\n"
+                + "Mug,1,1,\n"
+                + "Mug,1.50,0,A\n";
+
+        // When
+        List<String> problems = new ArrayList<>();
+        for (ImportRecord record : readAll(CatalogImport.Format.CSV, csv)) {
+            try {
+                ImportRow.of(record);
+                problems.add(null);
+            } catch (IllegalArgumentException e) {
+                problems.add(e.getMessage());
+            }
+        }
+
+        // Then
+        assertEquals("Missing name", problems.get(0));
+        assertEquals("Price must be greater than 0", problems.get(1));
+        assertEquals("Invalid price: 1.005", problems.get(2));
+        assertEquals("Stock quantity must not be negative", problems.get(3));
+        assertEquals("Missing categoryName", problems.get(4));
+        assertNull(problems.get(5));
+    }
+
+    private static List<ImportRecord> readAll(CatalogImport.Format format, String content) throws IOException {
+        List<ImportRecord> records = new ArrayList<>();
+        try (ImportReader reader = ImportReader.open(format, new BufferedReader(new StringReader(content)),
+                new ObjectMapper())) {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.metrics;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void testPrometheusScrapeCoversEndpointsServicesPoolAndCaches() throws Exception {
+        // Given - a checkout and a few reads
+        Category category = categoryRepository.save(new Category("Metrics " + UUID.randomUUID(), "Metrics", null));
+        Product product = productRepository.save(new Product("Metered", "Metered item", new BigDecimal("5.00"), null, 10, category));
+        String userId = "metrics-" + UUID.randomUUID();
+        mockMvc.perform(post("/cart/{userId}/add", userId).param("productId", product.getId().toString()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/orders/{userId}", userId).param("shippingAddress", "1 Main St"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/orders/{userId}/summaries", userId)).andExpect(status().isOk());
+        mockMvc.perform(get("/categories/{id}", category.getId()));
+
+        // When
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then - latency histograms per controller method
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{") && scrape.contains(
+                "handler=\"OrderController.createOrder\""), "controller method histogram");
+        assertTrue(scrape.contains("quantile=\"0.999\""), "precomputed percentiles");
+        // The checkout split into its database steps
+        for (String operation : new String[] {"loadProducts", "commitStock", "insertOrders", "clearCarts"}) {
+            assertTrue(scrape.contains("repository_calls_seconds_bucket{")
+                    && scrape.contains("operation=\"" + operation + "\",service=\"OrderService\""), operation);
+        }
+        // Statements per request, pool wait, and every cache
+        assertTrue(scrape.contains("jpa_statements_count{") && scrape.contains(
+                "handler=\"OrderController.getUserOrderSummaries\""), "statements per request");
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket{"), "pool wait histogram");
+        assertTrue(scrape.contains("cache_gets_total{cache=\"categories\""), "cache hit/miss");
+        assertTrue(scrape.contains("cache_load_duration_seconds{cache=\"categories\""), "cache load time");
+        assertTrue(scrape.contains("cart_store_gets_total{result=\"miss\""), "cart store hit/miss");
+    }
+
+    @Test
+    void testInfoReportsThreadMode() throws Exception {
+        // Platform threads unless spring.threads.virtual.enabled is set on Java 21 or later
+        mockMvc.perform(get("/actuator/info"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.threads.virtual").value(false))
+                .andExpect(jsonPath("$.threads.virtualRequested").value(false))
+                .andExpect(jsonPath("$.threads.javaVersion").value(Runtime.version().toString()));
+    }
+}
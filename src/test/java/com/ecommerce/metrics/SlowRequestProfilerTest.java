@@ -0,0 +1,182 @@
+package com.ecommerce.metrics;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderItem;
+import com.ecommerce.entity.Product;
+import com.ecommerce.metrics.SlowRequestSample.Event;
+import com.ecommerce.metrics.SlowRequestSample.EventType;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:slowrequests",
+        "ecommerce.slow-requests.threshold=0ms",
+        "ecommerce.slow-requests.capacity=4"
+})
+@AutoConfigureMockMvc
+class SlowRequestProfilerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Product product;
+    private Order order;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Category category = categoryRepository.save(new Category("Slow " + UUID.randomUUID(), "Profiled", null));
+        product = productRepository.save(new Product("Profiled", "Profiled item", new BigDecimal("3.00"), null, 10, category));
+        order = new Order("slow-" + UUID.randomUUID(), new BigDecimal("6.00"), Order.OrderStatus.PENDING, "1 Main St");
+        order.getOrderItems().add(new OrderItem(order, product, 2, product.getPrice()));
+        order = orderRepository.save(order);
+        mockMvc.perform(delete("/actuator/slowrequests")).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void testSlowRequestKeepsRepositoryCallsAndStatements() throws Exception {
+        // When - every request is over a zero threshold
+        mockMvc.perform(get("/orders/{userId}", order.getUserId())).andExpect(status().isOk());
+        JsonNode sample = slowRequests().get("samples").get(0);
+
+        // Then - the page of orders and the lines of its orders, each under its repository method
+        assertEquals("OrderController.getUserOrders", sample.get("handler").asText());
+        assertEquals("/orders/" + order.getUserId(), sample.get("path").asText());
+        assertEquals(200, sample.get("status").asInt());
+        assertEquals(2, sample.get("statements").asInt());
+        JsonNode events = sample.get("events");
+        assertEquals("REPOSITORY", events.get(0).get("type").asText());
+        assertEquals("OrderRepository.findByUserIdOrderByCreatedAtDesc", events.get(0).get("detail").asText());
+        assertEquals("SQL", events.get(1).get("type").asText());
+        assertTrue(events.get(1).get("detail").asText().toLowerCase().contains("from orders"));
+        assertTrue(events.get(1).get("binds").asInt() >= 1);
+        assertTrue(events.get(1).get("atMs").asDouble() >= events.get(0).get("atMs").asDouble());
+        assertFalse(events.get(0).has("binds"));
+    }
+
+    @Test
+    void testLazyLoadsAreMarkedBeforeTheirStatements() {
+        // Given
+        RequestTimeline timeline = RequestTimeline.begin(64);
+
+        // When - an order's lines and a product's category, neither fetched with their owner
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(1, orderRepository.findById(order.getId()).orElseThrow().getOrderItems().size());
+            assertNotNull(productRepository.findById(product.getId()).orElseThrow().getCategory().getName());
+        });
+        SlowRequestSample sample = timeline.toSample("GET", "/test", "none", 200, timeline.finish());
+
+        // Then
+        assertEquals(2, sample.lazyLoads());
+        List<Event> events = sample.events();
+        int lines = indexOf(events, "Order.orderItems#" + order.getId());
+        int category = indexOf(events, "Category#" + product.getCategory().getId());
+        assertEquals(EventType.SQL, events.get(lines + 1).type());
+        assertTrue(events.get(lines + 1).detail().toLowerCase().contains("order_items"));
+        assertEquals(EventType.SQL, events.get(category + 1).type());
+        assertTrue(events.get(category + 1).detail().toLowerCase().contains("categories"));
+        assertNull(RequestTimeline.current());
+    }
+
+    @Test
+    void testKeepsOnlyTheNewestSamples() throws Exception {
+        // When
+        for (int i = 0; i < 6; i++) {
+            mockMvc.perform(get("/orders/order/{orderId}", order.getId())).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/orders/{userId}/summaries", order.getUserId())).andExpect(status().isOk());
+
+        // Then - actuator requests themselves are not sampled
+        JsonNode slowRequests = slowRequests();
+        JsonNode samples = slowRequests.get("samples");
+        assertEquals(4, samples.size());
+        assertEquals("OrderController.getUserOrderSummaries", samples.get(0).get("handler").asText());
+        assertEquals("OrderController.getOrderById", samples.get(3).get("handler").asText());
+        assertTrue(slowRequests.get("sampled").asLong() >= 7);
+    }
+
+    @Test
+    void testRequestsLeftOutOfTheSampleRunWithoutATimeline() throws Exception {
+        // Given
+        SlowRequestProfiler profiler = new SlowRequestProfiler(Duration.ZERO, 4, 64, 0);
+        AtomicBoolean recording = new AtomicBoolean(true);
+
+        // When
+        profiler.doFilter(new MockHttpServletRequest("GET", "/products"), new MockHttpServletResponse(),
+                (request, response) -> recording.set(RequestTimeline.current() != null));
+
+        // Then - so the data source hands out its connections unwrapped
+        assertFalse(recording.get());
+        assertEquals(0, profiler.getSamples().added());
+    }
+
+    @Test
+    void testRingOverwritesOldestFirst() {
+        // Given
+        SampleRing ring = new SampleRing(3);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            ring.add(new SlowRequestSample(null, "GET", "/" + i, "none", 200, i, 0, 0, 0, 0, List.of()));
+        }
+
+        // Then
+        assertEquals(List.of("/4", "/3", "/2"), ring.newestFirst().stream().map(SlowRequestSample::path).toList());
+        assertEquals(5, ring.added());
+        ring.clear();
+        assertTrue(ring.newestFirst().isEmpty());
+    }
+
+    private JsonNode slowRequests() throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/actuator/slowrequests"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static int indexOf(List<Event> events, String lazyLoad) {
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).type() == EventType.LAZY_LOAD && events.get(i).detail().equals(lazyLoad)) {
+                return i;
+            }
+        }
+        return fail("no lazy load of " + lazyLoad + " in " + events);
+    }
+}
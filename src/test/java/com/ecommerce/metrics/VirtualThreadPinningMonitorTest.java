@@ -0,0 +1,49 @@
+package com.ecommerce.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(registry, Duration.ofMillis(20), 8);
+
+    @Test
+    void testPinningIsTimedByFirstApplicationFrame() {
+        // Given - blocked on JDBC inside a synchronized method
+        List<String> frames = List.of(
+                "java.lang.VirtualThread.parkOnCarrierThread:675",
+                "org.h2.engine.SessionLocal.lock:412",
+                "com.ecommerce.service.CartWriteBehindService.flush:48",
+                "com.ecommerce.service.CartWriteBehindService$$SpringCGLIB$$0.flush:-1");
+
+        // When
+        monitor.record(Duration.ofMillis(40), frames);
+        monitor.record(Duration.ofMillis(60), frames);
+        monitor.record(Duration.ofMillis(25), List.of("java.util.concurrent.ConcurrentHashMap.computeIfAbsent:1708"));
+
+        // Then
+        Timer flush = registry.find(VirtualThreadPinningMonitor.METRIC)
+                .tag("site", "com.ecommerce.service.CartWriteBehindService.flush:48").timer();
+        assertNotNull(flush);
+        assertEquals(2, flush.count());
+        assertEquals(100, flush.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertNotNull(registry.find(VirtualThreadPinningMonitor.METRIC)
+                .tag("site", "java.util.concurrent.ConcurrentHashMap.computeIfAbsent:1708").timer());
+    }
+
+    @Test
+    void testStartsAndStopsOnThisRuntime() {
+        // The pinning event only exists from Java 21; on older runtimes the stream stays quiet
+        monitor.start();
+        monitor.stop();
+        assertTrue(registry.find(VirtualThreadPinningMonitor.METRIC).timers().isEmpty());
+    }
+}
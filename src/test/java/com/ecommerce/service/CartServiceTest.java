@@ -1,20 +1,31 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cart.CartMutation;
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.cart.CartView;
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.dto.CartLine;
+import com.ecommerce.dto.ProductCard;
 import com.ecommerce.entity.CartItem;
-import com.ecommerce.entity.Product;
 import com.ecommerce.entity.Category;
-import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.entity.Product;
+import com.ecommerce.metrics.DataAccessMetrics;
 import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,37 +35,45 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class CartServiceTest {
 
-    @Mock
-    private CartItemRepository cartItemRepository;
+    // What cart_items holds; the store loads carts from here on first use
+    private final Map<String, Map<Long, Integer>> persisted = new HashMap<>();
 
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Spy
+    private ProductCatalog catalog = new ProductCatalog();
+
+    @Spy
+    private CartStore cartStore = new CartStore(4, users -> persisted);
+
+    @Spy
+    private DataAccessMetrics dataAccessMetrics = new DataAccessMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private CartService cartService;
 
     private Product product;
     private Category category;
-    private CartItem cartItem;
 
     @BeforeEach
     void setUp() {
         category = new Category("Electronics", "Electronic devices", "electronics.jpg");
         category.setId(1L);
-        
-        product = new Product("iPhone 15", "Latest iPhone", new BigDecimal("999.99"), 
+
+        product = new Product("iPhone 15", "Latest iPhone", new BigDecimal("999.99"),
                             "iphone15.jpg", 10, category);
         product.setId(1L);
-        
-        cartItem = new CartItem("user123", product, 2);
-        cartItem.setId(1L);
+        catalog.load(Arrays.asList(category), Arrays.asList(product));
     }
 
     @Test
     void testGetCartItems() {
         // Given
-        List<CartItem> cartItems = Arrays.asList(cartItem);
-        when(cartItemRepository.findByUserId("user123")).thenReturn(cartItems);
+        persist("user123", 1L, 2);
 
         // When
         List<CartItem> result = cartService.getCartItems("user123");
@@ -63,143 +82,264 @@ class CartServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("user123", result.get(0).getUserId());
-        verify(cartItemRepository).findByUserId("user123");
+        assertEquals("iPhone 15", result.get(0).getProduct().getName());
+        assertEquals(2, result.get(0).getQuantity());
+        verify(productRepository, never()).findWithCategoryById(anyLong());
     }
 
     @Test
     void testAddToCartNewItem() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByUserIdAndProductId("user123", 1L)).thenReturn(Optional.empty());
-        when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
+        when(stockReservationService.reserve("user123", 1L, 2)).thenReturn(true);
 
         // When
         CartItem result = cartService.addToCart("user123", 1L, 2);
 
         // Then
         assertNotNull(result);
-        verify(productRepository).findById(1L);
-        verify(cartItemRepository).findByUserIdAndProductId("user123", 1L);
-        verify(cartItemRepository).save(any(CartItem.class));
+        assertEquals(2, result.getQuantity());
+        assertEquals(Map.of(1L, 2), cartStore.lines("user123"));
+        verify(stockReservationService).reserve("user123", 1L, 2);
+        verify(productRepository, never()).findWithCategoryById(anyLong());
     }
 
     @Test
     void testAddToCartExistingItem() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByUserIdAndProductId("user123", 1L)).thenReturn(Optional.of(cartItem));
-        when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
+        persist("user123", 1L, 2);
+        when(stockReservationService.reserve("user123", 1L, 2)).thenReturn(true);
 
         // When
         CartItem result = cartService.addToCart("user123", 1L, 2);
 
         // Then
         assertNotNull(result);
-        verify(cartItemRepository).save(cartItem);
+        assertEquals(4, result.getQuantity());
+        assertEquals(Map.of(1L, 4), cartStore.lines("user123"));
     }
 
     @Test
     void testAddToCartProductNotFound() {
         // Given
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.findWithCategoryById(99L)).thenReturn(Optional.empty());
 
         // When & Then
-        assertThrows(RuntimeException.class, () -> cartService.addToCart("user123", 1L, 2));
-        verify(productRepository).findById(1L);
-        verify(cartItemRepository, never()).save(any(CartItem.class));
+        assertThrows(RuntimeException.class, () -> cartService.addToCart("user123", 99L, 2));
+        verify(productRepository).findWithCategoryById(99L);
+        verify(stockReservationService, never()).reserve(anyString(), anyLong(), anyInt());
     }
 
     @Test
     void testAddToCartInsufficientStock() {
         // Given
         product.setStockQuantity(1);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        catalog.saveProduct(product);
 
         // When & Then
         assertThrows(RuntimeException.class, () -> cartService.addToCart("user123", 1L, 2));
-        verify(productRepository).findById(1L);
+        verify(stockReservationService, never()).reserve(anyString(), anyLong(), anyInt());
+        assertTrue(cartStore.lines("user123").isEmpty());
+    }
+
+    @Test
+    void testAddToCartStockTakenConcurrently() {
+        // Given - the catalog count looks sufficient, but the conditional decrement finds it gone
+        when(stockReservationService.reserve("user123", 1L, 2)).thenReturn(false);
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(0));
+
+        // When & Then
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.addToCart("user123", 1L, 2));
+        assertEquals("Insufficient stock. Available: 0", e.getMessage());
+        assertTrue(cartStore.lines("user123").isEmpty());
     }
 
     @Test
     void testUpdateCartItemQuantity() {
         // Given
-        when(cartItemRepository.findByUserIdAndProductId("user123", 1L)).thenReturn(Optional.of(cartItem));
-        when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
+        persist("user123", 1L, 2);
+        when(stockReservationService.reserve("user123", 1L, 1)).thenReturn(true);
 
         // When
         CartItem result = cartService.updateCartItemQuantity("user123", 1L, 3);
 
-        // Then
+        // Then - only the extra unit is reserved
         assertNotNull(result);
-        verify(cartItemRepository).findByUserIdAndProductId("user123", 1L);
-        verify(cartItemRepository).save(cartItem);
+        assertEquals(3, result.getQuantity());
+        assertEquals(Map.of(1L, 3), cartStore.lines("user123"));
+    }
+
+    @Test
+    void testUpdateCartItemQuantityDecreaseReleasesStock() {
+        // Given
+        persist("user123", 1L, 2);
+
+        // When
+        cartService.updateCartItemQuantity("user123", 1L, 1);
+
+        // Then
+        verify(stockReservationService).release("user123", 1L, 1);
+        verify(stockReservationService, never()).reserve(anyString(), anyLong(), anyInt());
+        assertEquals(Map.of(1L, 1), cartStore.lines("user123"));
     }
 
     @Test
     void testUpdateCartItemQuantityZero() {
         // Given
-        when(cartItemRepository.findByUserIdAndProductId("user123", 1L)).thenReturn(Optional.of(cartItem));
+        persist("user123", 1L, 2);
 
         // When
         CartItem result = cartService.updateCartItemQuantity("user123", 1L, 0);
 
         // Then
         assertNull(result);
-        verify(cartItemRepository).delete(cartItem);
+        verify(stockReservationService).releaseAll("user123", 1L);
+        assertTrue(cartStore.lines("user123").isEmpty());
     }
 
     @Test
     void testUpdateCartItemQuantityNotFound() {
-        // Given
-        when(cartItemRepository.findByUserIdAndProductId("user123", 1L)).thenReturn(Optional.empty());
-
         // When & Then
         assertThrows(RuntimeException.class, () -> cartService.updateCartItemQuantity("user123", 1L, 3));
-        verify(cartItemRepository).findByUserIdAndProductId("user123", 1L);
+        verify(stockReservationService, never()).reserve(anyString(), anyLong(), anyInt());
     }
 
     @Test
     void testRemoveFromCart() {
+        // Given
+        persist("user123", 1L, 2);
+
         // When
         cartService.removeFromCart("user123", 1L);
 
         // Then
-        verify(cartItemRepository).deleteByUserIdAndProductId("user123", 1L);
+        verify(stockReservationService).releaseAll("user123", 1L);
+        assertTrue(cartStore.lines("user123").isEmpty());
     }
 
     @Test
     void testClearCart() {
+        // Given
+        persist("user123", 1L, 2);
+
         // When
         cartService.clearCart("user123");
 
         // Then
-        verify(cartItemRepository).deleteByUserId("user123");
+        verify(stockReservationService).releaseAll("user123");
+        assertTrue(cartStore.lines("user123").isEmpty());
     }
 
     @Test
     void testCalculateCartTotal() {
         // Given
-        List<CartItem> cartItems = Arrays.asList(cartItem);
-        when(cartItemRepository.findByUserId("user123")).thenReturn(cartItems);
+        persist("user123", 1L, 2);
 
         // When
         BigDecimal total = cartService.calculateCartTotal("user123");
 
         // Then
         assertEquals(new BigDecimal("1999.98"), total); // 999.99 * 2
-        verify(cartItemRepository).findByUserId("user123");
     }
 
     @Test
     void testGetCartItemCount() {
         // Given
-        when(cartItemRepository.countByUserId("user123")).thenReturn(5L);
+        persist("user123", 1L, 2);
+        persist("user123", 2L, 1);
 
         // When
         Long count = cartService.getCartItemCount("user123");
 
         // Then
-        assertEquals(5L, count);
-        verify(cartItemRepository).countByUserId("user123");
+        assertEquals(2L, count);
+    }
+
+    @Test
+    void testApplyMutationsReservesOnlyTheNetChanges() {
+        // Given - product 1 in the cart, product 2 known only to the database
+        persist("user123", 1L, 2);
+        Product case2 = new Product("iPhone Case", "Silicone case", new BigDecimal("19.99"), "case.jpg", 50, category);
+        case2.setId(2L);
+        when(productRepository.findWithCategoryByIdIn(List.of(2L))).thenReturn(List.of(case2));
+        when(stockReservationService.adjust("user123", Map.of(1L, -1, 2L, 3))).thenReturn(null);
+
+        // When
+        CartView cart = cartService.applyMutations("user123", List.of(
+                new CartMutation(2L, CartMutation.Operation.ADD, 1),
+                new CartMutation(1L, CartMutation.Operation.SET, 1),
+                new CartMutation(2L, CartMutation.Operation.ADD, 2)));
+
+        // Then
+        assertEquals(Map.of(1L, 1, 2L, 3), cartStore.lines("user123"));
+        assertEquals(2, cart.getItemCount());
+        assertEquals(new BigDecimal("1059.96"), cart.getTotal()); // 999.99 + 19.99 * 3
+        verify(productRepository, times(1)).findWithCategoryByIdIn(any());
+        verify(productRepository, never()).findWithCategoryById(anyLong());
+    }
+
+    @Test
+    void testApplyMutationsInsufficientStockChangesNothing() {
+        // Given
+        persist("user123", 1L, 2);
+        when(stockReservationService.adjust("user123", Map.of(1L, 8))).thenReturn(1L);
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(5));
+
+        // When & Then
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cartService.applyMutations("user123",
+                List.of(new CartMutation(1L, CartMutation.Operation.SET, 10))));
+        assertEquals("Insufficient stock for product: iPhone 15. Available: 5", e.getMessage());
+        assertEquals(Map.of(1L, 2), cartStore.lines("user123"));
+    }
+
+    @Test
+    void testApplyMutationsProductNotFound() {
+        // Given
+        when(productRepository.findWithCategoryByIdIn(List.of(99L))).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> cartService.applyMutations("user123", List.of(
+                new CartMutation(1L, CartMutation.Operation.ADD, 1),
+                new CartMutation(99L, CartMutation.Operation.ADD, 1))));
+        verify(stockReservationService, never()).adjust(anyString(), anyMap());
+        assertTrue(cartStore.lines("user123").isEmpty());
+    }
+
+    @Test
+    void testApplyMutationsRemoveReleasesTheLine() {
+        // Given
+        persist("user123", 1L, 2);
+        when(stockReservationService.adjust("user123", Map.of(1L, -2))).thenReturn(null);
+
+        // When
+        CartView cart = cartService.applyMutations("user123",
+                List.of(new CartMutation(1L, CartMutation.Operation.REMOVE, null)));
+
+        // Then
+        assertEquals(0, cart.getItemCount());
+        assertEquals(BigDecimal.ZERO, cart.getTotal());
+        assertTrue(cartStore.lines("user123").isEmpty());
+    }
+
+    @Test
+    void testGetCartLines() {
+        // Given - product 1 in the catalog, product 2 only in the database
+        persist("user123", 1L, 2);
+        persist("user123", 2L, 3);
+        when(productRepository.findCardsByIdIn(List.of(2L))).thenReturn(List.of(
+                new ProductCard(2L, "iPhone Case", new BigDecimal("19.99"), "case.jpg", 50, 1L, "Electronics")));
+
+        // When
+        List<CartLine> lines = cartService.getCartLines("user123");
+
+        // Then
+        assertEquals(2, lines.size());
+        assertEquals("iPhone 15", lines.get(0).name());
+        assertEquals(new BigDecimal("1999.98"), lines.get(0).lineTotal());
+        assertEquals(new BigDecimal("59.97"), lines.get(1).lineTotal());
+        verify(productRepository, never()).findWithCategoryByIdIn(any());
+    }
+
+    private void persist(String userId, Long productId, int quantity) {
+        persisted.computeIfAbsent(userId, user -> new LinkedHashMap<>()).put(productId, quantity);
     }
 }
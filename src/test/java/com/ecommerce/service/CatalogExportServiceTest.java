@@ -0,0 +1,98 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:export")
+@AutoConfigureMockMvc
+class CatalogExportServiceTest {
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // More products than one flush chunk
+        if (productRepository.count() < 1500) {
+            Category category = categoryRepository.save(new Category("Export " + UUID.randomUUID(), "Export", null));
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                products.add(new Product("Export item " + i, "Line\nbreak", new BigDecimal("4.50"), null, i, category));
+            }
+            productRepository.saveAll(products);
+        }
+    }
+
+    @Test
+    void testExportsEveryProductOnceInIdOrder() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long written = catalogExportService.exportProducts(out);
+
+        // Then - one JSON object per line, newlines inside values escaped
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(productRepository.count(), written);
+        assertEquals(written, lines.length);
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode product = objectMapper.readTree(line);
+            assertTrue(product.get("id").asLong() > previousId);
+            assertNotNull(product.get("categoryName").asText());
+            previousId = product.get("id").asLong();
+        }
+    }
+
+    @Test
+    void testExportEndpointStreamsNdjson() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(get("/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(productRepository.count(), body.lines().count());
+    }
+}
@@ -0,0 +1,133 @@
+package com.ecommerce.service;
+
+import com.ecommerce.catalog.ProductCatalog;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotServiceTest {
+
+    private static final LocalDateTime SNAPSHOT_TIME = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private CatalogLoader catalogLoader;
+
+    @Spy
+    private ProductCatalog catalog = new ProductCatalog();
+
+    @InjectMocks
+    private CatalogSnapshotService snapshotService;
+
+    private Category electronics;
+
+    @BeforeEach
+    void setUp() {
+        electronics = new Category("Electronics", "Electronic devices", null);
+        electronics.setId(1L);
+    }
+
+    @Test
+    void testCatchUpAppliesNewerRowsAndDeletions() {
+        // Given - the catalog as restored from a snapshot file
+        catalog.load(Arrays.asList(electronics), Arrays.asList(
+                product(1L, "iPhone 15", SNAPSHOT_TIME),
+                product(2L, "Galaxy S24", SNAPSHOT_TIME),
+                product(3L, "Pixel 8", SNAPSHOT_TIME)));
+        // and an event that already applied a change newer than the database row below
+        catalog.saveProduct(product(2L, "Galaxy S24 Ultra", SNAPSHOT_TIME.plusMinutes(10)));
+
+        when(categoryRepository.findAll()).thenReturn(Arrays.asList(electronics));
+        when(productRepository.findChangedSince(SNAPSHOT_TIME.plusMinutes(10))).thenReturn(Arrays.asList(
+                product(1L, "iPhone 15 Pro", SNAPSHOT_TIME.plusMinutes(20)),
+                product(2L, "Galaxy S24 (stale)", SNAPSHOT_TIME.plusMinutes(5)),
+                product(4L, "Pixel 9", SNAPSHOT_TIME.plusMinutes(30))));
+        when(productRepository.findAllIds()).thenReturn(Arrays.asList(1L, 2L, 4L));
+
+        // When
+        snapshotService.catchUp();
+
+        // Then
+        assertEquals("iPhone 15 Pro", catalog.snapshot().getProduct(1L).orElseThrow().getName());
+        assertEquals("Galaxy S24 Ultra", catalog.snapshot().getProduct(2L).orElseThrow().getName());
+        assertFalse(catalog.snapshot().getProduct(3L).isPresent());
+        assertEquals("Pixel 9", catalog.snapshot().getProduct(4L).orElseThrow().getName());
+        verify(catalogLoader, never()).reload();
+    }
+
+    @Test
+    void testCatchUpAppliesRowsAtTheLastTimestampAndDropsDeletedCategories() {
+        // Given - a second row committed in the same clock tick as the newest one in the snapshot
+        Category discontinued = new Category("Discontinued", "Old stock", null);
+        discontinued.setId(2L);
+        catalog.load(Arrays.asList(electronics, discontinued), Arrays.asList(
+                product(1L, "iPhone 15", SNAPSHOT_TIME),
+                product(2L, "Galaxy S24", SNAPSHOT_TIME)));
+
+        when(categoryRepository.findAll()).thenReturn(Arrays.asList(electronics));
+        when(productRepository.findChangedSince(SNAPSHOT_TIME)).thenReturn(Arrays.asList(
+                product(1L, "iPhone 15", SNAPSHOT_TIME),
+                product(2L, "Galaxy S24 FE", SNAPSHOT_TIME)));
+        when(productRepository.findAllIds()).thenReturn(Arrays.asList(1L, 2L));
+        long version = catalog.snapshot().version();
+
+        // When
+        snapshotService.catchUp();
+
+        // Then - the unchanged row is skipped, the changed one applied, the category removed
+        assertEquals("Galaxy S24 FE", catalog.snapshot().getProduct(2L).orElseThrow().getName());
+        assertFalse(catalog.snapshot().getCategory(2L).isPresent());
+        assertEquals(Arrays.asList(electronics), catalog.snapshot().getCategories());
+        assertEquals(version + 2, catalog.snapshot().version());
+    }
+
+    @Test
+    void testCatchUpReloadsCatalogWithoutTimestamps() {
+        // Given - demo data, which carries no update times
+        catalog.load(Arrays.asList(electronics), Arrays.asList(product(1L, "Demo phone", null)));
+
+        when(categoryRepository.findAll()).thenReturn(Arrays.asList(electronics));
+        when(catalogLoader.reload()).thenAnswer(invocation -> {
+            catalog.load(Arrays.asList(electronics), Arrays.asList(product(7L, "iPhone 15", SNAPSHOT_TIME)));
+            return 1;
+        });
+        when(productRepository.findChangedSince(SNAPSHOT_TIME)).thenReturn(Collections.emptyList());
+        when(productRepository.findAllIds()).thenReturn(Arrays.asList(7L));
+
+        // When
+        snapshotService.catchUp();
+
+        // Then
+        assertFalse(catalog.snapshot().getProduct(1L).isPresent());
+        assertEquals("iPhone 15", catalog.snapshot().getProduct(7L).orElseThrow().getName());
+    }
+
+    private Product product(Long id, String name, LocalDateTime updatedAt) {
+        Product product = new Product(name, name + " description", new BigDecimal("99.99"), null, 10, electronics);
+        product.setId(id);
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+}
@@ -0,0 +1,176 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cart.CartStore;
+import com.ecommerce.checkout.CheckoutRequest;
+import com.ecommerce.checkout.CheckoutResult;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checkout against the database: a checkout costs the same number of statements whatever
+ * the size of the cart, a batch of checkouts shares out stock in arrival order, and carts
+ * naming deleted products neither fail a checkout nor a flush.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class OrderCheckoutStatementTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartWriteBehindService cartWriteBehindService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Checkout " + UUID.randomUUID(), "Checkout test", null));
+        products = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            products.add(new Product("Item " + i, "Checkout item", new BigDecimal("10.00"), null, 100, category));
+        }
+        products = productRepository.saveAll(products);
+    }
+
+    @Test
+    void testCheckoutStatementsDoNotGrowWithCartSize() {
+        // Given - warm-up checkouts, so the id pools are already allocated
+        checkout(1);
+        checkout(1);
+
+        // When
+        long small = checkout(3);
+        long large = checkout(30);
+
+        // Then
+        assertEquals(small, large);
+        assertEquals(100 - 4, productRepository.findById(products.get(0).getId()).orElseThrow().getStockQuantity());
+        assertEquals(100 - 2, productRepository.findById(products.get(2).getId()).orElseThrow().getStockQuantity());
+        assertEquals(100 - 1, productRepository.findById(products.get(29).getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void testBatchHandsOutStockInArrivalOrder() {
+        // Given - two units left and three carts wanting one each, plus an empty cart
+        Product scarce = products.get(0);
+        scarce.setStockQuantity(2);
+        productRepository.save(scarce);
+        String prefix = "batch-" + UUID.randomUUID() + "-";
+        List<CheckoutRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cartItemRepository.save(new CartItem(prefix + i, scarce, 1));
+            requests.add(new CheckoutRequest(prefix + i, "1 Main St"));
+        }
+        requests.add(new CheckoutRequest(prefix + "empty", "1 Main St"));
+
+        // When
+        List<CheckoutResult> results = orderService.createOrders(requests);
+
+        // Then
+        assertTrue(results.get(0).isCompleted());
+        assertTrue(results.get(1).isCompleted());
+        assertEquals("Insufficient stock for product: Item 0", results.get(2).getFailure());
+        assertEquals("Cart is empty", results.get(3).getFailure());
+        assertEquals(0, productRepository.findById(scarce.getId()).orElseThrow().getStockQuantity());
+        assertEquals(1L, cartItemRepository.countByUserId(prefix + 2));
+        assertEquals(0L, cartItemRepository.countByUserId(prefix + 0));
+    }
+
+    @Test
+    void testCheckoutDropsLinesOfDeletedProducts() {
+        // Given - a cart still naming a product deleted after it was added
+        String userId = "deleted-" + UUID.randomUUID();
+        Long deleted = deletedProductId();
+        cartStore.add(userId, products.get(0).getId(), 2);
+        cartStore.add(userId, deleted, 1);
+
+        // When
+        Order order = orderService.createOrder(userId, "1 Main St");
+
+        // Then
+        assertEquals(1, order.getOrderItems().size());
+        assertEquals(new BigDecimal("20.00"), order.getTotalAmount());
+        assertTrue(cartStore.lines(userId).isEmpty());
+    }
+
+    @Test
+    void testFlushDropsLinesOfDeletedProducts() {
+        // Given
+        String userId = "deleted-" + UUID.randomUUID();
+        Long deleted = deletedProductId();
+        cartStore.add(userId, deleted, 1);
+        cartStore.add(userId, products.get(1).getId(), 3);
+
+        // When
+        cartWriteBehindService.flush();
+
+        // Then - written without the line, and not put back to be retried
+        assertEquals(Map.of(products.get(1).getId(), 3), cartStore.lines(userId));
+        assertEquals(1L, cartItemRepository.countByUserId(userId));
+        assertEquals(0, cartStore.dirtyCarts());
+    }
+
+    private Long deletedProductId() {
+        Product product = productRepository.save(new Product("Gone", "Deleted", new BigDecimal("5.00"), null, 10,
+                products.get(0).getCategory()));
+        productRepository.delete(product);
+        return product.getId();
+    }
+
+    private long checkout(int lines) {
+        String userId = "checkout-" + UUID.randomUUID();
+        List<CartItem> cart = new ArrayList<>();
+        for (Product product : products.subList(0, lines)) {
+            cart.add(new CartItem(userId, product, 1));
+        }
+        cartItemRepository.saveAll(cart);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Order order = orderService.createOrder(userId, "1 Main St");
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(lines, order.getOrderItems().size());
+        assertEquals(new BigDecimal("10.00").multiply(BigDecimal.valueOf(lines)), order.getTotalAmount());
+        return statements;
+    }
+}
@@ -1,18 +1,25 @@
 package com.ecommerce.service;
 
+import com.ecommerce.cache.ProductQueryKey;
+import com.ecommerce.catalog.ProductChangedEvent;
 import com.ecommerce.entity.Category;
 import com.ecommerce.entity.Product;
+import com.ecommerce.metrics.DataAccessMetrics;
 import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -29,6 +36,12 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private DataAccessMetrics dataAccessMetrics = new DataAccessMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private ProductService productService;
 
@@ -134,6 +147,7 @@ class ProductServiceTest {
         assertNotNull(result);
         assertEquals("iPhone 15", result.getName());
         verify(productRepository).save(product);
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -162,6 +176,7 @@ class ProductServiceTest {
         assertThrows(RuntimeException.class, () -> productService.updateProduct(1L, product));
         verify(productRepository).findById(1L);
         verify(productRepository, never()).save(any(Product.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -171,6 +186,7 @@ class ProductServiceTest {
 
         // Then
         verify(productRepository).deleteById(1L);
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
@@ -202,4 +218,30 @@ class ProductServiceTest {
         assertEquals(1, result.size());
         verify(productRepository).findCheapestProducts();
     }
+
+    @Test
+    void testReloadRecomputesCategoryPage() {
+        // Given
+        Page<Product> productPage = new PageImpl<>(Arrays.asList(product));
+        when(productRepository.findByCategoryId(eq(1L), any(Pageable.class))).thenReturn(productPage);
+
+        // When
+        Object result = productService.reload(ProductQueryKey.category(1L, 0, 10));
+
+        // Then
+        assertSame(productPage, result);
+        verify(productRepository).findByCategoryId(1L, PageRequest.of(0, 10, Sort.by("name").ascending()));
+    }
+
+    @Test
+    void testReloadUnwrapsProductById() {
+        // Given
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        // When
+        Object result = productService.reload(ProductQueryKey.byId(1L));
+
+        // Then
+        assertSame(product, result);
+    }
 }
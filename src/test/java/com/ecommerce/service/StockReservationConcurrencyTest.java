@@ -0,0 +1,238 @@
+package com.ecommerce.service;
+
+import com.ecommerce.cart.CartMutation;
+import com.ecommerce.entity.CartItem;
+import com.ecommerce.entity.Category;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.StockReservation;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single SKU from many threads against the real database to show that stock is
+ * never oversold.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "ecommerce.inventory.reservation-ttl=0s",
+        "ecommerce.inventory.sweep-interval=PT1H"
+})
+class StockReservationConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private InMemoryProductService inMemoryProductService;
+
+    private Category category;
+    private String run;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category("Flash sale " + UUID.randomUUID(), "Limited stock", null));
+        run = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void testConcurrentCheckoutsNeverOversell() throws Exception {
+        // Given - 2000 carts holding one unit each of a SKU with 500 in stock, none of them reserved
+        Product product = productRepository.save(new Product("Limited sneaker", "Drop", new BigDecimal("120.00"), null, 500, category));
+        List<CartItem> carts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            carts.add(new CartItem(run + "-" + i, product, 1));
+        }
+        cartItemRepository.saveAll(carts);
+
+        // When
+        List<Boolean> outcomes = runConcurrently(carts.size(), i -> {
+            try {
+                orderService.createOrder(run + "-" + i, "1 Main St");
+                return true;
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().startsWith("Insufficient stock"), e.getMessage());
+                return false;
+            }
+        });
+
+        // Then
+        assertEquals(500, outcomes.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        long orders = 0;
+        for (int i = 0; i < carts.size(); i++) {
+            orders += orderRepository.countByUserId(run + "-" + i);
+        }
+        assertEquals(500, orders);
+    }
+
+    @Test
+    void testConcurrentCartHoldsNeverOversellAndExpire() throws Exception {
+        // Given
+        Product product = productRepository.save(new Product("Limited jacket", "Drop", new BigDecimal("80.00"), null, 100, category));
+
+        // When - 1000 shoppers race to put the SKU in their carts
+        List<Boolean> outcomes = runConcurrently(1000, i -> {
+            try {
+                cartService.addToCart(run + "-" + i, product.getId(), 1);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        });
+
+        // Then
+        assertEquals(100, outcomes.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+
+        // When - the holds outlive the (zero) reservation TTL
+        int released = stockReservationService.releaseExpired();
+
+        // Then
+        assertTrue(released >= 100);
+        assertEquals(100, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertTrue(reservationRepository.findAll().stream().noneMatch(hold -> hold.getProductId().equals(product.getId())));
+    }
+
+    @Test
+    void testConcurrentFirstReservationsOfOneLineShareItsHold() throws Exception {
+        // Given - a cart line with no hold yet
+        Product product = productRepository.save(new Product("Limited scarf", "Drop", new BigDecimal("40.00"), null, 100, category));
+        String userId = run + "-scarf";
+
+        // When - the same shopper reserves it from many tabs at once
+        List<Boolean> outcomes = runConcurrently(THREADS, i -> stockReservationService.reserve(userId, product.getId(), 1));
+
+        // Then - every reservation lands on the one hold instead of colliding on its insert
+        assertTrue(outcomes.stream().allMatch(Boolean::booleanValue));
+        List<StockReservation> holds = reservationRepository.findAll().stream()
+                .filter(hold -> hold.getUserId().equals(userId))
+                .toList();
+        assertEquals(1, holds.size());
+        assertEquals(THREADS, holds.get(0).getQuantity());
+        assertEquals(100 - THREADS, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void testConcurrentBulkCartUpdatesAreAllOrNothing() throws Exception {
+        // Given - a scarce SKU bought together with a plentiful one
+        Product scarce = productRepository.save(new Product("Limited cap", "Drop", new BigDecimal("30.00"), null, 50, category));
+        Product plentiful = productRepository.save(new Product("Socks", "Basics", new BigDecimal("5.00"), null, 1000, category));
+        List<CartMutation> mutations = List.of(
+                new CartMutation(plentiful.getId(), CartMutation.Operation.ADD, 2),
+                new CartMutation(scarce.getId(), CartMutation.Operation.ADD, 1));
+
+        // When - 200 shoppers sync both lines in one request each
+        List<Boolean> outcomes = runConcurrently(200, i -> {
+            try {
+                cartService.applyMutations(run + "-" + i, mutations);
+                return true;
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().startsWith("Insufficient stock"), e.getMessage());
+                return false;
+            }
+        });
+
+        // Then - the shoppers who missed the scarce SKU hold none of the plentiful one either
+        assertEquals(50, outcomes.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, productRepository.findById(scarce.getId()).orElseThrow().getStockQuantity());
+        assertEquals(900, productRepository.findById(plentiful.getId()).orElseThrow().getStockQuantity());
+        for (int i = 0; i < outcomes.size(); i++) {
+            assertEquals(outcomes.get(i) ? 2 : 0, cartService.getCartItemCount(run + "-" + i));
+        }
+    }
+
+    @Test
+    void testSellingOutAndRestockingReachTheInMemoryCatalog() {
+        // Given
+        Product product = productRepository.save(new Product("Limited scarf", "Drop", new BigDecimal("25.00"), null, 10, category));
+        inMemoryProductService.saveProduct(product);
+
+        // When - a hold that leaves stock behind commits
+        assertTrue(stockReservationService.reserve(run, product.getId(), 3));
+
+        // Then - the catalog's count lags
+        inMemoryProductService.refreshStock();
+        assertEquals(10, inMemoryProductService.getProductById(product.getId()).orElseThrow().getStockQuantity());
+
+        // When - the rest is held
+        assertTrue(stockReservationService.reserve(run + "-other", product.getId(), 7));
+        inMemoryProductService.refreshStock();
+
+        // Then
+        assertEquals(0, inMemoryProductService.getProductById(product.getId()).orElseThrow().getStockQuantity());
+
+        // When - the holds expire and go back to stock
+        stockReservationService.releaseExpired();
+        inMemoryProductService.refreshStock();
+
+        // Then
+        assertEquals(10, inMemoryProductService.getProductById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    private interface Attempt {
+        boolean run(int index);
+    }
+
+    private static List<Boolean> runConcurrently(int attempts, Attempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.run(index);
+                }));
+            }
+            start.countDown();
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL statements a piece of code sends to the database, whether they come from
+ * Hibernate, lazy loading during serialization, or {@code JdbcTemplate}. Import it into a
+ * Spring test to wrap the data source; only statements prepared on the measuring thread are
+ * counted, so scheduled jobs running meanwhile do not skew the result. A JDBC batch counts
+ * as one statement.
+ */
+public class StatementCounter implements BeanPostProcessor {
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+    /**
+     * The code under measurement.
+     */
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private final AtomicLong statements = new AtomicLong();
+    private volatile Thread measured;
+
+    /**
+     * @return the number of statements {@code action} prepared
+     */
+    public synchronized long count(Action action) throws Exception {
+        statements.set(0);
+        measured = Thread.currentThread();
+        try {
+            action.run();
+        } finally {
+            measured = null;
+        }
+        return statements.get();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)) {
+            return new CountingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName()) && Thread.currentThread() == measured) {
+                        statements.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+    }
+}